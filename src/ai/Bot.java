@@ -0,0 +1,234 @@
+package ai;
+
+import input.RemoteKeyBoard;
+import math.FixedPoint;
+import net.TickStats;
+import sprites.Player;
+import sprites.Tank;
+import states.Match;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Bot is a KeyBoard whose keys are decided by the computer, for playing
+ * without a person (e.g. the attract mode, or filling an empty slot).
+ * <p>
+ *     Every tick it updates the flow field of its player with the cells
+ *     that changed owner, steers towards the nearest cell it does not own
+ *     following the field, and shoots when the bullet would land on such a
+ *     cell or near the enemy. The work of updating the field is capped by a
+ *     budget, so a tick where a lot of cells change does not cost more than
+ *     that: the changes left are applied in the next ticks. The decision time
+ *     of every tick is recorded for reporting.
+ * </p>
+ * <p>
+ *     It only uses integer math on the state of the match, so its decisions
+ *     are deterministic, and it can play in rollback or replayed matches.
+ * </p>
+ */
+public class Bot extends RemoteKeyBoard {
+	/**
+	 * Default budget of the flow field updates of a tick, in cells visited
+	 */
+	public static final int DEFAULT_WORK_BUDGET = 2000;
+	/**
+	 * Cells of the flow field followed ahead of the tank, for smoother turns
+	 */
+	private static final int LOOKAHEAD = 4;
+	/**
+	 * Distance a bullet travels, in pixels
+	 */
+	private static final int SHOT_RANGE = 200;
+	/**
+	 * Distance to the enemy it shoots at, in pixels
+	 */
+	private static final int ENEMY_RANGE = 250;
+	/**
+	 * Distance to the nearest target, in cells, from which it boosts
+	 */
+	private static final int BOOST_DISTANCE = 10;
+	/**
+	 * Ticks without moving before backing up, and ticks backing up
+	 */
+	private static final int STUCK_TICKS = 15, RECOVERY_TICKS = 20;
+
+	private final Player player;
+	private final int workBudget;
+	private FlowField flowField;
+	private final TickStats decisionStats = new TickStats();
+	private long deferredUpdates;
+	private double lastX, lastY;
+	private int stuckTicks, recoveryTicks;
+
+	/**
+	 * Creates a bot with the default work budget, which replaces the keyBoard of a player
+	 * @param player The player, with the keyBoard whose key codes are used
+	 */
+	public Bot(Player player) {
+		this(player, DEFAULT_WORK_BUDGET);
+	}
+
+	/**
+	 * Creates a bot, which replaces the keyBoard of a player
+	 * @param player The player, with the keyBoard whose key codes are used
+	 * @param workBudget The budget of the flow field updates of a tick, in cells visited
+	 */
+	public Bot(Player player, int workBudget) {
+		super(player.keyBoard);
+		this.player = player;
+		this.workBudget = workBudget;
+		player.keyBoard = this;
+		if (player.match != null) {
+			flowField = new FlowField(player.match, player.getTeam());
+		}
+	}
+
+	/**
+	 * Decides the keys of the tick
+	 */
+	@Override
+	public void update() {
+		long start = System.nanoTime();
+		setButtons(decide());
+		super.update();
+		decisionStats.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the buttons for the current state of the match
+	 */
+	private int decide() {
+		Match match = player.match;
+		if (flowField == null) {
+			// The player was not in a match yet when the bot was created
+			flowField = new FlowField(match, player.getTeam());
+		} else if (flowField.update(workBudget) < 0) {
+			deferredUpdates++;
+		}
+
+		Tank tank = player.tank;
+		Rectangle2D hitBox = tank.hitBox;
+		long x = Math.round(hitBox.getCenterX()), y = Math.round(hitBox.getCenterY());
+		int angle = FixedPoint.toAngle(tank.getRotation());
+		long headingX = FixedPoint.cos(angle), headingY = FixedPoint.sin(angle);
+
+		if (recoveryTicks > 0) {
+			recoveryTicks--;
+			return DOWN | RIGHT;
+		}
+		if (isStuck(tank)) {
+			recoveryTicks = RECOVERY_TICKS;
+			return DOWN | RIGHT;
+		}
+
+		int buttons = UP;
+		int cell = FlowField.cellAt(x, y);
+		int waypoint = cell;
+		for (int i = 0; i < LOOKAHEAD; i++) {
+			int next = flowField.next(waypoint);
+			if (next < 0) {
+				break;
+			}
+			waypoint = next;
+		}
+		if (waypoint != cell) {
+			long dx = FlowField.centerX(waypoint) - x;
+			long dy = FlowField.centerY(waypoint) - y;
+			buttons = steer(headingX, headingY, dx, dy);
+		}
+		if (flowField.getDistance(cell) > BOOST_DISTANCE && flowField.getDistance(cell) != FlowField.UNREACHABLE) {
+			buttons |= BOOST;
+		}
+
+		// The bullet paints the cells around where it lands
+		int landing = FlowField.cellAt(
+				x + (headingX * SHOT_RANGE >> FixedPoint.FRACTION_BITS),
+				y + (headingY * SHOT_RANGE >> FixedPoint.FRACTION_BITS));
+		if (flowField.getDistance(landing) <= 1 || isAimingAtEnemy(x, y, headingX, headingY)) {
+			buttons |= SHOOT;
+		}
+		return buttons;
+	}
+
+	/**
+	 * Returns the buttons that turn the tank towards a direction: it only
+	 * moves forward if the direction is ahead, and turns unless it is almost
+	 * straight ahead.
+	 */
+	private static int steer(long headingX, long headingY, long dx, long dy) {
+		long cross = headingX * dy - headingY * dx;
+		long dot = headingX * dx + headingY * dy;
+		int buttons = dot > 0 ? UP : 0;
+		// Turns if the angle is over about 6 degrees: sin^2 > 1/100
+		if (cross * cross * 100 > (dx * dx + dy * dy) * FixedPoint.ONE * FixedPoint.ONE || dot <= 0) {
+			buttons |= cross >= 0 ? RIGHT : LEFT;
+		}
+		return buttons;
+	}
+
+	/**
+	 * Returns whether the tank of a player of another team is in range, within
+	 * about 25 degrees ahead.
+	 */
+	private boolean isAimingAtEnemy(long x, long y, long headingX, long headingY) {
+		Match match = player.match;
+		for (int i = 0; i < match.getPlayerCount(); i++) {
+			Player other = match.getPlayer(i);
+			if (other.getTeam() != player.getTeam() && isAimingAt(other.tank.hitBox, x, y, headingX, headingY)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isAimingAt(Rectangle2D enemy, long x, long y, long headingX, long headingY) {
+		long dx = Math.round(enemy.getCenterX()) - x, dy = Math.round(enemy.getCenterY()) - y;
+		long squaredDistance = dx * dx + dy * dy;
+		if (squaredDistance > (long) ENEMY_RANGE * ENEMY_RANGE) {
+			return false;
+		}
+		long dot = headingX * dx + headingY * dy;
+		// cos^2 > 0.8
+		return dot > 0 && dot * dot * 10 > squaredDistance * FixedPoint.ONE * FixedPoint.ONE * 8;
+	}
+
+	/**
+	 * Returns whether the tank has been trying to move forward without moving for a while.
+	 */
+	private boolean isStuck(Tank tank) {
+		double x = tank.position.getX(), y = tank.position.getY();
+		boolean moved = Math.abs(x - lastX) + Math.abs(y - lastY) > 0.1;
+		lastX = x;
+		lastY = y;
+		stuckTicks = moved || (getButtons() & UP) == 0 ? 0 : stuckTicks + 1;
+		if (stuckTicks < STUCK_TICKS) {
+			return false;
+		}
+		stuckTicks = 0;
+		return true;
+	}
+
+	/**
+	 * Returns the flow field of the bot
+	 * @return The flow field, null until the first tick
+	 */
+	public FlowField getFlowField() {
+		return flowField;
+	}
+
+	/**
+	 * Returns the decision time of the last ticks
+	 * @return The decision times, in nanoseconds
+	 */
+	public TickStats getDecisionStats() {
+		return decisionStats;
+	}
+
+	/**
+	 * Returns the ticks where the budget left flow field updates for the next ticks
+	 * @return The number of ticks
+	 */
+	public long getDeferredUpdates() {
+		return deferredUpdates;
+	}
+}
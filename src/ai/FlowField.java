@@ -0,0 +1,368 @@
+package ai;
+
+import arena.Arena;
+import arena.ChunkedTerritory;
+import sprites.Block;
+import sprites.Sprite;
+import states.Match;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Flow field over the cells grid of a match, leading a player to the
+ * nearest cell it does not own (unpainted or painted by the enemy).
+ * <p>
+ *     Every cell keeps its distance, in cells, to the nearest target, going
+ *     around the blocks; following the neighbour with the smallest distance
+ *     leads to it. The distances are computed once, and then updated
+ *     incrementally as cells change owner: a new target only lowers the
+ *     distances around it, and a lost target only invalidates the cells
+ *     whose path went through it, which are repaired from their neighbours.
+ * </p>
+ * <p>
+ *     Cell indexes are column * ROWS + row, like in the TerritoryFeed. Only
+ *     the classic arena is covered, as the owners are read from its feed.
+ * </p>
+ */
+public class FlowField {
+	/**
+	 * Distance of the cells that cannot reach a target, e.g. blocked ones.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	/**
+	 * Position and size of the cells, in pixels.
+	 */
+	private static final int GRID_X = Arena.GRID_X, GRID_Y = Arena.GRID_Y, CELL_SIZE = ChunkedTerritory.CELL_SIZE;
+	/**
+	 * Pixels around the blocks and inside the edges of the playing area
+	 * where a tank does not fit.
+	 */
+	private static final int MARGIN = 30;
+	private static final int COLUMNS = Match.COLUMNS, ROWS = Match.ROWS, CELLS = COLUMNS * ROWS;
+	/**
+	 * Offsets of the 8 neighbours, orthogonal ones first.
+	 */
+	private static final int[] NEIGHBOUR_COLUMNS = { 1, -1, 0, 0, 1, 1, -1, -1 };
+	private static final int[] NEIGHBOUR_ROWS = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+	private final Match match;
+	private final int owner;
+	private final boolean[] blocked = new boolean[CELLS];
+	/**
+	 * Owners of the cells the distances are up to date with.
+	 */
+	private final byte[] known = new byte[CELLS];
+	private final int[] distance = new int[CELLS];
+	/**
+	 * Work queues, reused by every update.
+	 */
+	private final int[] queue = new int[CELLS], seeds = new int[CELLS];
+	private final long[] seedKeys = new long[CELLS];
+	private final boolean[] seeded = new boolean[CELLS];
+	/**
+	 * Cell the next update starts looking for changes at, so the changes
+	 * left for later by the budget are not starved.
+	 */
+	private int scanPosition;
+
+	/**
+	 * Creates the flow field of a player, computing the distances of every cell.
+	 * @param match The match.
+	 * @param owner The owner of the cells of the player, its team.
+	 * @throws IllegalArgumentException If the match is played in a large arena.
+	 */
+	public FlowField(Match match, int owner) {
+		if (match.getTerritory() != null) {
+			throw new IllegalArgumentException("Flow fields only cover the classic arena");
+		}
+		this.match = match;
+		this.owner = owner;
+		findBlockedCells();
+		rebuild();
+	}
+
+	/**
+	 * Marks the cells where a tank does not fit: near a block or outside the playing area.
+	 */
+	private void findBlockedCells() {
+		Rectangle2D area = match.playingArea.hitBox;
+		Rectangle2D inner = new Rectangle2D.Double(area.getX() + MARGIN, area.getY() + MARGIN,
+				area.getWidth() - 2 * MARGIN, area.getHeight() - 2 * MARGIN);
+		for (int c = 0; c < CELLS; c++) {
+			double x = GRID_X + (c / ROWS) * CELL_SIZE, y = GRID_Y + (c % ROWS) * CELL_SIZE;
+			blocked[c] = !inner.contains(x + CELL_SIZE / 2.0, y + CELL_SIZE / 2.0);
+			for (Sprite sprite : match.colliders) {
+				if (sprite instanceof Block) {
+					Rectangle2D hitBox = sprite.hitBox;
+					blocked[c] |= hitBox.intersects(x - MARGIN, y - MARGIN,
+							CELL_SIZE + 2 * MARGIN, CELL_SIZE + 2 * MARGIN);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the distances of every cell from scratch.
+	 */
+	public void rebuild() {
+		System.arraycopy(match.getTerritoryFeed().getOwners(), 0, known, 0, CELLS);
+		int count = 0;
+		for (int c = 0; c < CELLS; c++) {
+			if (isTarget(c)) {
+				distance[c] = 0;
+				seeds[count++] = c;
+			} else {
+				distance[c] = UNREACHABLE;
+			}
+		}
+		propagate(count);
+	}
+
+	/**
+	 * Updates the distances with the cells that changed owner since the last
+	 * update. Each change is applied completely, so the work can exceed the
+	 * budget by the work of the last change; the changes left are applied by
+	 * the next updates.
+	 * @param budget The maximum work, in cells visited.
+	 * @return The work done, or -1 if changes were left for the next update.
+	 */
+	public int update(int budget) {
+		byte[] owners = match.getTerritoryFeed().getOwners();
+		int work = 0;
+		for (int i = 0; i < CELLS; i++) {
+			int c = (scanPosition + i) % CELLS;
+			if (owners[c] == known[c]) {
+				continue;
+			}
+			if (work >= budget) {
+				scanPosition = c;
+				return -1;
+			}
+			boolean wasTarget = isTarget(c);
+			known[c] = owners[c];
+			if (isTarget(c) != wasTarget) {
+				work += wasTarget ? removeTarget(c) : addTarget(c);
+			}
+		}
+		return work;
+	}
+
+	/**
+	 * Lowers the distances around a new target.
+	 * @return The work done.
+	 */
+	private int addTarget(int cell) {
+		distance[cell] = 0;
+		seeds[0] = cell;
+		return propagate(1);
+	}
+
+	/**
+	 * Invalidates the cells whose path went through a lost target, and
+	 * repairs them from their neighbours that are still valid.
+	 * @return The work done.
+	 */
+	private int removeTarget(int cell) {
+		// The invalidated cells are queued by increasing distance, so when a cell
+		// is checked, every cell a layer closer has already been invalidated
+		int head = 0, tail = 0;
+		queue[tail++] = cell;
+		int cellDistance = 0;
+		distance[cell] = UNREACHABLE;
+		while (head < tail) {
+			int c = queue[head++];
+			if (head > 1) {
+				cellDistance = -distance[c] - 1;
+				distance[c] = UNREACHABLE;
+			}
+			int column = c / ROWS, row = c % ROWS;
+			for (int k = 0; k < 8; k++) {
+				int n = neighbour(column, row, k);
+				if (n >= 0 && distance[n] == cellDistance + 1 && !isSupported(n)) {
+					// Marked with its old distance until it is dequeued
+					distance[n] = -(cellDistance + 1) - 1;
+					queue[tail++] = n;
+				}
+			}
+		}
+		for (int i = 0; i < tail; i++) {
+			distance[queue[i]] = UNREACHABLE;
+		}
+
+		// The valid neighbours of the invalidated cells are the seeds of the repair
+		int count = 0;
+		for (int i = 0; i < tail; i++) {
+			int c = queue[i];
+			int column = c / ROWS, row = c % ROWS;
+			for (int k = 0; k < 8; k++) {
+				int n = neighbour(column, row, k);
+				if (n >= 0 && distance[n] != UNREACHABLE && !seeded[n]) {
+					seeded[n] = true;
+					seeds[count++] = n;
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			seeded[seeds[i]] = false;
+		}
+		sortSeeds(count);
+		return tail + propagate(count);
+	}
+
+	/**
+	 * Returns whether a cell still has a neighbour one step closer to a target.
+	 */
+	private boolean isSupported(int cell) {
+		int column = cell / ROWS, row = cell % ROWS;
+		for (int k = 0; k < 8; k++) {
+			int n = neighbour(column, row, k);
+			// Invalidated cells have a negative distance
+			if (n >= 0 && distance[n] >= 0 && distance[n] == distance[cell] - 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sorts the seeds by distance, so merging them with the queue visits the
+	 * cells in order of distance.
+	 */
+	private void sortSeeds(int count) {
+		for (int i = 0; i < count; i++) {
+			seedKeys[i] = (long) distance[seeds[i]] << 32 | seeds[i];
+		}
+		Arrays.sort(seedKeys, 0, count);
+		for (int i = 0; i < count; i++) {
+			seeds[i] = (int) seedKeys[i];
+		}
+	}
+
+	/**
+	 * Lowers the distances from the seeds, sorted by distance, visiting the
+	 * cells in order of distance.
+	 * @return The work done.
+	 */
+	private int propagate(int seedCount) {
+		int head = 0, tail = 0, nextSeed = 0, work = 0;
+		while (nextSeed < seedCount || head < tail) {
+			int c;
+			if (head == tail || nextSeed < seedCount && distance[seeds[nextSeed]] <= distance[queue[head]]) {
+				c = seeds[nextSeed++];
+			} else {
+				c = queue[head++];
+			}
+			work++;
+			int column = c / ROWS, row = c % ROWS;
+			for (int k = 0; k < 8; k++) {
+				int n = neighbour(column, row, k);
+				if (n >= 0 && distance[n] > distance[c] + 1) {
+					// The cells are visited in order of distance, so the first
+					// distance a cell takes is final and it is queued only once
+					distance[n] = distance[c] + 1;
+					queue[tail++] = n;
+				}
+			}
+		}
+		return work;
+	}
+
+	/**
+	 * Returns a neighbour of a cell a tank can go to, without cutting the
+	 * corner of a blocked cell.
+	 * @return The index of the neighbour, or -1 if it is blocked or outside the grid.
+	 */
+	private int neighbour(int column, int row, int k) {
+		int nColumn = column + NEIGHBOUR_COLUMNS[k], nRow = row + NEIGHBOUR_ROWS[k];
+		if (nColumn < 0 || nColumn >= COLUMNS || nRow < 0 || nRow >= ROWS) {
+			return -1;
+		}
+		int n = nColumn * ROWS + nRow;
+		if (blocked[n]) {
+			return -1;
+		}
+		if (k >= 4 && (blocked[nColumn * ROWS + row] || blocked[column * ROWS + nRow])) {
+			return -1;
+		}
+		return n;
+	}
+
+	private boolean isTarget(int cell) {
+		return !blocked[cell] && known[cell] != owner;
+	}
+
+	/**
+	 * Returns the neighbour of a cell closest to a target.
+	 * @param cell The index of the cell.
+	 * @return The index of the neighbour, or -1 if the cell is a target or cannot reach one.
+	 */
+	public int next(int cell) {
+		int best = -1, bestDistance = distance[cell];
+		int column = cell / ROWS, row = cell % ROWS;
+		for (int k = 0; k < 8; k++) {
+			int n = neighbour(column, row, k);
+			if (n >= 0 && distance[n] < bestDistance) {
+				best = n;
+				bestDistance = distance[n];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the center of a cell.
+	 * @param cell The index of the cell.
+	 * @return The x coordinate, in pixels.
+	 */
+	public static int centerX(int cell) {
+		return GRID_X + (cell / ROWS) * CELL_SIZE + CELL_SIZE / 2;
+	}
+
+	/**
+	 * Returns the center of a cell.
+	 * @param cell The index of the cell.
+	 * @return The y coordinate, in pixels.
+	 */
+	public static int centerY(int cell) {
+		return GRID_Y + (cell % ROWS) * CELL_SIZE + CELL_SIZE / 2;
+	}
+
+	/**
+	 * Returns the index of the cell at a position, clamped to the grid.
+	 * @param x The x coordinate, in pixels.
+	 * @param y The y coordinate, in pixels.
+	 * @return The index of the cell.
+	 */
+	public static int cellAt(double x, double y) {
+		int column = Math.max(0, Math.min(COLUMNS - 1, (int) Math.floor((x - GRID_X) / CELL_SIZE)));
+		int row = Math.max(0, Math.min(ROWS - 1, (int) Math.floor((y - GRID_Y) / CELL_SIZE)));
+		return column * ROWS + row;
+	}
+
+	/**
+	 * Returns the distance of a cell to the nearest target.
+	 * @param cell The index of the cell.
+	 * @return The distance, in cells, or UNREACHABLE.
+	 */
+	public int getDistance(int cell) {
+		return distance[cell];
+	}
+
+	/**
+	 * Returns whether a tank does not fit in a cell.
+	 * @param cell The index of the cell.
+	 * @return true if it is blocked.
+	 */
+	public boolean isBlocked(int cell) {
+		return blocked[cell];
+	}
+
+	/**
+	 * Returns whether the distances are up to date with the owners of the cells.
+	 * @return true if no change is left for the next update.
+	 */
+	public boolean isUpToDate() {
+		return Arrays.equals(known, match.getTerritoryFeed().getOwners());
+	}
+}
@@ -0,0 +1,179 @@
+package arena;
+
+import graphics.Assets;
+import math.Vector2D;
+import sprites.Block;
+import sprites.Cell;
+import states.Match;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * The static part of an arena: its cells, blocks and playing area, and the
+ * occupancy grid baked from them. It is built once and reused by match
+ * after match, as building it allocates every cell.
+ * <p>
+ *     The owners of the cells are stamped with the generation of the arena
+ *     they were painted in, and a cell stamped with an older generation is
+ *     not painted. Resetting the arena for the next match only starts a new
+ *     generation, whatever the number of cells painted. The territory of a
+ *     large arena is cleared chunk by chunk instead.
+ * </p>
+ * <p>
+ *     An arena is used by a single match at a time, which receives the
+ *     owner changes of its cells.
+ * </p>
+ */
+public class Arena implements Cell.OwnerListener {
+	/**
+	 * Position of the first cell of the grid.
+	 */
+	public static final int GRID_X = 193, GRID_Y = 189;
+
+	/**
+	 * The cells of the classic arena, null in a large arena, whose territory is painted instead.
+	 */
+	private final Cell[][] cells;
+	private final Block[] blocks;
+	private final Block playingArea = new Block(new Vector2D(0, 0));
+	/**
+	 * The territory of a large arena, painted instead of the cells, null in the classic arena.
+	 */
+	private final ChunkedTerritory territory;
+	private final OccupancyGrid occupancy;
+	/**
+	 * The current generation: the cells stamped with another one are not painted.
+	 */
+	private long generation = 1;
+	/**
+	 * The listener of the match using the arena, null if there is none.
+	 */
+	private Cell.OwnerListener ownerListener;
+
+	/**
+	 * Creates the classic arena.
+	 */
+	public Arena() {
+		this(0, 0);
+	}
+
+	/**
+	 * Creates an arena.
+	 * @param columns The columns of cells of a large arena, 0 for the classic arena.
+	 * @param rows The rows of cells of a large arena, 0 for the classic arena.
+	 */
+	public Arena(int columns, int rows) {
+		this.blocks = new Block[] {
+				new Block(new Vector2D(458, 407)),
+				new Block(new Vector2D(933, 189)),
+				new Block(new Vector2D(879, 866)),
+				new Block(new Vector2D(1392, 757))
+		};
+		playingArea.hitBox.setRect(200, 215, 1530, 746);
+		if (columns > 0) {
+			// The playing area keeps the margins it has in the classic arena
+			territory = new ChunkedTerritory(columns, rows, GRID_X, GRID_Y);
+			playingArea.hitBox.setRect(GRID_X + 7, GRID_Y + 26, territory.getWidth() - 10, territory.getHeight() - 38);
+			cells = null;
+		} else {
+			territory = null;
+			cells = createCells();
+		}
+		occupancy = bakeOccupancy();
+	}
+
+	/**
+	 * Creates the cells of the classic arena.
+	 */
+	private Cell[][] createCells() {
+		Cell[][] cells = new Cell[Match.COLUMNS][Match.ROWS];
+		for (int i = 0; i < cells.length; i++) {
+			for (int j = 0; j < cells[i].length; j++) {
+				cells[i][j] = new Cell(
+						new Vector2D(GRID_X + i * ChunkedTerritory.CELL_SIZE, GRID_Y + j * ChunkedTerritory.CELL_SIZE),
+						Assets.cell0Texture
+				);
+				cells[i][j].setArena(this, i * Match.ROWS + j);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Bakes the blocks and the playing area into an occupancy grid covering all of them.
+	 */
+	private OccupancyGrid bakeOccupancy() {
+		Rectangle2D bounds = playingArea.hitBox.getBounds2D();
+		for (Block b : blocks) {
+			bounds.add(b.hitBox);
+		}
+		OccupancyGrid grid = new OccupancyGrid((int) Math.ceil(bounds.getMaxX()), (int) Math.ceil(bounds.getMaxY()));
+		grid.addOpen(playingArea.hitBox);
+		for (Block b : blocks) {
+			grid.addSolid(b.hitBox);
+		}
+		return grid;
+	}
+
+	/**
+	 * Unpaints every cell for the next match, starting a new generation,
+	 * and stops notifying the owner changes to the previous match.
+	 */
+	public void reset() {
+		generation++;
+		ownerListener = null;
+		if (territory != null) {
+			territory.clear();
+		}
+	}
+
+	/**
+	 * @return The current generation, which the cells painted in this match are stamped with.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Sets the listener notified when a cell changes of owner, e.g. the territory feed of the match.
+	 * @param listener The listener, null for none.
+	 */
+	public void setOwnerListener(Cell.OwnerListener listener) {
+		this.ownerListener = listener;
+	}
+
+	/**
+	 * Forwards the owner changes of the cells to the listener of the match.
+	 */
+	@Override
+	public void ownerChanged(int index, int owner) {
+		if (ownerListener != null) {
+			ownerListener.ownerChanged(index, owner);
+		}
+	}
+
+	/**
+	 * @return The cells, by columns and rows, null in a large arena.
+	 */
+	public Cell[][] getCells() { return cells; }
+
+	/**
+	 * @return The blocks.
+	 */
+	public Block[] getBlocks() { return blocks; }
+
+	/**
+	 * @return The block whose hit box is the playing area.
+	 */
+	public Block getPlayingArea() { return playingArea; }
+
+	/**
+	 * @return The territory of a large arena, null in the classic arena.
+	 */
+	public ChunkedTerritory getTerritory() { return territory; }
+
+	/**
+	 * @return The blocks and the playing area baked into pixels.
+	 */
+	public OccupancyGrid getOccupancy() { return occupancy; }
+}
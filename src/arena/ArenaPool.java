@@ -0,0 +1,97 @@
+package arena;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Arenas of the same size kept for the next matches, so building one (and
+ * all its cells) does not hitch the first frames of a match.
+ * <p>
+ *     The arenas left by the matches are released into the pool, and the
+ *     next matches acquire them, reset in constant time. The first arena
+ *     can be prewarmed: built in the background, e.g. while the players
+ *     read the tutorial, so a match only waits for it if it starts before
+ *     it is ready.
+ * </p>
+ * <p>
+ *     The pool is used from the game thread; only the prewarming runs in
+ *     another thread.
+ * </p>
+ */
+public class ArenaPool {
+	private final int columns, rows;
+	private final ArrayDeque<Arena> free = new ArrayDeque<>();
+	/**
+	 * The arena being built in the background, null if there is none.
+	 */
+	private FutureTask<Arena> prewarming;
+	private volatile int created;
+
+	/**
+	 * Creates an empty pool.
+	 * @param columns The columns of cells of the large arenas, 0 for the classic arena.
+	 * @param rows The rows of cells of the large arenas, 0 for the classic arena.
+	 */
+	public ArenaPool(int columns, int rows) {
+		this.columns = columns;
+		this.rows = rows;
+	}
+
+	/**
+	 * Starts building an arena in the background, if there is none free or
+	 * being built already.
+	 */
+	public void prewarm() {
+		if (!free.isEmpty() || prewarming != null) {
+			return;
+		}
+		prewarming = new FutureTask<>(this::newArena);
+		Thread thread = new Thread(prewarming, "arena-prewarm");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Takes an arena for a match: a free one, the one being prewarmed, which
+	 * is waited for, or a new one.
+	 * @return The arena, which is reset by the match.
+	 */
+	public Arena acquire() {
+		if (!free.isEmpty()) {
+			return free.pop();
+		}
+		if (prewarming != null) {
+			FutureTask<Arena> task = prewarming;
+			prewarming = null;
+			try {
+				return task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("The arena could not be built", e.getCause());
+			}
+		}
+		return newArena();
+	}
+
+	/**
+	 * Gives back the arena of a match that has been left, for the next ones.
+	 * @param arena The arena, which must not be used anymore by its match.
+	 */
+	public void release(Arena arena) {
+		free.push(arena);
+	}
+
+	/**
+	 * @return The arenas built by the pool since it was created.
+	 */
+	public int getCreated() {
+		return created;
+	}
+
+	private Arena newArena() {
+		created++;
+		return new Arena(columns, rows);
+	}
+}
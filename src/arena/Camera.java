@@ -0,0 +1,63 @@
+package arena;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Camera of a large arena: the part of it shown on the screen, which follows
+ * the tanks without leaving the arena.
+ */
+public class Camera {
+	private final double width, height;
+	private final Rectangle2D bounds;
+	private final Rectangle2D.Double viewport = new Rectangle2D.Double();
+
+	/**
+	 * Creates a camera at the top left corner of the arena.
+	 * @param width The width of the screen, in pixels.
+	 * @param height The height of the screen, in pixels.
+	 * @param bounds The area the camera shows, in the arena coordinates.
+	 */
+	public Camera(double width, double height, Rectangle2D bounds) {
+		this.width = width;
+		this.height = height;
+		this.bounds = bounds;
+		moveTo(bounds.getX(), bounds.getY());
+	}
+
+	/**
+	 * Centers the camera on an area, e.g. the one the tanks are in, as near
+	 * as the bounds allow.
+	 * @param minX The left side of the area.
+	 * @param minY The top side of the area.
+	 * @param maxX The right side of the area.
+	 * @param maxY The bottom side of the area.
+	 */
+	public void follow(double minX, double minY, double maxX, double maxY) {
+		double centerX = (minX + maxX) / 2, centerY = (minY + maxY) / 2;
+		moveTo(centerX - width / 2, centerY - height / 2);
+	}
+
+	/**
+	 * Moves the top left corner of the camera, as near as the bounds allow.
+	 */
+	private void moveTo(double x, double y) {
+		x = Math.max(bounds.getMinX(), Math.min(bounds.getMaxX() - width, x));
+		y = Math.max(bounds.getMinY(), Math.min(bounds.getMaxY() - height, y));
+		viewport.setRect(Math.round(x), Math.round(y), width, height);
+	}
+
+	/**
+	 * @return The x position of the left side of the screen, in the arena coordinates.
+	 */
+	public double getX() { return viewport.x; }
+
+	/**
+	 * @return The y position of the top side of the screen, in the arena coordinates.
+	 */
+	public double getY() { return viewport.y; }
+
+	/**
+	 * @return The area shown on the screen, in the arena coordinates.
+	 */
+	public Rectangle2D getViewport() { return viewport; }
+}
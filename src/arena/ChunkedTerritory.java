@@ -0,0 +1,395 @@
+package arena;
+
+import graphics.Assets;
+import sprites.Player;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Territory of a large arena: the owner of every cell, kept in square
+ * chunks of CHUNK_CELLS x CHUNK_CELLS cells.
+ * <p>
+ *     A chunk is only allocated when one of its cells is painted, so the
+ *     memory grows with the painted area and not with the size of the arena.
+ *     Drawing is done chunk by chunk: every visible chunk is drawn from an
+ *     image of its cells, cached until one of them changes owner, and the
+ *     chunks outside the viewport are not drawn at all. The images of the
+ *     chunks that leave the viewport are reused for the ones that enter it,
+ *     so the images kept grow with the visible area too.
+ * </p>
+ * <p>
+ *     The cells are laid out like the ones of the classic arena: CELL_SIZE
+ *     pixels apart from the origin, column by column.
+ * </p>
+ */
+public class ChunkedTerritory {
+	/**
+	 * Distance between two cells, in pixels. Their textures are a pixel
+	 * larger, so every cell overlaps the ones on its right and below it.
+	 */
+	public static final int CELL_SIZE = 27;
+	/**
+	 * Cells of the side of a chunk.
+	 */
+	public static final int CHUNK_CELLS = 16;
+	/**
+	 * Pixels of the side of the image of a chunk, with the overlap of its last cells.
+	 */
+	private static final int CHUNK_PIXELS = CHUNK_CELLS * CELL_SIZE + 1;
+
+	private final int columns, rows;
+	private final double x, y;
+	private final int chunkColumns, chunkRows;
+	/**
+	 * Owners of the cells of every chunk, indexed by chunk column * chunkRows
+	 * + chunk row, then by column * CHUNK_CELLS + row in the chunk. A chunk
+	 * not allocated yet has no cell painted.
+	 */
+	private final byte[][] chunks;
+	/**
+	 * Number of cells owned by nobody, player 1 and player 2.
+	 */
+	private final int[] ownedCells = new int[Player.MAX_PLAYERS + 1];
+	/**
+	 * Hash of the owners of every cell, updated as they change.
+	 */
+	private long checksum;
+
+	/**
+	 * Cached images of the chunks, null when they are not cached, and
+	 * whether their cells changed since they were drawn.
+	 */
+	private final BufferedImage[] images;
+	private final boolean[] stale;
+	/**
+	 * The chunks with a cached image, and the last frame they were drawn in.
+	 */
+	private int[] cached = new int[16];
+	private int cachedCount;
+	private final int[] drawnFrame;
+	private int frame;
+	/**
+	 * Images of chunks that left the viewport, reused for the next ones.
+	 */
+	private final ArrayDeque<BufferedImage> freeImages = new ArrayDeque<>();
+	/**
+	 * Image of a chunk with no cell painted, shared by every chunk not allocated.
+	 */
+	private BufferedImage emptyImage;
+
+	/**
+	 * Creates a territory with no cell painted.
+	 * @param columns The columns of cells.
+	 * @param rows The rows of cells.
+	 * @param x The x position of the first cell, in pixels.
+	 * @param y The y position of the first cell, in pixels.
+	 */
+	public ChunkedTerritory(int columns, int rows, double x, double y) {
+		if (columns <= 0 || rows <= 0) {
+			throw new IllegalArgumentException("Invalid territory size: " + columns + "x" + rows);
+		}
+		this.columns = columns;
+		this.rows = rows;
+		this.x = x;
+		this.y = y;
+		chunkColumns = (columns + CHUNK_CELLS - 1) / CHUNK_CELLS;
+		chunkRows = (rows + CHUNK_CELLS - 1) / CHUNK_CELLS;
+		int chunkCount = chunkColumns * chunkRows;
+		chunks = new byte[chunkCount][];
+		images = new BufferedImage[chunkCount];
+		stale = new boolean[chunkCount];
+		drawnFrame = new int[chunkCount];
+		ownedCells[0] = columns * rows;
+	}
+
+	/**
+	 * @return The columns of cells.
+	 */
+	public int getColumns() { return columns; }
+
+	/**
+	 * @return The rows of cells.
+	 */
+	public int getRows() { return rows; }
+
+	/**
+	 * @return The x position of the first cell, in pixels.
+	 */
+	public double getX() { return x; }
+
+	/**
+	 * @return The y position of the first cell, in pixels.
+	 */
+	public double getY() { return y; }
+
+	/**
+	 * @return The width of the cells, in pixels.
+	 */
+	public int getWidth() { return columns * CELL_SIZE + 1; }
+
+	/**
+	 * @return The height of the cells, in pixels.
+	 */
+	public int getHeight() { return rows * CELL_SIZE + 1; }
+
+	/**
+	 * Returns the column of the cell at a position, the nearest one if it is outside.
+	 * @param x The x position, in pixels.
+	 * @return The column.
+	 */
+	public int columnAt(double x) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - this.x) / CELL_SIZE)));
+	}
+
+	/**
+	 * Returns the row of the cell at a position, the nearest one if it is outside.
+	 * @param y The y position, in pixels.
+	 * @return The row.
+	 */
+	public int rowAt(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - this.y) / CELL_SIZE)));
+	}
+
+	/**
+	 * Returns the owner of a cell.
+	 * @param column The column of the cell.
+	 * @param row The row of the cell.
+	 * @return The team owning it, 0 if it is not painted.
+	 */
+	public int getOwner(int column, int row) {
+		byte[] chunk = chunks[chunkIndex(column, row)];
+		return chunk == null ? 0 : chunk[cellIndex(column, row)];
+	}
+
+	/**
+	 * Sets the owner of a cell, allocating its chunk if needed.
+	 * @param column The column of the cell.
+	 * @param row The row of the cell.
+	 * @param owner The team, 0 if it is not painted.
+	 * @return The previous owner.
+	 */
+	public int setOwner(int column, int row, int owner) {
+		int c = chunkIndex(column, row);
+		byte[] chunk = chunks[c];
+		if (chunk == null) {
+			if (owner == 0) {
+				return 0;
+			}
+			chunk = chunks[c] = new byte[CHUNK_CELLS * CHUNK_CELLS];
+		}
+		int i = cellIndex(column, row);
+		int previous = chunk[i];
+		if (previous != owner) {
+			chunk[i] = (byte) owner;
+			ownedCells[previous]--;
+			ownedCells[owner]++;
+			long index = (long) column * rows + row;
+			checksum += cellHash(index, owner) - cellHash(index, previous);
+			stale[c] = true;
+		}
+		return previous;
+	}
+
+	/**
+	 * Copies the owners of every cell of another territory of the same size,
+	 * e.g. for saving and restoring the state of a match.
+	 * @param other The other territory.
+	 */
+	public void copyFrom(ChunkedTerritory other) {
+		if (other.columns != columns || other.rows != rows) {
+			throw new IllegalArgumentException("Territories of different sizes");
+		}
+		for (int c = 0; c < chunks.length; c++) {
+			byte[] source = other.chunks[c];
+			if (source == null) {
+				if (chunks[c] != null) {
+					Arrays.fill(chunks[c], (byte) 0);
+				}
+			} else if (chunks[c] == null) {
+				chunks[c] = source.clone();
+			} else {
+				System.arraycopy(source, 0, chunks[c], 0, source.length);
+			}
+			stale[c] = true;
+		}
+		System.arraycopy(other.ownedCells, 0, ownedCells, 0, ownedCells.length);
+		checksum = other.checksum;
+	}
+
+	/**
+	 * Unpaints every cell, releasing the chunks, e.g. for reusing the
+	 * territory in another match. The cached images are evicted the next
+	 * time it is drawn.
+	 */
+	public void clear() {
+		Arrays.fill(chunks, null);
+		Arrays.fill(ownedCells, 0);
+		ownedCells[0] = columns * rows;
+		checksum = 0;
+	}
+
+	/**
+	 * Returns the number of cells owned by a team.
+	 * @param owner The team, 0 for the cells not painted.
+	 * @return The number of cells.
+	 */
+	public int getOwnedCells(int owner) {
+		return ownedCells[owner];
+	}
+
+	/**
+	 * Returns a hash of the owners of every cell, which only depends on the
+	 * owners and not on the order the cells were painted in.
+	 * @return The hash.
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * @return The number of chunks allocated, those with a cell painted at some time.
+	 */
+	public int getAllocatedChunks() {
+		int allocated = 0;
+		for (byte[] chunk : chunks) {
+			if (chunk != null) {
+				allocated++;
+			}
+		}
+		return allocated;
+	}
+
+	/**
+	 * @return The number of chunk images cached, at most the chunks visible in the last frame.
+	 */
+	public int getCachedImages() {
+		return cachedCount;
+	}
+
+	/**
+	 * Draws the chunks that intersect a viewport, from their cached images.
+	 * @param g The graphics, translated to the arena coordinates.
+	 * @param viewport The visible area, in the arena coordinates.
+	 */
+	public void draw(Graphics2D g, Rectangle2D viewport) {
+		frame++;
+		int firstColumn = Math.max(0, (int) Math.floor((viewport.getMinX() - x) / (CHUNK_CELLS * CELL_SIZE)));
+		int lastColumn = Math.min(chunkColumns - 1, (int) Math.floor((viewport.getMaxX() - x) / (CHUNK_CELLS * CELL_SIZE)));
+		int firstRow = Math.max(0, (int) Math.floor((viewport.getMinY() - y) / (CHUNK_CELLS * CELL_SIZE)));
+		int lastRow = Math.min(chunkRows - 1, (int) Math.floor((viewport.getMaxY() - y) / (CHUNK_CELLS * CELL_SIZE)));
+
+		// The images of the chunks on the border are larger than the cells
+		Shape clip = g.getClip();
+		g.clip(new Rectangle2D.Double(x, y, getWidth(), getHeight()));
+		for (int cx = firstColumn; cx <= lastColumn; cx++) {
+			for (int cy = firstRow; cy <= lastRow; cy++) {
+				int c = cx * chunkRows + cy;
+				int px = (int) x + cx * CHUNK_CELLS * CELL_SIZE, py = (int) y + cy * CHUNK_CELLS * CELL_SIZE;
+				g.drawImage(chunkImage(c), px, py, null);
+			}
+		}
+		g.setClip(clip);
+		evictHiddenImages();
+	}
+
+	/**
+	 * Returns the image of a chunk, drawing it if it is not cached or stale.
+	 */
+	private BufferedImage chunkImage(int c) {
+		if (chunks[c] == null) {
+			if (emptyImage == null) {
+				emptyImage = newImage();
+				drawCells(emptyImage, null);
+			}
+			return emptyImage;
+		}
+		BufferedImage image = images[c];
+		if (image == null) {
+			image = freeImages.isEmpty() ? newImage() : freeImages.pop();
+			images[c] = image;
+			if (cachedCount == cached.length) {
+				cached = Arrays.copyOf(cached, cachedCount * 2);
+			}
+			cached[cachedCount++] = c;
+			stale[c] = true;
+		}
+		if (stale[c]) {
+			drawCells(image, chunks[c]);
+			stale[c] = false;
+		}
+		drawnFrame[c] = frame;
+		return image;
+	}
+
+	/**
+	 * Frees the images of the chunks not drawn in the last frame, for reusing them.
+	 */
+	private void evictHiddenImages() {
+		int kept = 0;
+		for (int i = 0; i < cachedCount; i++) {
+			int c = cached[i];
+			if (drawnFrame[c] == frame) {
+				cached[kept++] = c;
+			} else {
+				freeImages.push(images[c]);
+				images[c] = null;
+			}
+		}
+		cachedCount = kept;
+
+		// Only as many free images as the chunks drawn are kept
+		while (freeImages.size() > cachedCount) {
+			freeImages.pop();
+		}
+	}
+
+	private static BufferedImage newImage() {
+		return new BufferedImage(CHUNK_PIXELS, CHUNK_PIXELS, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * Draws the cells of a chunk into its image, in the order of the
+	 * classic arena so they overlap the same way.
+	 * @param owners The owners of the cells, null if none is painted.
+	 */
+	private static void drawCells(BufferedImage image, byte[] owners) {
+		Graphics2D g = image.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.setComposite(AlphaComposite.SrcOver);
+		for (int column = 0, i = 0; column < CHUNK_CELLS; column++) {
+			for (int row = 0; row < CHUNK_CELLS; row++, i++) {
+				int owner = owners == null ? 0 : owners[i];
+				g.drawImage(Assets.getCellTexture(owner), column * CELL_SIZE, row * CELL_SIZE, null);
+			}
+		}
+		g.dispose();
+	}
+
+	private int chunkIndex(int column, int row) {
+		return (column / CHUNK_CELLS) * chunkRows + row / CHUNK_CELLS;
+	}
+
+	private static int cellIndex(int column, int row) {
+		return (column % CHUNK_CELLS) * CHUNK_CELLS + row % CHUNK_CELLS;
+	}
+
+	/**
+	 * Hash of a cell owned by a team, 0 when it is not painted. The keys of
+	 * the teams after the first two are negative, apart from the others.
+	 */
+	private static long cellHash(long index, int owner) {
+		if (owner == 0) {
+			return 0;
+		}
+		long key = owner <= 2 ? index * 3 + owner : ~(index * Player.MAX_PLAYERS + owner);
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 31);
+	}
+}
@@ -0,0 +1,254 @@
+package arena;
+
+import sprites.Cell;
+
+import java.util.Arrays;
+
+/**
+ * Counts of the cells owned by every player in any rectangle of cells, for
+ * the questions the HUD, the bots and the analytics ask about a region (a
+ * quadrant, the cells around a block) without scanning it.
+ * <p>
+ *     The counts are kept in a 2D Fenwick tree: a change of owner updates
+ *     O(log columns * log rows) nodes, and the count of a rectangle adds up
+ *     as many nodes for each of its four corners. The nodes count two owners
+ *     at once, the odd one in the low 32 bits of a long and the even one in
+ *     the high ones: every count is at most the number of cells, so the
+ *     halves never carry into each other, even when the changes subtract.
+ *     There is a tree for every two owners, e.g. one for two players.
+ * </p>
+ * <p>
+ *     It follows the owners of the cells as an owner listener, cell index
+ *     column * rows + row, and keeps them to know which count a change
+ *     takes a cell from.
+ * </p>
+ */
+public class CoverageIndex implements Cell.OwnerListener {
+	private final int columns, rows;
+	/**
+	 * The nodes of every tree, by columns, 0-based: node i of a dimension
+	 * covers the cells from (i & (i + 1)) to i.
+	 */
+	private final long[][] trees;
+	private final byte[] owners;
+
+	/**
+	 * Creates the index of an arena of two players with no cell painted.
+	 * @param columns The columns of cells.
+	 * @param rows The rows of cells.
+	 */
+	public CoverageIndex(int columns, int rows) {
+		this(columns, rows, 2);
+	}
+
+	/**
+	 * Creates the index of an arena with no cell painted.
+	 * @param columns The columns of cells.
+	 * @param rows The rows of cells.
+	 * @param owners The owners, numbered from 1.
+	 */
+	public CoverageIndex(int columns, int rows, int owners) {
+		if (columns <= 0 || rows <= 0) {
+			throw new IllegalArgumentException("The size must be positive: " + columns + "x" + rows);
+		}
+		this.columns = columns;
+		this.rows = rows;
+		this.trees = new long[(owners + 1) / 2][columns * rows];
+		this.owners = new byte[columns * rows];
+	}
+
+	/**
+	 * Returns the owner of a cell.
+	 * @param column The column of the cell.
+	 * @param row The row of the cell.
+	 * @return The owner, 0 if it is not painted.
+	 */
+	public int getOwner(int column, int row) {
+		return owners[column * rows + row];
+	}
+
+	/**
+	 * Sets the owner of a cell, updating the counts.
+	 * @param column The column of the cell.
+	 * @param row The row of the cell.
+	 * @param owner The owner, 0 if it is not painted.
+	 */
+	public void setOwner(int column, int row, int owner) {
+		int index = column * rows + row;
+		int previous = owners[index];
+		if (previous == owner) {
+			return;
+		}
+		owners[index] = (byte) owner;
+		if (previous != 0 && owner != 0 && (previous - 1) / 2 == (owner - 1) / 2) {
+			// Both owners in the same tree, one pass
+			add(trees[(owner - 1) / 2], column, row, unit(owner) - unit(previous));
+			return;
+		}
+		if (previous != 0) {
+			add(trees[(previous - 1) / 2], column, row, -unit(previous));
+		}
+		if (owner != 0) {
+			add(trees[(owner - 1) / 2], column, row, unit(owner));
+		}
+	}
+
+	private void add(long[] tree, int column, int row, long delta) {
+		for (int i = column; i < columns; i |= i + 1) {
+			for (int j = row, base = i * rows; j < rows; j |= j + 1) {
+				tree[base + j] += delta;
+			}
+		}
+	}
+
+	/**
+	 * Follows the owner change of a cell, whose index is column * rows + row.
+	 */
+	@Override
+	public void ownerChanged(int index, int owner) {
+		setOwner(index / rows, index % rows, owner);
+	}
+
+	/**
+	 * Loads the owners of every cell from owner planes of the same size,
+	 * building the tree in one pass over the cells.
+	 * @param planes The owner planes.
+	 */
+	public void copyFrom(OwnerPlanes planes) {
+		if (planes.getColumns() != columns || planes.getRows() != rows) {
+			throw new IllegalArgumentException("Owner planes of a different size");
+		}
+		if (planes.getOwners() > trees.length * 2) {
+			throw new IllegalArgumentException("Owner planes of more owners");
+		}
+		for (long[] tree : trees) {
+			Arrays.fill(tree, 0);
+		}
+		for (int column = 0; column < columns; column++) {
+			for (int row = 0; row < rows; row++) {
+				int owner = planes.getOwner(column, row);
+				owners[column * rows + row] = (byte) owner;
+				if (owner != 0) {
+					trees[(owner - 1) / 2][column * rows + row] = unit(owner);
+				}
+			}
+		}
+		for (long[] tree : trees) {
+			build(tree);
+		}
+	}
+
+	/**
+	 * Turns the counts of the cells of a tree into its nodes: every node
+	 * adds itself to its parent, the rows then the columns.
+	 */
+	private void build(long[] tree) {
+		for (int column = 0; column < columns; column++) {
+			int base = column * rows;
+			for (int row = 0; row < rows; row++) {
+				int parent = row | (row + 1);
+				if (parent < rows) {
+					tree[base + parent] += tree[base + row];
+				}
+			}
+		}
+		for (int column = 0; column < columns; column++) {
+			int parent = column | (column + 1);
+			if (parent < columns) {
+				for (int row = 0; row < rows; row++) {
+					tree[parent * rows + row] += tree[column * rows + row];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Unpaints every cell.
+	 */
+	public void clear() {
+		for (long[] tree : trees) {
+			Arrays.fill(tree, 0);
+		}
+		Arrays.fill(owners, (byte) 0);
+	}
+
+	/**
+	 * Counts the cells a player owns in a rectangle of cells, clipped to the arena.
+	 * @param owner The owner, 0 for the cells not painted.
+	 * @param column0 The first column.
+	 * @param row0 The first row.
+	 * @param column1 The last column, included.
+	 * @param row1 The last row, included.
+	 * @return The cells, 0 if the rectangle is out of the arena.
+	 */
+	public int count(int owner, int column0, int row0, int column1, int row1) {
+		column0 = Math.max(0, column0);
+		row0 = Math.max(0, row0);
+		column1 = Math.min(columns - 1, column1);
+		row1 = Math.min(rows - 1, row1);
+		if (column0 > column1 || row0 > row1) {
+			return 0;
+		}
+		if (owner != 0) {
+			long counts = counts(trees[(owner - 1) / 2], column0, row0, column1, row1);
+			return owner % 2 == 1 ? (int) counts : (int) (counts >>> 32);
+		}
+		int painted = 0;
+		for (long[] tree : trees) {
+			long counts = counts(tree, column0, row0, column1, row1);
+			painted += (int) counts + (int) (counts >>> 32);
+		}
+		return (column1 - column0 + 1) * (row1 - row0 + 1) - painted;
+	}
+
+	/**
+	 * Returns the packed counts of the two owners of a tree in a rectangle inside the arena.
+	 */
+	private long counts(long[] tree, int column0, int row0, int column1, int row1) {
+		return prefix(tree, column1, row1) - prefix(tree, column0 - 1, row1)
+				- prefix(tree, column1, row0 - 1) + prefix(tree, column0 - 1, row0 - 1);
+	}
+
+	/**
+	 * Returns the fraction of a rectangle of cells a player owns, clipped to the arena.
+	 * @param owner The owner, 0 for the cells not painted.
+	 * @param column0 The first column.
+	 * @param row0 The first row.
+	 * @param column1 The last column, included.
+	 * @param row1 The last row, included.
+	 * @return The fraction, from 0 to 1, 0 if the rectangle is out of the arena.
+	 */
+	public double coverage(int owner, int column0, int row0, int column1, int row1) {
+		int width = Math.min(columns - 1, column1) - Math.max(0, column0) + 1;
+		int height = Math.min(rows - 1, row1) - Math.max(0, row0) + 1;
+		if (width <= 0 || height <= 0) {
+			return 0;
+		}
+		return (double) count(owner, column0, row0, column1, row1) / ((long) width * height);
+	}
+
+	public int getColumns() { return columns; }
+
+	public int getRows() { return rows; }
+
+	/**
+	 * Sums the nodes of a tree of the cells from (0, 0) to (column, row),
+	 * both owners packed, 0 if one of them is negative.
+	 */
+	private long prefix(long[] tree, int column, int row) {
+		long sum = 0;
+		for (int i = column; i >= 0; i = (i & (i + 1)) - 1) {
+			for (int j = row, base = i * rows; j >= 0; j = (j & (j + 1)) - 1) {
+				sum += tree[base + j];
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns a cell of an owner in a node of its tree.
+	 */
+	private static long unit(int owner) {
+		return owner % 2 == 1 ? 1L : 1L << 32;
+	}
+}
@@ -0,0 +1,226 @@
+package arena;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Occupancy of the static geometry of an arena, pixel by pixel: which pixels
+ * are solid (blocks) and which ones are open (inside the playing area).
+ * Both are baked once per match, so checking a moving sprite against the
+ * world is a few bit lookups instead of rectangle tests against every block.
+ * <p>
+ *     Every plane is kept in square chunks of CHUNK_SIZE x CHUNK_SIZE
+ *     pixels, one long per row, bit x of the long being the pixel x of the
+ *     row. Chunks without any pixel set are not allocated and chunks with all
+ *     of them set share the same FULL array, so the memory grows with the
+ *     edges of the geometry and not with the size of the arena.
+ * </p>
+ * <p>
+ *     The geometry must have its edges at whole pixels. A rectangle then
+ *     overlaps a set pixel exactly when it intersects the rectangle that set
+ *     it, with Rectangle2D.intersects, wherever its own edges are: the checks
+ *     give the same results as the rectangle tests they replace.
+ * </p>
+ */
+public class OccupancyGrid {
+	/**
+	 * Pixels of the side of a chunk, the bits of a long.
+	 */
+	public static final int CHUNK_SIZE = 64;
+	private static final int CHUNK_SHIFT = 6;
+	/**
+	 * Chunk with every pixel set, shared and never modified.
+	 */
+	private static final long[] FULL = new long[CHUNK_SIZE];
+	static {
+		Arrays.fill(FULL, -1L);
+	}
+
+	private final int width, height;
+	private final int chunkColumns;
+	/**
+	 * Chunks of the solid pixels and of the open pixels, by rows of chunks.
+	 */
+	private final long[][] solid, open;
+
+	/**
+	 * Creates a grid without any solid or open pixel.
+	 * @param width The width covered, in pixels from 0. The pixels out of the grid are neither solid nor open.
+	 * @param height The height covered, in pixels from 0.
+	 */
+	public OccupancyGrid(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("The size must be positive: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.chunkColumns = (width + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		int chunkRows = (height + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+		this.solid = new long[chunkColumns * chunkRows][];
+		this.open = new long[chunkColumns * chunkRows][];
+	}
+
+	/**
+	 * Makes the pixels of a rectangle solid, e.g. a block.
+	 * @param rect The rectangle, with its edges at whole pixels.
+	 */
+	public void addSolid(Rectangle2D rect) {
+		fill(solid, rect);
+	}
+
+	/**
+	 * Makes the pixels of a rectangle open, e.g. the playing area.
+	 * @param rect The rectangle, with its edges at whole pixels.
+	 */
+	public void addOpen(Rectangle2D rect) {
+		fill(open, rect);
+	}
+
+	/**
+	 * Checks whether a rectangle overlaps a solid pixel.
+	 * @param rect The rectangle.
+	 * @return true if it intersects a rectangle added with addSolid, false otherwise
+	 */
+	public boolean isSolid(Rectangle2D rect) {
+		return check(rect, false, true);
+	}
+
+	/**
+	 * Checks whether a rectangle is completely out of the open pixels.
+	 * @param rect The rectangle.
+	 * @return true if it does not intersect any rectangle added with addOpen, false otherwise
+	 */
+	public boolean isOutside(Rectangle2D rect) {
+		return check(rect, true, false);
+	}
+
+	/**
+	 * Checks whether a rectangle is out of the open pixels or overlaps a
+	 * solid one: isOutside(rect) || isSolid(rect), finding the pixels it
+	 * overlaps once.
+	 * @param rect The rectangle.
+	 * @return true if it is outside or solid, false otherwise
+	 */
+	public boolean isBlocked(Rectangle2D rect) {
+		return check(rect, true, true);
+	}
+
+	/**
+	 * @return The chunks allocated, in both planes, not counting the full ones.
+	 */
+	public int getAllocatedChunks() {
+		int allocated = 0;
+		for (int i = 0; i < solid.length; i++) {
+			allocated += (solid[i] != null && solid[i] != FULL ? 1 : 0) + (open[i] != null && open[i] != FULL ? 1 : 0);
+		}
+		return allocated;
+	}
+
+	public int getWidth() { return width; }
+
+	public int getHeight() { return height; }
+
+	/**
+	 * Sets the pixels of a rectangle in a plane, clipped to the grid.
+	 */
+	private void fill(long[][] plane, Rectangle2D rect) {
+		int x0 = Math.max(0, (int) Math.floor(rect.getX()));
+		int y0 = Math.max(0, (int) Math.floor(rect.getY()));
+		int x1 = Math.min(width, (int) Math.ceil(rect.getMaxX())) - 1;
+		int y1 = Math.min(height, (int) Math.ceil(rect.getMaxY())) - 1;
+		if (x0 > x1 || y0 > y1) {
+			return;
+		}
+		for (int cy = y0 >> CHUNK_SHIFT; cy <= y1 >> CHUNK_SHIFT; cy++) {
+			int top = Math.max(y0, cy << CHUNK_SHIFT), bottom = Math.min(y1, (cy << CHUNK_SHIFT) + CHUNK_SIZE - 1);
+			for (int cx = x0 >> CHUNK_SHIFT; cx <= x1 >> CHUNK_SHIFT; cx++) {
+				int left = Math.max(x0, cx << CHUNK_SHIFT), right = Math.min(x1, (cx << CHUNK_SHIFT) + CHUNK_SIZE - 1);
+				int index = cy * chunkColumns + cx;
+				long[] chunk = plane[index];
+				if (chunk == FULL) {
+					continue;
+				}
+				if (bottom - top == CHUNK_SIZE - 1 && right - left == CHUNK_SIZE - 1) {
+					plane[index] = FULL;
+					continue;
+				}
+				if (chunk == null) {
+					chunk = plane[index] = new long[CHUNK_SIZE];
+				}
+				long mask = mask(left & (CHUNK_SIZE - 1), right & (CHUNK_SIZE - 1));
+				for (int y = top; y <= bottom; y++) {
+					chunk[y & (CHUNK_SIZE - 1)] |= mask;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks the pixels a rectangle overlaps, clipped to the grid: the pixels
+	 * from floor(x) to ceil(x + w) - 1, the ones an open interval (x, x + w)
+	 * touches, and the same vertically.
+	 * @param checkOutside Whether to check that none of them is open
+	 * @param checkSolid Whether to check that one of them is solid
+	 */
+	private boolean check(Rectangle2D rect, boolean checkOutside, boolean checkSolid) {
+		double x = rect.getX(), y = rect.getY(), w = rect.getWidth(), h = rect.getHeight();
+		if (w <= 0 || h <= 0) {
+			return checkOutside;
+		}
+		int x0 = Math.max(0, floor(x));
+		int y0 = Math.max(0, floor(y));
+		int x1 = Math.min(width - 1, ceil(x + w) - 1);
+		int y1 = Math.min(height - 1, ceil(y + h) - 1);
+		if (x0 > x1 || y0 > y1) {
+			return checkOutside;
+		}
+		return checkOutside && !any(open, x0, y0, x1, y1) || checkSolid && any(solid, x0, y0, x1, y1);
+	}
+
+	/**
+	 * Checks whether a plane has a pixel set from (x0, y0) to (x1, y1), both included.
+	 */
+	private boolean any(long[][] plane, int x0, int y0, int x1, int y1) {
+		int cx0 = x0 >> CHUNK_SHIFT, cx1 = x1 >> CHUNK_SHIFT;
+		for (int cy = y0 >> CHUNK_SHIFT; cy <= y1 >> CHUNK_SHIFT; cy++) {
+			int top = Math.max(y0, cy << CHUNK_SHIFT), bottom = Math.min(y1, (cy << CHUNK_SHIFT) + CHUNK_SIZE - 1);
+			for (int cx = cx0; cx <= cx1; cx++) {
+				long[] chunk = plane[cy * chunkColumns + cx];
+				if (chunk == null) {
+					continue;
+				}
+				if (chunk == FULL) {
+					return true;
+				}
+				long mask = mask(cx == cx0 ? x0 & (CHUNK_SIZE - 1) : 0, cx == cx1 ? x1 & (CHUNK_SIZE - 1) : CHUNK_SIZE - 1);
+				for (int row = top; row <= bottom; row++) {
+					if ((chunk[row & (CHUNK_SIZE - 1)] & mask) != 0) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Math.floor to an int, without its general cases: a cast truncates
+	 * towards 0, which is the floor of the positive values.
+	 */
+	private static int floor(double value) {
+		int truncated = (int) value;
+		return value < truncated ? truncated - 1 : truncated;
+	}
+
+	private static int ceil(double value) {
+		int truncated = (int) value;
+		return value > truncated ? truncated + 1 : truncated;
+	}
+
+	/**
+	 * Returns the bits from first to last, both included.
+	 */
+	private static long mask(int first, int last) {
+		return (-1L >>> (CHUNK_SIZE - 1 - last)) & (-1L << first);
+	}
+}
@@ -0,0 +1,248 @@
+package arena;
+
+import sprites.Cell;
+
+import java.util.Arrays;
+
+/**
+ * Owners of the cells of an arena as bit planes, one per owner (the teams
+ * of the players), for painting a whole splat with a few operations per
+ * column: the cells a splat paints, changes and takes from the other teams
+ * are masks of its stencil with the planes, counted with bitCount.
+ * <p>
+ *     The planes are kept by columns, every column in longs of 64 rows, bit
+ *     r being the row r of the long. They follow the owners of the cells as
+ *     an owner listener (the cells of the classic arena notify every change),
+ *     and are loaded from the territory of a large arena.
+ * </p>
+ * <p>
+ *     After paint, the cells it changed are listed in the order the cells of
+ *     the splat are painted in, column by column and row by row, with their
+ *     previous owners and their positions in that order, for updating the
+ *     cells and scoring the splat.
+ * </p>
+ */
+public class OwnerPlanes implements Cell.OwnerListener {
+	private final int columns, rows;
+	private final int wordsPerColumn;
+	/**
+	 * The cells owned by every owner, by owner - 1.
+	 */
+	private final long[][] owned;
+
+	/**
+	 * The result of the last paint.
+	 */
+	private int painted, changed, stolen;
+	private int[] changedCells = new int[64];
+	private int[] changedPositions = new int[64];
+	private byte[] changedOldOwners = new byte[64];
+
+	/**
+	 * Creates the planes of an arena of two players with no cell painted.
+	 * @param columns The columns of cells.
+	 * @param rows The rows of cells.
+	 */
+	public OwnerPlanes(int columns, int rows) {
+		this(columns, rows, 2);
+	}
+
+	/**
+	 * Creates the planes of an arena with no cell painted.
+	 * @param columns The columns of cells.
+	 * @param rows The rows of cells.
+	 * @param owners The owners, numbered from 1.
+	 */
+	public OwnerPlanes(int columns, int rows, int owners) {
+		this.columns = columns;
+		this.rows = rows;
+		this.wordsPerColumn = (rows + 63) >> 6;
+		owned = new long[owners][columns * wordsPerColumn];
+	}
+
+	/**
+	 * Returns the owner of a cell.
+	 * @param column The column of the cell.
+	 * @param row The row of the cell.
+	 * @return The owner, 0 if it is not painted.
+	 */
+	public int getOwner(int column, int row) {
+		int i = column * wordsPerColumn + (row >> 6);
+		long bit = 1L << row;
+		for (int o = 0; o < owned.length; o++) {
+			if ((owned[o][i] & bit) != 0) {
+				return o + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Sets the owner of a cell.
+	 * @param column The column of the cell.
+	 * @param row The row of the cell.
+	 * @param owner The owner, 0 if it is not painted.
+	 */
+	public void setOwner(int column, int row, int owner) {
+		int i = column * wordsPerColumn + (row >> 6);
+		long bit = 1L << row;
+		for (int o = 0; o < owned.length; o++) {
+			owned[o][i] = owner == o + 1 ? owned[o][i] | bit : owned[o][i] & ~bit;
+		}
+	}
+
+	/**
+	 * Follows the owner change of a cell, whose index is column * rows + row.
+	 */
+	@Override
+	public void ownerChanged(int index, int owner) {
+		setOwner(index / rows, index % rows, owner);
+	}
+
+	/**
+	 * Loads the owners of every cell of a territory of the same size, e.g.
+	 * after restoring it from a snapshot.
+	 * @param territory The territory.
+	 */
+	public void copyFrom(ChunkedTerritory territory) {
+		if (territory.getColumns() != columns || territory.getRows() != rows) {
+			throw new IllegalArgumentException("Territory of a different size");
+		}
+		for (long[] plane : owned) {
+			Arrays.fill(plane, 0);
+		}
+		for (int column = 0; column < columns; column++) {
+			for (int row = 0; row < rows; row++) {
+				int owner = territory.getOwner(column, row);
+				if (owner != 0) {
+					setOwner(column, row, owner);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Paints a splat for an owner, the cells of the stencil out of the arena
+	 * being left out.
+	 * @param stencil The stencil.
+	 * @param direction The direction of the stencil.
+	 * @param column The column of the epicenter.
+	 * @param row The row of the epicenter.
+	 * @param owner The owner, from 1.
+	 */
+	public void paint(SplatStencil stencil, int direction, int column, int row, int owner) {
+		long[] mine = owned[owner - 1];
+		int radius = stencil.getRadius();
+		painted = 0;
+		changed = 0;
+		stolen = 0;
+
+		// The rows of the stencil, from base, clipped to the arena
+		int base = row - radius;
+		int first = Math.max(0, base), last = Math.min(rows - 1, base + 2 * radius);
+		if (first > last) {
+			return;
+		}
+		for (int dx = -radius; dx <= radius; dx++) {
+			int c = column + dx;
+			long stencilColumn = stencil.getColumn(direction, dx);
+			if (c < 0 || c >= columns || stencilColumn == 0) {
+				continue;
+			}
+			for (int w = first >> 6; w <= last >> 6; w++) {
+				int shift = base - (w << 6);
+				long mask = shift >= 0 ? stencilColumn << shift : stencilColumn >>> -shift;
+				if ((w << 6) + 64 > rows) {
+					mask &= -1L >>> (64 - (rows - (w << 6)));
+				}
+				if (mask == 0) {
+					continue;
+				}
+				int i = c * wordsPerColumn + w;
+				long changedMask = mask & ~mine[i];
+				painted += Long.bitCount(mask);
+				if (changedMask == 0) {
+					continue;
+				}
+				for (long rest = changedMask; rest != 0; rest &= rest - 1) {
+					int bit = Long.numberOfTrailingZeros(rest);
+					addChanged(c * rows + (w << 6) + bit, painted - Long.bitCount(mask & (-1L << bit)),
+							previousOwner(i, 1L << bit));
+				}
+				for (long[] plane : owned) {
+					if ((plane[i] & changedMask) != 0) {
+						stolen += Long.bitCount(plane[i] & changedMask);
+						plane[i] &= ~changedMask;
+					}
+				}
+				mine[i] |= mask;
+			}
+		}
+	}
+
+	/**
+	 * Returns the owner of the cell of a bit of a word of the planes, 0 if none.
+	 */
+	private int previousOwner(int i, long bit) {
+		for (int o = 0; o < owned.length; o++) {
+			if ((owned[o][i] & bit) != 0) {
+				return o + 1;
+			}
+		}
+		return 0;
+	}
+
+	private void addChanged(int cell, int position, int oldOwner) {
+		if (changed == changedCells.length) {
+			changedCells = Arrays.copyOf(changedCells, changed * 2);
+			changedPositions = Arrays.copyOf(changedPositions, changed * 2);
+			changedOldOwners = Arrays.copyOf(changedOldOwners, changed * 2);
+		}
+		changedCells[changed] = cell;
+		changedPositions[changed] = position;
+		changedOldOwners[changed] = (byte) oldOwner;
+		changed++;
+	}
+
+	/**
+	 * @return The cells the last paint painted, changed or not.
+	 */
+	public int getPainted() { return painted; }
+
+	/**
+	 * @return The cells the last paint changed of owner.
+	 */
+	public int getChanged() { return changed; }
+
+	/**
+	 * @return The cells the last paint took from the other owners.
+	 */
+	public int getStolen() { return stolen; }
+
+	/**
+	 * @param k The changed cell, from 0 to getChanged() - 1.
+	 * @return Its index, column * rows + row.
+	 */
+	public int getChangedCell(int k) { return changedCells[k]; }
+
+	/**
+	 * @param k The changed cell, from 0 to getChanged() - 1.
+	 * @return Its position among the cells painted, from 0 to getPainted() - 1.
+	 */
+	public int getChangedPosition(int k) { return changedPositions[k]; }
+
+	/**
+	 * @param k The changed cell, from 0 to getChanged() - 1.
+	 * @return Its owner before the paint, 0 or another owner.
+	 */
+	public int getChangedOldOwner(int k) { return changedOldOwners[k]; }
+
+	/**
+	 * @return The owners, numbered from 1.
+	 */
+	public int getOwners() { return owned.length; }
+
+	public int getColumns() { return columns; }
+
+	public int getRows() { return rows; }
+}
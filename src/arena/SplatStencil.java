@@ -0,0 +1,147 @@
+package arena;
+
+import java.util.Locale;
+
+/**
+ * Shape of the cells a bullet paints where it falls, precomputed as
+ * bitmasks: for every column of the stencil, the rows it paints, bit
+ * radius being the row of the epicenter.
+ * <p>
+ *     Squares and circles are the same in every direction. Cones open from
+ *     the epicenter towards the direction of the bullet, so they are
+ *     precomputed for DIRECTIONS directions, the nearest one being used.
+ * </p>
+ */
+public class SplatStencil {
+	/**
+	 * Shapes of the stencils.
+	 */
+	public enum Shape { SQUARE, CIRCLE, CONE }
+
+	/**
+	 * The largest radius, whose stencils are 2 * MAX_RADIUS + 1 cells wide,
+	 * so that every column fits in a long.
+	 */
+	public static final int MAX_RADIUS = 16;
+	/**
+	 * Directions the cones are precomputed for.
+	 */
+	public static final int DIRECTIONS = 16;
+	/**
+	 * Cosine of the half angle of the cones, 45 degrees.
+	 */
+	private static final double CONE_COS = Math.cos(Math.PI / 4);
+
+	/**
+	 * The 3x3 square of the classic game.
+	 */
+	public static final SplatStencil DEFAULT = new SplatStencil(Shape.SQUARE, 1);
+
+	private final Shape shape;
+	private final int radius;
+	/**
+	 * The rows painted in every column, by direction then by column from -radius to radius.
+	 */
+	private final long[][] columns;
+	private final int[] cells;
+
+	/**
+	 * Creates a stencil, computing its masks.
+	 * @param shape The shape.
+	 * @param radius The cells painted around the epicenter, from 1 to MAX_RADIUS.
+	 */
+	public SplatStencil(Shape shape, int radius) {
+		if (radius < 1 || radius > MAX_RADIUS) {
+			throw new IllegalArgumentException("The radius must be from 1 to " + MAX_RADIUS + ": " + radius);
+		}
+		this.shape = shape;
+		this.radius = radius;
+		int directions = shape == Shape.CONE ? DIRECTIONS : 1;
+		columns = new long[directions][2 * radius + 1];
+		cells = new int[directions];
+		for (int d = 0; d < directions; d++) {
+			double angle = 2 * Math.PI * d / DIRECTIONS;
+			for (int dx = -radius; dx <= radius; dx++) {
+				long mask = 0;
+				for (int dy = -radius; dy <= radius; dy++) {
+					if (contains(dx, dy, Math.cos(angle), Math.sin(angle))) {
+						mask |= 1L << (dy + radius);
+					}
+				}
+				columns[d][dx + radius] = mask;
+				cells[d] += Long.bitCount(mask);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the stencil paints a cell, relative to the epicenter.
+	 */
+	private boolean contains(int dx, int dy, double cos, double sin) {
+		// The circles are rounded so that a circle of radius 1 is the 3x3 square
+		boolean inCircle = dx * dx + dy * dy <= radius * radius + radius;
+		switch (shape) {
+			case SQUARE:
+				return true;
+			case CIRCLE:
+				return inCircle;
+			default:
+				// The cells on the edges of the cone are in it, whatever the rounding of the direction
+				return inCircle && (dx == 0 && dy == 0 || dx * cos + dy * sin >= CONE_COS * Math.sqrt(dx * dx + dy * dy) - 1e-9);
+		}
+	}
+
+	/**
+	 * Parses a stencil written as shape:radius, e.g. circle:8.
+	 * @param text The stencil.
+	 * @return The stencil.
+	 * @throws IllegalArgumentException If the text is not a valid stencil.
+	 */
+	public static SplatStencil parse(String text) {
+		String[] parts = text.trim().split(":");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Invalid splat, expected shape:radius: " + text);
+		}
+		return new SplatStencil(Shape.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+	}
+
+	/**
+	 * Returns the direction of the stencil nearest to an angle.
+	 * @param angle The angle the bullet moved in, in radians.
+	 * @return The direction, to give to getColumn.
+	 */
+	public int direction(double angle) {
+		if (columns.length == 1) {
+			return 0;
+		}
+		int d = (int) Math.round(angle * DIRECTIONS / (2 * Math.PI)) % DIRECTIONS;
+		return d < 0 ? d + DIRECTIONS : d;
+	}
+
+	/**
+	 * Returns the rows painted in a column.
+	 * @param direction The direction, from direction(angle).
+	 * @param dx The column relative to the epicenter, from -radius to radius.
+	 * @return The mask of the rows, bit dy + radius for the row dy relative to the epicenter.
+	 */
+	public long getColumn(int direction, int dx) {
+		return columns[direction][dx + radius];
+	}
+
+	/**
+	 * @param direction The direction, from direction(angle).
+	 * @return The cells painted, when none is out of the arena.
+	 */
+	public int getCells(int direction) {
+		return cells[direction];
+	}
+
+	public Shape getShape() { return shape; }
+
+	public int getRadius() { return radius; }
+
+	@Override
+	public String toString() {
+		return shape.name().toLowerCase(Locale.ROOT) + ":" + radius;
+	}
+}
@@ -0,0 +1,195 @@
+package arena;
+
+import sprites.Tank;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Spatial index of the tanks of a match, for checking bullets and tanks
+ * against the tanks near them only, whatever the number of tanks.
+ * <p>
+ *     The arena is divided into square buckets of BUCKET_SIZE pixels, and
+ *     every tank is listed in the buckets its hit box overlaps, which are at
+ *     most four as the tanks are smaller than a bucket. A check looks at the
+ *     tanks of the buckets of its rectangle, then tests their hit boxes, so
+ *     it gives the same result as testing every tank.
+ * </p>
+ * <p>
+ *     A tank must be updated after its hit box changes. The match updates
+ *     every tank at the start of a tick, and every tank after it moves.
+ * </p>
+ */
+public class TankGrid {
+	/**
+	 * Pixels of the side of a bucket.
+	 */
+	public static final int BUCKET_SIZE = 128;
+	private static final int BUCKET_SHIFT = 7;
+
+	private final int columns, rows;
+	/**
+	 * The tanks of every bucket, by rows of buckets, null for the buckets
+	 * never used, and how many there are in every bucket.
+	 */
+	private final Tank[][] buckets;
+	private final int[] sizes;
+	/**
+	 * The tanks by player number - 1, and the buckets they are listed in:
+	 * first column, first row, last column and last row.
+	 */
+	private final Tank[] tanks;
+	private final int[][] ranges;
+
+	/**
+	 * Creates the grid of an arena, with the tanks of its players listed.
+	 * @param width The width of the arena, in pixels from 0. The tanks out of it are in the buckets of its edges.
+	 * @param height The height of the arena, in pixels from 0.
+	 * @param tanks The tanks, whose players are numbered from 1 to the number of tanks.
+	 */
+	public TankGrid(int width, int height, Tank... tanks) {
+		this.columns = Math.max(1, (width + BUCKET_SIZE - 1) >> BUCKET_SHIFT);
+		this.rows = Math.max(1, (height + BUCKET_SIZE - 1) >> BUCKET_SHIFT);
+		this.buckets = new Tank[columns * rows][];
+		this.sizes = new int[columns * rows];
+		this.tanks = new Tank[tanks.length];
+		this.ranges = new int[tanks.length][];
+		for (Tank tank : tanks) {
+			int slot = tank.player.getNumber() - 1;
+			if (slot >= tanks.length || this.tanks[slot] != null) {
+				throw new IllegalArgumentException("The players must be numbered from 1 to " + tanks.length);
+			}
+			this.tanks[slot] = tank;
+			update(tank);
+		}
+	}
+
+	/**
+	 * Lists a tank in the buckets of its current hit box, if they changed.
+	 * @param tank The tank.
+	 */
+	public void update(Tank tank) {
+		int slot = tank.player.getNumber() - 1;
+		Rectangle2D box = tank.hitBox;
+		int column0 = column(box.getMinX()), row0 = row(box.getMinY());
+		int column1 = column(box.getMaxX()), row1 = row(box.getMaxY());
+		int[] range = ranges[slot];
+		if (range != null) {
+			if (range[0] == column0 && range[1] == row0 && range[2] == column1 && range[3] == row1) {
+				return;
+			}
+			for (int row = range[1]; row <= range[3]; row++) {
+				for (int column = range[0]; column <= range[2]; column++) {
+					remove(row * columns + column, tank);
+				}
+			}
+		} else {
+			range = ranges[slot] = new int[4];
+		}
+		for (int row = row0; row <= row1; row++) {
+			for (int column = column0; column <= column1; column++) {
+				add(row * columns + column, tank);
+			}
+		}
+		range[0] = column0;
+		range[1] = row0;
+		range[2] = column1;
+		range[3] = row1;
+	}
+
+	/**
+	 * Lists every tank in the buckets of its current hit box.
+	 */
+	public void updateAll() {
+		for (Tank tank : tanks) {
+			update(tank);
+		}
+	}
+
+	/**
+	 * Finds the tank of another team a rectangle hits, e.g. a bullet.
+	 * @param box The rectangle.
+	 * @param team The team it does not hit.
+	 * @return The tank whose hit box intersects the rectangle, of the lowest player if there are several, null if none does.
+	 */
+	public Tank findHit(Rectangle2D box, int team) {
+		Tank hit = null;
+		int column0 = column(box.getMinX()), column1 = column(box.getMaxX());
+		for (int row = row(box.getMinY()), row1 = row(box.getMaxY()); row <= row1; row++) {
+			for (int column = column0; column <= column1; column++) {
+				int bucket = row * columns + column;
+				Tank[] listed = buckets[bucket];
+				for (int i = 0; i < sizes[bucket]; i++) {
+					Tank tank = listed[i];
+					if (tank.player.getTeam() != team && box.intersects(tank.hitBox)
+							&& (hit == null || tank.player.getNumber() < hit.player.getNumber())) {
+						hit = tank;
+					}
+				}
+			}
+		}
+		return hit;
+	}
+
+	/**
+	 * Checks whether a rectangle intersects a tank other than a sprite, e.g.
+	 * the front of a tank.
+	 * @param box The rectangle.
+	 * @param self The sprite whose tank is not checked.
+	 * @return true if it intersects the hit box of another tank, false otherwise
+	 */
+	public boolean intersectsOther(Rectangle2D box, Object self) {
+		int column0 = column(box.getMinX()), column1 = column(box.getMaxX());
+		for (int row = row(box.getMinY()), row1 = row(box.getMaxY()); row <= row1; row++) {
+			for (int column = column0; column <= column1; column++) {
+				int bucket = row * columns + column;
+				Tank[] listed = buckets[bucket];
+				for (int i = 0; i < sizes[bucket]; i++) {
+					if (listed[i] != self && box.intersects(listed[i].hitBox)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The tanks, by player number - 1.
+	 */
+	public Tank[] getTanks() { return tanks; }
+
+	private void add(int bucket, Tank tank) {
+		Tank[] listed = buckets[bucket];
+		if (listed == null) {
+			listed = buckets[bucket] = new Tank[4];
+		} else if (sizes[bucket] == listed.length) {
+			listed = buckets[bucket] = Arrays.copyOf(listed, listed.length * 2);
+		}
+		listed[sizes[bucket]++] = tank;
+	}
+
+	private void remove(int bucket, Tank tank) {
+		Tank[] listed = buckets[bucket];
+		int size = sizes[bucket];
+		for (int i = 0; i < size; i++) {
+			if (listed[i] == tank) {
+				listed[i] = listed[size - 1];
+				listed[size - 1] = null;
+				sizes[bucket]--;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the column of buckets of an x, clamped to the grid.
+	 */
+	private int column(double x) {
+		return Math.max(0, Math.min(columns - 1, (int) Math.floor(x) >> BUCKET_SHIFT));
+	}
+
+	private int row(double y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor(y) >> BUCKET_SHIFT));
+	}
+}
@@ -0,0 +1,234 @@
+package events;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Ring buffer of the gameplay events of a match, published by the thread
+ * simulating it and read by any number of consumers on other threads
+ * (e.g. telemetry, networking, replays or the HUD).
+ * <p>
+ *     Events are records of primitives kept in a single pre-allocated int
+ *     array, so publishing one is a few stores and never allocates, locks
+ *     nor waits. Each consumer has its own sequence, the next event it reads.
+ *     The producer never waits for the consumers either: a consumer that
+ *     falls more than a whole ring behind skips to the oldest event still
+ *     in the ring, counting the events it dropped.
+ * </p>
+ * <p>
+ *     Like a seqlock, the producer announces the sequence it is about to
+ *     overwrite before writing it, and a consumer checks after reading an
+ *     event that it was not being overwritten meanwhile.
+ * </p>
+ * <p>
+ *     The ring is allocated when the first consumer subscribes, so events of
+ *     matches nobody listens to cost a single read.
+ * </p>
+ * <p>
+ *     The ticks simulated again by a rollback publish their events again,
+ *     so a consumer sees the tick going back.
+ * </p>
+ */
+public class EventBus {
+	/**
+	 * A bullet was shot. Player: the shooter. A, b: x and y where it was shot from.
+	 */
+	public static final int SHOT = 1;
+	/**
+	 * A bullet hit a tank. Player: the shooter. A: damage (0 if the tank was
+	 * invincible). B: health of the tank hit.
+	 */
+	public static final int HIT = 2;
+	/**
+	 * A tank was destroyed. Player: the owner of the tank. A: points it lost.
+	 * B: points of the enemy.
+	 */
+	public static final int DEATH = 3;
+	/**
+	 * A cell changed owner because of a splat. Player: the painter. A: index
+	 * of the cell (column * ROWS + row). B: the previous owner.
+	 */
+	public static final int CELL_PAINTED = 4;
+	/**
+	 * The match ended. Player: the winning team, 0 if tied. A: points of the
+	 * winning team, the best points if tied. B: number of teams.
+	 */
+	public static final int MATCH_END = 5;
+	/**
+	 * Points of a team at the end of a match, published for every team just
+	 * before MATCH_END. Player: the team. A: its points. B: its players.
+	 */
+	public static final int TEAM_POINTS = 6;
+	/**
+	 * Default number of events in the ring.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Fields of an event in the ring: sequence (high and low halves), tick,
+	 * type, player, a, b.
+	 */
+	private static final int FIELDS = 7;
+	private static final VarHandle PUBLISHED, CLAIMED;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			PUBLISHED = lookup.findVarHandle(EventBus.class, "published", long.class);
+			CLAIMED = lookup.findVarHandle(EventBus.class, "claimed", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Handles the events read by a consumer.
+	 */
+	public interface Handler {
+		/**
+		 * Handles an event.
+		 * @param sequence The sequence of the event, counting from 0.
+		 * @param tick The tick of the match the event happened at.
+		 * @param type The type, one of the constants of EventBus.
+		 * @param player The player: 1 for player 1, 2 for player 2, 0 for none.
+		 * @param a The first value, depending on the type.
+		 * @param b The second value, depending on the type.
+		 */
+		void onEvent(long sequence, int tick, int type, int player, int a, int b);
+	}
+
+	/**
+	 * A consumer of the events, reading them at its own pace. It must only be
+	 * polled by one thread at a time.
+	 */
+	public class Subscription {
+		private long sequence;
+		private long dropped;
+
+		private Subscription(long sequence) {
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Handles the events published since the last poll.
+		 * @param handler The handler of the events.
+		 * @param max The maximum number of events to handle.
+		 * @return The number of events handled.
+		 */
+		public int poll(Handler handler, int max) {
+			int[] ring = EventBus.this.ring;
+			long available = (long) PUBLISHED.getAcquire(EventBus.this);
+			if (available - sequence > capacity) {
+				dropped += available - capacity - sequence;
+				sequence = available - capacity;
+			}
+
+			int handled = 0;
+			while (sequence < available && handled < max) {
+				int i = (int) (sequence & mask) * FIELDS;
+				long eventSequence = (long) ring[i] << 32 | ring[i + 1] & 0xFFFFFFFFL;
+				int tick = ring[i + 2], type = ring[i + 3], player = ring[i + 4], a = ring[i + 5], b = ring[i + 6];
+				VarHandle.loadLoadFence();
+				long claimed = (long) CLAIMED.getOpaque(EventBus.this);
+				if (claimed - capacity > sequence || eventSequence != sequence) {
+					// The event was overwritten while it was read
+					long oldest = claimed - capacity;
+					dropped += oldest - sequence;
+					sequence = oldest;
+					continue;
+				}
+				handler.onEvent(sequence, tick, type, player, a, b);
+				sequence++;
+				handled++;
+			}
+			return handled;
+		}
+
+		/**
+		 * @return The sequence of the next event to read.
+		 */
+		public long getSequence() { return sequence; }
+
+		/**
+		 * @return The number of events overwritten before being read.
+		 */
+		public long getDropped() { return dropped; }
+	}
+
+	private final int capacity, mask;
+	private volatile int[] ring;
+	/**
+	 * Number of events published, and number of events whose slot the
+	 * producer has started writing.
+	 */
+	@SuppressWarnings("unused")
+	private long published, claimed;
+
+	/**
+	 * Creates a bus with the default capacity.
+	 */
+	public EventBus() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a bus.
+	 * @param capacity The number of events in the ring, a power of two.
+	 */
+	public EventBus(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+		}
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Publishes an event, which does nothing if nobody has subscribed. It
+	 * must only be called by one thread at a time, the one simulating the match.
+	 * @param tick The tick of the match.
+	 * @param type The type, one of the constants of EventBus.
+	 * @param player The player: 1 for player 1, 2 for player 2, 0 for none.
+	 * @param a The first value, depending on the type.
+	 * @param b The second value, depending on the type.
+	 */
+	public void publish(int tick, int type, int player, int a, int b) {
+		int[] ring = this.ring;
+		if (ring == null) {
+			return;
+		}
+		long sequence = published;
+		CLAIMED.setOpaque(this, sequence + 1);
+		VarHandle.storeStoreFence();
+		int i = (int) (sequence & mask) * FIELDS;
+		ring[i] = (int) (sequence >>> 32);
+		ring[i + 1] = (int) sequence;
+		ring[i + 2] = tick;
+		ring[i + 3] = type;
+		ring[i + 4] = player;
+		ring[i + 5] = a;
+		ring[i + 6] = b;
+		PUBLISHED.setRelease(this, sequence + 1);
+	}
+
+	/**
+	 * Subscribes a consumer, which reads the events published from now on.
+	 * @return The subscription of the consumer.
+	 */
+	public synchronized Subscription subscribe() {
+		if (ring == null) {
+			ring = new int[capacity * FIELDS];
+		}
+		return new Subscription((long) PUBLISHED.getAcquire(this));
+	}
+
+	/**
+	 * @return The number of events in the ring.
+	 */
+	public int getCapacity() { return capacity; }
+
+	/**
+	 * @return The number of events published.
+	 */
+	public long getPublished() { return (long) PUBLISHED.getAcquire(this); }
+}
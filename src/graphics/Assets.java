@@ -1,9 +1,13 @@
 package graphics;
 
+import jfr.AssetsLoadEvent;
+import sprites.Player;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * Assets class is used to load all the images and fonts used in the game.
@@ -27,6 +31,16 @@ public class Assets {
 	public static BufferedImage cell1Texture;
 	public static BufferedImage cell2Texture;
 	public static BufferedImage VSBarTexture;
+	/**
+	 * Textures of the tanks, bullets and cells of every team, by team from
+	 * 1: the textures of player 1 and player 2, then recolored ones.
+	 */
+	private static BufferedImage[] tankTextures, bulletTextures, cellTextures;
+	/**
+	 * Runs of the columns of the VS bar that differ from the column on their
+	 * left, as pairs of the first and the last column of the run.
+	 */
+	private static int[] VSBarEdges;
 	public static Font font1;
 	public static Font font2;
 
@@ -34,11 +48,13 @@ public class Assets {
 	 * Loads all the images and fonts used in the game.
 	 */
 	public static void init() {
+		AssetsLoadEvent event = new AssetsLoadEvent();
+		event.begin();
 		mainMenuTexture = Loader.ImageLoader("/mainScreen.png");
 		selectionArrow0Texture = Loader.ImageLoader("/selectionArrow0.png");
 		selectionArrow1Texture = Loader.ImageLoader("/selectionArrow1.png");
 		selectionArrow2Texture = Loader.ImageLoader("/selectionArrow2.png");
-		menuOptionsTexture = Loader.ImageLoader("/MenuOptions.png");
+		menuOptionsTexture = Loader.ImageLoader("/menuOptions.png");
 		tutorialTexture = Loader.ImageLoader("/tutorial.png");
 		backEraseTexture = Loader.ImageLoader("/backErase.png");
 		leaderBoardTexture = Loader.ImageLoader("/leaderBoard.png");
@@ -53,6 +69,10 @@ public class Assets {
 		cell0Texture = Loader.ImageLoader("/cell0.png");
 		cell1Texture = Loader.ImageLoader("/cell1.png");
 		cell2Texture = Loader.ImageLoader("/cell2.png");
+		tankTextures = teamTextures(tank1Texture, tank2Texture);
+		bulletTextures = teamTextures(bullet1Texture, bullet2Texture);
+		cellTextures = teamTextures(cell1Texture, cell2Texture);
+		VSBarEdges = columnEdges(VSBarTexture);
 
 		try {
 			InputStream is = Thread.currentThread()
@@ -67,5 +87,129 @@ public class Assets {
 
 		font1 = new Font(Assets.font1.getName(), Font.BOLD, 40);
 		font2 = new Font(Assets.font1.getName(), Font.BOLD, 20);
+
+		event.end();
+		if (event.shouldCommit()) {
+			BufferedImage[] images = {
+					mainMenuTexture, selectionArrow0Texture, selectionArrow1Texture, selectionArrow2Texture,
+					menuOptionsTexture, tutorialTexture, backEraseTexture, leaderBoardTexture, VSBarTexture,
+					tank1Texture, tank2Texture, backgroundTexture, blockTexture, bullet1Texture, bullet2Texture,
+					cell0Texture, cell1Texture, cell2Texture
+			};
+			for (BufferedImage image : images) {
+				if (image != null) {
+					event.images++;
+					event.bytes += (long) image.getWidth() * image.getHeight()
+							* image.getColorModel().getPixelSize() / 8;
+				}
+			}
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the texture of the tanks of a team.
+	 * @param team The team, from 1 to Player.MAX_PLAYERS.
+	 * @return The texture, tank1Texture for team 1 and tank2Texture for team 2.
+	 */
+	public static BufferedImage getTankTexture(int team) {
+		return tankTextures[team];
+	}
+
+	/**
+	 * Returns the texture of the bullets of a team.
+	 * @param team The team, from 1 to Player.MAX_PLAYERS.
+	 * @return The texture, bullet1Texture for team 1 and bullet2Texture for team 2.
+	 */
+	public static BufferedImage getBulletTexture(int team) {
+		return bulletTextures[team];
+	}
+
+	/**
+	 * Returns the texture of the cells painted by a team.
+	 * @param team The team, from 0 for the cells not painted to Player.MAX_PLAYERS.
+	 * @return The texture, cell0Texture for 0, cell1Texture for team 1 and cell2Texture for team 2.
+	 */
+	public static BufferedImage getCellTexture(int team) {
+		return team == 0 ? cell0Texture : cellTextures[team];
+	}
+
+	/**
+	 * Returns the runs of the columns of the VS bar that differ from the
+	 * column on their left, column 0 and the column after the last one
+	 * differing from the screen around the bar: moving the bar only changes
+	 * the pixels the runs pass over.
+	 * @return The first and the last column of every run, in order.
+	 */
+	public static int[] getVSBarEdges() {
+		return VSBarEdges;
+	}
+
+	/**
+	 * Returns the runs of the columns of an image that differ from the column
+	 * on their left, the first one and the one after the last included.
+	 */
+	private static int[] columnEdges(BufferedImage image) {
+		if (image == null) {
+			return new int[0];
+		}
+		int width = image.getWidth(), height = image.getHeight();
+		int[] column = new int[height], left = new int[height];
+		int[] edges = new int[8];
+		int count = 0;
+		for (int x = 0; x <= width; x++) {
+			boolean edge = x == 0 || x == width;
+			if (x < width) {
+				image.getRGB(x, 0, 1, height, column, 0, 1);
+				edge |= x > 0 && !Arrays.equals(column, left);
+				int[] swap = left;
+				left = column;
+				column = swap;
+			}
+			if (!edge) {
+				continue;
+			}
+			if (count > 0 && edges[count - 1] == x - 1) {
+				edges[count - 1] = x;
+			} else {
+				if (count == edges.length) {
+					edges = Arrays.copyOf(edges, count * 2);
+				}
+				edges[count++] = x;
+				edges[count++] = x;
+			}
+		}
+		return Arrays.copyOf(edges, count);
+	}
+
+	/**
+	 * Returns the textures of every team: the ones of teams 1 and 2, then the
+	 * first one recolored with hues spread by the golden ratio.
+	 */
+	private static BufferedImage[] teamTextures(BufferedImage team1, BufferedImage team2) {
+		BufferedImage[] textures = new BufferedImage[Player.MAX_PLAYERS + 1];
+		textures[1] = team1;
+		textures[2] = team2;
+		for (int team = 3; team < textures.length; team++) {
+			textures[team] = team1 == null ? null : recolor(team1, (team - 3) * 0.618034f % 1);
+		}
+		return textures;
+	}
+
+	/**
+	 * Returns a copy of an image with the hue of every pixel replaced,
+	 * keeping its saturation, brightness and alpha.
+	 */
+	private static BufferedImage recolor(BufferedImage image, float hue) {
+		BufferedImage recolored = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		float[] hsb = new float[3];
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				int argb = image.getRGB(x, y);
+				Color.RGBtoHSB(argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF, hsb);
+				recolored.setRGB(x, y, argb & 0xFF000000 | Color.HSBtoRGB(hue, hsb[1], hsb[2]) & 0xFFFFFF);
+			}
+		}
+		return recolored;
 	}
 }
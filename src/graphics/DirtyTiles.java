@@ -0,0 +1,249 @@
+package graphics;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Parts of a screen that changed since they were last drawn, for redrawing
+ * only them instead of the whole frame.
+ * <p>
+ *     The screen is divided into square tiles of TILE_SIZE pixels, and a
+ *     change marks every tile its rectangle overlaps, one bit per tile, so
+ *     marking costs the same however many changes overlap. The tiles marked
+ *     are then merged into rectangles: the runs of tiles of every row, and
+ *     the runs of the same columns in consecutive rows into one.
+ * </p>
+ */
+public class DirtyTiles {
+	/**
+	 * Pixels of the side of a tile.
+	 */
+	public static final int TILE_SIZE = 32;
+	private static final int TILE_SHIFT = 5;
+
+	private final int width, height;
+	private final int columns, rows;
+	/**
+	 * Longs of a row of tiles.
+	 */
+	private final int words;
+	/**
+	 * The tiles marked, by rows, bit column % 64 of word column / 64 of the row.
+	 */
+	private final long[] tiles;
+	/**
+	 * The rectangles the marked tiles were last merged into, reused.
+	 */
+	private Rectangle[] regions = new Rectangle[16];
+	private int regionCount;
+	/**
+	 * The indexes of the rectangles ending at the previous row and at the
+	 * current one, while merging.
+	 */
+	private int[] above, current;
+
+	/**
+	 * Creates the tiles of a screen, none of them marked.
+	 * @param width The width of the screen, in pixels.
+	 * @param height The height of the screen, in pixels.
+	 */
+	public DirtyTiles(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("The size must be positive: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		this.columns = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+		this.rows = (height + TILE_SIZE - 1) >> TILE_SHIFT;
+		this.words = (columns + 63) >> 6;
+		this.tiles = new long[rows * words];
+		this.above = new int[columns];
+		this.current = new int[columns];
+	}
+
+	/**
+	 * Marks the tiles a rectangle overlaps, clipped to the screen.
+	 * @param x The left of the rectangle.
+	 * @param y The top of the rectangle.
+	 * @param width The width of the rectangle, nothing marked if it is not positive.
+	 * @param height The height of the rectangle, nothing marked if it is not positive.
+	 */
+	public void add(double x, double y, double width, double height) {
+		double left = Math.max(0, x), right = Math.min(this.width, x + width);
+		double top = Math.max(0, y), bottom = Math.min(this.height, y + height);
+		if (left >= right || top >= bottom) {
+			return;
+		}
+		int column0 = (int) left >> TILE_SHIFT, row0 = (int) top >> TILE_SHIFT;
+		int column1 = ((int) Math.ceil(right) - 1) >> TILE_SHIFT, row1 = ((int) Math.ceil(bottom) - 1) >> TILE_SHIFT;
+		for (int row = row0; row <= row1; row++) {
+			for (int column = column0; column <= column1; column++) {
+				tiles[row * words + (column >> 6)] |= 1L << column;
+			}
+		}
+	}
+
+	/**
+	 * Marks the tiles a rectangle overlaps, clipped to the screen.
+	 * @param rectangle The rectangle.
+	 */
+	public void add(Rectangle2D rectangle) {
+		add(rectangle.getX(), rectangle.getY(), rectangle.getWidth(), rectangle.getHeight());
+	}
+
+	/**
+	 * Marks the tiles marked in other tiles of the same screen.
+	 * @param other The other tiles.
+	 */
+	public void add(DirtyTiles other) {
+		if (other.tiles.length != tiles.length || other.columns != columns) {
+			throw new IllegalArgumentException("Tiles of a different screen");
+		}
+		for (int i = 0; i < tiles.length; i++) {
+			tiles[i] |= other.tiles[i];
+		}
+	}
+
+	/**
+	 * Marks every tile.
+	 */
+	public void addAll() {
+		clear();
+		add(0, 0, width, height);
+	}
+
+	/**
+	 * Unmarks every tile.
+	 */
+	public void clear() {
+		Arrays.fill(tiles, 0);
+	}
+
+	/**
+	 * @return true if no tile is marked
+	 */
+	public boolean isEmpty() {
+		for (long word : tiles) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the pixels of the screen in the tiles marked, the tiles of the
+	 * right and bottom edges counting only their part on the screen.
+	 * @return The pixels.
+	 */
+	public int getArea() {
+		int area = 0;
+		for (int row = 0; row < rows; row++) {
+			int tileHeight = Math.min(TILE_SIZE, height - (row << TILE_SHIFT));
+			for (int word = 0; word < words; word++) {
+				long bits = tiles[row * words + word];
+				int tilesWidth = Long.bitCount(bits) * TILE_SIZE;
+				int last = (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+				if (bits != 0 && last == columns - 1) {
+					tilesWidth -= TILE_SIZE - (width - (last << TILE_SHIFT));
+				}
+				area += tilesWidth * tileHeight;
+			}
+		}
+		return area;
+	}
+
+	/**
+	 * Merges the tiles marked into rectangles clipped to the screen, which
+	 * getRegion returns until the next merge.
+	 * @return The number of rectangles, 0 if no tile is marked.
+	 */
+	public int merge() {
+		regionCount = 0;
+		// The rectangles ending at the previous row, which a run of the same columns extends
+		int aboveCount = 0;
+		for (int row = 0; row < rows; row++) {
+			int y = row << TILE_SHIFT;
+			int tileHeight = Math.min(TILE_SIZE, height - y);
+			int currentCount = 0, a = 0;
+			for (int column = nextSet(row, 0); column < columns; ) {
+				int end = nextClear(row, column);
+				int x = column << TILE_SHIFT, runWidth = Math.min(width, end << TILE_SHIFT) - x;
+				// The runs are in order of columns, as the rectangles above
+				while (a < aboveCount && regions[above[a]].x < x) {
+					a++;
+				}
+				int index;
+				if (a < aboveCount && regions[above[a]].x == x && regions[above[a]].width == runWidth) {
+					index = above[a++];
+					regions[index].height += tileHeight;
+				} else {
+					index = regionCount;
+					next().setBounds(x, y, runWidth, tileHeight);
+				}
+				current[currentCount++] = index;
+				column = end < columns ? nextSet(row, end) : columns;
+			}
+			int[] swap = above;
+			above = current;
+			current = swap;
+			aboveCount = currentCount;
+		}
+		return regionCount;
+	}
+
+	/**
+	 * Returns a rectangle of the last merge.
+	 * @param i The index of the rectangle, from 0 to the number merge returned.
+	 * @return The rectangle, which must not be modified.
+	 */
+	public Rectangle getRegion(int i) {
+		return regions[i];
+	}
+
+	/**
+	 * Returns a new rectangle at the end of the regions, reusing them.
+	 */
+	private Rectangle next() {
+		if (regionCount == regions.length) {
+			regions = Arrays.copyOf(regions, regions.length * 2);
+		}
+		if (regions[regionCount] == null) {
+			regions[regionCount] = new Rectangle();
+		}
+		return regions[regionCount++];
+	}
+
+	/**
+	 * Returns the first marked column of a row from a column, columns if there is none.
+	 */
+	private int nextSet(int row, int column) {
+		for (int word = column >> 6; word < words; word++) {
+			long bits = tiles[row * words + word];
+			if (word == column >> 6) {
+				bits &= -1L << column;
+			}
+			if (bits != 0) {
+				return Math.min(columns, (word << 6) + Long.numberOfTrailingZeros(bits));
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Returns the first column not marked of a row from a column, columns if there is none.
+	 */
+	private int nextClear(int row, int column) {
+		for (int word = column >> 6; word < words; word++) {
+			long bits = ~tiles[row * words + word];
+			if (word == column >> 6) {
+				bits &= -1L << column;
+			}
+			if (bits != 0) {
+				return Math.min(columns, (word << 6) + Long.numberOfTrailingZeros(bits));
+			}
+		}
+		return columns;
+	}
+}
@@ -17,12 +17,25 @@ public class KeyBoard implements KeyListener {
 	 * player index.
 	 */
 	public int upKey, downKey, leftKey, rightKey, shootKey, boostKey;
+	/**
+	 * Bits of the buttons bitmask, which packs the state of the six keys,
+	 * e.g. for sending it over the network.
+	 */
+	public static final int UP = 1, DOWN = 1 << 1, LEFT = 1 << 2, RIGHT = 1 << 3,
+			SHOOT = 1 << 4, BOOST = 1 << 5;
 
 	/**
 	 * keysPressed is a set of key codes of the keys that have been pressed.
 	 * It is used for moving the tank.
 	 */
 	private static final Set<Integer> keysPressed = new HashSet<>();
+	/**
+	 * The buttons of this keyBoard read by the last update. The keys change
+	 * in other threads (e.g. the event thread) while a tick reads them, so a
+	 * tick reads them once and then only sees this latched state, which is
+	 * also the one a recording stores.
+	 */
+	private int latchedButtons;
 
 	/**
 	 * Constructor of the KeyBoard class.
@@ -82,4 +95,64 @@ public class KeyBoard implements KeyListener {
 	public static boolean isKeyDown(int keyCode) {
 		return keysPressed.contains(keyCode);
 	}
+
+	/**
+	 * This method checks if a particular key of this keyBoard was pressed at
+	 * the last update.
+	 * @param keyCode the key code of the key to be checked
+	 * @return true if the key is pressed, false otherwise
+	 */
+	public boolean isPressed(int keyCode) {
+		return (latchedButtons & getBit(keyCode)) != 0;
+	}
+
+	/**
+	 * This method is called by the player once per tick, before reading the
+	 * keys, and latches them. Subclasses can decide their keys here too
+	 * (e.g. a bot).
+	 */
+	public void update() {
+		latchedButtons = readButtons();
+	}
+
+	/**
+	 * Reads the state of the six keys, as update latches them. By default it
+	 * is the real keyboard, but subclasses can take the keys from somewhere
+	 * else (e.g. the network).
+	 * @return the buttons bitmask
+	 */
+	protected int readButtons() {
+		int buttons = 0;
+		if (isKeyDown(upKey)) { buttons |= UP; }
+		if (isKeyDown(downKey)) { buttons |= DOWN; }
+		if (isKeyDown(leftKey)) { buttons |= LEFT; }
+		if (isKeyDown(rightKey)) { buttons |= RIGHT; }
+		if (isKeyDown(shootKey)) { buttons |= SHOOT; }
+		if (isKeyDown(boostKey)) { buttons |= BOOST; }
+		return buttons;
+	}
+
+	/**
+	 * Returns the state of the six keys of this keyBoard as a bitmask, as it
+	 * was at the last update.
+	 * @return the buttons bitmask
+	 */
+	public int getButtons() {
+		return latchedButtons;
+	}
+
+	/**
+	 * Returns the bit of the buttons bitmask matching a key.
+	 * @param keyCode the key code of the key
+	 * @return the bit, 0 if the key is not one of the six keys
+	 */
+	protected int getBit(int keyCode) {
+		return keyCode == upKey ? UP
+				: keyCode == downKey ? DOWN
+				: keyCode == leftKey ? LEFT
+				: keyCode == rightKey ? RIGHT
+				: keyCode == shootKey ? SHOOT
+				: keyCode == boostKey ? BOOST
+				: 0;
+	}
 }
@@ -0,0 +1,40 @@
+package input;
+
+/**
+ * RemoteKeyBoard class is a KeyBoard whose keys are not read from the real
+ * keyboard, but set as a buttons bitmask (e.g. received from a remote client).
+ * As the keys of the real keyboard, the buttons set are latched once per
+ * tick, by update.
+ */
+public class RemoteKeyBoard extends KeyBoard {
+	/**
+	 * The buttons bitmask, with the bits defined in the KeyBoard class.
+	 * It may be set from another thread than the one updating the match.
+	 */
+	private volatile int buttons;
+
+	/**
+	 * Constructor of the RemoteKeyBoard class.
+	 * @param layout the keyBoard whose key codes are used
+	 */
+	public RemoteKeyBoard(KeyBoard layout) {
+		super(layout.upKey, layout.downKey, layout.leftKey, layout.rightKey, layout.shootKey, layout.boostKey);
+	}
+
+	/**
+	 * Sets the state of the six keys.
+	 * @param buttons the buttons bitmask
+	 */
+	public void setButtons(int buttons) {
+		this.buttons = buttons;
+	}
+
+	/**
+	 * Returns the buttons set last.
+	 * @return the buttons bitmask
+	 */
+	@Override
+	protected int readButtons() {
+		return buttons;
+	}
+}
@@ -0,0 +1,24 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The loading of the images and fonts of the game.
+ */
+@Name("splatank.AssetsLoad")
+@Label("Assets Load")
+@Category({ "SplaTank", "Assets" })
+@Description("The images and fonts of the game were loaded")
+public class AssetsLoadEvent extends jdk.jfr.Event {
+	@Label("Images")
+	public int images;
+
+	@Label("Pixels Size")
+	@Description("The memory taken by the decoded images")
+	@DataAmount
+	public long bytes;
+}
@@ -0,0 +1,37 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A bullet that collided with the enemy tank, a block or the edge of the playing area.
+ */
+@Name("splatank.BulletCollision")
+@Label("Bullet Collision")
+@Category({ "SplaTank", "Match" })
+@Description("A bullet hit the enemy tank, a block or the edge of the playing area")
+public class CollisionEvent extends jdk.jfr.Event {
+	/**
+	 * What the bullet collided with.
+	 */
+	public static final String TANK = "tank", BLOCK = "block", EDGE = "edge";
+
+	@Label("Player")
+	@Description("The shooter: 1 for player 1, 2 for player 2")
+	public int player;
+
+	@Label("Target")
+	@Description("What the bullet collided with: tank, block or edge")
+	public String target;
+
+	@Label("Damage")
+	public int damage;
+
+	@Label("X")
+	public int x;
+
+	@Label("Y")
+	public int y;
+}
@@ -0,0 +1,38 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A frame of the game loop: the update of the current state and its drawing.
+ * <p>
+ *     By default only the frames longer than 20 ms are recorded, over the
+ *     16.7 ms a frame takes at 60 FPS.
+ * </p>
+ */
+@Name("splatank.Frame")
+@Label("Frame")
+@Category({ "SplaTank", "Game Loop" })
+@Description("A frame of the game loop, updating and drawing the current state")
+@Threshold("20 ms")
+public class FrameEvent extends jdk.jfr.Event {
+	@Label("State")
+	@Description("The class of the current state")
+	public String state;
+
+	@Label("Update Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long updateDuration;
+
+	@Label("Draw Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long drawDuration;
+
+	@Label("Average FPS")
+	@Description("The frames drawn in the last second")
+	public int averageFps;
+}
@@ -0,0 +1,96 @@
+package jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Flight recordings of the game with the settings bundled with it.
+ * <p>
+ *     The settings (splatank.jfc, in the resources) enable the events of the
+ *     game and the events of the JVM that explain a stutter: GC pauses,
+ *     safepoints, compilation, locks, I/O and CPU samples. Frames are only
+ *     recorded when they take longer than 20 ms, so a recording of a
+ *     cabinet shows the frames that stuttered and what happened meanwhile.
+ * </p>
+ * <p>
+ *     A recording is started when the game starts if the "splatank.jfr"
+ *     system property is set to the file where it is dumped when the game
+ *     exits. It keeps the last MAX_AGE, e.g.
+ *     java -Dsplatank.jfr=data/splatank.jfr main.Game1
+ * </p>
+ * <p>
+ *     The same settings work with the command line tools, e.g.
+ *     java -XX:StartFlightRecording=settings=res/splatank.jfc,filename=splatank.jfr main.Game1
+ * </p>
+ */
+public final class GameRecording {
+	/**
+	 * The resource with the settings.
+	 */
+	public static final String SETTINGS = "/splatank.jfc";
+	/**
+	 * How long the events are kept.
+	 */
+	public static final Duration MAX_AGE = Duration.ofMinutes(15);
+
+	private GameRecording() { }
+
+	/**
+	 * Returns the settings bundled with the game.
+	 * @return The configuration.
+	 * @throws IOException If the settings cannot be read.
+	 * @throws ParseException If the settings are not valid.
+	 */
+	public static Configuration getConfiguration() throws IOException, ParseException {
+		try (InputStream in = Objects.requireNonNull(GameRecording.class.getResourceAsStream(SETTINGS), SETTINGS);
+				Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+			return Configuration.create(reader);
+		}
+	}
+
+	/**
+	 * Starts a recording with the bundled settings, dumped to a file when the JVM exits.
+	 * @param destination The file.
+	 * @return The recording.
+	 * @throws IOException If the settings cannot be read or the file cannot be written.
+	 * @throws ParseException If the settings are not valid.
+	 */
+	public static Recording start(Path destination) throws IOException, ParseException {
+		Recording recording = new Recording(getConfiguration());
+		recording.setName("SplaTank");
+		recording.setToDisk(true);
+		recording.setMaxAge(MAX_AGE);
+		recording.setDumpOnExit(true);
+		recording.setDestination(destination);
+		recording.start();
+		return recording;
+	}
+
+	/**
+	 * Starts a recording if the "splatank.jfr" system property is set.
+	 * @return The recording, or null if it is not set or the recording could not be started.
+	 */
+	public static Recording startIfConfigured() {
+		String destination = System.getProperty("splatank.jfr");
+		if (destination == null) {
+			return null;
+		}
+		try {
+			return start(Paths.get(destination));
+		} catch (IOException | ParseException | IllegalStateException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
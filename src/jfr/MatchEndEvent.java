@@ -0,0 +1,31 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The end of a match, whose duration is the whole match.
+ */
+@Name("splatank.MatchEnd")
+@Label("Match End")
+@Category({ "SplaTank", "Match" })
+@Description("A match ended; the duration is the whole match")
+public class MatchEndEvent extends jdk.jfr.Event {
+	@Label("Players")
+	@Description("The names of the players, in order, separated by commas")
+	public String players;
+
+	@Label("Points")
+	@Description("The points of every team, e.g. \"1: 120, 2: 98\"")
+	public String points;
+
+	@Label("Winner")
+	@Description("The winning team, 0 if tied")
+	public int winner;
+
+	@Label("Ticks")
+	@Description("The ticks simulated")
+	public long ticks;
+}
@@ -0,0 +1,27 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The start of a match.
+ */
+@Name("splatank.MatchStart")
+@Label("Match Start")
+@Category({ "SplaTank", "Match" })
+@Description("A match started")
+public class MatchStartEvent extends jdk.jfr.Event {
+	@Label("Players")
+	@Description("The names of the players, in order, separated by commas")
+	public String players;
+
+	@Label("Teams")
+	@Description("The number of teams, every player being a team in free-for-all")
+	public int teams;
+
+	@Label("Recorded")
+	@Description("Whether the results of the match are recorded in the players data")
+	public boolean recorded;
+}
@@ -0,0 +1,33 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The splat of a bullet painting the cells around where it fell.
+ */
+@Name("splatank.Paint")
+@Label("Paint")
+@Category({ "SplaTank", "Match" })
+@Description("A bullet painted the cells around where it fell")
+public class PaintEvent extends jdk.jfr.Event {
+	@Label("Player")
+	@Description("1 for player 1, 2 for player 2")
+	public int player;
+
+	@Label("Column")
+	public int column;
+
+	@Label("Row")
+	public int row;
+
+	@Label("Cells Painted")
+	@Description("The cells of the splat")
+	public int cellsPainted;
+
+	@Label("Cells Changed")
+	@Description("The cells that changed owner")
+	public int cellsChanged;
+}
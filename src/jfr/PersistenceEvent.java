@@ -0,0 +1,34 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A load or save of the players data.
+ */
+@Name("splatank.Persistence")
+@Label("Players Data")
+@Category({ "SplaTank", "Persistence" })
+@Description("The players data was loaded or saved")
+public class PersistenceEvent extends jdk.jfr.Event {
+	/**
+	 * Operations: opening the store, reading the leaderboard, saving the players.
+	 */
+	public static final String LOAD = "load", LEADERBOARD = "leaderboard", SAVE = "save";
+
+	@Label("Operation")
+	@Description("load, leaderboard or save")
+	public String operation;
+
+	@Label("Store")
+	@Description("The class of the store")
+	public String store;
+
+	@Label("Size")
+	@Description("The bytes the store takes on disk")
+	@DataAmount
+	public long bytes;
+}
@@ -0,0 +1,381 @@
+package main;
+
+import sprites.Player;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * PlayersStore backed by a memory-mapped file of fixed-size binary records.
+ * <p>
+ *     The file is a header followed by a table of slots. The table is also an
+ *     open-addressing (linear probing) hash index from the player name to its
+ *     slot, so finding or updating a player touches only a few slots and
+ *     never rewrites the whole file.
+ * </p>
+ * <p>
+ *     Slot layout (48 bytes): state (1), name length (1), UTF-8 name (30),
+ *     record (4), matchesWon (4), matchesLost (4) and padding (4).
+ * </p>
+ * <p>
+ *     When the table gets too full it is doubled and rehashed in place. A crash
+ *     during that rehash may leave the file inconsistent, so keep a JSON export
+ *     around as a backup.
+ * </p>
+ */
+public class BinaryPlayersStore implements PlayersStore {
+	//region Constants
+	/**
+	 * Magic number at the start of the file ("SPLT").
+	 */
+	private static final int MAGIC = 0x53504C54;
+	/**
+	 * Version of the file format.
+	 */
+	private static final int VERSION = 1;
+	/**
+	 * Size of the header, in bytes.
+	 */
+	private static final int HEADER_SIZE = 32;
+	/**
+	 * Size of every slot, in bytes.
+	 */
+	private static final int SLOT_SIZE = 48;
+	/**
+	 * Maximum length of an encoded name, in bytes.
+	 */
+	public static final int MAX_NAME_BYTES = 30;
+	/**
+	 * Offsets of the header fields.
+	 */
+	private static final int MAGIC_OFFSET = 0, VERSION_OFFSET = 4, CAPACITY_OFFSET = 8, COUNT_OFFSET = 12;
+	/**
+	 * Offsets of the slot fields.
+	 */
+	private static final int STATE_OFFSET = 0, NAME_LENGTH_OFFSET = 1, NAME_OFFSET = 2,
+			RECORD_OFFSET = 32, WON_OFFSET = 36, LOST_OFFSET = 40;
+	/**
+	 * State of a used slot. Empty slots are all zeros.
+	 */
+	private static final byte USED = 1;
+	/**
+	 * Default number of slots of a new file.
+	 */
+	private static final int DEFAULT_CAPACITY = 1024;
+	/**
+	 * Maximum number of slots, so the mapped file stays under 2 GB.
+	 */
+	private static final int MAX_CAPACITY = 1 << 25;
+	/**
+	 * Maximum load factor of the table before it is doubled.
+	 */
+	private static final double MAX_LOAD = 0.7;
+	//endregion
+
+	/**
+	 * Channel of the mapped file.
+	 */
+	private final FileChannel channel;
+	/**
+	 * The mapped file.
+	 */
+	private MappedByteBuffer buffer;
+	/**
+	 * Number of slots of the table, always a power of two.
+	 */
+	private int capacity;
+	/**
+	 * Number of used slots.
+	 */
+	private int count;
+
+	/**
+	 * Opens the store, creating the file if it does not exist.
+	 * @param path Path to the binary file.
+	 */
+	public BinaryPlayersStore(Path path) {
+		this(path, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Opens the store, creating the file if it does not exist.
+	 * @param path Path to the binary file.
+	 * @param initialCapacity Number of slots of the table if the file is new.
+	 *                        Rounded up to a power of two.
+	 */
+	public BinaryPlayersStore(Path path, int initialCapacity) {
+		try {
+			channel = FileChannel.open(path,
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			if (channel.size() == 0) {
+				capacity = Math.max(16, Integer.highestOneBit(Math.max(initialCapacity, 1) * 2 - 1));
+				map();
+				buffer.putInt(MAGIC_OFFSET, MAGIC);
+				buffer.putInt(VERSION_OFFSET, VERSION);
+				buffer.putInt(CAPACITY_OFFSET, capacity);
+				buffer.putInt(COUNT_OFFSET, 0);
+			} else {
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+				if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+					channel.close();
+					throw new IllegalStateException(path + " is not a players store");
+				}
+				capacity = buffer.getInt(CAPACITY_OFFSET);
+				count = buffer.getInt(COUNT_OFFSET);
+				map();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Maps the header and the whole table, growing the file if needed.
+	 */
+	private void map() throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+	}
+
+	//region PlayersStore
+	@Override
+	public Player find(String name) {
+		byte[] nameBytes = encodeName(name);
+		int slot = findSlot(nameBytes);
+		if (buffer.get(offset(slot) + STATE_OFFSET) != USED) {
+			return null;
+		}
+
+		int offset = offset(slot);
+		Player player = new Player(name);
+		player.record = buffer.getInt(offset + RECORD_OFFSET);
+		player.matchesWon = buffer.getInt(offset + WON_OFFSET);
+		player.matchesLost = buffer.getInt(offset + LOST_OFFSET);
+		return player;
+	}
+
+	@Override
+	public void save(Player player) {
+		byte[] nameBytes = encodeName(player.name);
+		int slot = findSlot(nameBytes);
+
+		// New players need a free slot, so we grow the table before using it
+		if (buffer.get(offset(slot) + STATE_OFFSET) != USED) {
+			if (count + 1 > capacity * MAX_LOAD) {
+				grow();
+				slot = findSlot(nameBytes);
+			}
+			int offset = offset(slot);
+			buffer.put(offset + STATE_OFFSET, USED);
+			buffer.put(offset + NAME_LENGTH_OFFSET, (byte) nameBytes.length);
+			buffer.put(offset + NAME_OFFSET, nameBytes);
+			buffer.putInt(COUNT_OFFSET, ++count);
+		}
+
+		int offset = offset(slot);
+		buffer.putInt(offset + RECORD_OFFSET, player.record);
+		buffer.putInt(offset + WON_OFFSET, player.matchesWon);
+		buffer.putInt(offset + LOST_OFFSET, player.matchesLost);
+	}
+
+	@Override
+	public void forEach(Consumer<Player> action) {
+		byte[] nameBytes = new byte[MAX_NAME_BYTES];
+		for (int slot = 0; slot < capacity; slot++) {
+			int offset = offset(slot);
+			if (buffer.get(offset + STATE_OFFSET) == USED) {
+				int length = buffer.get(offset + NAME_LENGTH_OFFSET);
+				buffer.get(offset + NAME_OFFSET, nameBytes, 0, length);
+
+				Player player = new Player(new String(nameBytes, 0, length, StandardCharsets.UTF_8));
+				player.record = buffer.getInt(offset + RECORD_OFFSET);
+				player.matchesWon = buffer.getInt(offset + WON_OFFSET);
+				player.matchesLost = buffer.getInt(offset + LOST_OFFSET);
+				action.accept(player);
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	@Override
+	public void flush() {
+		buffer.force();
+	}
+
+	@Override
+	public long getDataSize() {
+		try {
+			return channel.size();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	@Override
+	public void close() {
+		flush();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	//endregion
+
+	//region Hash index
+	/**
+	 * Returns the slot holding the given name or, if it is not stored, the
+	 * empty slot where it should be inserted.
+	 * @param nameBytes Encoded name.
+	 * @return Index of the slot.
+	 */
+	private int findSlot(byte[] nameBytes) {
+		int mask = capacity - 1;
+		int slot = hash(nameBytes) & mask;
+		while (buffer.get(offset(slot) + STATE_OFFSET) == USED && !nameEquals(slot, nameBytes)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Compares the name stored in a slot with the given one, without decoding it.
+	 * @param slot Index of the slot.
+	 * @param nameBytes Encoded name.
+	 * @return true if both names are equal, false otherwise.
+	 */
+	private boolean nameEquals(int slot, byte[] nameBytes) {
+		int offset = offset(slot);
+		if (buffer.get(offset + NAME_LENGTH_OFFSET) != nameBytes.length) {
+			return false;
+		}
+		for (int i = 0; i < nameBytes.length; i++) {
+			if (buffer.get(offset + NAME_OFFSET + i) != nameBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Doubles the table and rehashes every used slot into it.
+	 */
+	private void grow() {
+		if (capacity >= MAX_CAPACITY) {
+			throw new IllegalStateException("The players store is full");
+		}
+
+		// We copy the used slots out of the table before clearing it
+		byte[] used = new byte[count * SLOT_SIZE];
+		int copied = 0;
+		for (int slot = 0; slot < capacity; slot++) {
+			if (buffer.get(offset(slot) + STATE_OFFSET) == USED) {
+				buffer.get(offset(slot), used, copied * SLOT_SIZE, SLOT_SIZE);
+				copied++;
+			}
+		}
+
+		try {
+			capacity *= 2;
+			map();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		byte[] emptySlot = new byte[SLOT_SIZE];
+		for (int slot = 0; slot < capacity; slot++) {
+			buffer.put(offset(slot), emptySlot);
+		}
+
+		// Then we put them back in their new slots
+		byte[] nameBytes;
+		for (int i = 0; i < copied; i++) {
+			int start = i * SLOT_SIZE;
+			int length = used[start + NAME_LENGTH_OFFSET];
+			nameBytes = new byte[length];
+			System.arraycopy(used, start + NAME_OFFSET, nameBytes, 0, length);
+			buffer.put(offset(findSlot(nameBytes)), used, start, SLOT_SIZE);
+		}
+
+		buffer.putInt(CAPACITY_OFFSET, capacity);
+	}
+
+	/**
+	 * Hashes an encoded name, spreading the bits so linear probing works well.
+	 * @param nameBytes Encoded name.
+	 * @return The hash of the name.
+	 */
+	private static int hash(byte[] nameBytes) {
+		int h = 0;
+		for (byte b : nameBytes) {
+			h = 31 * h + b;
+		}
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the offset of a slot in the file.
+	 * @param slot Index of the slot.
+	 * @return Offset of the slot, in bytes.
+	 */
+	private static int offset(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE;
+	}
+
+	/**
+	 * Encodes a name, checking that it fits in a slot.
+	 * @param name Name of the player.
+	 * @return The UTF-8 bytes of the name.
+	 */
+	private static byte[] encodeName(String name) {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		if (nameBytes.length > MAX_NAME_BYTES) {
+			throw new IllegalArgumentException("Player name too long: " + name);
+		}
+		return nameBytes;
+	}
+	//endregion
+
+	//region JSON import and export
+	/**
+	 * Imports every player of a JSON file with the players.json format,
+	 * overwriting the players already stored with the same name.
+	 * @param jsonPath Path to the JSON file.
+	 */
+	public void importJson(Path jsonPath) {
+		try (Reader reader = new BufferedReader(new FileReader(jsonPath.toString()))) {
+			PlayerStatsCodec.INSTANCE.readAll(reader, this::save);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Exports every stored player to a JSON file with the players.json format.
+	 * @param jsonPath Path to the JSON file.
+	 */
+	public void exportJson(Path jsonPath) {
+		try (Writer writer = new BufferedWriter(new FileWriter(jsonPath.toString()))) {
+			PlayerStatsCodec.INSTANCE.writeAll(writer, this);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	//endregion
+}
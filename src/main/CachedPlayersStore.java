@@ -0,0 +1,217 @@
+package main;
+
+import sprites.Player;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bounded LRU cache of players in front of another PlayersStore.
+ * <p>
+ *     Only the most recently used players are kept on the heap, so its use
+ *     stays flat no matter how many players the backing store holds. Saved
+ *     players are marked as dirty and written back to the backing store when
+ *     they are evicted or the cache is flushed.
+ * </p>
+ */
+public class CachedPlayersStore implements PlayersStore {
+	/**
+	 * Cached player and whether it has changes not written back yet.
+	 */
+	private static class Entry {
+		Player player;
+		boolean dirty;
+
+		Entry(Player player, boolean dirty) {
+			this.player = player;
+			this.dirty = dirty;
+		}
+	}
+
+	/**
+	 * The store holding every player.
+	 */
+	private final PlayersStore backing;
+	/**
+	 * Maximum number of cached players.
+	 */
+	private final int capacity;
+	/**
+	 * Cached players, in access order (the eldest is the least recently used).
+	 */
+	private final LinkedHashMap<String, Entry> entries;
+	/**
+	 * Counters of the cache.
+	 */
+	private long hits, misses, evictions, writeBacks;
+
+	/**
+	 * Creates the cache.
+	 * @param backing The store holding every player.
+	 * @param capacity Maximum number of cached players.
+	 */
+	public CachedPlayersStore(PlayersStore backing, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The cache capacity must be positive");
+		}
+		this.backing = backing;
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				if (size() <= CachedPlayersStore.this.capacity) {
+					return false;
+				}
+				evictions++;
+				writeBack(eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	//region PlayersStore
+	@Override
+	public Player find(String name) {
+		Entry entry = entries.get(name);
+		if (entry != null) {
+			hits++;
+			return copy(entry.player);
+		}
+
+		misses++;
+		Player stored = backing.find(name);
+		if (stored == null) {
+			return null;
+		}
+		entries.put(name, new Entry(copy(stored), false));
+		return stored;
+	}
+
+	@Override
+	public void save(Player player) {
+		Entry entry = entries.get(player.name);
+		if (entry != null) {
+			entry.player = copy(player);
+			entry.dirty = true;
+		} else {
+			entries.put(player.name, new Entry(copy(player), true));
+		}
+	}
+
+	/**
+	 * Writes back every dirty player and then iterates the backing store,
+	 * without caching the iterated players.
+	 * @param action Action to be performed.
+	 */
+	@Override
+	public void forEach(Consumer<Player> action) {
+		writeBackAll();
+		backing.forEach(action);
+	}
+
+	@Override
+	public int size() {
+		writeBackAll();
+		return backing.size();
+	}
+
+	@Override
+	public void flush() {
+		writeBackAll();
+		backing.flush();
+	}
+
+	@Override
+	public long getDataSize() {
+		return backing.getDataSize();
+	}
+
+	@Override
+	public long getVersion() {
+		return backing.getVersion();
+	}
+
+	@Override
+	public void close() {
+		writeBackAll();
+		backing.close();
+	}
+	//endregion
+
+	//region Write back
+	/**
+	 * Writes every dirty player back to the backing store, keeping them cached.
+	 */
+	private void writeBackAll() {
+		for (Entry entry : entries.values()) {
+			writeBack(entry);
+		}
+	}
+
+	/**
+	 * Writes a player back to the backing store if it is dirty.
+	 * @param entry The cached player.
+	 */
+	private void writeBack(Entry entry) {
+		if (entry.dirty) {
+			backing.save(entry.player);
+			entry.dirty = false;
+			writeBacks++;
+		}
+	}
+
+	/**
+	 * Copies the stats of a player, so callers cannot change the cached one.
+	 * @param player The player to be copied.
+	 * @return The copy.
+	 */
+	private static Player copy(Player player) {
+		Player copy = new Player(player.name);
+		copy.points = player.points;
+		copy.record = player.record;
+		copy.matchesWon = player.matchesWon;
+		copy.matchesLost = player.matchesLost;
+		return copy;
+	}
+	//endregion
+
+	//region Counters
+	/**
+	 * @return Number of finds answered by the cache.
+	 */
+	public long getHits() { return hits; }
+
+	/**
+	 * @return Number of finds that had to go to the backing store.
+	 */
+	public long getMisses() { return misses; }
+
+	/**
+	 * @return Number of players evicted from the cache.
+	 */
+	public long getEvictions() { return evictions; }
+
+	/**
+	 * @return Number of dirty players written back to the backing store.
+	 */
+	public long getWriteBacks() { return writeBacks; }
+
+	/**
+	 * @return Number of cached players.
+	 */
+	public int getCachedCount() { return entries.size(); }
+
+	@Override
+	public String toString() {
+		return "CachedPlayersStore{" +
+				"capacity=" + capacity +
+				", cached=" + entries.size() +
+				", hits=" + hits +
+				", misses=" + misses +
+				", evictions=" + evictions +
+				", writeBacks=" + writeBacks +
+				'}';
+	}
+	//endregion
+}
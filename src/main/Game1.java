@@ -9,21 +9,36 @@ import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.image.BufferStrategy;
-import java.util.Map;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import javax.swing.*;
 
+import arena.ArenaPool;
+import arena.SplatStencil;
 import graphics.Assets;
 import input.KeyBoard;
+import jfr.FrameEvent;
+import jfr.GameRecording;
+import net.Protocol;
+import replay.MatchRecording;
 import sprites.Player;
 import states.IGameState;
 import states.Match;
 import states.MainMenu;
+import states.RemoteMatch;
 
 /**
  * Main class of the game
+ * <p>
+ *     The game is shown in a window, or runs without one (e.g. headless, for
+ *     the tests), where its frames are run by the caller with runFrame.
+ * </p>
  */
-public class Game1 extends JFrame implements Runnable, KeyListener {
+public class Game1 implements Runnable, KeyListener {
 	/**
 	 * Enum for the different states of the game
 	 */
@@ -64,21 +79,26 @@ public class Game1 extends JFrame implements Runnable, KeyListener {
 	 */
 	public static final int SCREEN_WIDTH = 1934, SCREEN_HEIGHT = 1087;
 	/**
-	 * Canvas for the game
+	 * Window of the game, null if it runs without one
 	 */
-	public static Canvas canvas;
+	private JFrame frame;
+	/**
+	 * Canvas for the game, which receives the key events
+	 */
+	private final Canvas canvas;
 	/**
 	 * BufferStrategy for the game
 	 */
 	private BufferStrategy bs;
 	/**
-	 * Graphics object for the game
+	 * Whether the next frame must be drawn whole, as the back buffer does
+	 * not hold a frame of the current state
 	 */
-	private Graphics g;
+	private boolean repaintAll = true;
 	/**
-	 * Map for the players
+	 * Graphics object for the game
 	 */
-	public static Map<String, Player> playersMap;
+	private Graphics g;
 	/**
 	 * FPS rate for the game
 	 */
@@ -91,19 +111,81 @@ public class Game1 extends JFrame implements Runnable, KeyListener {
 	 * KeyBoard object for the game
 	 */
 	private KeyBoard keyBoard;
+	/**
+	 * Address of the MatchServer, null for playing the matches locally.
+	 * It is set with the "splatank.server" system property (host:port).
+	 */
+	private final InetSocketAddress server;
+	/**
+	 * Directory where the local matches are recorded for replaying them,
+	 * null for not recording them. It is set with the "splatank.replays"
+	 * system property.
+	 */
+	private final Path replays;
+	/**
+	 * Columns and rows of cells of the large arena the local matches are
+	 * played in, 0 for the classic arena. It is set with the "splatank.arena"
+	 * system property (columns x rows, e.g. 1000x1000).
+	 */
+	private final int arenaColumns, arenaRows;
+	/**
+	 * Stencil of the cells the bullets of the local matches paint, the 3x3
+	 * square by default. It is set with the "splatank.splat" system property
+	 * (shape:radius, e.g. circle:8 or cone:12).
+	 */
+	private final SplatStencil splat;
+	/**
+	 * Arenas of the local matches, reused from one match to the next
+	 */
+	private final ArenaPool arenaPool;
 
 	/**
-	 * Constructor for the Game
+	 * Constructor for the Game, shown in a window
 	 */
 	public Game1() {
-		setTitle("SplaTank");
+		this(new PlayersManagement(), getServerProperty());
+
+		frame = new JFrame("SplaTank");
 		ImageIcon icon = new ImageIcon("res/icon.png");
-		setIconImage(icon.getImage());
-		setSize(SCREEN_WIDTH, SCREEN_HEIGHT);
-		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		setResizable(false);
-		setLocationRelativeTo(null);
-		setVisible(true);
+		frame.setIconImage(icon.getImage());
+		frame.setSize(SCREEN_WIDTH, SCREEN_HEIGHT);
+		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		frame.setResizable(false);
+		frame.setLocationRelativeTo(null);
+		frame.setVisible(true);
+		frame.add(canvas);
+	}
+
+	/**
+	 * Constructor for the Game without window, playing the matches locally
+	 * @param playersManagement Object for the players management
+	 */
+	public Game1(PlayersManagement playersManagement) {
+		this(playersManagement, null);
+	}
+
+	/**
+	 * Constructor for the Game
+	 * @param playersManagement Object for the players management
+	 * @param server Address of the MatchServer, null for playing the matches locally
+	 */
+	private Game1(PlayersManagement playersManagement, InetSocketAddress server) {
+		this.playersManagement = playersManagement;
+		this.server = server;
+		String replaysProperty = System.getProperty("splatank.replays");
+		this.replays = replaysProperty != null ? Paths.get(replaysProperty) : null;
+		String arenaProperty = System.getProperty("splatank.arena");
+		if (arenaProperty != null) {
+			String[] size = arenaProperty.toLowerCase().split("x");
+			this.arenaColumns = Integer.parseInt(size[0].trim());
+			this.arenaRows = Integer.parseInt(size[1].trim());
+		} else {
+			this.arenaColumns = 0;
+			this.arenaRows = 0;
+		}
+		this.arenaPool = new ArenaPool(arenaColumns, arenaRows);
+		String splatProperty = System.getProperty("splatank.splat");
+		this.splat = splatProperty != null ? SplatStencil.parse(splatProperty) : SplatStencil.DEFAULT;
 
 		canvas = new Canvas();
 		keyBoard = new KeyBoard();
@@ -112,15 +194,25 @@ public class Game1 extends JFrame implements Runnable, KeyListener {
 		canvas.setMaximumSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
 		canvas.setMinimumSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
 		canvas.setFocusable(true);
-
-		add(canvas);
 		canvas.addKeyListener(keyBoard);
 
-		currentStatus = new MainMenu(this);
-		canvas.addKeyListener((MainMenu) currentStatus);
+		setState(new MainMenu(this));
+	}
 
-		playersManagement = new PlayersManagement();
-		playersMap = playersManagement.readJsonToMap();
+	/**
+	 * Reads the address of the MatchServer from the "splatank.server" system property
+	 * @return The address, null if the property is not set
+	 */
+	private static InetSocketAddress getServerProperty() {
+		String serverProperty = System.getProperty("splatank.server");
+		if (serverProperty == null) {
+			return null;
+		}
+		int colon = serverProperty.lastIndexOf(':');
+		return colon < 0
+				? new InetSocketAddress(serverProperty, Protocol.DEFAULT_PORT)
+				: new InetSocketAddress(serverProperty.substring(0, colon),
+						Integer.parseInt(serverProperty.substring(colon + 1)));
 	}
 
 	/**
@@ -128,6 +220,7 @@ public class Game1 extends JFrame implements Runnable, KeyListener {
 	 * @param args The command line arguments
 	 */
 	public static void main(String[] args) {
+		GameRecording.startIfConfigured();
 		new Game1().start();
 	}
 
@@ -136,27 +229,29 @@ public class Game1 extends JFrame implements Runnable, KeyListener {
 	 */
 	private void update() {
 		if (statusEnum == status.MENU && !(currentStatus instanceof MainMenu)) {
-			// Remove the current keyListener
 			if (currentStatus instanceof Match) {
-				canvas.removeKeyListener((Match) currentStatus);
+				saveRecording((Match) currentStatus);
+				arenaPool.release(((Match) currentStatus).getArena());
+			}
+			setState(new MainMenu(this));
+		} else if (statusEnum == status.MATCH && currentStatus instanceof MainMenu) {
+			if (server != null) {
+				// The match is played on the server, as player 1
+				setState(new RemoteMatch(this, server, player1Name));
+			} else {
+				// Initialize the players
+				Player[] players = playersManagement.initializePlayers(
+						player1Name, player2Name
+				);
+
+				// Set the new status, in an arena of the pool, recording the match if configured
+				Match match = new Match(this, players[0], players[1], arenaPool.acquire());
+				match.setSplat(splat);
+				if (replays != null) {
+					match.setRecording(new MatchRecording(match));
+				}
+				setState(match);
 			}
-
-			// Set the new status
-			currentStatus = new MainMenu(this);
-
-			// Add the new keyListener
-			canvas.addKeyListener((MainMenu) currentStatus);
-		} else if (statusEnum == status.MATCH && !(currentStatus instanceof Match)) {
-			// Initialize the players
-			Player[] players = playersManagement.initializePlayers(
-					player1Name, player2Name, playersMap
-			);
-
-			// Set the new status
-			currentStatus = new Match(this, players[0], players[1]);
-
-			// Add the new keyListener
-			canvas.addKeyListener((Match) currentStatus);
 
 			// Request focus
 			canvas.requestFocus();
@@ -166,34 +261,151 @@ public class Game1 extends JFrame implements Runnable, KeyListener {
 			player2Name = "";
 
 		} else if (statusEnum == status.EXIT) {
-			//
 			running = false;
-			System.exit(0);
+			if (frame != null) {
+				System.exit(0);
+			}
+			return;
 		}
 
 		currentStatus.update();
 	}
 
 	/**
-	 * Draws the current status
+	 * Saves the recording of a match that has been left, if it was recorded
+	 * @param match The match
+	 */
+	private void saveRecording(Match match) {
+		MatchRecording recording = match.getRecording();
+		if (recording == null || recording.getTicks() == 0) {
+			return;
+		}
+		try {
+			Files.createDirectories(replays);
+			recording.save(replays.resolve(match.getPlayer1().name + "-" + match.getPlayer2().name
+					+ "-" + System.currentTimeMillis() + ".rec"));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Starts building the arena of the next local match in the background,
+	 * e.g. while the players read the tutorial, if there is none ready yet
+	 */
+	public void prewarmArena() {
+		if (server == null) {
+			arenaPool.prewarm();
+		}
+	}
+
+	/**
+	 * Returns the arenas of the local matches
+	 * @return The arena pool
+	 */
+	public ArenaPool getArenaPool() {
+		return arenaPool;
+	}
+
+	/**
+	 * Sets the current state, moving the keyListener of the canvas from the
+	 * previous state to the new one, so the states left are not kept alive
+	 * @param state The new state
+	 */
+	private void setState(IGameState state) {
+		if (currentStatus instanceof KeyListener) {
+			canvas.removeKeyListener((KeyListener) currentStatus);
+		}
+		currentStatus = state;
+		repaintAll = true;
+		if (state instanceof KeyListener) {
+			canvas.addKeyListener((KeyListener) state);
+		}
+	}
+
+	/**
+	 * Runs a frame of a game without window: updates the current state and
+	 * draws it
+	 * @param g The graphics it is drawn on, null for not drawing it
+	 */
+	public void runFrame(Graphics g) {
+		update();
+		if (g != null) {
+			currentStatus.draw(g);
+		}
+	}
+
+	/**
+	 * Returns the canvas of the game, which receives the key events
+	 * @return The canvas
+	 */
+	public Canvas getCanvas() {
+		return canvas;
+	}
+
+	/**
+	 * Returns the current state of the game
+	 * @return The current state
+	 */
+	public IGameState getCurrentState() {
+		return currentStatus;
+	}
+
+	/**
+	 * Draws the current status, redrawing only what changed in the back
+	 * buffer when it keeps the frames drawn, and the whole frame again when
+	 * its contents were lost
 	 */
 	private void draw() {
 		// Get the buffer strategy
 		bs = canvas.getBufferStrategy();
 		if (bs == null) {
 			canvas.createBufferStrategy(2);
+			repaintAll = true;
 			return;
 		}
 
-		// Get the graphics object
-		g = bs.getDrawGraphics();
-
-		// Draw the current status
-		currentStatus.draw(g);
+		int age = repaintAll ? 0 : backBufferAge(bs.getCapabilities());
+		repaintAll = false;
+		do {
+			do {
+				// Get the graphics object
+				g = bs.getDrawGraphics();
+
+				// Draw the current status
+				if (age > 0) {
+					currentStatus.drawChanges(g, age);
+				} else {
+					currentStatus.draw(g);
+				}
+				g.dispose();
+
+				// A frame drawn again is drawn whole, as the buffer was restored or lost
+				age = 0;
+			} while (bs.contentsRestored());
+
+			// Show the buffer strategy
+			bs.show();
+		} while (bs.contentsLost());
+	}
 
-		// Dispose and show the buffer strategy
-		g.dispose();
-		bs.show();
+	/**
+	 * Returns how old the frame the back buffer holds is when it is drawn
+	 * @param capabilities The capabilities of the buffer strategy
+	 * @return 1 if it holds the last frame shown, 2 if it holds the one
+	 * before, 0 if its contents are undefined
+	 */
+	private static int backBufferAge(BufferCapabilities capabilities) {
+		if (!capabilities.isPageFlipping()) {
+			// The back buffer is copied to the screen, and keeps the frame
+			return 1;
+		}
+		BufferCapabilities.FlipContents contents = capabilities.getFlipContents();
+		if (contents == BufferCapabilities.FlipContents.COPIED) {
+			return 1;
+		}
+		// After a flip the back buffer holds the previous front buffer
+		return contents == BufferCapabilities.FlipContents.PRIOR ? 2 : 0;
 	}
 
 	/**
@@ -224,8 +436,20 @@ public class Game1 extends JFrame implements Runnable, KeyListener {
 			lastTime = now;
 
 			if (delta >= 1) {
+				FrameEvent frameEvent = new FrameEvent();
+				frameEvent.begin();
+				long start = System.nanoTime();
 				update();
+				long updated = System.nanoTime();
 				draw();
+				frameEvent.end();
+				if (frameEvent.shouldCommit()) {
+					frameEvent.state = currentStatus.getClass().getSimpleName();
+					frameEvent.updateDuration = updated - start;
+					frameEvent.drawDuration = System.nanoTime() - updated;
+					frameEvent.averageFps = averageFps;
+					frameEvent.commit();
+				}
 				delta--;
 				frames++;
 			}
@@ -0,0 +1,107 @@
+package main;
+
+import sprites.Player;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * PlayersStore backed by a JSON file.
+ * <p>
+ *     The whole file is read into a Map(String, Player) when the store is
+ *     opened, and rewritten on every flush.
+ * </p>
+ */
+public class JsonPlayersStore implements PlayersStore {
+	/**
+	 * Path to the JSON file.
+	 */
+	private final Path path;
+	/**
+	 * Map(String, Player) with the data read from the JSON file.
+	 */
+	private final Map<String, Player> playersMap;
+
+	/**
+	 * Opens the store, reading the JSON file if it exists.
+	 * @param path Path to the JSON file.
+	 */
+	public JsonPlayersStore(Path path) {
+		this.path = path;
+		this.playersMap = readJsonToMap();
+	}
+
+	/**
+	 * Reads the data from the JSON file and returns it as a Map(String, Player).
+	 * @return Map(String, Player) with the data read from the JSON file.
+	 */
+	private Map<String, Player> readJsonToMap() {
+		Map<String, Player> map = new HashMap<>();
+
+		if (path.toFile().exists()) {
+			try (Reader reader = new BufferedReader(new FileReader(path.toString()))) {
+				PlayerStatsCodec.INSTANCE.readAll(reader, player -> map.put(player.name, player));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		return map;
+	}
+
+	@Override
+	public Player find(String name) {
+		return playersMap.get(name);
+	}
+
+	@Override
+	public void save(Player player) {
+		playersMap.put(player.name, player);
+	}
+
+	@Override
+	public void forEach(Consumer<Player> action) {
+		playersMap.values().forEach(action);
+	}
+
+	@Override
+	public int size() {
+		return playersMap.size();
+	}
+
+	/**
+	 * Saves the players data to the JSON file.
+	 */
+	@Override
+	public void flush() {
+		try (Writer writer = new BufferedWriter(new FileWriter(path.toString()))) {
+			PlayerStatsCodec.INSTANCE.writeAll(writer, this);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public long getDataSize() {
+		try {
+			return Files.exists(path) ? Files.size(path) : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	@Override
+	public void close() {
+		flush();
+	}
+}
@@ -0,0 +1,142 @@
+package main;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import sprites.Player;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * Streaming JSON codec for the stats fields of a Player.
+ * <p>
+ *     It reads and writes the same format Gson produces for the @Expose
+ *     fields of Player, but field by field, without reflection nor
+ *     intermediate trees. It has no state, so a single instance is shared.
+ *     It can also be registered in a GsonBuilder as the Player type adapter.
+ * </p>
+ */
+public class PlayerStatsCodec extends TypeAdapter<Player> {
+	/**
+	 * The shared instance.
+	 */
+	public static final PlayerStatsCodec INSTANCE = new PlayerStatsCodec();
+
+	/**
+	 * Use the shared instance.
+	 */
+	private PlayerStatsCodec() { }
+
+	/**
+	 * Writes the stats of a player as a JSON object.
+	 * @param out The JSON writer.
+	 * @param player The player to be written.
+	 */
+	@Override
+	public void write(JsonWriter out, Player player) throws IOException {
+		if (player == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject()
+				.name("name").value(player.name)
+				.name("points").value(player.points)
+				.name("record").value(player.record)
+				.name("matchesWon").value(player.matchesWon)
+				.name("matchesLost").value(player.matchesLost)
+				.endObject();
+	}
+
+	/**
+	 * Reads the stats of a player from a JSON object. Unknown fields are skipped.
+	 * @param in The JSON reader.
+	 * @return The player read, without tank nor keyBoard.
+	 */
+	@Override
+	public Player read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		Player player = new Player(null);
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+				case "name" -> player.name = in.nextString();
+				case "points" -> player.points = in.nextInt();
+				case "record" -> player.record = in.nextInt();
+				case "matchesWon" -> player.matchesWon = in.nextInt();
+				case "matchesLost" -> player.matchesLost = in.nextInt();
+				default -> in.skipValue();
+			}
+		}
+		in.endObject();
+		return player;
+	}
+
+	/**
+	 * Reads a players.json file, a JSON object from names to players.
+	 * @param reader Reader of the file.
+	 * @param action Action performed with every player read.
+	 */
+	public void readAll(Reader reader, Consumer<Player> action) throws IOException {
+		JsonReader in = new JsonReader(reader);
+		if (in.peek() == JsonToken.END_DOCUMENT) {
+			return;
+		}
+		readAll(in, action);
+	}
+
+	/**
+	 * Reads a JSON object from names to players.
+	 * @param in The JSON reader, placed before the object.
+	 * @param action Action performed with every player read.
+	 */
+	public void readAll(JsonReader in, Consumer<Player> action) throws IOException {
+		in.beginObject();
+		while (in.hasNext()) {
+			String name = in.nextName();
+			Player player = read(in);
+			if (player != null) {
+				// The key is the name, in case the object does not have it
+				if (player.name == null) {
+					player.name = name;
+				}
+				action.accept(player);
+			}
+		}
+		in.endObject();
+	}
+
+	/**
+	 * Writes every player of a store as a players.json file.
+	 * @param writer Writer of the file.
+	 * @param store The store to be written.
+	 */
+	public void writeAll(Writer writer, PlayersStore store) throws IOException {
+		JsonWriter out = new JsonWriter(writer);
+		out.setIndent("  ");
+		out.beginObject();
+		try {
+			store.forEach(player -> {
+				try {
+					write(out.name(player.name), player);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof IOException ioException) {
+				throw ioException;
+			}
+			throw e;
+		}
+		out.endObject();
+		out.flush();
+	}
+}
@@ -1,17 +1,12 @@
 package main;
 
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
-import com.google.gson.stream.JsonReader;
+import jfr.PersistenceEvent;
 import sprites.Player;
 
-import java.io.FileWriter;
 import java.util.*;
 
-import com.google.gson.Gson;
-import java.io.FileReader;
-import java.io.IOException;
-import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 /**
@@ -21,114 +16,252 @@ public class PlayersManagement {
 	/**
 	 * Path to the directory where the data is stored.
 	 */
-	private final String DIRECTORY_PATH = "data/";
+	private static final String DIRECTORY_PATH = "data/";
 	/**
 	 * Name of the file where the data is stored.
 	 */
-	private final String FILE_NAME = "players.json";
+	private static final String FILE_NAME = "players.json";
+	/**
+	 * Name of the file where the data is stored by the binary store.
+	 */
+	private static final String BINARY_FILE_NAME = "players.bin";
+	/**
+	 * Name of the directory where the data is stored by the shared store.
+	 */
+	private static final String SHARED_DIRECTORY_NAME = "shared";
+	/**
+	 * Number of players shown in the leaderboard.
+	 */
+	private final int LEADERBOARD_SIZE = 10;
+	/**
+	 * Default number of players kept in the cache of the binary store.
+	 */
+	private static final int DEFAULT_CACHE_SIZE = 1024;
+	/**
+	 * Storage backend for the players data.
+	 */
+	private final PlayersStore store;
+	/**
+	 * The best players sorted by record, kept up to date as matches end.
+	 */
+	private List<Player> topPlayers;
+	/**
+	 * Cached leaderboard columns, rebuilt only when the players data changes.
+	 */
+	private String[][] leaderboard;
+	/**
+	 * Version of the store the best players were read at.
+	 */
+	private long storeVersion;
 
 	/**
 	 * Constructor for the PlayersManagement class.
+	 * <p>
+	 *     The store is chosen with the "splatank.store" system property:
+	 *     "json" (default), "binary" or "shared". The first time the binary
+	 *     or the shared store is used, the players of the JSON file are
+	 *     imported into it.
+	 * </p>
+	 * <p>
+	 *     The binary store is used through a CachedPlayersStore, whose size is
+	 *     set with the "splatank.cacheSize" system property. The JSON store
+	 *     already holds every player in memory, so it is not cached.
+	 * </p>
+	 * <p>
+	 *     The shared store is meant for several cabinets using the same data
+	 *     directory. Each cabinet is identified by the "splatank.node" system
+	 *     property, which defaults to the host name and process id.
+	 * </p>
 	 */
-	public PlayersManagement() { }
+	public PlayersManagement() {
+		this(openStore(System.getProperty("splatank.store", "json")));
+	}
 
 	/**
-	 * Reads the data from the JSON file and returns it as a Map(String, Player).
-	 * @return Map(String, Player) with the data read from the JSON file.
+	 * Constructor for the PlayersManagement class.
+	 * @param store Storage backend for the players data.
 	 */
-	public Map<String, Player> readJsonToMap() {
-		Map<String, Player> playersMap = new HashMap<>();
-		Gson gson = new GsonBuilder()
-				.excludeFieldsWithoutExposeAnnotation()
-				.create();
-		Type type = new TypeToken<Map<String, Player>>() {}.getType();
+	public PlayersManagement(PlayersStore store) {
+		this.store = store;
+	}
 
-		try {
-			JsonReader reader = new JsonReader(new FileReader(Paths.get(DIRECTORY_PATH, FILE_NAME).toString()));
-			playersMap = gson.fromJson(reader, type);
-			reader.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+	/**
+	 * Opens the store of the given type, in the data directory, recording
+	 * the load for the flight recorder.
+	 * @param type "json", "binary" or "shared".
+	 * @return The opened store.
+	 */
+	private static PlayersStore openStore(String type) {
+		PersistenceEvent event = new PersistenceEvent();
+		event.begin();
+		PlayersStore store = openStoreOfType(type);
+		commit(event, PersistenceEvent.LOAD, store);
+		return store;
+	}
 
-		if (playersMap == null) {
-			playersMap = new HashMap<>();
+	/**
+	 * Opens the store of the given type, in the data directory.
+	 * @param type "json", "binary" or "shared".
+	 * @return The opened store.
+	 */
+	private static PlayersStore openStoreOfType(String type) {
+		Path jsonPath = Paths.get(DIRECTORY_PATH, FILE_NAME);
+
+		if (type.equals("binary")) {
+			Path binaryPath = Paths.get(DIRECTORY_PATH, BINARY_FILE_NAME);
+			boolean isNew = !Files.exists(binaryPath);
+			BinaryPlayersStore binaryStore = new BinaryPlayersStore(binaryPath);
+			if (isNew && Files.exists(jsonPath)) {
+				binaryStore.importJson(jsonPath);
+				binaryStore.flush();
+			}
+			return new CachedPlayersStore(
+					binaryStore, Integer.getInteger("splatank.cacheSize", DEFAULT_CACHE_SIZE)
+			);
+		}
+		if (type.equals("shared")) {
+			Path sharedPath = Paths.get(DIRECTORY_PATH, SHARED_DIRECTORY_NAME);
+			boolean isNew = !Files.exists(sharedPath);
+			SharedPlayersStore sharedStore = new SharedPlayersStore(
+					sharedPath, System.getProperty("splatank.node", SharedPlayersStore.defaultNodeId())
+			);
+			if (isNew && Files.exists(jsonPath)) {
+				new JsonPlayersStore(jsonPath).forEach(sharedStore::save);
+				sharedStore.flush();
+			}
+			return sharedStore;
 		}
+		return new JsonPlayersStore(jsonPath);
+	}
 
-		return playersMap;
+	/**
+	 * Returns the storage backend for the players data.
+	 * @return The store.
+	 */
+	public PlayersStore getStore() {
+		return store;
 	}
 
 	/**
 	 * Initializes the players and returns them in an array.
+	 * <p>
+	 *     Players that are not stored yet are saved with empty stats.
+	 * </p>
 	 * @param p1Name Name of the first player.
 	 * @param p2Name Name of the second player.
-	 * @param playersMap Map(String, Player) with the data read from the JSON file.
 	 * @return Array of players.
 	 */
-	public Player[] initializePlayers(String p1Name, String p2Name, Map<String, Player> playersMap) {
-		Player[] players = new Player[2];
+	public Player[] initializePlayers(String p1Name, String p2Name) {
+		return initializePlayers(new String[] { p1Name, p2Name }, 0);
+	}
+
+	/**
+	 * Initializes the players of a match of up to Player.MAX_PLAYERS and
+	 * returns them in an array.
+	 * <p>
+	 *     The enemy of every player is the next player of another team.
+	 *     Players that are not stored yet are saved with empty stats.
+	 * </p>
+	 * @param names Names of the players, from the first one.
+	 * @param teams Number of teams the players are dealt into in turn, 0 for free-for-all.
+	 * @return Array of players.
+	 */
+	public Player[] initializePlayers(String[] names, int teams) {
+		if (names.length < 2 || names.length > Player.MAX_PLAYERS || teams < 0 || teams == 1 || teams > names.length) {
+			throw new IllegalArgumentException("Invalid players or teams: " + names.length + ", " + teams);
+		}
+		Player[] players = new Player[names.length];
 
 		// Initialize players
-		players[0] = new Player(p1Name, true);
-		players[1] = new Player(p2Name, false);
+		for (int i = 0; i < names.length; i++) {
+			players[i] = new Player(names[i], i + 1, teams == 0 ? i + 1 : i % teams + 1);
+		}
 
 		// Set enemies
-		players[0].enemy = players[1];
-		players[1].enemy = players[0];
-
-		// Set player 1 data
-		if (playersMap.containsKey(p2Name)) {
-			players[0].matchesWon = playersMap.get(p1Name).matchesWon;
-			players[0].matchesLost = playersMap.get(p1Name).matchesLost;
-			players[0].record = playersMap.get(p1Name).record;
-		} else {
-			playersMap.put(p1Name, players[0]);
+		for (int i = 0; i < players.length; i++) {
+			for (int j = 1; j < players.length; j++) {
+				Player other = players[(i + j) % players.length];
+				if (other.getTeam() != players[i].getTeam()) {
+					players[i].enemy = other;
+					break;
+				}
+			}
 		}
 
-		// Set player 2 data
-		if (playersMap.containsKey(p2Name)) {
-			players[1].matchesWon = playersMap.get(p2Name).matchesWon;
-			players[1].matchesLost = playersMap.get(p2Name).matchesLost;
-			players[1].record = playersMap.get(p2Name).record;
-		} else {
-			playersMap.put(p2Name, players[1]);
+		// Set players data
+		for (Player player : players) {
+			Player stored = store.find(player.name);
+			if (stored != null) {
+				player.matchesWon = stored.matchesWon;
+				player.matchesLost = stored.matchesLost;
+				player.record = stored.record;
+			} else {
+				Player newPlayer = new Player(player.name);
+				store.save(newPlayer);
+				updateLeaderboard(newPlayer);
+			}
 		}
 
 		return players;
 	}
 
 	/**
-	 * Saves the players data to the JSON file.
-	 * @param playersMap Map(String, Player) with the data read from the JSON file.
+	 * Makes the players data durable.
 	 */
-	public void savePlayersToJson(Map<String, Player> playersMap) {
-		// Save players data to JSON file
-		Gson gson = new GsonBuilder()
-				.excludeFieldsWithoutExposeAnnotation()
-				.setPrettyPrinting()
-				.create();
-		try {
-			FileWriter writer = new FileWriter(Paths.get(DIRECTORY_PATH, FILE_NAME).toString());
-			gson.toJson(playersMap, writer);
-			writer.close();
-		} catch (IOException e) {
-			e.printStackTrace();
+	public void savePlayers() {
+		PersistenceEvent event = new PersistenceEvent();
+		event.begin();
+		store.flush();
+		commit(event, PersistenceEvent.SAVE, store);
+	}
+
+	/**
+	 * Commits a flight recorder event of the players data, if it is enabled.
+	 * @param event The event, begun before the operation.
+	 * @param operation The operation, one of the operations of PersistenceEvent.
+	 * @param store The store.
+	 */
+	private static void commit(PersistenceEvent event, String operation, PlayersStore store) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.store = store.getClass().getSimpleName();
+			event.bytes = store.getDataSize();
+			event.commit();
 		}
 	}
 
 	/**
 	 * Returns the players data in a String[][], representing a table with columns.
-	 * @param playersMap Map(String, Player) with the data read from the JSON file.
+	 * <p>
+	 *     The table is cached until the players data changes, as it is drawn
+	 *     every frame. It is read again from the store when other nodes have
+	 *     changed it.
+	 * </p>
 	 * @return String[][] with the players data.
 	 */
-	public String[][] getPlayersDataColumns(Map<String, Player> playersMap) {
-		// Sort players by record
-		List<Player> result = new ArrayList<>(playersMap.values());
+	public String[][] getPlayersDataColumns() {
+		long version = store.getVersion();
+		if (version != storeVersion) {
+			topPlayers = null;
+			leaderboard = null;
+		}
+		if (leaderboard != null) {
+			return leaderboard;
+		}
 
-		result.sort((p1, p2) -> Integer.compare(p2.record, p1.record));
+		// Get the players sorted by record, reading the whole store only once
+		if (topPlayers == null) {
+			PersistenceEvent event = new PersistenceEvent();
+			event.begin();
+			topPlayers = store.getTopPlayers(LEADERBOARD_SIZE);
+			storeVersion = store.getVersion();
+			commit(event, PersistenceEvent.LEADERBOARD, store);
+		}
+		List<Player> result = topPlayers;
 
 		// Get players data
-		int numPlayers = Math.min(result.size(), 10);
+		int numPlayers = result.size();
 		String[][] playersData = new String[4][numPlayers];
 
 		// Set columns
@@ -139,6 +272,7 @@ public class PlayersManagement {
 			playersData[3][i] = String.valueOf(result.get(i).matchesWon);
 		}
 
+		leaderboard = playersData;
 		return playersData;
 	}
 
@@ -148,21 +282,64 @@ public class PlayersManagement {
 	 * @param p2 Second player.
 	 */
 	public void updatePlayersData(Player p1, Player p2) {
-		// Update players data
-		if (p1.points > p2.points) {
-			Game1.playersMap.get(p1.name).matchesWon++;
-			Game1.playersMap.get(p2.name).matchesLost++;
-		} else if (p1.points < p2.points) {
-			Game1.playersMap.get(p2.name).matchesWon++;
-			Game1.playersMap.get(p1.name).matchesLost++;
+		updatePlayersData(new Player[] { p1, p2 });
+	}
+
+	/**
+	 * Method that updates the scores of the players of a match: the players
+	 * of the team with the most points win, unless another team has as many,
+	 * and the players of the teams with fewer points lose.
+	 * @param players The players.
+	 */
+	public void updatePlayersData(Player[] players) {
+		int[] teamPoints = new int[Player.MAX_PLAYERS + 1];
+		for (Player player : players) {
+			teamPoints[player.getTeam()] += player.points;
+		}
+		int best = Integer.MIN_VALUE, bestTeams = 0;
+		for (Player player : players) {
+			int points = teamPoints[player.getTeam()];
+			if (points > best) {
+				best = points;
+			}
+		}
+		for (int team = 1; team < teamPoints.length; team++) {
+			bestTeams += teamPoints[team] == best && hasTeam(players, team) ? 1 : 0;
 		}
 
-		// Update players record
-		if (p1.points > p1.record) {
-			Game1.playersMap.get(p1.name).record = p1.points;
+		// Update players data and record
+		for (Player player : players) {
+			int points = teamPoints[player.getTeam()];
+			updateLeaderboard(store.recordMatch(player.name, points == best && bestTeams == 1, points < best,
+					player.points));
 		}
-		if (p2.points > p2.record) {
-			Game1.playersMap.get(p2.name).record = p2.points;
+	}
+
+	private static boolean hasTeam(Player[] players, int team) {
+		for (Player player : players) {
+			if (player.getTeam() == team) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Puts the updated data of a player into the best players list, if it
+	 * has been read already, so the whole store does not need to be read again.
+	 * @param player The updated player.
+	 */
+	private void updateLeaderboard(Player player) {
+		leaderboard = null;
+		if (topPlayers == null) {
+			return;
+		}
+
+		topPlayers.removeIf(p -> p.name.equals(player.name));
+		topPlayers.add(player);
+		topPlayers.sort((p1, p2) -> Integer.compare(p2.record, p1.record));
+		if (topPlayers.size() > LEADERBOARD_SIZE) {
+			topPlayers.remove(topPlayers.size() - 1);
 		}
 	}
 }
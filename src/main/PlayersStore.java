@@ -0,0 +1,121 @@
+package main;
+
+import sprites.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Storage backend for the persisted players data.
+ * <p>
+ *     Only the stats fields of a Player (name, record, matchesWon and
+ *     matchesLost) are stored. The players returned by the store are plain
+ *     data holders, without tank or keyBoard.
+ * </p>
+ */
+public interface PlayersStore {
+	/**
+	 * Returns the stored data of a player.
+	 * @param name Name of the player.
+	 * @return The stored player, or null if there is no player with that name.
+	 */
+	Player find(String name);
+
+	/**
+	 * Inserts the player or overwrites its stored data.
+	 * @param player Player to be stored.
+	 */
+	void save(Player player);
+
+	/**
+	 * Adds the result of a match to the stored data of a player, storing it
+	 * first if it is not stored yet.
+	 * @param name Name of the player.
+	 * @param won Whether the player won the match.
+	 * @param lost Whether the player lost the match.
+	 * @param points Points of the player in the match, kept as its record if higher.
+	 * @return The updated player.
+	 */
+	default Player recordMatch(String name, boolean won, boolean lost, int points) {
+		Player player = find(name);
+		if (player == null) {
+			player = new Player(name);
+		}
+
+		if (won) {
+			player.matchesWon++;
+		}
+		if (lost) {
+			player.matchesLost++;
+		}
+		if (points > player.record) {
+			player.record = points;
+		}
+
+		save(player);
+		return player;
+	}
+
+	/**
+	 * Performs the given action for every stored player, in no particular order.
+	 * @param action Action to be performed.
+	 */
+	void forEach(Consumer<Player> action);
+
+	/**
+	 * Returns the number of stored players.
+	 * @return Number of stored players.
+	 */
+	int size();
+
+	/**
+	 * Makes every change durable.
+	 */
+	void flush();
+
+	/**
+	 * Returns the bytes the store takes on disk, for reporting.
+	 * @return Number of bytes, 0 if it is not known.
+	 */
+	default long getDataSize() {
+		return 0;
+	}
+
+	/**
+	 * Returns a number that changes when the players are changed by someone
+	 * else than this store, such as another node sharing its data.
+	 * @return The version, always 0 if only this store changes the players.
+	 */
+	default long getVersion() {
+		return 0;
+	}
+
+	/**
+	 * Flushes the store and releases its resources.
+	 */
+	void close();
+
+	/**
+	 * Returns the best players sorted by record, in descending order.
+	 * @param limit Maximum number of players to return.
+	 * @return List with the best players.
+	 */
+	default List<Player> getTopPlayers(int limit) {
+		// We keep a min-heap with the best "limit" players seen so far
+		PriorityQueue<Player> best = new PriorityQueue<>(
+				limit + 1, (p1, p2) -> Integer.compare(p1.record, p2.record)
+		);
+		forEach(player -> {
+			best.add(player);
+			if (best.size() > limit) {
+				best.poll();
+			}
+		});
+
+		List<Player> result = new ArrayList<>(best);
+		result.sort((p1, p2) -> Integer.compare(p2.record, p1.record));
+		return result;
+	}
+}
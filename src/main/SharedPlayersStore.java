@@ -0,0 +1,584 @@
+package main;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import sprites.Player;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * PlayersStore shared by several nodes (cabinets) through a common directory.
+ * <p>
+ *     Nodes never overwrite each other's data. Every node appends the changes
+ *     it makes, as deltas, to its own log segment in the "deltas" directory,
+ *     without taking any global lock. Deltas merge commutatively: won and lost
+ *     matches are added, and records keep the maximum. The state of the store
+ *     is the latest snapshot plus every delta not folded into it yet.
+ * </p>
+ * <p>
+ *     From time to time a node compacts the store: holding the exclusive
+ *     directory lock, it folds the segments of the nodes that are not running
+ *     (and its own previous segment) into a new snapshot. Running nodes hold a
+ *     lock on their current segment, so it is never folded while they use it.
+ *     Snapshots list the segments folded into them, so a crash between writing
+ *     a snapshot and deleting its segments never counts a delta twice.
+ * </p>
+ * <p>
+ *     Only one SharedPlayersStore per directory may be open in the same JVM,
+ *     as file locks are held by the whole process.
+ * </p>
+ */
+public class SharedPlayersStore implements PlayersStore {
+	//region Constants
+	/**
+	 * Name of the directory of the delta segments.
+	 */
+	private static final String DELTAS_DIRECTORY = "deltas";
+	/**
+	 * Name of the lock file of the directory.
+	 */
+	private static final String LOCK_FILE = "store.lock";
+	/**
+	 * Prefix and extension of the snapshots, named after their generation.
+	 */
+	private static final String SNAPSHOT_PREFIX = "snapshot-", SNAPSHOT_EXTENSION = ".json";
+	/**
+	 * Extension of the delta segments.
+	 */
+	private static final String SEGMENT_EXTENSION = ".log";
+	/**
+	 * Size of its own segment, in bytes, from which a node compacts the store on flush.
+	 */
+	private static final long COMPACT_THRESHOLD = 256 * 1024;
+	/**
+	 * Position of the byte locked by a node on its current segment, far beyond
+	 * the data so reading the segment is never blocked.
+	 */
+	private static final long LIVENESS_LOCK_POSITION = Long.MAX_VALUE - 1;
+	/**
+	 * Time, in nanoseconds, after which getVersion looks for the changes of the other nodes.
+	 */
+	private static final long VERSION_REFRESH_INTERVAL = 1_000_000_000L;
+	//endregion
+
+	/**
+	 * Directory of the store and directory of the delta segments.
+	 */
+	private final Path directory, deltasDirectory;
+	/**
+	 * Identifier of this node, unique among the nodes sharing the directory.
+	 */
+	private final String nodeId;
+	/**
+	 * Channel of the lock file.
+	 */
+	private final FileChannel lockChannel;
+	/**
+	 * Current segment of this node, its channel and its liveness lock.
+	 */
+	private Path segmentPath;
+	private FileChannel segmentChannel;
+	private FileLock segmentLock;
+	/**
+	 * Merged state of the store, as of the last refresh.
+	 */
+	private final Map<String, Player> players = new HashMap<>();
+	/**
+	 * Bytes of every segment already merged into the players map.
+	 */
+	private final Map<String, Long> readOffsets = new HashMap<>();
+	/**
+	 * Generation of the snapshot the players map starts from.
+	 */
+	private long generation = -1;
+	/**
+	 * Segments folded into that snapshot, to be ignored.
+	 */
+	private Set<String> folded = new HashSet<>();
+	/**
+	 * Number of refreshes that merged changes of other nodes, and time of the last refresh.
+	 */
+	private long version;
+	private long lastRefresh;
+
+	/**
+	 * Opens the store, creating the directory if it does not exist.
+	 * @param directory Directory shared by every node.
+	 * @param nodeId Identifier of this node, unique among the nodes sharing the directory.
+	 */
+	public SharedPlayersStore(Path directory, String nodeId) {
+		this.directory = directory;
+		this.deltasDirectory = directory.resolve(DELTAS_DIRECTORY);
+		this.nodeId = nodeId;
+		try {
+			Files.createDirectories(deltasDirectory);
+			lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			// A compaction must not see the new segment before it is locked
+			FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true);
+			try {
+				openSegment();
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		refresh();
+	}
+
+	/**
+	 * Returns the default identifier of this node: its host name and process id.
+	 * @return The identifier.
+	 */
+	public static String defaultNodeId() {
+		String host;
+		try {
+			host = InetAddress.getLocalHost().getHostName();
+		} catch (IOException e) {
+			host = "node";
+		}
+		return host.replaceAll("[^A-Za-z0-9_.]", "_") + "_" + ProcessHandle.current().pid();
+	}
+
+	//region PlayersStore
+	@Override
+	public Player find(String name) {
+		refresh();
+		Player player = players.get(name);
+		return player != null ? copy(player) : null;
+	}
+
+	/**
+	 * Stores the difference between the given player and its merged state,
+	 * so it is merged with the changes made by other nodes instead of
+	 * overwriting them.
+	 * @param player Player to be stored.
+	 */
+	@Override
+	public void save(Player player) {
+		refresh();
+		Player current = players.get(player.name);
+		int won = player.matchesWon - (current != null ? current.matchesWon : 0);
+		int lost = player.matchesLost - (current != null ? current.matchesLost : 0);
+		appendDelta(player.name, won, lost, player.record);
+	}
+
+	@Override
+	public Player recordMatch(String name, boolean won, boolean lost, int points) {
+		appendDelta(name, won ? 1 : 0, lost ? 1 : 0, points);
+		return find(name);
+	}
+
+	@Override
+	public void forEach(Consumer<Player> action) {
+		refresh();
+		for (Player player : players.values()) {
+			action.accept(copy(player));
+		}
+	}
+
+	@Override
+	public int size() {
+		refresh();
+		return players.size();
+	}
+
+	/**
+	 * Returns the number of refreshes that merged changes of other nodes,
+	 * looking for new ones at most once per second, as it is checked every frame.
+	 */
+	@Override
+	public long getVersion() {
+		if (System.nanoTime() - lastRefresh >= VERSION_REFRESH_INTERVAL) {
+			refresh();
+		}
+		return version;
+	}
+
+	/**
+	 * Makes the deltas of this node durable, compacting the store if its
+	 * segment has grown enough.
+	 */
+	@Override
+	public void flush() {
+		try {
+			segmentChannel.force(false);
+			if (segmentChannel.size() > COMPACT_THRESHOLD) {
+				compact();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the bytes of the snapshots and of the segments of every node.
+	 */
+	@Override
+	public long getDataSize() {
+		long size = 0;
+		for (Path dir : new Path[] { directory, deltasDirectory }) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+				for (Path file : files) {
+					if (Files.isRegularFile(file)) {
+						size += Files.size(file);
+					}
+				}
+			} catch (IOException e) {
+				// A file removed by a compaction meanwhile
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void close() {
+		flush();
+		try {
+			segmentLock.release();
+			segmentChannel.close();
+			lockChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	//endregion
+
+	//region Deltas
+	/**
+	 * Appends a delta to the segment of this node and merges it into the
+	 * players map.
+	 * <p>
+	 *     Delta layout: length (4), name length (2), UTF-8 name, won (4),
+	 *     lost (4) and record (4).
+	 * </p>
+	 */
+	private void appendDelta(String name, int won, int lost, int record) {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer delta = ByteBuffer.allocate(4 + 2 + nameBytes.length + 12);
+		delta.putInt(delta.capacity() - 4)
+				.putShort((short) nameBytes.length)
+				.put(nameBytes)
+				.putInt(won)
+				.putInt(lost)
+				.putInt(record)
+				.flip();
+
+		try {
+			while (delta.hasRemaining()) {
+				segmentChannel.write(delta);
+			}
+			readOffsets.put(segmentPath.getFileName().toString(), segmentChannel.position());
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		merge(players, name, won, lost, record);
+	}
+
+	/**
+	 * Merges a delta into a players map.
+	 */
+	private static void merge(Map<String, Player> players, String name, int won, int lost, int record) {
+		Player player = players.computeIfAbsent(name, Player::new);
+		player.matchesWon += won;
+		player.matchesLost += lost;
+		player.record = Math.max(player.record, record);
+	}
+
+	/**
+	 * Merges the complete deltas of a segment from the given offset. An
+	 * incomplete delta at the end, still being written, is left for later.
+	 * @param channel Channel of the segment.
+	 * @param offset Offset of the first delta to be read.
+	 * @param players Map where the deltas are merged.
+	 * @return Offset after the last complete delta.
+	 */
+	private static long readDeltas(FileChannel channel, long offset, Map<String, Player> players) throws IOException {
+		long size = channel.size();
+		if (size <= offset) {
+			return offset;
+		}
+
+		ByteBuffer data = ByteBuffer.allocate((int) (size - offset));
+		while (data.hasRemaining()) {
+			if (channel.read(data, offset + data.position()) < 0) {
+				break;
+			}
+		}
+		data.flip();
+
+		while (data.remaining() >= 4 && data.remaining() >= 4 + data.getInt(data.position())) {
+			data.getInt();
+			byte[] nameBytes = new byte[data.getShort()];
+			data.get(nameBytes);
+			merge(players, new String(nameBytes, StandardCharsets.UTF_8), data.getInt(), data.getInt(), data.getInt());
+		}
+		return offset + data.position();
+	}
+
+	/**
+	 * Opens a new segment for this node, locking it so no other node folds it.
+	 * The lock of the directory must be held, or a compaction could fold the
+	 * segment between its creation and its lock.
+	 */
+	private void openSegment() throws IOException {
+		Path path;
+		long sequence = System.currentTimeMillis();
+		do {
+			path = deltasDirectory.resolve(nodeId + "-" + sequence++ + SEGMENT_EXTENSION);
+		} while (Files.exists(path));
+
+		FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segmentLock = channel.lock(LIVENESS_LOCK_POSITION, 1, false);
+		segmentChannel = channel;
+		segmentPath = path;
+	}
+	//endregion
+
+	//region Snapshots
+	/**
+	 * Merges the deltas written by every node since the last refresh. If
+	 * another node has compacted the store, the new snapshot is read instead.
+	 */
+	private void refresh() {
+		try {
+			FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, true);
+			try {
+				boolean changed = false;
+				long latest = latestGeneration();
+				if (latest != generation) {
+					players.clear();
+					readOffsets.clear();
+					folded = readSnapshot(latest, players);
+					generation = latest;
+					changed = true;
+				}
+
+				for (Path segment : listSegments()) {
+					String segmentName = segment.getFileName().toString();
+					if (folded.contains(segmentName)) {
+						continue;
+					}
+					long offset = readOffsets.getOrDefault(segmentName, 0L);
+					if (segment.equals(segmentPath)) {
+						// Closing another channel of our own segment would release its lock
+						readOffsets.put(segmentName, readDeltas(segmentChannel, offset, players));
+						continue;
+					}
+					try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+						long read = readDeltas(channel, offset, players);
+						readOffsets.put(segmentName, read);
+						changed |= read != offset;
+					}
+				}
+				if (changed) {
+					version++;
+				}
+				lastRefresh = System.nanoTime();
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Folds the segments of the nodes that are not running, and the previous
+	 * segment of this node, into a new snapshot.
+	 */
+	public void compact() {
+		try {
+			FileLock lock = lockChannel.lock(0, Long.MAX_VALUE, false);
+			try {
+				// We start a new segment, so the current one can be folded
+				FileChannel previousChannel = segmentChannel;
+				FileLock previousLock = segmentLock;
+				openSegment();
+				previousLock.release();
+				previousChannel.close();
+
+				long latest = latestGeneration();
+				Map<String, Player> merged = new HashMap<>();
+				Set<String> previouslyFolded = readSnapshot(latest, merged);
+				List<Path> foldedNow = new ArrayList<>();
+
+				for (Path segment : listSegments()) {
+					String segmentName = segment.getFileName().toString();
+					if (previouslyFolded.contains(segmentName) || segment.equals(segmentPath)) {
+						continue;
+					}
+					try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+						FileLock liveness = tryLiveness(channel);
+						if (liveness != null) {
+							readDeltas(channel, 0, merged);
+							liveness.release();
+							foldedNow.add(segment);
+						}
+					}
+				}
+
+				// We keep listing the folded segments that could not be deleted yet
+				Set<String> newFolded = new HashSet<>();
+				for (String segmentName : previouslyFolded) {
+					if (Files.exists(deltasDirectory.resolve(segmentName))) {
+						newFolded.add(segmentName);
+					}
+				}
+				for (Path segment : foldedNow) {
+					newFolded.add(segment.getFileName().toString());
+				}
+
+				writeSnapshot(latest + 1, merged, newFolded);
+				Files.deleteIfExists(snapshotPath(latest));
+				for (String segmentName : newFolded) {
+					Files.deleteIfExists(deltasDirectory.resolve(segmentName));
+				}
+			} finally {
+				lock.release();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		refresh();
+	}
+
+	/**
+	 * Tries to lock the liveness byte of a segment.
+	 * @return The lock if the owner of the segment is not running, null otherwise.
+	 */
+	private static FileLock tryLiveness(FileChannel channel) throws IOException {
+		try {
+			return channel.tryLock(LIVENESS_LOCK_POSITION, 1, false);
+		} catch (OverlappingFileLockException e) {
+			// Locked by this same process
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the generation of the latest snapshot, or 0 if there is none.
+	 */
+	private long latestGeneration() throws IOException {
+		long latest = 0;
+		try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_EXTENSION)) {
+			for (Path snapshot : snapshots) {
+				String fileName = snapshot.getFileName().toString();
+				String number = fileName.substring(SNAPSHOT_PREFIX.length(), fileName.length() - SNAPSHOT_EXTENSION.length());
+				latest = Math.max(latest, Long.parseLong(number));
+			}
+		}
+		return latest;
+	}
+
+	/**
+	 * Lists the delta segments of every node.
+	 */
+	private List<Path> listSegments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(deltasDirectory, "*" + SEGMENT_EXTENSION)) {
+			stream.forEach(segments::add);
+		}
+		return segments;
+	}
+
+	private Path snapshotPath(long snapshotGeneration) {
+		return directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_EXTENSION);
+	}
+
+	/**
+	 * Reads a snapshot into a players map.
+	 * @param snapshotGeneration Generation of the snapshot. 0 means no snapshot.
+	 * @param players Map where the players are read.
+	 * @return The segments folded into the snapshot.
+	 */
+	private Set<String> readSnapshot(long snapshotGeneration, Map<String, Player> players) throws IOException {
+		Set<String> foldedSegments = new HashSet<>();
+		if (snapshotGeneration == 0) {
+			return foldedSegments;
+		}
+
+		try (JsonReader in = new JsonReader(new BufferedReader(new FileReader(snapshotPath(snapshotGeneration).toString())))) {
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "folded" -> {
+						in.beginArray();
+						while (in.hasNext()) {
+							foldedSegments.add(in.nextString());
+						}
+						in.endArray();
+					}
+					case "players" -> PlayerStatsCodec.INSTANCE.readAll(in, p -> players.put(p.name, p));
+					default -> in.skipValue();
+				}
+			}
+			in.endObject();
+		}
+		return foldedSegments;
+	}
+
+	/**
+	 * Writes a snapshot, atomically replacing any partial one.
+	 */
+	private void writeSnapshot(long snapshotGeneration, Map<String, Player> players, Set<String> foldedSegments) throws IOException {
+		Path temporary = directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + ".tmp");
+		try (JsonWriter out = new JsonWriter(new BufferedWriter(new FileWriter(temporary.toString())))) {
+			out.setIndent("  ");
+			out.beginObject();
+			out.name("generation").value(snapshotGeneration);
+			out.name("folded").beginArray();
+			for (String segmentName : foldedSegments) {
+				out.value(segmentName);
+			}
+			out.endArray();
+			out.name("players").beginObject();
+			for (Player player : players.values()) {
+				PlayerStatsCodec.INSTANCE.write(out.name(player.name), player);
+			}
+			out.endObject();
+			out.endObject();
+		}
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+			channel.force(true);
+		}
+		Files.move(temporary, snapshotPath(snapshotGeneration),
+				StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+	//endregion
+
+	/**
+	 * Copies the stats of a player, so callers cannot change the merged one.
+	 */
+	private static Player copy(Player player) {
+		Player copy = new Player(player.name);
+		copy.record = player.record;
+		copy.matchesWon = player.matchesWon;
+		copy.matchesLost = player.matchesLost;
+		return copy;
+	}
+}
@@ -0,0 +1,111 @@
+package math;
+
+/**
+ * FixedPoint class is used for the deterministic physics of a match
+ * <p>
+ *     Values are 16.16 fixed-point ints, and angles are ints with FULL_TURN
+ *     steps per turn, whose sine and cosine are read from a table. Integer
+ *     math gives the same result on every JVM, unlike Math.sin and Math.cos,
+ *     which can be replaced by different intrinsics.
+ * </p>
+ */
+public final class FixedPoint {
+	/**
+	 * Bits of the fractional part
+	 */
+	public static final int FRACTION_BITS = 16;
+	/**
+	 * 1 in fixed point
+	 */
+	public static final int ONE = 1 << FRACTION_BITS;
+	/**
+	 * Steps of an angle per turn
+	 */
+	public static final int FULL_TURN = 4096;
+	/**
+	 * Sine of every angle step, in fixed point. It is computed with StrictMath,
+	 * so it is the same on every JVM.
+	 */
+	private static final int[] SIN = new int[FULL_TURN];
+
+	static {
+		for (int i = 0; i < FULL_TURN; i++) {
+			SIN[i] = (int) StrictMath.round(StrictMath.sin(2 * StrictMath.PI * i / FULL_TURN) * ONE);
+		}
+	}
+
+	private FixedPoint() { }
+
+	/**
+	 * Converts a value to fixed point, rounding it to the nearest step
+	 * @param value the value
+	 * @return the value in fixed point
+	 */
+	public static int toFixed(double value) {
+		return (int) Math.round(value * ONE);
+	}
+
+	/**
+	 * Converts a value in fixed point to a double, which represents it exactly
+	 * @param fixed the value in fixed point
+	 * @return the value
+	 */
+	public static double toDouble(int fixed) {
+		return fixed / (double) ONE;
+	}
+
+	/**
+	 * Multiplies two values in fixed point
+	 * @param a the first value
+	 * @param b the second value
+	 * @return the product, in fixed point
+	 */
+	public static int mul(int a, int b) {
+		return (int) ((long) a * b >> FRACTION_BITS);
+	}
+
+	/**
+	 * Returns the squared distance between two points in fixed point
+	 * @return the squared distance, with 32 fractional bits
+	 */
+	public static long distanceSquared(int x1, int y1, int x2, int y2) {
+		long dx = x2 - x1, dy = y2 - y1;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Converts radians to the nearest angle step
+	 * @param radians the angle, in radians
+	 * @return the angle, from 0 to FULL_TURN - 1
+	 */
+	public static int toAngle(double radians) {
+		return Math.floorMod(Math.round(radians * FULL_TURN / (2 * Math.PI)), FULL_TURN);
+	}
+
+	/**
+	 * Converts an angle step to radians
+	 * @param angle the angle
+	 * @return the angle, in radians
+	 */
+	public static double toRadians(int angle) {
+		return Math.floorMod(angle, FULL_TURN) * (2 * Math.PI / FULL_TURN);
+	}
+
+	/**
+	 * Returns the sine of an angle
+	 * @param angle the angle, in steps
+	 * @return the sine, in fixed point
+	 */
+	public static int sin(int angle) {
+		return SIN[angle & (FULL_TURN - 1)];
+	}
+
+	/**
+	 * Returns the cosine of an angle
+	 * @param angle the angle, in steps
+	 * @return the cosine, in fixed point
+	 */
+	public static int cos(int angle) {
+		return SIN[(angle + FULL_TURN / 4) & (FULL_TURN - 1)];
+	}
+}
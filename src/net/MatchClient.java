@@ -0,0 +1,186 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Client of a MatchServer.
+ * <p>
+ *     It never blocks: poll() handles the packets already received, keeping
+ *     the latest state of the match, and sendInput() sends the buttons of the
+ *     local player along with the last snapshot received.
+ * </p>
+ */
+public class MatchClient {
+	/**
+	 * The channel, connected to the server.
+	 */
+	private final DatagramChannel channel;
+	/**
+	 * Buffers for receiving and sending packets.
+	 */
+	private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+	private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+	/**
+	 * Last states received, the bases of the next snapshots.
+	 */
+	private final MatchState[] history = new MatchState[Protocol.HISTORY];
+	/**
+	 * The latest state received, null until the first one arrives.
+	 */
+	private MatchState latest;
+	/**
+	 * Sequence of the next input.
+	 */
+	private int inputSequence;
+	/**
+	 * Whether the match has started, the match id, the slot of this client and
+	 * the names of both players.
+	 */
+	private boolean started;
+	private int matchId;
+	private int slot;
+	private final String[] names = new String[2];
+	/**
+	 * Reason why the server rejected this client, 0 if it has not.
+	 */
+	private byte rejectReason;
+
+	/**
+	 * Creates the client.
+	 * @param server The address of the server.
+	 */
+	public MatchClient(InetSocketAddress server) throws IOException {
+		channel = DatagramChannel.open();
+		channel.configureBlocking(false);
+		channel.connect(server);
+		for (int i = 0; i < history.length; i++) {
+			history[i] = new MatchState();
+		}
+	}
+
+	/**
+	 * Asks the server to join a match. It must be sent again until the match
+	 * starts or the server rejects it.
+	 * @param name The name of the player.
+	 */
+	public void join(String name) throws IOException {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		sendBuffer.clear();
+		sendBuffer.put(Protocol.JOIN).putShort((short) nameBytes.length).put(nameBytes);
+		channel.write(sendBuffer.flip());
+	}
+
+	/**
+	 * Sends the input of the local player.
+	 * @param buttons The buttons bitmask, with the bits defined in the KeyBoard class.
+	 */
+	public void sendInput(int buttons) throws IOException {
+		sendBuffer.clear();
+		sendBuffer.put(Protocol.INPUT)
+				.putInt(inputSequence++)
+				.putInt(latest != null ? latest.sequence : -1)
+				.put((byte) buttons);
+		channel.write(sendBuffer.flip());
+	}
+
+	/**
+	 * Handles every packet received, without blocking.
+	 */
+	public void poll() throws IOException {
+		while (channel.read(receiveBuffer.clear()) > 0) {
+			receiveBuffer.flip();
+			try {
+				switch (receiveBuffer.get()) {
+					case Protocol.START -> handleStart(receiveBuffer);
+					case Protocol.SNAPSHOT -> handleSnapshot(receiveBuffer);
+					case Protocol.REJECT -> rejectReason = receiveBuffer.get();
+					default -> { /* Unknown packets are ignored */ }
+				}
+			} catch (RuntimeException e) {
+				// Malformed packets are ignored too
+			}
+		}
+	}
+
+	private void handleStart(ByteBuffer packet) {
+		matchId = packet.getInt();
+		slot = packet.get();
+		for (int i = 0; i < names.length; i++) {
+			byte[] nameBytes = new byte[packet.getShort()];
+			packet.get(nameBytes);
+			names[i] = new String(nameBytes, StandardCharsets.UTF_8);
+		}
+		started = true;
+	}
+
+	private void handleSnapshot(ByteBuffer packet) {
+		// Snapshots older than the latest one are useless
+		int sequence = packet.getInt(packet.position());
+		if (latest != null && sequence <= latest.sequence) {
+			return;
+		}
+
+		MatchState state = history[sequence % Protocol.HISTORY];
+		if (SnapshotCodec.decode(packet, this::getState, state)) {
+			latest = state;
+		} else {
+			state.sequence = -1;
+		}
+	}
+
+	/**
+	 * Returns the state with the given sequence, or null if it is not kept.
+	 */
+	private MatchState getState(int sequence) {
+		MatchState state = history[sequence % Protocol.HISTORY];
+		return state.sequence == sequence ? state : null;
+	}
+
+	/**
+	 * Closes the channel.
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	//region Getters
+	/**
+	 * @return The latest state received, null until the first one arrives.
+	 */
+	public MatchState getLatestState() { return latest; }
+
+	/**
+	 * @return Whether the match has started.
+	 */
+	public boolean isStarted() { return started; }
+
+	/**
+	 * @return Why the server rejected this client, one of the reasons of the
+	 * Protocol, or 0 if it has not.
+	 */
+	public byte getRejectReason() { return rejectReason; }
+
+	/**
+	 * @return The id of the match.
+	 */
+	public int getMatchId() { return matchId; }
+
+	/**
+	 * @return The slot of this client: 0 for player 1, 1 for player 2.
+	 */
+	public int getSlot() { return slot; }
+
+	/**
+	 * @return The names of both players.
+	 */
+	public String[] getNames() { return names; }
+	//endregion
+}
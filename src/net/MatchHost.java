@@ -0,0 +1,384 @@
+package net;
+
+import input.RemoteKeyBoard;
+import main.PlayersManagement;
+import sprites.Player;
+import states.Match;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless host of many matches played at the same time.
+ * <p>
+ *     Players join a queue and are paired in order of arrival. Every match is
+ *     a periodic task of a scheduler shared by all of them, ticking it at the
+ *     TICK_RATE, so thousands of matches only need as many threads as cores.
+ * </p>
+ * <p>
+ *     The duration of every tick is recorded for reporting percentiles, and
+ *     checked against the tick budget: a match that keeps exceeding it is
+ *     aborted, so it cannot slow down the rest. The results of the finished
+ *     matches are recorded through the PlayersManagement, and saved once per
+ *     second.
+ * </p>
+ */
+public class MatchHost {
+	/**
+	 * Default budget of a tick, in nanoseconds.
+	 */
+	public static final long DEFAULT_TICK_BUDGET = 2_000_000;
+	/**
+	 * Ticks in a row a match can exceed the budget before being aborted.
+	 */
+	private static final int MAX_OVERRUNS = Protocol.TICK_RATE;
+	/**
+	 * Duration of a tick, in nanoseconds.
+	 */
+	private static final long TICK_NANOS = 1_000_000_000L / Protocol.TICK_RATE;
+	/**
+	 * Milliseconds between saves of the players.
+	 */
+	private static final long SAVE_INTERVAL = 1000;
+
+	/**
+	 * A player of the host, waiting for an opponent or playing a match.
+	 */
+	public static class Seat {
+		private final String name;
+		private volatile int buttons;
+		private volatile RemoteKeyBoard keyBoard;
+		private volatile HostedMatch hostedMatch;
+		private int slot;
+
+		private Seat(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Sets the input of the player, which can be done from any thread.
+		 * @param buttons The buttons bitmask, with the bits defined in the KeyBoard class.
+		 */
+		public void setButtons(int buttons) {
+			this.buttons = buttons;
+			RemoteKeyBoard keyBoard = this.keyBoard;
+			if (keyBoard != null) {
+				keyBoard.setButtons(buttons);
+			}
+		}
+
+		/**
+		 * @return The name of the player.
+		 */
+		public String getName() { return name; }
+
+		/**
+		 * @return The match of the player, null while it waits for an opponent.
+		 */
+		public HostedMatch getHostedMatch() { return hostedMatch; }
+
+		/**
+		 * @return The slot of the player: 0 for player 1, 1 for player 2.
+		 */
+		public int getSlot() { return slot; }
+	}
+
+	/**
+	 * A match played on the host.
+	 */
+	public static class HostedMatch {
+		private final int id;
+		private final Match match;
+		private final Seat[] seats;
+		private final TickStats stats = new TickStats();
+		private ScheduledFuture<?> future;
+		private int consecutiveOverruns;
+		private long overruns;
+		private volatile boolean ended, aborted;
+
+		private HostedMatch(int id, Match match, Seat[] seats) {
+			this.id = id;
+			this.match = match;
+			this.seats = seats;
+		}
+
+		/**
+		 * @return The id of the match.
+		 */
+		public int getId() { return id; }
+
+		/**
+		 * @return The match. It is updated by the threads of the host, so it must
+		 * not be modified, nor read while it is not ended.
+		 */
+		public Match getMatch() { return match; }
+
+		/**
+		 * @return The seats of both players.
+		 */
+		public Seat[] getSeats() { return seats.clone(); }
+
+		/**
+		 * @return The durations of the last ticks.
+		 */
+		public TickStats getStats() { return stats; }
+
+		/**
+		 * @return The number of ticks that exceeded the budget.
+		 */
+		public synchronized long getOverruns() { return overruns; }
+
+		/**
+		 * @return Whether the match has ended, finished or aborted.
+		 */
+		public boolean isEnded() { return ended; }
+
+		/**
+		 * @return Whether the match was aborted for exceeding the tick budget or failing.
+		 */
+		public boolean isAborted() { return aborted; }
+	}
+
+	private final PlayersManagement playersManagement;
+	private final long tickBudget;
+	private final ScheduledThreadPoolExecutor scheduler;
+	/**
+	 * Players waiting for an opponent.
+	 */
+	private final ArrayDeque<Seat> queue = new ArrayDeque<>();
+	/**
+	 * Matches being played, by id.
+	 */
+	private final Map<Integer, HostedMatch> matches = new ConcurrentHashMap<>();
+	private final AtomicInteger nextMatchId = new AtomicInteger();
+	/**
+	 * Counters of the ended matches.
+	 */
+	private final AtomicInteger finishedMatches = new AtomicInteger(), abortedMatches = new AtomicInteger();
+	/**
+	 * Whether there are results not saved yet.
+	 */
+	private volatile boolean unsavedResults;
+
+	/**
+	 * Creates a host with a thread per core and the default tick budget.
+	 * @param playersManagement Used for recording the results of the matches.
+	 */
+	public MatchHost(PlayersManagement playersManagement) {
+		this(playersManagement, Runtime.getRuntime().availableProcessors(), DEFAULT_TICK_BUDGET);
+	}
+
+	/**
+	 * Creates a host.
+	 * @param playersManagement Used for recording the results of the matches.
+	 * @param threads Threads of the scheduler.
+	 * @param tickBudget Budget of a tick, in nanoseconds.
+	 */
+	public MatchHost(PlayersManagement playersManagement, int threads, long tickBudget) {
+		this.playersManagement = playersManagement;
+		this.tickBudget = tickBudget;
+
+		AtomicInteger threadNumber = new AtomicInteger();
+		scheduler = new ScheduledThreadPoolExecutor(threads, runnable -> {
+			Thread thread = new Thread(runnable, "match-host-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+		scheduler.scheduleWithFixedDelay(this::saveResults, SAVE_INTERVAL, SAVE_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds a player to the queue, starting a match if there is an opponent waiting.
+	 * @param name The name of the player.
+	 * @return The seat of the player, used for sending its input.
+	 */
+	public Seat join(String name) {
+		Seat seat = new Seat(name);
+		Seat[] pair = null;
+		synchronized (queue) {
+			queue.add(seat);
+			if (queue.size() >= 2) {
+				pair = new Seat[] { queue.poll(), queue.poll() };
+			}
+		}
+		if (pair != null) {
+			start(pair);
+		}
+		return seat;
+	}
+
+	/**
+	 * Starts the match of a pair of players.
+	 */
+	private void start(Seat[] pair) {
+		String name1 = pair[0].name;
+		String name2 = pair[1].name.equals(name1) ? name1 + "2" : pair[1].name;
+		Player[] players;
+		synchronized (playersManagement) {
+			players = playersManagement.initializePlayers(name1, name2);
+		}
+
+		// The results are recorded by the host, not by the match
+		Match match = new Match((PlayersManagement) null, players[0], players[1]);
+		HostedMatch hostedMatch = new HostedMatch(nextMatchId.getAndIncrement(), match, pair);
+		for (int slot = 0; slot < 2; slot++) {
+			RemoteKeyBoard keyBoard = new RemoteKeyBoard(players[slot].keyBoard);
+			keyBoard.setButtons(pair[slot].buttons);
+			players[slot].keyBoard = keyBoard;
+			pair[slot].slot = slot;
+			pair[slot].keyBoard = keyBoard;
+			pair[slot].hostedMatch = hostedMatch;
+		}
+
+		matches.put(hostedMatch.id, hostedMatch);
+		synchronized (hostedMatch) {
+			hostedMatch.future = scheduler.scheduleAtFixedRate(
+					() -> tick(hostedMatch), 0, TICK_NANOS, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Ticks a match, checking the budget. A periodic task never runs
+	 * concurrently with itself, so a match is only updated by one thread at
+	 * a time.
+	 */
+	private void tick(HostedMatch hostedMatch) {
+		if (hostedMatch.ended) {
+			return;
+		}
+		try {
+			long start = System.nanoTime();
+			hostedMatch.match.tick();
+			long duration = System.nanoTime() - start;
+			hostedMatch.stats.record(duration);
+
+			if (duration > tickBudget) {
+				synchronized (hostedMatch) {
+					hostedMatch.overruns++;
+				}
+				if (++hostedMatch.consecutiveOverruns >= MAX_OVERRUNS) {
+					end(hostedMatch, true);
+					return;
+				}
+			} else {
+				hostedMatch.consecutiveOverruns = 0;
+			}
+
+			if (hostedMatch.match.isFinished()) {
+				end(hostedMatch, false);
+			}
+		} catch (RuntimeException e) {
+			// An exception would silently cancel the task, so the match is aborted instead
+			e.printStackTrace();
+			end(hostedMatch, true);
+		}
+	}
+
+	/**
+	 * Ends a match, recording its results unless it was aborted.
+	 */
+	private void end(HostedMatch hostedMatch, boolean aborted) {
+		hostedMatch.aborted = aborted;
+		hostedMatch.ended = true;
+		hostedMatch.match.finish();
+		synchronized (hostedMatch) {
+			hostedMatch.future.cancel(false);
+		}
+		matches.remove(hostedMatch.id);
+
+		if (aborted) {
+			abortedMatches.incrementAndGet();
+			return;
+		}
+		synchronized (playersManagement) {
+			playersManagement.updatePlayersData(hostedMatch.match.getPlayer1(), hostedMatch.match.getPlayer2());
+		}
+		unsavedResults = true;
+		finishedMatches.incrementAndGet();
+	}
+
+	/**
+	 * Saves the players, if there are new results.
+	 */
+	private void saveResults() {
+		if (!unsavedResults) {
+			return;
+		}
+		unsavedResults = false;
+		synchronized (playersManagement) {
+			playersManagement.savePlayers();
+		}
+	}
+
+	/**
+	 * Returns percentiles of the durations of the last ticks of every match being played.
+	 * @param percentiles The percentiles, from 0 to 100.
+	 * @return The durations at the percentiles, in nanoseconds, for each match.
+	 */
+	public List<long[]> getTickPercentiles(double... percentiles) {
+		List<long[]> result = new ArrayList<>();
+		for (HostedMatch hostedMatch : matches.values()) {
+			result.add(hostedMatch.stats.getPercentiles(percentiles));
+		}
+		return result;
+	}
+
+	/**
+	 * Aborts every match being played, saves the players and stops the scheduler.
+	 */
+	public void shutdown() {
+		for (HostedMatch hostedMatch : matches.values()) {
+			hostedMatch.ended = true;
+			hostedMatch.aborted = true;
+		}
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		matches.clear();
+		unsavedResults = true;
+		saveResults();
+	}
+
+	//region Getters
+	/**
+	 * @return The matches being played.
+	 */
+	public Collection<HostedMatch> getMatches() { return matches.values(); }
+
+	/**
+	 * @return The number of matches being played.
+	 */
+	public int getMatchCount() { return matches.size(); }
+
+	/**
+	 * @return The number of players waiting for an opponent.
+	 */
+	public int getQueueSize() {
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * @return The number of matches finished and recorded.
+	 */
+	public int getFinishedMatches() { return finishedMatches.get(); }
+
+	/**
+	 * @return The number of matches aborted.
+	 */
+	public int getAbortedMatches() { return abortedMatches.get(); }
+	//endregion
+}
@@ -0,0 +1,492 @@
+package net;
+
+import graphics.Assets;
+import input.RemoteKeyBoard;
+import main.PlayersManagement;
+import sprites.Player;
+import states.Match;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless authoritative server of matches.
+ * <p>
+ *     Clients join with a name no other client is using, and are paired in
+ *     order of arrival. The server runs the Match with the input received
+ *     from both clients and, every tick, sends each of them a snapshot of the
+ *     state, delta-compressed against the last snapshot it acknowledged. Everything runs on a single
+ *     thread over a non-blocking UDP channel and a Selector.
+ * </p>
+ */
+public class MatchServer implements Runnable {
+	/**
+	 * Duration of a tick, in nanoseconds.
+	 */
+	private static final long TICK_NANOS = 1_000_000_000L / Protocol.TICK_RATE;
+	/**
+	 * Ticks the final snapshot of a finished match is sent, so it arrives even
+	 * if some packets are lost.
+	 */
+	private static final int FINAL_TICKS = 30;
+
+	/**
+	 * A client of the server.
+	 */
+	private static class Connection {
+		final SocketAddress address;
+		final String name;
+		Session session;
+		int slot;
+		int lastInputSequence = -1;
+		int lastAck = -1;
+		long lastJoinTick;
+
+		Connection(SocketAddress address, String name) {
+			this.address = address;
+			this.name = name;
+		}
+	}
+
+	/**
+	 * A match played by two clients.
+	 */
+	private static class Session {
+		final int id;
+		final Match match;
+		final Connection[] connections;
+		final RemoteKeyBoard[] keyBoards;
+		final MatchState[] history = new MatchState[Protocol.HISTORY];
+		int sequence = -1;
+		int tick;
+		int finalTicks;
+
+		Session(int id, Match match, Connection[] connections, RemoteKeyBoard[] keyBoards) {
+			this.id = id;
+			this.match = match;
+			this.connections = connections;
+			this.keyBoards = keyBoards;
+			for (int i = 0; i < history.length; i++) {
+				history[i] = new MatchState();
+			}
+		}
+
+		/**
+		 * Returns the state with the given sequence, or null if it is not kept.
+		 */
+		MatchState getState(int stateSequence) {
+			if (stateSequence < 0 || stateSequence > sequence || sequence - stateSequence >= Protocol.HISTORY) {
+				return null;
+			}
+			MatchState state = history[stateSequence % Protocol.HISTORY];
+			return state.sequence == stateSequence ? state : null;
+		}
+	}
+
+	/**
+	 * The channel, and the selector used for waiting for packets.
+	 */
+	private final DatagramChannel channel;
+	private final Selector selector;
+	/**
+	 * Used for recording the results of the matches.
+	 */
+	private final PlayersManagement playersManagement;
+	/**
+	 * Clients by address.
+	 */
+	private final Map<SocketAddress, Connection> connections = new HashMap<>();
+	/**
+	 * Clients waiting for an opponent.
+	 */
+	private final ArrayDeque<Connection> queue = new ArrayDeque<>();
+	/**
+	 * Matches being played.
+	 */
+	private final List<Session> sessions = new ArrayList<>();
+	/**
+	 * Buffers for receiving and sending packets.
+	 */
+	private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+	private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+	/**
+	 * Id of the next match.
+	 */
+	private int nextMatchId;
+	/**
+	 * Ticks run since the server started.
+	 */
+	private long ticks;
+	/**
+	 * Bytes and snapshots sent, for monitoring.
+	 */
+	private long bytesSent, snapshotsSent;
+	private volatile boolean running;
+	/**
+	 * Broadcasts the first match to its spectators, null if there are none.
+	 */
+	private SpectatorBroadcaster spectators;
+
+	/**
+	 * Creates the server.
+	 * @param address The address to bind to (port 0 for any free port).
+	 * @param playersManagement Used for recording the results of the matches.
+	 */
+	public MatchServer(InetSocketAddress address, PlayersManagement playersManagement) throws IOException {
+		this.playersManagement = playersManagement;
+		channel = DatagramChannel.open();
+		channel.configureBlocking(false);
+		channel.bind(address);
+		selector = Selector.open();
+		channel.register(selector, SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Starts a headless server.
+	 * @param args The port and the spectators port, optionally.
+	 */
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+		Assets.init();
+
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : Protocol.DEFAULT_PORT;
+		MatchServer server = new MatchServer(new InetSocketAddress(port), new PlayersManagement());
+		System.out.println("SplaTank server listening on " + server.getLocalAddress());
+		if (args.length > 1) {
+			server.setSpectators(new SpectatorBroadcaster(new InetSocketAddress(Integer.parseInt(args[1]))));
+			System.out.println("Spectators listening on " + server.spectators.getLocalAddress());
+		}
+		server.run();
+	}
+
+	/**
+	 * Sets the broadcaster of the first match to its spectators.
+	 * @param spectators The broadcaster, null for none.
+	 */
+	public void setSpectators(SpectatorBroadcaster spectators) {
+		this.spectators = spectators;
+	}
+
+	/**
+	 * Returns the address the server is bound to.
+	 * @return The address.
+	 */
+	public InetSocketAddress getLocalAddress() throws IOException {
+		return (InetSocketAddress) channel.getLocalAddress();
+	}
+
+	/**
+	 * Runs the server until stopped: waits for packets between ticks, and
+	 * ticks at the TICK_RATE.
+	 */
+	@Override
+	public void run() {
+		running = true;
+		long nextTick = System.nanoTime();
+		try {
+			while (running) {
+				long wait = (nextTick - System.nanoTime()) / 1_000_000;
+				if (wait > 0) {
+					selector.select(wait);
+				} else {
+					selector.selectNow();
+				}
+				selector.selectedKeys().clear();
+				poll();
+
+				while (System.nanoTime() - nextTick >= 0) {
+					tick();
+					nextTick += TICK_NANOS;
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Closes the channel and the selector.
+	 */
+	public void close() {
+		if (spectators != null) {
+			spectators.close();
+		}
+		try {
+			selector.close();
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	//region Receiving
+	/**
+	 * Handles every packet received, without blocking.
+	 */
+	public void poll() throws IOException {
+		SocketAddress address;
+		while ((address = channel.receive(receiveBuffer.clear())) != null) {
+			receiveBuffer.flip();
+			try {
+				switch (receiveBuffer.get()) {
+					case Protocol.JOIN -> handleJoin(address, receiveBuffer);
+					case Protocol.INPUT -> handleInput(address, receiveBuffer);
+					default -> { /* Unknown packets are ignored */ }
+				}
+			} catch (RuntimeException e) {
+				// Malformed packets are ignored too
+			}
+		}
+	}
+
+	private void handleJoin(SocketAddress address, ByteBuffer packet) throws IOException {
+		Connection connection = connections.get(address);
+		if (connection != null) {
+			// The START packet may have been lost
+			if (connection.session != null) {
+				sendStart(connection);
+			} else {
+				connection.lastJoinTick = ticks;
+			}
+			return;
+		}
+
+		// Names are checked in bytes, as the stores keep them, and are never cut
+		byte[] nameBytes = new byte[packet.getShort()];
+		packet.get(nameBytes);
+		String name;
+		try {
+			name = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(nameBytes)).toString();
+		} catch (CharacterCodingException e) {
+			name = "";
+		}
+		if (name.isEmpty() || nameBytes.length > Protocol.MAX_NAME_BYTES) {
+			sendReject(address, Protocol.INVALID_NAME);
+			return;
+		}
+		if (isNameTaken(name)) {
+			sendReject(address, Protocol.NAME_TAKEN);
+			return;
+		}
+
+		connection = new Connection(address, name);
+		connection.lastJoinTick = ticks;
+		connections.put(address, connection);
+		queue.add(connection);
+		startSessions();
+	}
+
+	private boolean isNameTaken(String name) {
+		for (Connection connection : connections.values()) {
+			if (connection.name.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void handleInput(SocketAddress address, ByteBuffer packet) {
+		Connection connection = connections.get(address);
+		if (connection == null || connection.session == null) {
+			return;
+		}
+
+		int inputSequence = packet.getInt();
+		int ack = packet.getInt();
+		int buttons = packet.get();
+
+		// Packets may arrive out of order
+		if (inputSequence > connection.lastInputSequence) {
+			connection.lastInputSequence = inputSequence;
+			connection.session.keyBoards[connection.slot].setButtons(buttons);
+		}
+		if (ack > connection.lastAck) {
+			connection.lastAck = ack;
+		}
+	}
+	//endregion
+
+	//region Sessions
+	/**
+	 * Pairs the clients waiting for an opponent.
+	 * <p>
+	 *     The players are created before the pair leaves the queue. If they
+	 *     cannot be, both clients are dropped and told so, so they can join again.
+	 * </p>
+	 */
+	private void startSessions() throws IOException {
+		while (queue.size() >= 2) {
+			Iterator<Connection> waiting = queue.iterator();
+			Connection[] pair = { waiting.next(), waiting.next() };
+
+			Player[] players;
+			try {
+				players = playersManagement.initializePlayers(pair[0].name, pair[1].name);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				for (Connection connection : pair) {
+					drop(connection);
+					sendReject(connection.address, Protocol.START_FAILED);
+				}
+				continue;
+			}
+			queue.poll();
+			queue.poll();
+
+			RemoteKeyBoard[] keyBoards = new RemoteKeyBoard[2];
+			for (int slot = 0; slot < 2; slot++) {
+				keyBoards[slot] = new RemoteKeyBoard(players[slot].keyBoard);
+				players[slot].keyBoard = keyBoards[slot];
+			}
+
+			Session session = new Session(nextMatchId++, new Match(playersManagement, players[0], players[1]), pair, keyBoards);
+			sessions.add(session);
+			for (int slot = 0; slot < 2; slot++) {
+				pair[slot].session = session;
+				pair[slot].slot = slot;
+				sendStart(pair[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Steps every match and sends the snapshots.
+	 */
+	public void tick() throws IOException {
+		Iterator<Session> iterator = sessions.iterator();
+		while (iterator.hasNext()) {
+			Session session = iterator.next();
+			session.match.tick();
+			session.tick++;
+
+			session.sequence++;
+			MatchState state = session.history[session.sequence % Protocol.HISTORY];
+			state.capture(session.match, session.tick);
+			state.sequence = session.sequence;
+			for (Connection connection : session.connections) {
+				sendSnapshot(connection, state);
+			}
+			if (spectators != null && session == sessions.get(0)) {
+				spectators.broadcast(state, session.match.getTerritoryFeed());
+			}
+
+			if (session.match.isFinished() && ++session.finalTicks >= FINAL_TICKS) {
+				iterator.remove();
+				for (Connection connection : session.connections) {
+					connections.remove(connection.address);
+				}
+			}
+		}
+		ticks++;
+		dropIdleConnections();
+		startSessions();
+	}
+
+	/**
+	 * Drops the clients waiting for an opponent that stopped sending JOIN.
+	 */
+	private void dropIdleConnections() {
+		Iterator<Connection> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			Connection connection = iterator.next();
+			if (ticks - connection.lastJoinTick > Protocol.JOIN_TIMEOUT_TICKS) {
+				iterator.remove();
+				connections.remove(connection.address);
+			}
+		}
+	}
+
+	private void drop(Connection connection) {
+		queue.remove(connection);
+		connections.remove(connection.address);
+	}
+
+	/**
+	 * Returns the number of matches being played.
+	 * @return The number of matches.
+	 */
+	public int getSessionCount() {
+		return sessions.size();
+	}
+
+	/**
+	 * Returns the number of clients waiting for an opponent.
+	 * @return The number of clients.
+	 */
+	public int getWaitingCount() {
+		return queue.size();
+	}
+
+	/**
+	 * Returns the bytes sent in snapshots.
+	 * @return The bytes sent.
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Returns the number of snapshots sent.
+	 * @return The number of snapshots.
+	 */
+	public long getSnapshotsSent() {
+		return snapshotsSent;
+	}
+	//endregion
+
+	//region Sending
+	private void sendStart(Connection connection) throws IOException {
+		Session session = connection.session;
+		sendBuffer.clear();
+		sendBuffer.put(Protocol.START).putInt(session.id).put((byte) connection.slot);
+		for (Player player : new Player[] { session.match.getPlayer1(), session.match.getPlayer2() }) {
+			byte[] nameBytes = player.name.getBytes(StandardCharsets.UTF_8);
+			sendBuffer.putShort((short) nameBytes.length).put(nameBytes);
+		}
+		channel.send(sendBuffer.flip(), connection.address);
+	}
+
+	private void sendReject(SocketAddress address, byte reason) throws IOException {
+		sendBuffer.clear();
+		sendBuffer.put(Protocol.REJECT).put(reason);
+		channel.send(sendBuffer.flip(), address);
+	}
+
+	private void sendSnapshot(Connection connection, MatchState state) throws IOException {
+		sendBuffer.clear();
+		sendBuffer.put(Protocol.SNAPSHOT);
+		SnapshotCodec.encode(state, connection.session.getState(connection.lastAck), sendBuffer);
+		sendBuffer.flip();
+		int size = sendBuffer.remaining();
+
+		// If the socket buffer is full the snapshot is dropped, the next one will do
+		if (channel.send(sendBuffer, connection.address) > 0) {
+			bytesSent += size;
+			snapshotsSent++;
+		}
+	}
+	//endregion
+}
@@ -0,0 +1,239 @@
+package net;
+
+import arena.ChunkedTerritory;
+import math.Vector2D;
+import sprites.Bullet;
+import sprites.Cell;
+import sprites.Player;
+import sprites.Tank;
+import states.Match;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Full state of a Match that is needed for simulating it from a tick, kept
+ * in flat arrays of primitives so saving and restoring it is cheap.
+ * <p>
+ *     Unlike MatchState, nothing is quantized: restoring a snapshot and
+ *     simulating again gives exactly the same result, which is what rollback
+ *     needs. A snapshot is reused for every save, so saving does not allocate
+ *     (unless a player has more bullets than ever before).
+ * </p>
+ */
+public class MatchSnapshot {
+	/**
+	 * Tick of the match the snapshot was saved at.
+	 */
+	public int tick = -1;
+
+	// Match
+	private int vsBarX, offsetCounter;
+	private long clockTick, endTick;
+	private boolean finished;
+
+	// Players and tanks
+	private final double[] tankX = new double[MatchState.PLAYERS], tankY = new double[MatchState.PLAYERS];
+	private final double[] tankHitX = new double[MatchState.PLAYERS], tankHitY = new double[MatchState.PLAYERS];
+	private final double[] tankRotation = new double[MatchState.PLAYERS];
+	private final double[] tankVelocity = new double[MatchState.PLAYERS], tankMaxVel = new double[MatchState.PLAYERS];
+	private final boolean[] tankMovingForward = new boolean[MatchState.PLAYERS];
+	private final int[] health = new int[MatchState.PLAYERS], points = new int[MatchState.PLAYERS];
+	private final int[] shootingCoolDown = new int[MatchState.PLAYERS];
+	private final long[] invincibleEndTick = new long[MatchState.PLAYERS];
+
+	// Bullets of both players, in the order of their lists
+	private final int[] bulletCount = new int[MatchState.PLAYERS];
+	private double[] bulletX = new double[MatchState.MAX_BULLETS], bulletY = new double[MatchState.MAX_BULLETS];
+	private double[] originX = new double[MatchState.MAX_BULLETS], originY = new double[MatchState.MAX_BULLETS];
+	private double[] bulletRotation = new double[MatchState.MAX_BULLETS];
+	private double[] bulletVelocity = new double[MatchState.MAX_BULLETS];
+	private boolean[] bulletActive = new boolean[MatchState.MAX_BULLETS];
+
+	// Owner of every cell, indexed by column * rows + row
+	private final byte[] cells = new byte[MatchState.CELLS];
+	// Owner of every cell of a large arena, null in the classic arena
+	private ChunkedTerritory territory;
+
+	/**
+	 * Saves the state of a match.
+	 * @param match The match.
+	 * @param tick The tick of the match.
+	 * @throws IllegalArgumentException If the match has more than MatchState.PLAYERS players.
+	 */
+	public void save(Match match, int tick) {
+		MatchState.checkPlayers(match);
+		this.tick = tick;
+		vsBarX = match.VSBarX;
+		offsetCounter = match.offsetCounter;
+		clockTick = match.getClock().getTick();
+		endTick = match.getEndTick();
+		finished = match.isFinished();
+
+		Player[] players = { match.getPlayer1(), match.getPlayer2() };
+		int b = 0;
+		for (int p = 0; p < MatchState.PLAYERS; p++) {
+			Player player = players[p];
+			Tank tank = player.tank;
+			tankX[p] = tank.position.getX();
+			tankY[p] = tank.position.getY();
+			tankHitX[p] = tank.hitBox.getX();
+			tankHitY[p] = tank.hitBox.getY();
+			tankRotation[p] = tank.getRotation();
+			tankVelocity[p] = tank.velocity;
+			tankMaxVel[p] = tank.getMaxVel();
+			tankMovingForward[p] = tank.isMovingForward();
+			health[p] = tank.health;
+			invincibleEndTick[p] = tank.invincibleEndTick;
+			points[p] = player.points;
+			shootingCoolDown[p] = player.getShootingCoolDown();
+
+			List<Bullet> bullets = player.bullets;
+			bulletCount[p] = bullets.size();
+			ensureBulletCapacity(b + bullets.size());
+			for (Bullet bullet : bullets) {
+				bulletX[b] = bullet.position.getX();
+				bulletY[b] = bullet.position.getY();
+				originX[b] = bullet.originPosition.getX();
+				originY[b] = bullet.originPosition.getY();
+				bulletRotation[b] = bullet.getRotation();
+				bulletVelocity[b] = bullet.velocity;
+				bulletActive[b] = bullet.active;
+				b++;
+			}
+		}
+
+		System.arraycopy(match.getTerritoryFeed().getOwners(), 0, cells, 0, MatchState.CELLS);
+		ChunkedTerritory matchTerritory = match.getTerritory();
+		if (matchTerritory != null) {
+			if (territory == null) {
+				territory = new ChunkedTerritory(matchTerritory.getColumns(), matchTerritory.getRows(),
+						matchTerritory.getX(), matchTerritory.getY());
+			}
+			territory.copyFrom(matchTerritory);
+		}
+	}
+
+	/**
+	 * Restores the state of a match, as it was when the snapshot was saved.
+	 * @param match The match, the same one (or one with the same players) the snapshot was saved from.
+	 * @throws IllegalArgumentException If the match has more than MatchState.PLAYERS players.
+	 */
+	public void restore(Match match) {
+		MatchState.checkPlayers(match);
+		match.VSBarX = vsBarX;
+		match.offsetCounter = offsetCounter;
+		match.getClock().setTick(clockTick);
+		match.setEndTick(endTick);
+		match.setFinished(finished);
+
+		Player[] players = { match.getPlayer1(), match.getPlayer2() };
+		int b = 0;
+		for (int p = 0; p < MatchState.PLAYERS; p++) {
+			Player player = players[p];
+			Tank tank = player.tank;
+			tank.position = new Vector2D(tankX[p], tankY[p]);
+			tank.setRotation(tankRotation[p]);
+			tank.velocity = tankVelocity[p];
+			tank.setMaxVel(tankMaxVel[p]);
+			tank.setMovingForward(tankMovingForward[p]);
+
+			// The hit box of a tank is updated before it moves, so it is a tick behind its position
+			tank.hitBox = tank.updateHitBox();
+			tank.hitBox.setRect(tankHitX[p], tankHitY[p], tank.hitBox.getWidth(), tank.hitBox.getHeight());
+
+			tank.health = health[p];
+			tank.invincibleEndTick = invincibleEndTick[p];
+			player.points = points[p];
+			player.setShootingCoolDown(shootingCoolDown[p]);
+
+			// The bullets already in the list are reused
+			List<Bullet> bullets = player.bullets;
+			while (bullets.size() > bulletCount[p]) {
+				bullets.remove(bullets.size() - 1);
+			}
+			for (int i = 0; i < bulletCount[p]; i++, b++) {
+				if (i == bullets.size()) {
+					bullets.add(new Bullet(player));
+				}
+				Bullet bullet = bullets.get(i);
+				bullet.position = new Vector2D(bulletX[b], bulletY[b]);
+				bullet.originPosition = new Vector2D(originX[b], originY[b]);
+				bullet.setRotation(bulletRotation[b]);
+				bullet.velocity = bulletVelocity[b];
+				bullet.active = bulletActive[b];
+				bullet.hitBox = bullet.updateHitBox();
+			}
+		}
+
+		// Only the cells that changed are painted again
+		if (territory == null) {
+			byte[] owners = match.getTerritoryFeed().getOwners();
+			for (int c = 0; c < MatchState.CELLS; c++) {
+				if (owners[c] != cells[c]) {
+					Cell cell = match.cellsGrid[c / Match.ROWS][c % Match.ROWS];
+					cell.setOwner(cells[c]);
+				}
+			}
+		} else {
+			match.getTerritory().copyFrom(territory);
+			match.territoryRestored();
+		}
+	}
+
+	/**
+	 * Returns a checksum of the simulated state, for checking that two
+	 * simulations of the same match did not diverge.
+	 * @return The checksum.
+	 */
+	public long checksum() {
+		long hash = 0xcbf29ce484222325L;
+		hash = mix(hash, vsBarX);
+		hash = mix(hash, offsetCounter);
+		hash = mix(hash, clockTick);
+		hash = mix(hash, endTick);
+		hash = mix(hash, finished ? 1 : 0);
+		int b = 0;
+		for (int p = 0; p < MatchState.PLAYERS; p++) {
+			hash = mix(hash, Double.doubleToLongBits(tankX[p]));
+			hash = mix(hash, Double.doubleToLongBits(tankY[p]));
+			hash = mix(hash, Double.doubleToLongBits(tankRotation[p]));
+			hash = mix(hash, Double.doubleToLongBits(tankVelocity[p]));
+			hash = mix(hash, health[p]);
+			hash = mix(hash, points[p]);
+			hash = mix(hash, shootingCoolDown[p]);
+			hash = mix(hash, invincibleEndTick[p]);
+			hash = mix(hash, bulletCount[p]);
+			for (int i = 0; i < bulletCount[p]; i++, b++) {
+				hash = mix(hash, Double.doubleToLongBits(bulletX[b]));
+				hash = mix(hash, Double.doubleToLongBits(bulletY[b]));
+			}
+		}
+		hash = mix(hash, Arrays.hashCode(cells));
+		if (territory != null) {
+			hash = mix(hash, territory.getChecksum());
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, long value) {
+		return (hash ^ value) * 0x100000001b3L;
+	}
+
+	/**
+	 * Grows the bullet arrays, keeping their contents.
+	 */
+	private void ensureBulletCapacity(int capacity) {
+		if (capacity <= bulletX.length) {
+			return;
+		}
+		int length = Math.max(capacity, bulletX.length * 2);
+		bulletX = Arrays.copyOf(bulletX, length);
+		bulletY = Arrays.copyOf(bulletY, length);
+		originX = Arrays.copyOf(originX, length);
+		originY = Arrays.copyOf(originY, length);
+		bulletRotation = Arrays.copyOf(bulletRotation, length);
+		bulletVelocity = Arrays.copyOf(bulletVelocity, length);
+		bulletActive = Arrays.copyOf(bulletActive, length);
+	}
+}
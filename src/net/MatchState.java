@@ -0,0 +1,230 @@
+package net;
+
+import math.Vector2D;
+import sprites.Bullet;
+import sprites.Cell;
+import sprites.Player;
+import states.Match;
+
+import java.util.List;
+
+/**
+ * Flat snapshot of the state of a Match that matters for drawing it.
+ * <p>
+ *     Positions are stored in quarters of a pixel and rotations in 1/65536
+ *     of a turn, which is what is sent over the network, so two states can be
+ *     compared exactly for delta compression.
+ * </p>
+ */
+public class MatchState {
+	/**
+	 * Number of players of a match.
+	 */
+	public static final int PLAYERS = 2;
+	/**
+	 * Maximum number of bullets kept in a state.
+	 */
+	public static final int MAX_BULLETS = 64;
+	/**
+	 * Number of cells of the grid.
+	 */
+	public static final int CELLS = Match.COLUMNS * Match.ROWS;
+
+	/**
+	 * Sequence number of the snapshot and tick of the match.
+	 */
+	public int sequence = -1, tick;
+	/**
+	 * Remaining seconds of the match.
+	 */
+	public int remainingSeconds;
+	/**
+	 * Whether the match has finished.
+	 */
+	public boolean finished;
+	/**
+	 * The VS bar x position.
+	 */
+	public int vsBarX;
+	/**
+	 * Tanks of both players.
+	 */
+	public final short[] tankX = new short[PLAYERS], tankY = new short[PLAYERS];
+	public final char[] tankRotation = new char[PLAYERS];
+	public final int[] health = new int[PLAYERS], points = new int[PLAYERS];
+	public final boolean[] invincible = new boolean[PLAYERS];
+	/**
+	 * Bullets of both players.
+	 */
+	public int bulletCount;
+	public final byte[] bulletOwner = new byte[MAX_BULLETS];
+	public final short[] bulletX = new short[MAX_BULLETS], bulletY = new short[MAX_BULLETS];
+	public final char[] bulletRotation = new char[MAX_BULLETS];
+	/**
+	 * Owner of every cell (0, 1 or 2), indexed by column * rows + row.
+	 */
+	public final byte[] cells = new byte[CELLS];
+
+	/**
+	 * Checks that a match has no more players than a state keeps, as the
+	 * other ones would be silently left out.
+	 * @param match The match.
+	 * @throws IllegalArgumentException If the match has more than PLAYERS players.
+	 */
+	static void checkPlayers(Match match) {
+		if (match.getPlayerCount() > PLAYERS) {
+			throw new IllegalArgumentException("Only the matches of " + PLAYERS + " players are supported: "
+					+ match.getPlayerCount());
+		}
+	}
+
+	/**
+	 * Checks that a match is played in the classic arena, as a state keeps
+	 * its cells only.
+	 * @param match The match.
+	 * @throws IllegalArgumentException If the match is played in a large arena.
+	 */
+	private static void checkArena(Match match) {
+		if (match.getTerritory() != null) {
+			throw new IllegalArgumentException("Only the matches of the classic arena are supported");
+		}
+	}
+
+	/**
+	 * Captures the state of a match.
+	 * @param match The match.
+	 * @param tick The tick of the match.
+	 * @throws IllegalArgumentException If the match has more than PLAYERS players or is played in a large arena.
+	 */
+	public void capture(Match match, int tick) {
+		checkPlayers(match);
+		checkArena(match);
+		this.tick = tick;
+		remainingSeconds = match.getRemainingSeconds();
+		finished = match.isFinished();
+		vsBarX = match.VSBarX;
+
+		Player[] players = { match.getPlayer1(), match.getPlayer2() };
+		bulletCount = 0;
+		for (int p = 0; p < PLAYERS; p++) {
+			Player player = players[p];
+			tankX[p] = toFixed(player.tank.position.getX());
+			tankY[p] = toFixed(player.tank.position.getY());
+			tankRotation[p] = toAngle(player.tank.getRotation());
+			health[p] = player.tank.health;
+			points[p] = player.points;
+			invincible[p] = player.tank.isInvincible();
+
+			for (Bullet bullet : player.bullets) {
+				if (bullet.active && bulletCount < MAX_BULLETS) {
+					bulletOwner[bulletCount] = (byte) p;
+					bulletX[bulletCount] = toFixed(bullet.position.getX());
+					bulletY[bulletCount] = toFixed(bullet.position.getY());
+					bulletRotation[bulletCount] = toAngle(bullet.getRotation());
+					bulletCount++;
+				}
+			}
+		}
+
+		System.arraycopy(match.getTerritoryFeed().getOwners(), 0, cells, 0, CELLS);
+	}
+
+	/**
+	 * Applies the state to a match, which only mirrors it (it is not updated).
+	 * @param match The match.
+	 * @throws IllegalArgumentException If the match has more than PLAYERS players or is played in a large arena.
+	 */
+	public void apply(Match match) {
+		checkPlayers(match);
+		checkArena(match);
+		match.setRemainingSeconds(remainingSeconds);
+		match.VSBarX = vsBarX;
+
+		Player[] players = { match.getPlayer1(), match.getPlayer2() };
+		for (int p = 0; p < PLAYERS; p++) {
+			Player player = players[p];
+			player.tank.position = new Vector2D(fromFixed(tankX[p]), fromFixed(tankY[p]));
+			player.tank.setRotation(fromAngle(tankRotation[p]));
+			player.tank.hitBox = player.tank.updateHitBox();
+			player.tank.health = health[p];
+			player.points = points[p];
+			player.tank.invincibleEndTick = match.getClock().getTick() + (invincible[p] ? 1 : 0);
+			applyBullets(player, p);
+		}
+
+		int rows = Match.ROWS;
+		for (int i = 0; i < Match.COLUMNS; i++) {
+			for (int j = 0; j < rows; j++) {
+				Cell cell = match.cellsGrid[i][j];
+				if (cell.getOwner() != cells[i * rows + j]) {
+					cell.setOwner(cells[i * rows + j]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies the bullets of a player, reusing the bullets it already has.
+	 */
+	private void applyBullets(Player player, int owner) {
+		List<Bullet> bullets = player.bullets;
+		int count = 0;
+		for (int b = 0; b < bulletCount; b++) {
+			if (bulletOwner[b] != owner) {
+				continue;
+			}
+			if (count == bullets.size()) {
+				bullets.add(new Bullet(player));
+			}
+			Bullet bullet = bullets.get(count++);
+			bullet.position = new Vector2D(fromFixed(bulletX[b]), fromFixed(bulletY[b]));
+			bullet.setRotation(fromAngle(bulletRotation[b]));
+		}
+		while (bullets.size() > count) {
+			bullets.remove(bullets.size() - 1);
+		}
+	}
+
+	/**
+	 * Copies another state into this one.
+	 * @param other The state to be copied.
+	 */
+	public void copyFrom(MatchState other) {
+		sequence = other.sequence;
+		tick = other.tick;
+		remainingSeconds = other.remainingSeconds;
+		finished = other.finished;
+		vsBarX = other.vsBarX;
+		System.arraycopy(other.tankX, 0, tankX, 0, PLAYERS);
+		System.arraycopy(other.tankY, 0, tankY, 0, PLAYERS);
+		System.arraycopy(other.tankRotation, 0, tankRotation, 0, PLAYERS);
+		System.arraycopy(other.health, 0, health, 0, PLAYERS);
+		System.arraycopy(other.points, 0, points, 0, PLAYERS);
+		System.arraycopy(other.invincible, 0, invincible, 0, PLAYERS);
+		bulletCount = other.bulletCount;
+		System.arraycopy(other.bulletOwner, 0, bulletOwner, 0, bulletCount);
+		System.arraycopy(other.bulletX, 0, bulletX, 0, bulletCount);
+		System.arraycopy(other.bulletY, 0, bulletY, 0, bulletCount);
+		System.arraycopy(other.bulletRotation, 0, bulletRotation, 0, bulletCount);
+		System.arraycopy(other.cells, 0, cells, 0, CELLS);
+	}
+
+	//region Quantization
+	private static short toFixed(double coordinate) {
+		return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(coordinate * 4)));
+	}
+
+	private static double fromFixed(short coordinate) {
+		return coordinate / 4.0;
+	}
+
+	private static char toAngle(double radians) {
+		double turns = radians / (2 * Math.PI);
+		return (char) Math.round((turns - Math.floor(turns)) * 65536);
+	}
+
+	private static double fromAngle(char angle) {
+		return angle * (2 * Math.PI) / 65536;
+	}
+	//endregion
+}
@@ -0,0 +1,63 @@
+package net;
+
+import main.BinaryPlayersStore;
+import states.GameClock;
+
+/**
+ * Constants of the protocol between the MatchServer and its clients.
+ * <p>
+ *     Every packet is a single UDP datagram starting with its type:
+ * </p>
+ * <p>
+ * - JOIN (client): name length (2), UTF-8 name. Sent until START or REJECT arrives.
+ * <p>
+ * - START (server): match id (4), slot of the client (1), names of both players.
+ * <p>
+ * - REJECT (server): reason (1). The client must not send JOIN again with the same name.
+ * <p>
+ * - INPUT (client): input sequence (4), last snapshot received (4), buttons (1).
+ * <p>
+ * - SNAPSHOT (server): the state of the match, encoded by the SnapshotCodec.
+ * <p>
+ * - TERRITORY (spectators): frames of the TerritoryFeed of the match, sent
+ * over TCP by the SpectatorBroadcaster only.
+ */
+public final class Protocol {
+	/**
+	 * Packet types.
+	 */
+	public static final byte JOIN = 1, START = 2, INPUT = 3, SNAPSHOT = 4, TERRITORY = 5, REJECT = 6;
+	/**
+	 * Reasons of a REJECT: the name is not valid UTF-8, is empty or too long,
+	 * another client is using it, or the match could not be started.
+	 */
+	public static final byte INVALID_NAME = 1, NAME_TAKEN = 2, START_FAILED = 3;
+	/**
+	 * Default port of the server.
+	 */
+	public static final int DEFAULT_PORT = 7777;
+	/**
+	 * Maximum size of a packet, below the usual MTU.
+	 */
+	public static final int MAX_PACKET = 1400;
+	/**
+	 * Ticks per second of the server, the same as the FPS rate of the game and
+	 * the tick rate of the game clock.
+	 */
+	public static final int TICK_RATE = GameClock.TICK_RATE;
+	/**
+	 * Number of snapshots kept by both sides for delta compression.
+	 */
+	public static final int HISTORY = 64;
+	/**
+	 * Maximum length of a player name, in UTF-8 bytes, so every store can keep it.
+	 */
+	public static final int MAX_NAME_BYTES = BinaryPlayersStore.MAX_NAME_BYTES;
+	/**
+	 * Ticks a client waiting for an opponent may go without sending JOIN
+	 * before it is dropped.
+	 */
+	public static final int JOIN_TIMEOUT_TICKS = 5 * TICK_RATE;
+
+	private Protocol() { }
+}
@@ -0,0 +1,361 @@
+package net;
+
+import input.RemoteKeyBoard;
+import sprites.Player;
+import states.Match;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Peer-to-peer match with rollback.
+ * <p>
+ *     Both peers simulate the same match. Each one sends its input to the
+ *     other and simulates ahead predicting that the remote player keeps
+ *     pressing the same buttons. When the real input of a predicted tick
+ *     arrives and differs from the prediction, the match is restored to the
+ *     snapshot saved before that tick and simulated again up to the current
+ *     tick. A peer never gets more than MAX_ROLLBACK ticks ahead of the
+ *     input it has received: it waits instead. The match uses fixed-point
+ *     physics, so both peers simulate it exactly the same.
+ * </p>
+ * <p>
+ *     The end of the match records the results and publishes it, which a
+ *     rollback cannot undo, so the tick the match ends at is never simulated
+ *     on predicted input: a peer waits for the remote input of that tick,
+ *     sending its own meanwhile.
+ * </p>
+ * <p>
+ *     Every packet carries all the local inputs the peer has not acknowledged
+ *     yet, so lost packets are made up for by the next one. For testing, the
+ *     packets can be sent with an artificial delay.
+ * </p>
+ * <p>
+ *     Packet: INPUT (1), last remote tick received (4), first tick (4),
+ *     number of ticks (1), and the buttons of each tick (1 each).
+ * </p>
+ */
+public class RollbackSession {
+	/**
+	 * Maximum ticks simulated on predicted input.
+	 */
+	public static final int MAX_ROLLBACK = 8;
+	/**
+	 * Ticks of input kept, more than the ticks that can be pending acknowledgement.
+	 */
+	private static final int INPUT_HISTORY = 64;
+
+	private final Match match;
+	private final RemoteKeyBoard[] keyBoards = new RemoteKeyBoard[2];
+	private final int localSlot, remoteSlot;
+	private final DatagramChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+	/**
+	 * Snapshots of the match before each of the last ticks, by tick.
+	 */
+	private final MatchSnapshot[] snapshots = new MatchSnapshot[MAX_ROLLBACK + 1];
+	/**
+	 * Buttons of both players, by tick. The remote ones are predicted for the
+	 * ticks after lastRemoteTick.
+	 */
+	private final int[][] inputs = new int[2][INPUT_HISTORY];
+	/**
+	 * Next tick to be simulated, and next tick whose local input has not been
+	 * given yet, ahead of it only while waiting for the input of the last tick.
+	 */
+	private int tick, nextLocalTick;
+	/**
+	 * Last tick whose remote input has been received, and last tick whose local
+	 * input the peer has received.
+	 */
+	private int lastRemoteTick = -1, lastAckedTick = -1;
+	/**
+	 * Packets waiting for the artificial delay, with the time they are sent at.
+	 */
+	private final ArrayDeque<byte[]> delayedPackets = new ArrayDeque<>();
+	private final ArrayDeque<Long> delayedTimes = new ArrayDeque<>();
+	private long sendDelay;
+	/**
+	 * Counters, for monitoring.
+	 */
+	private long rollbacks, resimulatedTicks, stalls, rollbackNanos, maxRollbackNanos;
+
+	/**
+	 * Creates a session.
+	 * @param match The match, created with the same players on both peers.
+	 * @param localSlot The slot of the local player: 0 for player 1, 1 for player 2.
+	 * @param localAddress The address to bind to.
+	 * @param remoteAddress The address of the other peer.
+	 * @throws IllegalArgumentException If the match has more than two players.
+	 */
+	public RollbackSession(Match match, int localSlot, InetSocketAddress localAddress,
+						   InetSocketAddress remoteAddress) throws IOException {
+		MatchState.checkPlayers(match);
+		this.match = match;
+		this.localSlot = localSlot;
+		this.remoteSlot = 1 - localSlot;
+		// The peers may run on different JVMs
+		match.setFixedPointPhysics(true);
+
+		Player[] players = { match.getPlayer1(), match.getPlayer2() };
+		for (int slot = 0; slot < 2; slot++) {
+			keyBoards[slot] = new RemoteKeyBoard(players[slot].keyBoard);
+			players[slot].keyBoard = keyBoards[slot];
+		}
+		for (int i = 0; i < snapshots.length; i++) {
+			snapshots[i] = new MatchSnapshot();
+		}
+
+		channel = DatagramChannel.open();
+		channel.configureBlocking(false);
+		channel.bind(localAddress);
+		channel.connect(remoteAddress);
+	}
+
+	/**
+	 * Sets an artificial delay for the packets sent, for testing.
+	 * @param millis The delay, in milliseconds.
+	 */
+	public void setSendDelay(long millis) {
+		sendDelay = millis * 1_000_000;
+	}
+
+	/**
+	 * Simulates the next tick with the local input, unless the peer is too far
+	 * behind or the match ends at this tick and its remote input has not been
+	 * received, and sends the input to the peer.
+	 * @param localButtons The buttons of the local player. While waiting for the
+	 *                     input of the last tick, the ones given first are kept.
+	 * @return true if the tick was simulated, false if the session is waiting for the peer.
+	 */
+	public boolean advance(int localButtons) throws IOException {
+		poll();
+		if (tick - lastRemoteTick > MAX_ROLLBACK) {
+			stalls++;
+			send();
+			return false;
+		}
+
+		if (nextLocalTick == tick) {
+			inputs[localSlot][tick % INPUT_HISTORY] = localButtons;
+			nextLocalTick++;
+		}
+		if (isLastTick() && tick > lastRemoteTick) {
+			// The peer may be waiting for our input of this tick too
+			stalls++;
+			send();
+			return false;
+		}
+		if (tick > lastRemoteTick) {
+			// Unless the peer is ahead and its input has already been received
+			inputs[remoteSlot][tick % INPUT_HISTORY] = predictRemote();
+		}
+		simulate();
+		send();
+		return true;
+	}
+
+	/**
+	 * Handles the packets received, rolling back if a prediction was wrong,
+	 * and sends the delayed packets that are due.
+	 */
+	public void poll() throws IOException {
+		int firstWrongTick = Integer.MAX_VALUE;
+		try {
+			while (channel.read(buffer.clear()) > 0) {
+				buffer.flip();
+				try {
+					firstWrongTick = Math.min(firstWrongTick, receive(buffer));
+				} catch (RuntimeException e) {
+					// Malformed packets are ignored
+				}
+			}
+		} catch (PortUnreachableException e) {
+			// The peer has not started yet, the packets are sent again
+		}
+		if (firstWrongTick < tick) {
+			rollback(firstWrongTick);
+		}
+		flushDelayed();
+	}
+
+	/**
+	 * Reads the remote inputs of a packet.
+	 * @return The first tick already simulated with a wrong prediction, or MAX_VALUE if none.
+	 */
+	private int receive(ByteBuffer packet) {
+		if (packet.get() != Protocol.INPUT) {
+			return Integer.MAX_VALUE;
+		}
+		lastAckedTick = Math.max(lastAckedTick, packet.getInt());
+		int first = packet.getInt();
+		int count = packet.get() & 0xFF;
+
+		int firstWrongTick = Integer.MAX_VALUE;
+		for (int t = first; t < first + count; t++) {
+			int buttons = packet.get();
+			if (t != lastRemoteTick + 1) {
+				// Old or out-of-order inputs are ignored, the next packet resends them
+				continue;
+			}
+			if (t < tick && inputs[remoteSlot][t % INPUT_HISTORY] != buttons) {
+				firstWrongTick = Math.min(firstWrongTick, t);
+			}
+			inputs[remoteSlot][t % INPUT_HISTORY] = buttons;
+			lastRemoteTick = t;
+		}
+
+		// The ticks still predicted are predicted again from the latest input
+		int prediction = predictRemote();
+		for (int t = lastRemoteTick + 1; t < tick; t++) {
+			if (inputs[remoteSlot][t % INPUT_HISTORY] != prediction) {
+				firstWrongTick = Math.min(firstWrongTick, t);
+				inputs[remoteSlot][t % INPUT_HISTORY] = prediction;
+			}
+		}
+		return firstWrongTick;
+	}
+
+	/**
+	 * Returns whether the match ends at the next tick simulated.
+	 */
+	private boolean isLastTick() {
+		return !match.isFinished() && match.getClock().getTick() >= match.getEndTick();
+	}
+
+	/**
+	 * Returns the predicted remote input: the last one received.
+	 */
+	private int predictRemote() {
+		return lastRemoteTick >= 0 ? inputs[remoteSlot][lastRemoteTick % INPUT_HISTORY] : 0;
+	}
+
+	/**
+	 * Restores the match before a tick and simulates again up to the current tick.
+	 */
+	private void rollback(int fromTick) {
+		long start = System.nanoTime();
+		int currentTick = tick;
+		snapshots[fromTick % snapshots.length].restore(match);
+		tick = fromTick;
+		while (tick < currentTick) {
+			simulate();
+			resimulatedTicks++;
+		}
+		long duration = System.nanoTime() - start;
+		rollbacks++;
+		rollbackNanos += duration;
+		maxRollbackNanos = Math.max(maxRollbackNanos, duration);
+	}
+
+	/**
+	 * Saves the snapshot of the current tick and simulates it.
+	 */
+	private void simulate() {
+		snapshots[tick % snapshots.length].save(match, tick);
+		keyBoards[0].setButtons(inputs[0][tick % INPUT_HISTORY]);
+		keyBoards[1].setButtons(inputs[1][tick % INPUT_HISTORY]);
+		match.tick();
+		tick++;
+	}
+
+	//region Sending
+	/**
+	 * Sends the local inputs the peer has not acknowledged yet, e.g. while
+	 * waiting for the peer to catch up at the end of a match.
+	 */
+	public void send() throws IOException {
+		int first = Math.max(lastAckedTick + 1, nextLocalTick - INPUT_HISTORY / 2);
+		int count = nextLocalTick - first;
+		buffer.clear();
+		buffer.put(Protocol.INPUT).putInt(lastRemoteTick).putInt(first).put((byte) count);
+		for (int t = first; t < nextLocalTick; t++) {
+			buffer.put((byte) inputs[localSlot][t % INPUT_HISTORY]);
+		}
+		buffer.flip();
+
+		if (sendDelay == 0) {
+			write(buffer);
+			return;
+		}
+		byte[] packet = new byte[buffer.remaining()];
+		buffer.get(packet);
+		delayedPackets.add(packet);
+		delayedTimes.add(System.nanoTime() + sendDelay);
+	}
+
+	private void flushDelayed() throws IOException {
+		long now = System.nanoTime();
+		while (!delayedTimes.isEmpty() && delayedTimes.peek() - now <= 0) {
+			delayedTimes.poll();
+			write(ByteBuffer.wrap(delayedPackets.poll()));
+		}
+	}
+
+	private void write(ByteBuffer packet) throws IOException {
+		try {
+			channel.write(packet);
+		} catch (PortUnreachableException e) {
+			// The peer has not started yet, the packet is sent again with the next one
+		}
+	}
+	//endregion
+
+	/**
+	 * Closes the channel.
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	//region Getters
+	/**
+	 * @return The match.
+	 */
+	public Match getMatch() { return match; }
+
+	/**
+	 * @return The next tick to be simulated.
+	 */
+	public int getTick() { return tick; }
+
+	/**
+	 * @return The last tick whose remote input has been received. The state of
+	 * the match up to it is the same on both peers.
+	 */
+	public int getLastRemoteTick() { return lastRemoteTick; }
+
+	/**
+	 * @return The number of rollbacks.
+	 */
+	public long getRollbacks() { return rollbacks; }
+
+	/**
+	 * @return The number of ticks simulated again.
+	 */
+	public long getResimulatedTicks() { return resimulatedTicks; }
+
+	/**
+	 * @return The number of ticks the session waited for the peer.
+	 */
+	public long getStalls() { return stalls; }
+
+	/**
+	 * @return The mean duration of a rollback, in nanoseconds.
+	 */
+	public long getMeanRollbackNanos() { return rollbacks > 0 ? rollbackNanos / rollbacks : 0; }
+
+	/**
+	 * @return The longest rollback, in nanoseconds.
+	 */
+	public long getMaxRollbackNanos() { return maxRollbackNanos; }
+	//endregion
+}
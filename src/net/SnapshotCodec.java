@@ -0,0 +1,216 @@
+package net;
+
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+
+/**
+ * Binary codec of MatchStates, with delta compression.
+ * <p>
+ *     A snapshot is encoded against a base state the client is known to
+ *     have (the last one it acknowledged). Only the tank fields that changed
+ *     are written, and the cells are written as a list of the cells that
+ *     changed. Without a base, or when too many cells changed, the whole
+ *     grid is written run-length encoded as in the TerritoryFeed keyframes,
+ *     or packed at 2 bits per cell if that is smaller. The cells can also be
+ *     left out when they are sent apart, as the SpectatorBroadcaster does
+ *     with the frames of a TerritoryFeed: the decoded state keeps the cells
+ *     of its base.
+ * </p>
+ * <p>
+ *     Layout: sequence (4), base sequence (4, -1 for none), tick (4),
+ *     remaining seconds (2), flags (1), VS bar x (2), both tanks, bullets
+ *     and cells.
+ * </p>
+ */
+public final class SnapshotCodec {
+	/**
+	 * Bits of the tank mask: which fields follow, and whether it is invincible.
+	 */
+	private static final int POSE = 1, HEALTH = 1 << 1, POINTS = 1 << 2, INVINCIBLE = 1 << 3;
+	/**
+	 * Bits of the flags.
+	 */
+	private static final int FINISHED = 1, NO_CELLS = 1 << 1;
+	/**
+	 * Kinds of cells section.
+	 */
+	private static final byte CELLS_DELTA = 0, CELLS_PACKED = 1, CELLS_RUNS = 2;
+	/**
+	 * Size of the whole grid packed at 2 bits per cell.
+	 */
+	private static final int PACKED_SIZE = (MatchState.CELLS + 3) / 4;
+
+	private SnapshotCodec() { }
+
+	/**
+	 * Encodes a state.
+	 * @param current The state to be encoded.
+	 * @param base The state the receiver already has, or null.
+	 * @param out Where the snapshot is written.
+	 */
+	public static void encode(MatchState current, MatchState base, ByteBuffer out) {
+		encode(current, base, true, out);
+	}
+
+	/**
+	 * Encodes a state, with or without its cells.
+	 * @param current The state to be encoded.
+	 * @param base The state the receiver already has, or null.
+	 * @param cells Whether the cells are written, false if they are sent apart.
+	 * @param out Where the snapshot is written.
+	 */
+	public static void encode(MatchState current, MatchState base, boolean cells, ByteBuffer out) {
+		out.putInt(current.sequence);
+		out.putInt(base != null ? base.sequence : -1);
+		out.putInt(current.tick);
+		out.putShort((short) current.remainingSeconds);
+		out.put((byte) ((current.finished ? FINISHED : 0) | (cells ? 0 : NO_CELLS)));
+		out.putShort((short) current.vsBarX);
+
+		// Tanks
+		for (int p = 0; p < MatchState.PLAYERS; p++) {
+			int mask = current.invincible[p] ? INVINCIBLE : 0;
+			if (base == null || current.tankX[p] != base.tankX[p] || current.tankY[p] != base.tankY[p]
+					|| current.tankRotation[p] != base.tankRotation[p]) {
+				mask |= POSE;
+			}
+			if (base == null || current.health[p] != base.health[p]) {
+				mask |= HEALTH;
+			}
+			if (base == null || current.points[p] != base.points[p]) {
+				mask |= POINTS;
+			}
+
+			out.put((byte) mask);
+			if ((mask & POSE) != 0) {
+				out.putShort(current.tankX[p]).putShort(current.tankY[p]).putChar(current.tankRotation[p]);
+			}
+			if ((mask & HEALTH) != 0) {
+				out.putShort((short) current.health[p]);
+			}
+			if ((mask & POINTS) != 0) {
+				out.putInt(current.points[p]);
+			}
+		}
+
+		// Bullets live for a few ticks only, so they are always sent
+		out.put((byte) current.bulletCount);
+		for (int b = 0; b < current.bulletCount; b++) {
+			out.put(current.bulletOwner[b])
+					.putShort(current.bulletX[b])
+					.putShort(current.bulletY[b])
+					.putChar(current.bulletRotation[b]);
+		}
+
+		// Cells
+		if (!cells) {
+			return;
+		}
+		int changed = 0;
+		if (base != null) {
+			for (int c = 0; c < MatchState.CELLS; c++) {
+				if (current.cells[c] != base.cells[c]) {
+					changed++;
+				}
+			}
+		}
+		if (base == null || 2 + changed * 3 >= PACKED_SIZE) {
+			// Most of the grid is usually made of long runs of the same owner
+			if (TerritoryFeed.countRuns(current.cells) <= PACKED_SIZE) {
+				out.put(CELLS_RUNS);
+				TerritoryFeed.writeRuns(current.cells, out);
+				return;
+			}
+			out.put(CELLS_PACKED);
+			for (int c = 0; c < MatchState.CELLS; c += 4) {
+				int packed = 0;
+				for (int k = 0; k < 4 && c + k < MatchState.CELLS; k++) {
+					packed |= (current.cells[c + k] & 3) << (k * 2);
+				}
+				out.put((byte) packed);
+			}
+		} else {
+			out.put(CELLS_DELTA);
+			out.putShort((short) changed);
+			for (int c = 0; c < MatchState.CELLS; c++) {
+				if (current.cells[c] != base.cells[c]) {
+					out.putShort((short) c).put(current.cells[c]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes a snapshot.
+	 * @param in The snapshot.
+	 * @param bases Returns the state with the given sequence, or null if it is not kept.
+	 * @param into Where the state is decoded.
+	 * @return false if the base of the snapshot is not kept, true otherwise.
+	 */
+	public static boolean decode(ByteBuffer in, IntFunction<MatchState> bases, MatchState into) {
+		int sequence = in.getInt();
+		int baseSequence = in.getInt();
+		if (baseSequence >= 0) {
+			MatchState base = bases.apply(baseSequence);
+			if (base == null) {
+				return false;
+			}
+			into.copyFrom(base);
+		}
+
+		into.sequence = sequence;
+		into.tick = in.getInt();
+		into.remainingSeconds = in.getShort();
+		int flags = in.get();
+		into.finished = (flags & FINISHED) != 0;
+		into.vsBarX = in.getShort();
+
+		// Tanks
+		for (int p = 0; p < MatchState.PLAYERS; p++) {
+			int mask = in.get();
+			into.invincible[p] = (mask & INVINCIBLE) != 0;
+			if ((mask & POSE) != 0) {
+				into.tankX[p] = in.getShort();
+				into.tankY[p] = in.getShort();
+				into.tankRotation[p] = in.getChar();
+			}
+			if ((mask & HEALTH) != 0) {
+				into.health[p] = in.getShort();
+			}
+			if ((mask & POINTS) != 0) {
+				into.points[p] = in.getInt();
+			}
+		}
+
+		// Bullets
+		into.bulletCount = in.get() & 0xFF;
+		for (int b = 0; b < into.bulletCount; b++) {
+			into.bulletOwner[b] = in.get();
+			into.bulletX[b] = in.getShort();
+			into.bulletY[b] = in.getShort();
+			into.bulletRotation[b] = in.getChar();
+		}
+
+		// Cells
+		if ((flags & NO_CELLS) != 0) {
+			return true;
+		}
+		byte kind = in.get();
+		if (kind == CELLS_RUNS) {
+			TerritoryFeed.readRuns(in, into.cells);
+		} else if (kind == CELLS_PACKED) {
+			for (int c = 0; c < MatchState.CELLS; c += 4) {
+				int packed = in.get();
+				for (int k = 0; k < 4 && c + k < MatchState.CELLS; k++) {
+					into.cells[c + k] = (byte) ((packed >> (k * 2)) & 3);
+				}
+			}
+		} else {
+			int changed = in.getShort();
+			for (int i = 0; i < changed; i++) {
+				into.cells[in.getShort()] = in.get();
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,379 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Broadcasts the states of a match to many spectators over TCP.
+ * <p>
+ *     Every tick the state is encoded once, as a delta against the state of
+ *     the previous tick (or a whole keyframe every KEYFRAME_INTERVAL ticks),
+ *     into a direct buffer taken from a pool. The same buffer is queued for
+ *     every spectator and written with gathering writes, so nothing is copied
+ *     or encoded per spectator. The buffer goes back to the pool once every
+ *     spectator has written it.
+ * </p>
+ * <p>
+ *     Everything is non-blocking, so a slow spectator never stalls the
+ *     thread running the match: when too many frames are pending, its queue
+ *     is dropped and it skips to the next keyframe. Spectators that keep
+ *     falling behind are disconnected.
+ * </p>
+ * <p>
+ *     The cells are not in the snapshots but in the frames of the
+ *     TerritoryFeed of the match, which are much smaller than the snapshot
+ *     deltas of the grid. A spectator that starts following the match, when
+ *     it joins or after skipping, first gets the last keyframe of the feed and
+ *     the deltas after it, so it does not wait for the next keyframe.
+ * </p>
+ * <p>
+ *     Each frame is the snapshot length (2) followed by a SNAPSHOT packet as
+ *     sent by the MatchServer, without the cells, and the territory length
+ *     (2) followed by TERRITORY and a frame of the feed.
+ * </p>
+ */
+public class SpectatorBroadcaster {
+	/**
+	 * Ticks between keyframes.
+	 */
+	public static final int KEYFRAME_INTERVAL = Protocol.TICK_RATE / 2;
+	/**
+	 * Frames a spectator can have pending before skipping to the next keyframe.
+	 */
+	private static final int MAX_PENDING = 32;
+	/**
+	 * Times a spectator can skip to the next keyframe in a row before being
+	 * disconnected.
+	 */
+	private static final int MAX_SKIPS = 8;
+	/**
+	 * Size of the buffer of a frame.
+	 */
+	private static final int FRAME_SIZE = 2 + Protocol.MAX_PACKET + 2 + 1 + TerritoryFeed.MAX_FRAME_SIZE;
+	/**
+	 * Maximum size of the frames of the feed synchronizing a spectator. With
+	 * more, the spectator waits for the next keyframe of the feed instead.
+	 */
+	private static final int MAX_SYNC_SIZE = Short.MAX_VALUE - 1;
+
+	/**
+	 * An encoded state, shared by every spectator it is queued for.
+	 */
+	private static class Frame {
+		final ByteBuffer buffer;
+		/**
+		 * Whether the frame goes back to the pool once released.
+		 */
+		final boolean pooled;
+		boolean keyframe;
+		int references;
+
+		Frame(ByteBuffer buffer, boolean pooled) {
+			this.buffer = buffer;
+			this.pooled = pooled;
+		}
+	}
+
+	/**
+	 * A connected spectator.
+	 */
+	private static class Spectator {
+		final SocketChannel channel;
+		final ArrayDeque<Frame> pending = new ArrayDeque<>();
+		/**
+		 * Bytes of the first pending frame already written.
+		 */
+		int written;
+		boolean waitingKeyframe = true;
+		int skips;
+
+		Spectator(SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	private final ServerSocketChannel serverChannel;
+	private final List<Spectator> spectators = new ArrayList<>();
+	/**
+	 * Frames not queued for any spectator.
+	 */
+	private final ArrayDeque<Frame> pool = new ArrayDeque<>();
+	/**
+	 * The state of the previous tick, base of the next delta.
+	 */
+	private final MatchState previous = new MatchState();
+	/**
+	 * Used for the gathering writes.
+	 */
+	private final ByteBuffer[] writeBuffers = new ByteBuffer[MAX_PENDING];
+	/**
+	 * The frames of the feed synchronizing the spectators that start following
+	 * the match in this tick, written once for all of them, null until needed.
+	 */
+	private Frame sync;
+	private int ticks;
+	/**
+	 * Counters, for monitoring.
+	 */
+	private long bytesEncoded, bytesWritten, skips, disconnections;
+
+	/**
+	 * Creates the broadcaster.
+	 * @param address The address to bind to (port 0 for any free port).
+	 */
+	public SpectatorBroadcaster(InetSocketAddress address) throws IOException {
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.configureBlocking(false);
+		serverChannel.bind(address);
+	}
+
+	/**
+	 * Returns the address the broadcaster is bound to.
+	 * @return The address.
+	 */
+	public InetSocketAddress getLocalAddress() throws IOException {
+		return (InetSocketAddress) serverChannel.getLocalAddress();
+	}
+
+	/**
+	 * Accepts the new spectators, broadcasts the state of a tick and writes
+	 * as much as possible to every spectator, without blocking.
+	 * @param state The state of the tick, with its sequence set.
+	 * @param territory The feed of the cells of the match, whose frames the
+	 *                  broadcaster writes, one per tick, so nothing else may.
+	 */
+	public void broadcast(MatchState state, TerritoryFeed territory) throws IOException {
+		accept();
+
+		boolean keyframe = ticks++ % KEYFRAME_INTERVAL == 0 || previous.sequence != state.sequence - 1;
+		Frame frame = encode(state, territory, keyframe);
+		previous.copyFrom(state);
+
+		// The broadcaster holds a reference while queuing, so the frame is not
+		// returned to the pool by a spectator that writes it completely
+		frame.references = 1;
+
+		Iterator<Spectator> iterator = spectators.iterator();
+		while (iterator.hasNext()) {
+			Spectator spectator = iterator.next();
+			if (!enqueue(spectator, frame, territory) || !write(spectator)) {
+				iterator.remove();
+				disconnect(spectator);
+			}
+		}
+		release(frame);
+		if (sync != null) {
+			release(sync);
+			sync = null;
+		}
+	}
+
+	/**
+	 * Accepts every pending connection.
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			spectators.add(new Spectator(channel));
+		}
+	}
+
+	/**
+	 * Encodes a state, and writes the frame of the feed, into a frame of the pool.
+	 */
+	private Frame encode(MatchState state, TerritoryFeed territory, boolean keyframe) {
+		Frame frame = pool.isEmpty() ? new Frame(ByteBuffer.allocateDirect(FRAME_SIZE), true) : pool.poll();
+		frame.keyframe = keyframe;
+		ByteBuffer buffer = frame.buffer.clear();
+		buffer.position(2);
+		buffer.put(Protocol.SNAPSHOT);
+		SnapshotCodec.encode(state, keyframe ? null : previous, false, buffer);
+		buffer.putShort(0, (short) (buffer.position() - 2));
+
+		int start = buffer.position();
+		buffer.position(start + 2);
+		buffer.put(Protocol.TERRITORY);
+		territory.writeFrame(state.tick, buffer);
+		buffer.putShort(start, (short) (buffer.position() - start - 2));
+		buffer.flip();
+		bytesEncoded += buffer.limit();
+		return frame;
+	}
+
+	/**
+	 * Queues a frame for a spectator, or skips it if the spectator is waiting
+	 * for a keyframe. A spectator that stops waiting gets the frames of the
+	 * feed synchronizing it first.
+	 * @return false if the spectator must be disconnected.
+	 */
+	private boolean enqueue(Spectator spectator, Frame frame, TerritoryFeed territory) {
+		if (spectator.pending.size() >= MAX_PENDING) {
+			// The spectator is too slow: it skips to the next keyframe, once the
+			// frame it is writing is finished so the stream stays well-formed
+			while (spectator.pending.size() > (spectator.written > 0 ? 1 : 0)) {
+				release(spectator.pending.pollLast());
+			}
+			spectator.waitingKeyframe = true;
+			skips++;
+			if (++spectator.skips > MAX_SKIPS) {
+				return false;
+			}
+		}
+		if (spectator.waitingKeyframe) {
+			if (!frame.keyframe) {
+				return true;
+			}
+			spectator.waitingKeyframe = false;
+			Frame sync = getSync(territory);
+			if (sync != null) {
+				spectator.pending.add(sync);
+				sync.references++;
+			}
+		}
+		spectator.pending.add(frame);
+		frame.references++;
+		return true;
+	}
+
+	/**
+	 * Writes the pending frames of a spectator with a single gathering write.
+	 * <p>
+	 *     The frames are shared, so their positions are set right before the
+	 *     write. This only works because every spectator is written from the
+	 *     same thread.
+	 * </p>
+	 * @return false if the spectator must be disconnected.
+	 */
+	private boolean write(Spectator spectator) {
+		int count = 0;
+		for (Frame frame : spectator.pending) {
+			ByteBuffer buffer = frame.buffer;
+			buffer.position(count == 0 ? spectator.written : 0);
+			writeBuffers[count++] = buffer;
+		}
+		if (count == 0) {
+			return true;
+		}
+
+		long written;
+		try {
+			written = spectator.channel.write(writeBuffers, 0, count);
+		} catch (IOException e) {
+			return false;
+		}
+		bytesWritten += written;
+
+		// We release the frames completely written
+		written += spectator.written;
+		while (!spectator.pending.isEmpty() && written >= spectator.pending.peek().buffer.limit()) {
+			written -= spectator.pending.peek().buffer.limit();
+			release(spectator.pending.poll());
+		}
+		spectator.written = (int) written;
+		if (spectator.pending.isEmpty() && !spectator.waitingKeyframe) {
+			spectator.skips = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the frames of the feed synchronizing a spectator, written the
+	 * first time they are needed in a tick.
+	 * @return The frames, or null if they are too big for a frame.
+	 */
+	private Frame getSync(TerritoryFeed territory) {
+		if (sync == null) {
+			int size = 1 + territory.getSyncSize();
+			if (size > MAX_SYNC_SIZE) {
+				return null;
+			}
+			// The broadcaster holds a reference until the end of the tick, as for the frames
+			sync = new Frame(ByteBuffer.allocate(2 + size), false);
+			sync.references = 1;
+			ByteBuffer buffer = sync.buffer;
+			buffer.putShort((short) size).put(Protocol.TERRITORY);
+			territory.writeSync(buffer);
+			buffer.flip();
+			bytesEncoded += buffer.limit();
+		}
+		return sync;
+	}
+
+	/**
+	 * Releases a reference to a frame, returning it to the pool when it is not
+	 * used anymore. The frames synchronizing the spectators are not reused.
+	 */
+	private void release(Frame frame) {
+		if (--frame.references == 0 && frame.pooled) {
+			pool.add(frame);
+		}
+	}
+
+	private void disconnect(Spectator spectator) {
+		for (Frame frame : spectator.pending) {
+			release(frame);
+		}
+		spectator.pending.clear();
+		disconnections++;
+		try {
+			spectator.channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Disconnects every spectator and closes the channel.
+	 */
+	public void close() {
+		for (Spectator spectator : spectators) {
+			disconnect(spectator);
+		}
+		spectators.clear();
+		try {
+			serverChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	//region Getters
+	/**
+	 * @return The number of connected spectators.
+	 */
+	public int getSpectatorCount() { return spectators.size(); }
+
+	/**
+	 * @return The bytes encoded, once per tick whatever the number of spectators.
+	 */
+	public long getBytesEncoded() { return bytesEncoded; }
+
+	/**
+	 * @return The bytes written to every spectator.
+	 */
+	public long getBytesWritten() { return bytesWritten; }
+
+	/**
+	 * @return The times a spectator skipped to the next keyframe.
+	 */
+	public long getSkips() { return skips; }
+
+	/**
+	 * @return The spectators disconnected for being too slow or closing the connection.
+	 */
+	public long getDisconnections() { return disconnections; }
+
+	/**
+	 * @return The frames in the pool, for checking they are released.
+	 */
+	int getPooledFrames() { return pool.size(); }
+	//endregion
+}
@@ -0,0 +1,118 @@
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Spectator of a match broadcast by a SpectatorBroadcaster.
+ * <p>
+ *     It never blocks: poll() decodes the frames already received, keeping
+ *     the latest state of the match. The cells of the state are the ones of
+ *     the frames of the TerritoryFeed sent along with the snapshots.
+ * </p>
+ */
+public class SpectatorClient {
+	/**
+	 * The channel, connected to the broadcaster.
+	 */
+	private final SocketChannel channel;
+	/**
+	 * Bytes received and not decoded yet.
+	 */
+	private final ByteBuffer receiveBuffer = ByteBuffer.allocate(64 * 1024);
+	/**
+	 * The latest state decoded, base of the next frame, and the state the
+	 * next frame is decoded into.
+	 */
+	private MatchState latest = new MatchState(), next = new MatchState();
+	/**
+	 * The cells, rebuilt from the frames of the feed.
+	 */
+	private final TerritoryView territory = new TerritoryView();
+	private long framesReceived, framesDecoded;
+
+	/**
+	 * Connects to a broadcaster.
+	 * @param address The address of the broadcaster.
+	 */
+	public SpectatorClient(InetSocketAddress address) throws IOException {
+		channel = SocketChannel.open(address);
+		channel.configureBlocking(false);
+	}
+
+	/**
+	 * Decodes every frame received, without blocking.
+	 * @return false if the broadcaster closed the connection.
+	 */
+	public boolean poll() throws IOException {
+		int read;
+		while ((read = channel.read(receiveBuffer)) > 0) {
+			receiveBuffer.flip();
+			while (receiveBuffer.remaining() >= 2
+					&& receiveBuffer.remaining() >= 2 + receiveBuffer.getShort(receiveBuffer.position())) {
+				int size = receiveBuffer.getShort();
+				int end = receiveBuffer.position() + size;
+				decode(receiveBuffer.slice(receiveBuffer.position(), size));
+				receiveBuffer.position(end);
+			}
+			receiveBuffer.compact();
+		}
+		return read >= 0;
+	}
+
+	private void decode(ByteBuffer frame) {
+		framesReceived++;
+		byte type = frame.get();
+		if (type == Protocol.TERRITORY) {
+			territory.readAll(frame);
+			System.arraycopy(territory.getOwners(), 0, latest.cells, 0, MatchState.CELLS);
+			return;
+		}
+		if (type != Protocol.SNAPSHOT) {
+			return;
+		}
+
+		// Each frame is based on the previous one, or on none for keyframes
+		if (SnapshotCodec.decode(frame, sequence -> sequence == latest.sequence ? latest : null, next)) {
+			MatchState decoded = next;
+			next = latest;
+			latest = decoded;
+			framesDecoded++;
+		}
+	}
+
+	/**
+	 * Closes the channel.
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	//region Getters
+	/**
+	 * @return The latest state decoded, null until the first keyframe arrives.
+	 */
+	public MatchState getLatestState() { return latest.sequence >= 0 ? latest : null; }
+
+	/**
+	 * @return The cells of the match, rebuilt from the frames of the feed.
+	 */
+	public TerritoryView getTerritory() { return territory; }
+
+	/**
+	 * @return The frames received.
+	 */
+	public long getFramesReceived() { return framesReceived; }
+
+	/**
+	 * @return The frames decoded, the ones received minus the ones that could not be applied.
+	 */
+	public long getFramesDecoded() { return framesDecoded; }
+	//endregion
+}
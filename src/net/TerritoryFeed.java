@@ -0,0 +1,292 @@
+package net;
+
+import sprites.Cell;
+import sprites.Player;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Change-feed of the owners of the cells grid, for streaming the territory
+ * of a match.
+ * <p>
+ *     The feed listens to the cells, recording the ones that changed of owner
+ *     since the last frame in a bitset. Every tick a frame is written, by the
+ *     SpectatorBroadcaster of the match: a
+ *     keyframe with the whole grid every KEYFRAME_INTERVAL frames, and a delta
+ *     with the cells that changed otherwise. The last keyframe and the deltas
+ *     after it are kept, so a viewer joining late can be synchronized with them.
+ * </p>
+ * <p>
+ *     Owners are run-length encoded, in column-major order: a run is a byte
+ *     with the owner in the 2 high bits and the length minus one (up to 64
+ *     cells) in the 6 low bits, so the frames are of the matches of two
+ *     players: the feed follows the cells of any team, but a frame with the
+ *     cells of the teams after the third one is not written.
+ * </p>
+ * <p>
+ *     Layout of a keyframe: KEYFRAME (1), tick (4), runs of the whole grid.
+ *     Layout of a delta: DELTA (1), tick (4), number of runs (2), and for
+ *     every run the cells skipped since the previous one (varint) and the run.
+ * </p>
+ */
+public class TerritoryFeed implements Cell.OwnerListener {
+	/**
+	 * Frame types.
+	 */
+	public static final byte KEYFRAME = 1, DELTA = 2;
+	/**
+	 * Default frames between keyframes, one second at the TICK_RATE.
+	 */
+	public static final int KEYFRAME_INTERVAL = Protocol.TICK_RATE;
+	/**
+	 * Maximum length of a run.
+	 */
+	static final int MAX_RUN = 64;
+	/**
+	 * Maximum size of a frame: a keyframe alternating owners on every cell, or
+	 * a delta with every cell changed.
+	 */
+	public static final int MAX_FRAME_SIZE = 1 + 4 + 2 + MatchState.CELLS * 3;
+
+	/**
+	 * Frames between keyframes.
+	 */
+	private final int keyframeInterval;
+	/**
+	 * Current owner of every cell, indexed by column * rows + row.
+	 */
+	private final byte[] owners = new byte[MatchState.CELLS];
+	/**
+	 * Number of cells of every owner.
+	 */
+	private final int[] ownedCells = new int[Player.MAX_PLAYERS + 1];
+	/**
+	 * Cells that changed of owner since the last frame.
+	 */
+	private final BitSet changed = new BitSet(MatchState.CELLS);
+	/**
+	 * Frames written since the last keyframe, -1 before the first one.
+	 */
+	private int framesSinceKeyframe = -1;
+	/**
+	 * The last keyframe and the deltas written after it.
+	 */
+	private byte[] syncLog = new byte[MAX_FRAME_SIZE];
+	private int syncLogSize;
+
+	/**
+	 * Creates a feed writing a keyframe every KEYFRAME_INTERVAL frames.
+	 */
+	public TerritoryFeed() {
+		this(KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Creates a feed.
+	 * @param keyframeInterval Frames between keyframes.
+	 */
+	public TerritoryFeed(int keyframeInterval) {
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("The keyframe interval must be positive");
+		}
+		this.keyframeInterval = keyframeInterval;
+		ownedCells[0] = MatchState.CELLS;
+	}
+
+	/**
+	 * Records that a cell changed of owner.
+	 * @param index The index of the cell, column * rows + row.
+	 * @param owner The new owner of the cell.
+	 */
+	@Override
+	public void ownerChanged(int index, int owner) {
+		ownedCells[owners[index]]--;
+		ownedCells[owner]++;
+		owners[index] = (byte) owner;
+		changed.set(index);
+	}
+
+	/**
+	 * Writes the frame of a tick, and starts recording the next one.
+	 * @param tick The tick of the match.
+	 * @param out Where the frame is written, with at least MAX_FRAME_SIZE bytes remaining.
+	 * @return true if a keyframe was written, false if a delta was.
+	 * @throws IllegalStateException If cells are owned by teams that do not fit in a run.
+	 */
+	public boolean writeFrame(int tick, ByteBuffer out) {
+		for (int owner = 4; owner < ownedCells.length; owner++) {
+			if (ownedCells[owner] > 0) {
+				throw new IllegalStateException("The frames only have the cells of 3 teams: " + owner);
+			}
+		}
+		int start = out.position();
+		boolean keyframe = framesSinceKeyframe < 0 || framesSinceKeyframe + 1 >= keyframeInterval;
+		if (keyframe) {
+			writeKeyframe(tick, out);
+			framesSinceKeyframe = 0;
+			syncLogSize = 0;
+		} else {
+			writeDelta(tick, out);
+			framesSinceKeyframe++;
+		}
+		changed.clear();
+
+		// We keep the frame for the viewers joining later
+		int size = out.position() - start;
+		if (syncLogSize + size > syncLog.length) {
+			syncLog = Arrays.copyOf(syncLog, Math.max(syncLog.length * 2, syncLogSize + size));
+		}
+		out.get(start, syncLog, syncLogSize, size);
+		syncLogSize += size;
+		return keyframe;
+	}
+
+	/**
+	 * Writes a keyframe with the whole grid.
+	 */
+	private void writeKeyframe(int tick, ByteBuffer out) {
+		out.put(KEYFRAME).putInt(tick);
+		writeRuns(owners, out);
+	}
+
+	/**
+	 * Writes a delta with the cells that changed, as runs of consecutive
+	 * changed cells with the same owner.
+	 */
+	private void writeDelta(int tick, ByteBuffer out) {
+		out.put(DELTA).putInt(tick);
+		int countPosition = out.position();
+		out.putShort((short) 0);
+
+		int runs = 0;
+		int end = 0;
+		int c = changed.nextSetBit(0);
+		while (c >= 0) {
+			int owner = owners[c];
+			int length = 1;
+			while (length < MAX_RUN && c + length < MatchState.CELLS
+					&& changed.get(c + length) && owners[c + length] == owner) {
+				length++;
+			}
+			writeVarInt(c - end, out);
+			out.put((byte) (owner << 6 | (length - 1)));
+			runs++;
+			end = c + length;
+			c = changed.nextSetBit(end);
+		}
+		out.putShort(countPosition, (short) runs);
+	}
+
+	/**
+	 * Writes the last keyframe and the deltas written after it, which
+	 * synchronize a viewer joining late.
+	 * @param out Where the frames are written.
+	 * @throws BufferOverflowException If there is not enough room for them.
+	 */
+	public void writeSync(ByteBuffer out) {
+		out.put(syncLog, 0, syncLogSize);
+	}
+
+	/**
+	 * Returns the size of the frames written by writeSync.
+	 * @return The size, in bytes.
+	 */
+	public int getSyncSize() {
+		return syncLogSize;
+	}
+
+	/**
+	 * Returns the current owner of every cell.
+	 * @return The owners, indexed by column * rows + row. It must not be modified.
+	 */
+	public byte[] getOwners() {
+		return owners;
+	}
+
+	/**
+	 * Returns the number of cells of an owner.
+	 * @param owner The owner: the team, 0 for the unpainted cells.
+	 * @return The number of cells.
+	 */
+	public int getOwnedCells(int owner) {
+		return ownedCells[owner];
+	}
+
+	//region Runs
+	/**
+	 * Writes the owners of the whole grid as runs.
+	 * @param owners The owner of every cell.
+	 * @param out Where the runs are written.
+	 */
+	static void writeRuns(byte[] owners, ByteBuffer out) {
+		int c = 0;
+		while (c < owners.length) {
+			int length = runLength(owners, c);
+			out.put((byte) (owners[c] << 6 | (length - 1)));
+			c += length;
+		}
+	}
+
+	/**
+	 * Counts the runs written by writeRuns, which is their size in bytes.
+	 * @param owners The owner of every cell.
+	 * @return The number of runs.
+	 */
+	static int countRuns(byte[] owners) {
+		int runs = 0;
+		for (int c = 0; c < owners.length; c += runLength(owners, c)) {
+			runs++;
+		}
+		return runs;
+	}
+
+	/**
+	 * Returns the length of the run starting at a cell.
+	 */
+	private static int runLength(byte[] owners, int start) {
+		int owner = owners[start];
+		int length = 1;
+		while (length < MAX_RUN && start + length < owners.length && owners[start + length] == owner) {
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Reads the owners of the whole grid written by writeRuns.
+	 * @param in The runs.
+	 * @param owners Where the owner of every cell is read.
+	 */
+	static void readRuns(ByteBuffer in, byte[] owners) {
+		int c = 0;
+		while (c < owners.length) {
+			int run = in.get() & 0xFF;
+			int length = (run & (MAX_RUN - 1)) + 1;
+			Arrays.fill(owners, c, c + length, (byte) (run >>> 6));
+			c += length;
+		}
+	}
+
+	static void writeVarInt(int value, ByteBuffer out) {
+		while ((value & ~0x7F) != 0) {
+			out.put((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	static int readVarInt(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+	//endregion
+}
@@ -0,0 +1,96 @@
+package net;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Viewer side of a TerritoryFeed: rebuilds the owners of the cells grid from
+ * its frames.
+ * <p>
+ *     Deltas only apply on top of the frame of the previous tick, so a viewer
+ *     joining late, or that missed a frame, ignores them until it receives
+ *     the next keyframe (or the frames written by TerritoryFeed.writeSync).
+ *     The deltas of ticks already applied, e.g. the last ones of the frames
+ *     synchronizing the view when it also receives them on their own, are
+ *     skipped.
+ * </p>
+ */
+public class TerritoryView {
+	/**
+	 * Owner of every cell, indexed by column * rows + row.
+	 */
+	private final byte[] owners = new byte[MatchState.CELLS];
+	/**
+	 * Tick of the last frame applied, and whether a keyframe has been applied
+	 * since the view was created or lost a frame.
+	 */
+	private int tick = -1;
+	private boolean synced;
+
+	/**
+	 * Reads a frame.
+	 * @param in The frame, which is consumed even if it is not applied.
+	 * @return true if the frame was applied, false if the view is waiting for
+	 * a keyframe or the frame was already applied.
+	 */
+	public boolean read(ByteBuffer in) {
+		byte type = in.get();
+		int frameTick = in.getInt();
+		if (type == TerritoryFeed.KEYFRAME) {
+			TerritoryFeed.readRuns(in, owners);
+			tick = frameTick;
+			synced = true;
+			return true;
+		}
+		if (type != TerritoryFeed.DELTA) {
+			throw new IllegalArgumentException("Unknown frame type " + type);
+		}
+
+		boolean applied = synced && frameTick == tick + 1;
+		boolean alreadyApplied = synced && frameTick <= tick;
+		int runs = in.getShort() & 0xFFFF;
+		int c = 0;
+		for (int r = 0; r < runs; r++) {
+			c += TerritoryFeed.readVarInt(in);
+			int run = in.get() & 0xFF;
+			int length = (run & (TerritoryFeed.MAX_RUN - 1)) + 1;
+			if (applied) {
+				Arrays.fill(owners, c, c + length, (byte) (run >>> 6));
+			}
+			c += length;
+		}
+
+		if (applied) {
+			tick = frameTick;
+		} else if (!alreadyApplied) {
+			synced = false;
+		}
+		return applied;
+	}
+
+	/**
+	 * Reads every frame remaining in the buffer, e.g. the ones written by
+	 * TerritoryFeed.writeSync.
+	 * @param in The frames.
+	 */
+	public void readAll(ByteBuffer in) {
+		while (in.hasRemaining()) {
+			read(in);
+		}
+	}
+
+	/**
+	 * @return The owner of every cell, indexed by column * rows + row.
+	 */
+	public byte[] getOwners() { return owners; }
+
+	/**
+	 * @return The tick of the last frame applied.
+	 */
+	public int getTick() { return tick; }
+
+	/**
+	 * @return Whether the owners are up-to-date with the last frame read.
+	 */
+	public boolean isSynced() { return synced; }
+}
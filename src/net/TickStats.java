@@ -0,0 +1,62 @@
+package net;
+
+import java.util.Arrays;
+
+/**
+ * Durations of the last ticks of a match, for reporting percentiles.
+ * <p>
+ *     The durations are kept in a ring, so recording is constant time and
+ *     allocation free. The percentiles are computed on demand, sorting a copy.
+ * </p>
+ */
+public class TickStats {
+	/**
+	 * Number of durations kept.
+	 */
+	public static final int SAMPLES = 512;
+
+	private final long[] samples = new long[SAMPLES];
+	private long count;
+	private long max;
+
+	/**
+	 * Records the duration of a tick.
+	 * @param nanos The duration, in nanoseconds.
+	 */
+	public synchronized void record(long nanos) {
+		samples[(int) (count++ % SAMPLES)] = nanos;
+		max = Math.max(max, nanos);
+	}
+
+	/**
+	 * Returns percentiles of the durations of the last ticks.
+	 * @param percentiles The percentiles, from 0 to 100.
+	 * @return The durations at the percentiles, in nanoseconds, or zeros if no tick was recorded.
+	 */
+	public long[] getPercentiles(double... percentiles) {
+		long[] sorted;
+		synchronized (this) {
+			sorted = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+		}
+		Arrays.sort(sorted);
+
+		long[] result = new long[percentiles.length];
+		if (sorted.length > 0) {
+			for (int i = 0; i < percentiles.length; i++) {
+				int index = (int) Math.ceil(percentiles[i] / 100 * sorted.length) - 1;
+				result[i] = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return The number of ticks recorded.
+	 */
+	public synchronized long getCount() { return count; }
+
+	/**
+	 * @return The longest tick recorded, in nanoseconds.
+	 */
+	public synchronized long getMax() { return max; }
+}
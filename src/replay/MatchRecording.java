@@ -0,0 +1,189 @@
+package replay;
+
+import arena.SplatStencil;
+import input.RemoteKeyBoard;
+import main.PlayersManagement;
+import sprites.Player;
+import states.Match;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Recording of a match: the names of the players and the buttons both of
+ * them pressed at every tick, which is all that is needed for simulating
+ * the match again, as the simulation is deterministic.
+ * <p>
+ *     A file starts with MAGIC (4) and VERSION (2), then whether the match
+ *     used fixed-point physics (1), the columns (4) and rows (4) of cells of
+ *     its large arena (0 for the classic arena), the shape (1, ordinal) and
+ *     radius (1) of its splat stencil, the names of both players (modified
+ *     UTF-8), the number of ticks (4), and the buttons bitmask of player 1
+ *     and player 2 at every tick (1 + 1).
+ * </p>
+ */
+public class MatchRecording {
+	/**
+	 * First bytes of a file, "SPRP".
+	 */
+	public static final int MAGIC = 0x53505250;
+	public static final short VERSION = 1;
+
+	private final String player1Name, player2Name;
+	private final boolean fixedPointPhysics;
+	/**
+	 * Columns and rows of cells of a large arena, 0 for the classic arena.
+	 */
+	private final int columns, rows;
+	private final SplatStencil splat;
+	/**
+	 * Buttons of player 1 and player 2 at every tick, indexed by tick * 2 + player - 1.
+	 */
+	private byte[] buttons;
+	private int ticks;
+
+	/**
+	 * Creates the recording of a match, which must be set to the match
+	 * before its first tick.
+	 * @param match The match.
+	 */
+	public MatchRecording(Match match) {
+		this(match.getPlayer1().name, match.getPlayer2().name, match.isFixedPointPhysics(),
+				match.getTerritory() != null ? match.getTerritory().getColumns() : 0,
+				match.getTerritory() != null ? match.getTerritory().getRows() : 0,
+				match.getSplat(), new byte[1024], 0);
+	}
+
+	private MatchRecording(String player1Name, String player2Name, boolean fixedPointPhysics, int columns, int rows,
+						   SplatStencil splat, byte[] buttons, int ticks) {
+		this.player1Name = player1Name;
+		this.player2Name = player2Name;
+		this.fixedPointPhysics = fixedPointPhysics;
+		this.columns = columns;
+		this.rows = rows;
+		this.splat = splat;
+		this.buttons = buttons;
+		this.ticks = ticks;
+	}
+
+	/**
+	 * Records the buttons the players pressed at a tick, after it has been
+	 * simulated: the ones their keyBoards latched for it, whatever they
+	 * pressed since.
+	 * @param match The match.
+	 */
+	public void record(Match match) {
+		int tick = (int) match.getClock().getTick();
+		if (tick * 2 + 2 > buttons.length) {
+			buttons = Arrays.copyOf(buttons, Math.max(buttons.length * 2, tick * 2 + 2));
+		}
+		buttons[tick * 2] = (byte) match.getPlayer1().keyBoard.getButtons();
+		buttons[tick * 2 + 1] = (byte) match.getPlayer2().keyBoard.getButtons();
+		ticks = Math.max(ticks, tick + 1);
+	}
+
+	/**
+	 * @return The number of ticks recorded.
+	 */
+	public int getTicks() { return ticks; }
+
+	/**
+	 * Creates a match that plays the recording, with the same players, arena,
+	 * physics and splat, not recorded in the players data. Its players press the
+	 * recorded buttons when the recording is applied to it before every tick.
+	 * @return The match, at its first tick.
+	 */
+	public Match newMatch() {
+		Player p1 = new Player(player1Name, true);
+		Player p2 = new Player(player2Name, false);
+		p1.enemy = p2;
+		p2.enemy = p1;
+		Match match = columns > 0
+				? new Match((PlayersManagement) null, p1, p2, columns, rows)
+				: new Match((PlayersManagement) null, p1, p2);
+		match.setFixedPointPhysics(fixedPointPhysics);
+		match.setSplat(splat);
+		p1.keyBoard = new RemoteKeyBoard(p1.keyBoard);
+		p2.keyBoard = new RemoteKeyBoard(p2.keyBoard);
+		return match;
+	}
+
+	/**
+	 * Sets the buttons the players of a match created by newMatch press at its current tick.
+	 * @param match The match.
+	 */
+	public void apply(Match match) {
+		int tick = (int) match.getClock().getTick();
+		int buttons1 = 0, buttons2 = 0;
+		if (tick < ticks) {
+			buttons1 = buttons[tick * 2] & 0xFF;
+			buttons2 = buttons[tick * 2 + 1] & 0xFF;
+		}
+		((RemoteKeyBoard) match.getPlayer1().keyBoard).setButtons(buttons1);
+		((RemoteKeyBoard) match.getPlayer2().keyBoard).setButtons(buttons2);
+	}
+
+	/**
+	 * Writes the recording to a file.
+	 * @param file The file, replaced if it exists.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void save(Path file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeShort(VERSION);
+			out.writeBoolean(fixedPointPhysics);
+			out.writeInt(columns);
+			out.writeInt(rows);
+			out.writeByte(splat.getShape().ordinal());
+			out.writeByte(splat.getRadius());
+			out.writeUTF(player1Name);
+			out.writeUTF(player2Name);
+			out.writeInt(ticks);
+			out.write(buttons, 0, ticks * 2);
+		}
+	}
+
+	/**
+	 * Reads a recording from a file.
+	 * @param file The file.
+	 * @return The recording.
+	 * @throws IOException If the file cannot be read or is not a recording.
+	 */
+	public static MatchRecording load(Path file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a match recording: " + file);
+			}
+			short version = in.readShort();
+			if (version != VERSION) {
+				throw new IOException("Unsupported recording version " + version + ": " + file);
+			}
+			boolean fixedPointPhysics = in.readBoolean();
+			int columns = in.readInt();
+			int rows = in.readInt();
+			int shape = in.readUnsignedByte(), radius = in.readUnsignedByte();
+			if (shape >= SplatStencil.Shape.values().length) {
+				throw new IOException("Unknown splat shape " + shape + ": " + file);
+			}
+			SplatStencil splat;
+			try {
+				splat = new SplatStencil(SplatStencil.Shape.values()[shape], radius);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid splat: " + file, e);
+			}
+			String player1Name = in.readUTF();
+			String player2Name = in.readUTF();
+			int ticks = in.readInt();
+			byte[] buttons = new byte[ticks * 2];
+			in.readFully(buttons);
+			return new MatchRecording(player1Name, player2Name, fixedPointPhysics, columns, rows, splat, buttons, ticks);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package replay;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes RGB images as PNG files, faster than ImageIO.
+ * <p>
+ *     ImageIO tries every PNG filter on every row and compresses hard, which
+ *     takes longer than drawing a frame. The frames of a match are mostly
+ *     flat colors, so this writer filters every row with the difference to
+ *     the pixel on the left (Sub) and compresses with the fastest level,
+ *     which is several times faster for files a bit bigger.
+ * </p>
+ * <p>
+ *     A writer reuses its buffers and is not thread-safe: every thread must
+ *     use its own.
+ * </p>
+ */
+class PngWriter {
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int FILTER_SUB = 1;
+
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private final CRC32 crc = new CRC32();
+	private byte[] rows = new byte[0];
+	private byte[] compressed = new byte[64 * 1024];
+
+	/**
+	 * Writes an image.
+	 * @param image The image, of TYPE_INT_RGB.
+	 * @param file The file, replaced if it exists.
+	 * @throws IOException If the file cannot be written.
+	 */
+	void write(BufferedImage image, Path file) throws IOException {
+		int width = image.getWidth(), height = image.getHeight();
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		int stride = 1 + width * 3;
+		if (rows.length != stride * height) {
+			rows = new byte[stride * height];
+		}
+
+		// Every row starts with its filter, then the difference of every byte with the one of the pixel on its left
+		for (int y = 0, i = 0; y < height; y++) {
+			rows[i++] = FILTER_SUB;
+			int left = 0;
+			for (int x = 0, p = y * width; x < width; x++, p++) {
+				int pixel = pixels[p];
+				rows[i++] = (byte) ((pixel >> 16) - (left >> 16));
+				rows[i++] = (byte) ((pixel >> 8) - (left >> 8));
+				rows[i++] = (byte) (pixel - left);
+				left = pixel;
+			}
+		}
+
+		deflater.reset();
+		deflater.setInput(rows);
+		deflater.finish();
+		int length = 0;
+		while (!deflater.finished()) {
+			if (length == compressed.length) {
+				compressed = Arrays.copyOf(compressed, length * 2);
+			}
+			length += deflater.deflate(compressed, length, compressed.length - length);
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.write(SIGNATURE);
+			byte[] header = new byte[13];
+			writeInt(header, 0, width);
+			writeInt(header, 4, height);
+			header[8] = 8; // Bits per sample
+			header[9] = 2; // Truecolor, without alpha
+			writeChunk(out, "IHDR", header, header.length);
+			writeChunk(out, "IDAT", compressed, length);
+			writeChunk(out, "IEND", header, 0);
+		}
+	}
+
+	/**
+	 * Releases the compressor, after the last image.
+	 */
+	void close() {
+		deflater.end();
+	}
+
+	private void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		crc.reset();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private static void writeInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+}
@@ -0,0 +1,213 @@
+package replay;
+
+import graphics.Assets;
+import main.Game1;
+import net.MatchSnapshot;
+import states.GameClock;
+import states.Match;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports a recorded match to a sequence of images, simulating it again
+ * without window and drawing its frames with Match.draw, e.g. for making
+ * videos of it.
+ * <p>
+ *     The frames are split in ranges rendered in parallel, by as many threads
+ *     as cores. The match is first simulated once, without drawing, saving a
+ *     MatchSnapshot at the start of every range; then every range restores
+ *     its snapshot into its own match and simulates and draws from there.
+ *     As the simulation is deterministic, the frames are the same as if the
+ *     match was drawn from the start.
+ * </p>
+ * <p>
+ *     The frames are numbered files in a directory, either PNG images or raw
+ *     RGB (3 bytes per pixel, by rows), e.g. for making a video with ffmpeg:
+ *     ffmpeg -framerate 60 -i frame_%05d.png match.mp4
+ *     cat frame_*.rgb | ffmpeg -f rawvideo -pix_fmt rgb24 -s 1934x1087 -r 60 -i - match.mp4
+ * </p>
+ */
+public class ReplayExporter {
+	/**
+	 * Formats of the frames.
+	 */
+	public enum Format { PNG, RGB }
+
+	/**
+	 * Ranges of frames per thread, so the threads that finish first take
+	 * the ranges left.
+	 */
+	private static final int RANGES_PER_THREAD = 4;
+
+	private final MatchRecording recording;
+	private final Path directory;
+	private final Format format;
+	private final int step;
+	private final int threads;
+
+	/**
+	 * Creates an exporter.
+	 * @param recording The recording of the match.
+	 * @param directory The directory the frames are written to, created if it does not exist.
+	 * @param format The format of the frames.
+	 * @param step The ticks between frames: 1 for every tick, 2 for every other tick...
+	 * @param threads The threads rendering the frames.
+	 */
+	public ReplayExporter(MatchRecording recording, Path directory, Format format, int step, int threads) {
+		if (step < 1 || threads < 1) {
+			throw new IllegalArgumentException("The step and the threads must be positive");
+		}
+		this.recording = recording;
+		this.directory = directory;
+		this.format = format;
+		this.step = step;
+		this.threads = threads;
+	}
+
+	/**
+	 * Exports a recording.
+	 * @param args The recording file, the directory of the frames, and
+	 *             optionally the format (png or rgb), the step and the threads.
+	 * @throws IOException If the recording cannot be read or a frame cannot be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: ReplayExporter <recording> <directory> [png|rgb] [step] [threads]");
+			System.exit(2);
+		}
+		Format format = args.length > 2 ? Format.valueOf(args[2].toUpperCase(Locale.ROOT)) : Format.PNG;
+		int step = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+		Assets.init();
+		MatchRecording recording = MatchRecording.load(Paths.get(args[0]));
+		long start = System.nanoTime();
+		int frames = new ReplayExporter(recording, Paths.get(args[1]), format, step, threads).export();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double matchSeconds = (double) recording.getTicks() / GameClock.TICK_RATE;
+		System.out.printf("Exported %d frames in %.1f s: %.1f frames/s, %.1fx real time%n",
+				frames, seconds, frames / seconds, matchSeconds / seconds);
+	}
+
+	/**
+	 * Exports the frames, numbered from 0, the frame n being the state of
+	 * the match before simulating the tick n * step.
+	 * @return The number of frames.
+	 * @throws IOException If a frame cannot be written.
+	 */
+	public int export() throws IOException {
+		Files.createDirectories(directory);
+		int frames = (recording.getTicks() + step - 1) / step;
+		int ranges = Math.min(frames, threads * RANGES_PER_THREAD);
+
+		// The start of every range, simulated once
+		List<MatchSnapshot> snapshots = new ArrayList<>(ranges);
+		Match match = recording.newMatch();
+		for (int r = 0; r < ranges; r++) {
+			int tick = firstFrame(r, frames, ranges) * step;
+			simulate(match, tick);
+			MatchSnapshot snapshot = new MatchSnapshot();
+			snapshot.save(match, tick);
+			snapshots.add(snapshot);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>(ranges);
+			for (int r = 0; r < ranges; r++) {
+				MatchSnapshot snapshot = snapshots.get(r);
+				int first = firstFrame(r, frames, ranges), last = firstFrame(r + 1, frames, ranges);
+				futures.add(executor.submit(() -> {
+					render(snapshot, first, last);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Export interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Export failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return frames;
+	}
+
+	/**
+	 * Returns the first frame of a range, splitting the frames evenly.
+	 */
+	private static int firstFrame(int range, int frames, int ranges) {
+		return (int) ((long) range * frames / ranges);
+	}
+
+	/**
+	 * Simulates a match, pressing the recorded buttons, until a tick.
+	 */
+	private void simulate(Match match, long tick) {
+		while (match.getClock().getTick() < tick && !match.isFinished()) {
+			recording.apply(match);
+			match.tick();
+		}
+	}
+
+	/**
+	 * Renders a range of frames, from a snapshot of its first one.
+	 */
+	private void render(MatchSnapshot snapshot, int first, int last) throws IOException {
+		Match match = recording.newMatch();
+		snapshot.restore(match);
+		BufferedImage image = new BufferedImage(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		PngWriter png = format == Format.PNG ? new PngWriter() : null;
+		byte[] rgb = format == Format.RGB ? new byte[image.getWidth() * image.getHeight() * 3] : null;
+		try {
+			for (int frame = first; frame < last; frame++) {
+				simulate(match, (long) frame * step);
+				match.draw(g);
+				if (format == Format.PNG) {
+					png.write(image, directory.resolve(String.format("frame_%05d.png", frame)));
+				} else {
+					toRgb(image, rgb);
+					Files.write(directory.resolve(String.format("frame_%05d.rgb", frame)), rgb);
+				}
+			}
+		} finally {
+			g.dispose();
+			if (png != null) {
+				png.close();
+			}
+		}
+	}
+
+	/**
+	 * Copies the pixels of an image into RGB bytes.
+	 */
+	private static void toRgb(BufferedImage image, byte[] rgb) {
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		for (int i = 0, j = 0; i < pixels.length; i++, j += 3) {
+			int pixel = pixels[i];
+			rgb[j] = (byte) (pixel >> 16);
+			rgb[j + 1] = (byte) (pixel >> 8);
+			rgb[j + 2] = (byte) pixel;
+		}
+	}
+}
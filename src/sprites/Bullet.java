@@ -1,11 +1,16 @@
 package sprites;
 
+import arena.OccupancyGrid;
 import graphics.Assets;
+import events.EventBus;
+import jfr.CollisionEvent;
+import math.FixedPoint;
 import math.Vector2D;
 import states.Match;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Bullet class
@@ -74,7 +79,7 @@ public class Bullet extends MovingSprite {
 
 		this.rotation = player.tank.rotation;
 		this.originPosition = this.position;
-		this.texture = player.isPlayer1 ? Assets.bullet1Texture : Assets.bullet2Texture;
+		this.texture = Assets.getBulletTexture(player.getTeam());
 		this.width = texture.getWidth();
 		this.height = texture.getHeight();
 		this.hitBox = updateHitBox();
@@ -87,43 +92,105 @@ public class Bullet extends MovingSprite {
 	 * <p>
 	 * It has the following properties:
 	 * <p>
-	 * - enemyTank: the enemy tank
+	 * - enemyTank: the tank of another team it hits, found in the tank grid
+	 * of the match, the one of the lowest player if it hits several
 	 * @return true if the bullet is colliding with any object, false otherwise
 	 */
 	@Override
 	public boolean isColliding() {
-		Tank enemyTank = player.enemy.tank;
-		if (this.hitBox.intersects(enemyTank.hitBox)) {
-			if (!enemyTank.isInvincible()) {
-				enemyTank.health -= 15;
-			}
+		Match match = getMatch();
+		Tank enemyTank = match.getTankGrid().findHit(this.hitBox, player.getTeam());
+		if (enemyTank != null) {
+			int damage = enemyTank.isInvincible() ? 0 : 15;
+			enemyTank.health -= damage;
+			enemyTank.lastHitBy = player;
+			match.publishEvent(EventBus.HIT, player.getNumber(), damage, enemyTank.health);
+			recordCollision(CollisionEvent.TANK, damage);
 			return true;
 		}
-		for (Sprite object : Match.colliders) {
-			boolean collidesWithBlock = object instanceof Block && this.hitBox.intersects(object.hitBox);
-			boolean exitsPlayingArea = !this.hitBox.intersects(Match.playingArea.hitBox);
-			if (collidesWithBlock || exitsPlayingArea) {
-				return true;
-			}
+		// The blocks and the edges are checked in the occupancy grid, until the match clears its colliders
+		if (match.colliders.isEmpty()) {
+			return false;
+		}
+		OccupancyGrid occupancy = match.getOccupancy();
+		if (occupancy.isOutside(this.hitBox)) {
+			recordCollision(CollisionEvent.EDGE, 0);
+			return true;
+		}
+		if (occupancy.isSolid(this.hitBox)) {
+			recordCollision(CollisionEvent.BLOCK, 0);
+			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Returns the bounds of the bullet drawn, its texture rotated around the
+	 * middle of its top edge, at the position
+	 * @return the bounds, with a pixel of margin
+	 */
+	@Override
+	public Rectangle2D getDrawBounds() {
+		double radius = Math.hypot((double) width / 2, texture.getHeight()) + 1;
+		double pivotY = position.getY() - (double) texture.getHeight() / 2;
+		return new Rectangle2D.Double(position.getX() - radius, pivotY - radius, 2 * radius, 2 * radius);
+	}
+
+	/**
+	 * Records a collision for the flight recorder, if it is enabled
+	 * @param target what the bullet collided with, one of the targets of CollisionEvent
+	 * @param damage the damage done to the enemy tank
+	 */
+	private void recordCollision(String target, int damage) {
+		CollisionEvent event = new CollisionEvent();
+		if (event.shouldCommit()) {
+			event.player = player.getNumber();
+			event.target = target;
+			event.damage = damage;
+			event.x = (int) position.getX();
+			event.y = (int) position.getY();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the match of the player that fired the bullet
+	 * @return the match
+	 */
+	@Override
+	public Match getMatch() {
+		return player.match;
+	}
+
 	/**
 	 * Updates the bullet's position
 	 */
 	@Override
 	public void update() {
-		double distance = this.position.distance(this.originPosition, this.position);
-		if (distance < MAX_DISTANCE && !isColliding()) {
+		if (isInRange() && !isColliding()) {
 			this.position = move();
 			this.hitBox = updateHitBox();
 		}
 		else {
 			//this.position = moveBackwards(3);
 			this.active = false;
-			this.player.paintCells(this.position);
+			this.player.paintCells(this.position, this.rotation);
+		}
+	}
+
+	/**
+	 * Checks if the bullet has not traveled its maximum distance yet
+	 * @return true if it is closer than MAX_DISTANCE to where it was fired from
+	 */
+	private boolean isInRange() {
+		if (isFixedPoint()) {
+			long maxDistance = FixedPoint.toFixed(MAX_DISTANCE);
+			return FixedPoint.distanceSquared(
+					FixedPoint.toFixed(originPosition.getX()), FixedPoint.toFixed(originPosition.getY()),
+					FixedPoint.toFixed(position.getX()), FixedPoint.toFixed(position.getY())
+			) < maxDistance * maxDistance;
 		}
+		return this.position.distance(this.originPosition, this.position) < MAX_DISTANCE;
 	}
 
 	/**
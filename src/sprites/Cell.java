@@ -1,8 +1,9 @@
 package sprites;
 
+import arena.Arena;
+import events.EventBus;
 import graphics.Assets;
 import math.Vector2D;
-import states.Match;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
@@ -15,13 +16,49 @@ import java.awt.image.BufferedImage;
  * Extends from Sprite
  */
 public class Cell extends Sprite {
+	/**
+	 * OwnerListener interface
+	 * <p>
+	 * Interface that is notified when a cell changes of owner
+	 */
+	public interface OwnerListener {
+		/**
+		 * ownerChanged method
+		 *
+		 * @param index the index of the cell given to setOwnerListener
+		 * @param owner the new owner of the cell, a team or 0
+		 */
+		void ownerChanged(int index, int owner);
+	}
+
+	/**
+	 * The listener notified of the owner changes, null if there is none
+	 */
+	private OwnerListener ownerListener;
+	/**
+	 * The index of the cell given to the listener
+	 */
+	private int index;
+	/**
+	 * The team owning the cell, 0 if it is not painted
+	 */
+	private int owner;
+	/**
+	 * The generation of the arena the owner was set in
+	 */
+	private long generation;
+	/**
+	 * The arena of the cell, whose resets unpaint it, null if it is not in one
+	 */
+	private Arena arena;
+
 	/**
 	 * Cell constructor
 	 * <p>
 	 * Constructor of the class Cell
 	 *
 	 * @param position Vector2D position of the cell
-	 * @param texture  BufferedImage texture of the cell
+	 * @param texture  BufferedImage texture of the cell when it is not painted
 	 */
 	public Cell(Vector2D position, BufferedImage texture) {
 		super(position, texture);
@@ -37,38 +74,87 @@ public class Cell extends Sprite {
 	 * Method that sets the color of the cell
 	 * <p>
 	 * If the player is player1, the cell will be pink.
-	 * If the player is player2, the cell will be green.
+	 * If the player is player2, the cell will be green, and the other teams
+	 * have their own colors.
 	 *
 	 * @param player the player that owns the cell
-	 * @param enemy the enemy player
 	 */
-	public void setColor(Player player, Player enemy) {
-		if (player.isPlayer1) {
-			if (texture != Assets.cell1Texture) {
-				if (Player.offsetCounter < 0) {
-					Match.VSBarX++;
-					Player.offsetCounter = 4;
-				}
-				if (texture == Assets.cell2Texture) {
-					if (enemy.points > 0) enemy.points--;
-				}
-				player.points++;
-			}
-			texture = Assets.cell1Texture;
-		} else {
-			if (texture != Assets.cell2Texture) {
-				if (Player.offsetCounter < 0) {
-					Match.VSBarX--;
-					Player.offsetCounter = 4;
-				}
-				if (texture == Assets.cell1Texture) {
-					if (enemy.points > 0) enemy.points--;
-				}
-				player.points++;
-			}
-			texture = Assets.cell2Texture;
+	public void setColor(Player player) {
+		int oldOwner = getOwner();
+		player.match.scorePaint(player, oldOwner);
+		changeOwner(player.getTeam(), oldOwner);
+		if (player.getTeam() != oldOwner) {
+			player.match.publishEvent(EventBus.CELL_PAINTED, player.getNumber(), index, oldOwner);
 		}
-		Player.offsetCounter--;
+	}
+
+	/**
+	 * getOwner method
+	 * <p>
+	 * Method that returns which player owns the cell, in the current
+	 * generation of its arena
+	 *
+	 * @return the team owning it, 0 if it is not painted
+	 */
+	public int getOwner() {
+		long current = arena != null ? arena.getGeneration() : 0;
+		return generation == current ? owner : 0;
+	}
+
+	/**
+	 * setOwner method
+	 * <p>
+	 * Method that paints the cell for the given owner, without scoring
+	 * (used for mirroring a match played somewhere else)
+	 *
+	 * @param owner the team owning it, 0 if it is not painted
+	 */
+	public void setOwner(int owner) {
+		changeOwner(owner, getOwner());
+	}
+
+	/**
+	 * changeOwner method
+	 * <p>
+	 * Method that sets the owner in the current generation of the arena and
+	 * notifies the listener if it has changed
+	 *
+	 * @param owner the new owner
+	 * @param oldOwner the owner before the change
+	 */
+	private void changeOwner(int owner, int oldOwner) {
+		this.owner = owner;
+		this.generation = arena != null ? arena.getGeneration() : 0;
+		if (ownerListener != null && owner != oldOwner) {
+			ownerListener.ownerChanged(index, owner);
+		}
+	}
+
+	/**
+	 * setOwnerListener method
+	 * <p>
+	 * Method that sets the listener notified when the cell changes of owner
+	 *
+	 * @param index the index of the cell given to the listener
+	 * @param listener the listener, null for none
+	 */
+	public void setOwnerListener(int index, OwnerListener listener) {
+		this.index = index;
+		this.ownerListener = listener;
+	}
+
+	/**
+	 * setArena method
+	 * <p>
+	 * Method that puts the cell in an arena, which is notified when the cell
+	 * changes of owner and whose resets unpaint it
+	 *
+	 * @param arena the arena
+	 * @param index the index of the cell given to the arena
+	 */
+	public void setArena(Arena arena, int index) {
+		this.arena = arena;
+		setOwnerListener(index, arena);
 	}
 
 	@Override
@@ -81,6 +167,8 @@ public class Cell extends Sprite {
 	@Override
 	public void draw(Graphics g) {
 		Graphics2D g2d = (Graphics2D) g;
-		g2d.drawImage(this.texture, (int) this.position.getX(), (int) this.hitBox.getY(), null);
+		int owner = getOwner();
+		BufferedImage ownerTexture = owner == 0 ? this.texture : Assets.getCellTexture(owner);
+		g2d.drawImage(ownerTexture, (int) this.position.getX(), (int) this.hitBox.getY(), null);
 	}
 }
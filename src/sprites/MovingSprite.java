@@ -3,6 +3,7 @@ package sprites;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 
+import math.FixedPoint;
 import math.Vector2D;
 import states.Match;
 
@@ -63,6 +64,15 @@ public abstract class MovingSprite extends Sprite {
 	 * @return the position of the front of the sprite
 	 */
 	public Vector2D getFrontPosition(double angle) {
+		if (isFixedPoint()) {
+			int step = FixedPoint.toAngle(angle);
+			int halfWidth = FixedPoint.toFixed((double) this.texture.getWidth() / 2);
+			int halfHeight = FixedPoint.toFixed((double) this.texture.getHeight() / 2);
+			int x = FixedPoint.toFixed(this.position.getX()) + halfWidth + FixedPoint.mul(halfWidth, FixedPoint.cos(step));
+			int y = FixedPoint.toFixed(this.position.getY()) + halfHeight + FixedPoint.mul(halfHeight, FixedPoint.sin(step));
+			return new Vector2D(FixedPoint.toDouble(x), FixedPoint.toDouble(y));
+		}
+
 		AffineTransform rotatedPos = AffineTransform.getTranslateInstance(
 				this.position.getX() + (double)this.texture.getWidth() / 2,
 				this.position.getY() + (double)this.texture.getHeight() / 2
@@ -101,31 +111,123 @@ public abstract class MovingSprite extends Sprite {
 	}
 
 	/**
-	 * isColliding checks if the sprite is colliding with any other sprites
-	 * from the 'Match.colliders' static list.
-	 * @return true at the first collision, false otherwise
+	 * getMatch returns the match the sprite is in.
+	 * @return the match, null if it is not in any match
+	 */
+	public abstract Match getMatch();
+
+	/**
+	 * isFixedPoint returns whether the sprite moves with the deterministic
+	 * fixed-point physics of its match.
+	 * @return true if its match uses fixed-point physics, false otherwise
+	 */
+	protected boolean isFixedPoint() {
+		Match match = getMatch();
+		return match != null && match.isFixedPointPhysics();
+	}
+
+	/**
+	 * isColliding checks if the sprite is colliding with the blocks, the edges
+	 * of the playing area, or any other moving sprite from the colliders list
+	 * of its match. The blocks and the playing area are checked in the
+	 * occupancy grid of the match, and the tanks near the sprite in its tank
+	 * grid, with rectangles.
+	 * @return true if it collides, false otherwise
 	 */
 	public boolean isColliding() {
+		// Nothing collides anymore once the match has finished and cleared its colliders
+		Match match = getMatch();
+		if (match.colliders.isEmpty()) {
+			return false;
+		}
+
 		// We get the front bound of the tank
 		Rectangle2D frontBound = this.getFrontBounds();
 
-		// Then, we check every object of the colliders list from Match class
-		// We also check that it IS colliding with the playing area (if it stops
-		// colliding, it means it's getting out of it, so we must stop the tank
-		for (Sprite g : Match.colliders) {
-			if (frontBound.intersects(g.hitBox) && this != g ||
-					!frontBound.intersects(Match.playingArea.hitBox)) {
-				isMovingForward = !isMovingForward;
-				return true;
-			}
+		// We check that it IS colliding with the playing area (if it stops
+		// colliding, it means it's getting out of it, so we must stop the tank)
+		boolean colliding = match.getOccupancy().isBlocked(frontBound)
+				|| match.getTankGrid().intersectsOther(frontBound, this);
+		if (colliding) {
+			isMovingForward = !isMovingForward;
+		}
+		return colliding;
+	}
+
+	/**
+	 * getRotation returns the rotation of the sprite.
+	 * @return the rotation, in radians
+	 */
+	public double getRotation() {
+		return rotation;
+	}
+
+	/**
+	 * setRotation sets the rotation of the sprite.
+	 * @param rotation the rotation, in radians
+	 */
+	public void setRotation(double rotation) {
+		this.rotation = rotation;
+	}
+
+	/**
+	 * rotate rotates the sprite. With fixed-point physics, the rotation is
+	 * rounded to the nearest angle step.
+	 * @param angle the angle to add to the rotation, in radians
+	 */
+	public void rotate(double angle) {
+		if (isFixedPoint()) {
+			this.rotation = FixedPoint.toRadians(FixedPoint.toAngle(this.rotation) + FixedPoint.toAngle(angle));
+		} else {
+			this.rotation += angle;
 		}
-		return false;
+	}
+
+	/**
+	 * getMaxVel returns the maximum velocity of the sprite.
+	 * @return the maximum velocity
+	 */
+	public double getMaxVel() {
+		return maxVel;
+	}
+
+	/**
+	 * setMaxVel sets the maximum velocity of the sprite.
+	 * @param maxVel the maximum velocity
+	 */
+	public void setMaxVel(double maxVel) {
+		this.maxVel = maxVel;
+	}
+
+	/**
+	 * isMovingForward returns whether the sprite is moving forward or backwards.
+	 * @return true if it is moving forward, false otherwise
+	 */
+	public boolean isMovingForward() {
+		return isMovingForward;
+	}
+
+	/**
+	 * setMovingForward sets whether the sprite is moving forward or backwards.
+	 * @param movingForward true if it is moving forward, false otherwise
+	 */
+	public void setMovingForward(boolean movingForward) {
+		this.isMovingForward = movingForward;
 	}
 
 	/**
 	 * accelerate increases the velocity of the sprite, up to the maximum velocity.
 	 */
 	public void accelerate() {
+		if (isFixedPoint()) {
+			int velocity = FixedPoint.toFixed(this.velocity);
+			int maxVel = FixedPoint.toFixed(this.maxVel);
+			if (velocity < maxVel) {
+				velocity += FixedPoint.toFixed(this.acceleration * 0.35f);
+			}
+			this.velocity = FixedPoint.toDouble(Math.min(velocity, maxVel));
+			return;
+		}
 		if (this.velocity < this.maxVel) {
 			this.velocity += this.acceleration * 0.35f;
 		}
@@ -140,6 +242,14 @@ public abstract class MovingSprite extends Sprite {
 	public void decelerate() { decelerate(0.5f);}
 
 	public void decelerate(float multiplier) {
+		if (isFixedPoint()) {
+			int velocity = FixedPoint.toFixed(this.velocity);
+			if (velocity > 0) {
+				velocity -= FixedPoint.toFixed(this.acceleration * multiplier);
+			}
+			this.velocity = FixedPoint.toDouble(Math.max(velocity, 0));
+			return;
+		}
 		if (this.velocity > 0) {
 			this.velocity -= this.acceleration * multiplier;
 		}
@@ -155,6 +265,17 @@ public abstract class MovingSprite extends Sprite {
 	public Vector2D move() {
 		int direction = isMovingForward ? 1 : -1;
 
+		if (isFixedPoint()) {
+			int step = FixedPoint.toAngle(this.rotation);
+			int velocity = FixedPoint.toFixed(this.velocity);
+			int x = FixedPoint.toFixed(this.position.getX()) + direction * FixedPoint.mul(FixedPoint.cos(step), velocity);
+			int y = FixedPoint.toFixed(this.position.getY()) + direction * FixedPoint.mul(FixedPoint.sin(step), velocity);
+
+			this.hitBox = updateHitBox();
+
+			return new Vector2D(FixedPoint.toDouble(x), FixedPoint.toDouble(y));
+		}
+
 		double x = this.position.getX() + direction * Math.cos(this.rotation) * this.velocity;
 		double y = this.position.getY() + direction * Math.sin(this.rotation) * this.velocity;
 
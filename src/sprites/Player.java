@@ -10,6 +10,12 @@ import com.google.gson.annotations.Expose;
 import graphics.Assets;
 import input.KeyBoard;
 import main.Game1;
+import arena.Arena;
+import arena.ChunkedTerritory;
+import arena.OwnerPlanes;
+import arena.SplatStencil;
+import events.EventBus;
+import jfr.PaintEvent;
 import math.Vector2D;
 import states.Match;
 
@@ -19,9 +25,19 @@ import states.Match;
  * <p>
  * The player can move the tank, shoot and restart the game.
  * <p>
+ * A match has from 2 to MAX_PLAYERS players, numbered from 1, in teams
+ * numbered from 1. In a free-for-all match every player is its own team.
+ * The cells are painted for the team, and the bullets hit the tanks of the
+ * other teams.
+ * <p>
  * It is serializable.
  */
 public class Player implements Serializable {
+	/**
+	 * The most players of a match, and of teams.
+	 */
+	public static final int MAX_PLAYERS = 16;
+
 	/**
 	 * The name of the player.
 	 */
@@ -31,6 +47,14 @@ public class Player implements Serializable {
 	 * Boolean that indicates if the player is player 1 or not.
 	 */
 	public boolean isPlayer1;
+	/**
+	 * The number of the player in its match, from 1.
+	 */
+	private int number;
+	/**
+	 * The team of the player, whose number is the owner of the cells it paints.
+	 */
+	private int team;
 	/**
 	 * The points of the player during the match.
 	 */
@@ -52,7 +76,8 @@ public class Player implements Serializable {
 	@Expose
 	public int matchesLost;
 	/**
-	 * The enemy of the player.
+	 * The enemy of the player, the other player of a two players match,
+	 * or a player of another team (e.g. the one a bot aims at).
 	 */
 	public Player enemy;
 	/**
@@ -68,9 +93,9 @@ public class Player implements Serializable {
 	 */
 	public KeyBoard keyBoard;
 	/**
-	 * The counter that controls the offset of the VS Bar in the match instance.
+	 * The match the player is playing, null until it starts.
 	 */
-	public static int offsetCounter;
+	public Match match;
 	/**
 	 * The counter that controls the shooting rate of the tank.
 	 */
@@ -84,28 +109,93 @@ public class Player implements Serializable {
 	 * @param isPlayer1 Boolean that indicates if the player is player 1 or not.
 	 */
 	public Player(String name, boolean isPlayer1) {
+		this(name, isPlayer1 ? 1 : 2, isPlayer1 ? 1 : 2);
+	}
+
+	/**
+	 * The constructor of the class, for matches of more than two players.
+	 * It initializes the name, the tank, the bullets and the keyBoard of the player.
+	 *
+	 * @param name   The name of the player.
+	 * @param number The number of the player, from 1 to MAX_PLAYERS.
+	 * @param team   The team of the player, from 1 to MAX_PLAYERS.
+	 */
+	public Player(String name, int number, int team) {
+		if (number < 1 || number > MAX_PLAYERS || team < 1 || team > MAX_PLAYERS) {
+			throw new IllegalArgumentException("The player and its team must be from 1 to " + MAX_PLAYERS
+					+ ": " + number + ", " + team);
+		}
 		this.name = name;
-		this.isPlayer1 = isPlayer1;
+		this.number = number;
+		this.team = team;
+		this.isPlayer1 = number == 1;
 		this.tank = new Tank(this);
 		this.bullets = new ArrayList<>();
 
 		// We assign the keyBoard to the player depending on whether it is player 1 or 2
-		this.keyBoard = isPlayer1 ?
-				new KeyBoard(
-						KeyEvent.VK_W,
-						KeyEvent.VK_S,
-						KeyEvent.VK_A,
-						KeyEvent.VK_D,
-						KeyEvent.VK_SPACE,
-						KeyEvent.VK_SHIFT
-				) :
-				new KeyBoard(KeyEvent.VK_UP,
-						KeyEvent.VK_DOWN,
-						KeyEvent.VK_LEFT,
-						KeyEvent.VK_RIGHT,
-						KeyEvent.VK_ENTER,
-						KeyEvent.VK_CONTROL
-				);
+		if (number == 1) {
+			this.keyBoard = new KeyBoard(
+					KeyEvent.VK_W,
+					KeyEvent.VK_S,
+					KeyEvent.VK_A,
+					KeyEvent.VK_D,
+					KeyEvent.VK_SPACE,
+					KeyEvent.VK_SHIFT
+			);
+		} else if (number == 2) {
+			this.keyBoard = new KeyBoard(KeyEvent.VK_UP,
+					KeyEvent.VK_DOWN,
+					KeyEvent.VK_LEFT,
+					KeyEvent.VK_RIGHT,
+					KeyEvent.VK_ENTER,
+					KeyEvent.VK_CONTROL
+			);
+		} else {
+			// No key of the keyboard: the other players are bots or remote
+			this.keyBoard = new KeyBoard(-1, -2, -3, -4, -5, -6);
+		}
+	}
+
+	/**
+	 * Constructor used for the persisted players data.
+	 * It only initializes the name, without tank, bullets nor keyBoard.
+	 *
+	 * @param name The name of the player.
+	 */
+	public Player(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * getShootingCoolDown method returns the frames until the tank can shoot again.
+	 * @return The shooting cool down.
+	 */
+	public int getShootingCoolDown() {
+		return shootingCoolDown;
+	}
+
+	/**
+	 * setShootingCoolDown method sets the frames until the tank can shoot again.
+	 * @param shootingCoolDown The shooting cool down.
+	 */
+	public void setShootingCoolDown(int shootingCoolDown) {
+		this.shootingCoolDown = shootingCoolDown;
+	}
+
+	/**
+	 * getNumber method returns the number of the player.
+	 * @return 1 for player 1, 2 for player 2, and so on.
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * getTeam method returns the team of the player, the owner of the cells it paints.
+	 * @return The team, the number of the player in a free-for-all match.
+	 */
+	public int getTeam() {
+		return team;
 	}
 
 	/**
@@ -114,18 +204,18 @@ public class Player implements Serializable {
 	public void moveTank() {
 		// Directional keys
 		final double DELTA_ANGLE = 0.055;
-		if (KeyBoard.isKeyDown(keyBoard.leftKey)) { tank.rotation -= DELTA_ANGLE; }
-		else if (KeyBoard.isKeyDown(keyBoard.rightKey)) { tank.rotation += DELTA_ANGLE; }
+		if (keyBoard.isPressed(keyBoard.leftKey)) { tank.rotate(-DELTA_ANGLE); }
+		else if (keyBoard.isPressed(keyBoard.rightKey)) { tank.rotate(DELTA_ANGLE); }
 
 		// Boost key
-		tank.maxVel = KeyBoard.isKeyDown(keyBoard.boostKey) ?
+		tank.maxVel = keyBoard.isPressed(keyBoard.boostKey) ?
 				tank.BOOST_VEL : tank.STD_VEL;
 
 		// Movement keys
-		if (KeyBoard.isKeyDown(keyBoard.upKey)) {
+		if (keyBoard.isPressed(keyBoard.upKey)) {
 			tank.accelerate();
 			tank.isMovingForward = true;
-		} else if (KeyBoard.isKeyDown(keyBoard.downKey)) {
+		} else if (keyBoard.isPressed(keyBoard.downKey)) {
 			tank.accelerate();
 			tank.isMovingForward = false;
 		} else {
@@ -140,7 +230,7 @@ public class Player implements Serializable {
 
 		tank.position = tank.move();
 		// Shoot key
-		if (KeyBoard.isKeyDown(keyBoard.shootKey)) { shoot(); }
+		if (keyBoard.isPressed(keyBoard.shootKey)) { shoot(); }
 
 	}
 
@@ -151,6 +241,8 @@ public class Player implements Serializable {
 		if (shootingCoolDown < 0) {
 			Bullet bullet = new Bullet(this);
 			bullets.add(bullet);
+			match.publishEvent(EventBus.SHOT, getNumber(),
+					(int) bullet.position.getX(), (int) bullet.position.getY());
 			shootingCoolDown = 8; // 8 frames between each bullet
 		}
 	}
@@ -176,84 +268,109 @@ public class Player implements Serializable {
 
 	/**
 	 * update method checks the health of the tank, and gives the half of the
-	 * points to the enemy if the tank is dead, then it respawns the tank.
+	 * points to the player that killed it if the tank is dead (the enemy if
+	 * it is not known), then it respawns the tank.
 	 * <p>
 	 * It also moves the tank and the bullets of the player.
 	 */
 	public void update() {
 		if (this.tank.health <= 0) {
-			enemy.points += this.points / 2;
+			Player killer = tank.lastHitBy != null ? tank.lastHitBy : enemy;
+			int lostPoints = this.points - this.points / 2;
+			killer.points += this.points / 2;
 			this.points /= 2;
+			match.publishEvent(EventBus.DEATH, getNumber(), lostPoints, killer.points);
 			this.tank.restart();
 		}
+		keyBoard.update();
 		moveTank();
+		match.getTankGrid().update(tank);
 		moveBullets();
 	}
 
 	/**
-	 * paintCells method paints the cells of the grid where the bullet falls.
+	 * paintCells method paints the cells of the grid where the bullet falls,
+	 * with the splat stencil of the match, as if it moved to the right.
 	 * @param dropPosition The position where the bullet falls.
 	 */
 	public void paintCells(Vector2D dropPosition) {
-		Vector2D[] area = getPaintingArea(dropPosition);
-
-		// We check where the bullet falls and paint the cells accordingly with a 1 cells radius
-		for (int i = (int) area[0].getX(); i <= (int) area[1].getX(); i++) {
-			for (int j = (int) area[0].getY(); j <= (int) area[1].getY(); j++) {
-				Match.cellsGrid[i][j].setColor(this, this.enemy);
-			}
-		}
+		paintCells(dropPosition, 0);
 	}
 
 	/**
-	 * getEpicenter method returns the epicenter of the explosion.
+	 * paintCells method paints the cells of the grid where the bullet falls,
+	 * with the splat stencil of the match. The stencil is painted in the
+	 * owner planes of the match at once and scored in bulk, then the cells
+	 * changed are painted.
 	 * @param dropPosition The position where the bullet falls.
-	 * @return The epicenter of the explosion.
+	 * @param angle The angle the bullet moved in, which cones open towards.
 	 */
-	public Vector2D getEpicenter(Vector2D dropPosition) {
-		// We check how far the bullet is from the edges
-		int x = (int) dropPosition.getX();
-		int y = (int) dropPosition.getY();
+	public void paintCells(Vector2D dropPosition, double angle) {
+		PaintEvent event = new PaintEvent();
+		event.begin();
+		Vector2D epicenter = getEpicenter(dropPosition);
+		int column = (int) epicenter.getX(), row = (int) epicenter.getY();
+		SplatStencil splat = match.getSplat();
+		OwnerPlanes planes = match.getOwnerPlanes();
+		planes.paint(splat, splat.direction(angle), column, row, team);
+		match.scoreSplat(this);
 
-		if (x < Match.cellsGrid[0][0].position.getX()) { x = (int) Match.cellsGrid[0][0].position.getX(); }
-		else if (x > Match.cellsGrid[Match.cellsGrid.length - 1][0].position.getX()) {
-			x = (int) Match.cellsGrid[Match.cellsGrid.length - 1][0].position.getX() + 1;
+		// A large arena paints its territory instead of the cells grid
+		ChunkedTerritory territory = match.getTerritory();
+		int rows = planes.getRows();
+		for (int k = 0; k < planes.getChanged(); k++) {
+			int index = planes.getChangedCell(k);
+			if (territory != null) {
+				territory.setOwner(index / rows, index % rows, team);
+				match.territoryChanged(index, team);
+			} else {
+				match.cellsGrid[index / rows][index % rows].setOwner(team);
+			}
+			match.publishEvent(EventBus.CELL_PAINTED, getNumber(), index, planes.getChangedOldOwner(k));
 		}
 
-		// We go through the array of cells to store the index of the first and last cell
-		for (int i = 0; i < Match.cellsGrid.length; i++) {
-			for (int j = 0; j < Match.cellsGrid[i].length; j++) {
-				if (Match.cellsGrid[i][j].hitBox.contains(x, y)) {
-					return new Vector2D(i, j);
-				}
-			}
+		event.end();
+		if (event.shouldCommit()) {
+			event.player = getNumber();
+			event.column = column;
+			event.row = row;
+			event.cellsPainted = planes.getPainted();
+			event.cellsChanged = planes.getChanged();
+			event.commit();
 		}
-		return new Vector2D(x, y);
 	}
 
 	/**
-	 * getPaintingArea method returns the area where the bullet will paint.
+	 * getEpicenter method returns the epicenter of the explosion, the cell
+	 * the bullet falls in, computed from the position.
 	 * @param dropPosition The position where the bullet falls.
-	 * @return The area where the bullet will paint.
+	 * @return The column and row of the epicenter, or the position itself if
+	 * the bullet falls above or below the grid, so no cell is painted.
 	 */
+	public Vector2D getEpicenter(Vector2D dropPosition) {
+		ChunkedTerritory territory = match.getTerritory();
+		if (territory != null) {
+			return new Vector2D(territory.columnAt(dropPosition.getX()), territory.rowAt(dropPosition.getY()));
+		}
 
-	public Vector2D[] getPaintingArea(Vector2D dropPosition) {
-		Vector2D[] area = new Vector2D[2];
-		Vector2D epicenter = getEpicenter(dropPosition);
-		int radius = 1;
-
-		int firstX, firstY, lastX, lastY;
-
-		firstX = Math.max((int)epicenter.getX() - radius, 0);
-		lastX = Math.min((int)epicenter.getX() + radius, Match.cellsGrid.length - 1);
-
-		firstY = Math.max((int)epicenter.getY() - radius, 0);
-		lastY = Math.min((int)epicenter.getY() + radius, Match.cellsGrid[0].length - 1);
-
-		area[0] = new Vector2D(firstX, firstY);
-		area[1] = new Vector2D(lastX, lastY);
+		// We keep the bullet inside the columns of the grid
+		int size = ChunkedTerritory.CELL_SIZE;
+		int x = Math.max(Arena.GRID_X, Math.min((int) dropPosition.getX(), Arena.GRID_X + (Match.COLUMNS - 1) * size + 1));
+		int y = (int) dropPosition.getY();
+		int row = cellAt(y - Arena.GRID_Y);
+		if (row < 0 || row >= Match.ROWS) {
+			return new Vector2D(x, y);
+		}
+		return new Vector2D(cellAt(x - Arena.GRID_X), row);
+	}
 
-		return area;
+	/**
+	 * Returns the column or row of the cell at an offset from the first one,
+	 * -1 before it. The cells are a pixel bigger than the grid, so the pixel
+	 * two cells share belongs to the first one.
+	 */
+	private static int cellAt(int offset) {
+		return offset > 0 ? (offset - 1) / ChunkedTerritory.CELL_SIZE : offset == 0 ? 0 : -1;
 	}
 
 	/**
@@ -263,18 +380,52 @@ public class Player implements Serializable {
 	 * @param g The graphics object.
 	 */
 	public void draw(Graphics g) {
+		drawSprites(g);
+		drawInfo(g);
+	}
+
+	/**
+	 * drawSprites method draws the tank and the bullets of the player.
+	 * @param g The graphics object, in the coordinates of the arena.
+	 */
+	public void drawSprites(Graphics g) {
 		tank.draw(g);
 		for (Bullet bullet : bullets) {
 			bullet.draw(g);
 		}
+	}
 
+	/**
+	 * drawInfo method draws the name, points and record of the player.
+	 * @param g The graphics object, in the coordinates of the screen.
+	 */
+	public void drawInfo(Graphics g) {
 		FontMetrics fm = g.getFontMetrics(Assets.font2);
-		String playerInfo = this.name + " | Points: " + this.points + " | Record:" + this.record;
-		int x = isPlayer1 ? 10 : Game1.SCREEN_WIDTH - fm.stringWidth(playerInfo) - 30;
+		String playerInfo = getInfo();
+		int x = getInfoX(fm, playerInfo);
 		int y = fm.getHeight() + 10;
 		g.setFont(Assets.font2);
 		g.setColor(Color.WHITE);
 
 		g.drawString(playerInfo, x, y);
 	}
+
+	/**
+	 * getInfo method returns the name, points and record of the player, as drawInfo draws them.
+	 * @return The information.
+	 */
+	public String getInfo() {
+		return this.name + " | Points: " + this.points + " | Record:" + this.record;
+	}
+
+	/**
+	 * getInfoX method returns where drawInfo draws the information of the
+	 * player, on the left for player 1 and on the right for player 2.
+	 * @param fm The metrics of the font of the information.
+	 * @param info The information.
+	 * @return The x of the information.
+	 */
+	public int getInfoX(FontMetrics fm, String info) {
+		return isPlayer1 ? 10 : Game1.SCREEN_WIDTH - fm.stringWidth(info) - 30;
+	}
 }
\ No newline at end of file
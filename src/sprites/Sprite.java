@@ -82,6 +82,16 @@ public abstract class Sprite {
 		);
 	}
 
+	/**
+	 * getDrawBounds returns the bounds of the pixels draw paints, with a
+	 * pixel of margin, for redrawing only the parts of the screen that change.
+	 * @return the bounds, in the coordinates the sprite is drawn in
+	 */
+	public Rectangle2D getDrawBounds() {
+		return new Rectangle2D.Double(this.position.getX() - 1, this.hitBox.getY() - 1,
+				this.texture.getWidth() + 2, this.texture.getHeight() + 2);
+	}
+
 	/**
 	 * draw draws the sprite.
 	 * @param g the Graphics object
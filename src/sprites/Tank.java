@@ -3,10 +3,12 @@ package sprites;
 import main.Game1;
 import math.Vector2D;
 import graphics.Assets;
+import states.GameClock;
+import states.Match;
 
 import java.awt.*;
 import java.awt.geom.AffineTransform;
-import java.time.LocalTime;
+import java.awt.geom.Rectangle2D;
 
 /**
  * Tank class
@@ -34,15 +36,34 @@ public class Tank extends MovingSprite {
 	 * Spawn Y position (same for both players)
 	 */
 	private final int SPAWN_Y = (Game1.SCREEN_HEIGHT / 2);
+	/**
+	 * Spawn positions of the centers of the tanks of the players after the
+	 * first two, away from the blocks, facing the middle of the arena
+	 */
+	private static final int[][] SPAWNS = {
+			{ 640, 290 }, { 1300, 870 }, { 1200, 290 }, { 640, 870 }, { 1000, 543 }, { 280, 290 }, { 1640, 870 },
+			{ 1640, 290 }, { 280, 870 }, { 640, 543 }, { 1300, 543 }, { 820, 420 }, { 1150, 690 }, { 1540, 420 }
+	};
 	/**
 	 * Health of the tank
 	 */
 	public int health = 100;
-	public LocalTime invincibleTimeEnd;
+	/**
+	 * Seconds the tank is invincible after respawning
+	 */
+	private final int INVINCIBLE_SECONDS = 5;
+	/**
+	 * Tick of the game clock the invincibility ends at
+	 */
+	public long invincibleEndTick;
 	/**
 	 * Player that owns the tank
 	 */
 	public Player player;
+	/**
+	 * Player whose bullet hit the tank last, null if none did since it respawned
+	 */
+	public Player lastHitBy;
 
 	/**
 	 * Constructor method
@@ -62,24 +83,65 @@ public class Tank extends MovingSprite {
 	 * Restarts the tank
 	 */
 	public void restart() {
+		texture = Assets.getTankTexture(player.getTeam());
 		if (player.isPlayer1) {
 			position.setX(SPAWN_X1);
 			rotation = 0;
-			texture = Assets.tank1Texture;
-		} else {
+			position.setY(SPAWN_Y);
+		} else if (player.getNumber() == 2) {
 			position.setX(SPAWN_X2);
 			rotation = Math.toRadians(180);
-			texture = Assets.tank2Texture;
+			position.setY(SPAWN_Y);
+		} else {
+			int[] spawn = SPAWNS[player.getNumber() - 3];
+			position.setX(spawn[0]);
+			position.setY(spawn[1] - (double) texture.getHeight() / 2);
+			rotation = StrictMath.atan2(Game1.SCREEN_HEIGHT / 2 - spawn[1], Game1.SCREEN_WIDTH / 2 - spawn[0]);
 		}
 		position.setX(position.getX() - (double) texture.getWidth() / 2);
-		position.setY(SPAWN_Y);
+		lastHitBy = null;
 		health = 100;
 		this.hitBox = updateHitBox();
-		invincibleTimeEnd = LocalTime.now().plusSeconds(5);
+		invincibleEndTick = getTick() + GameClock.toTicks(INVINCIBLE_SECONDS);
+	}
+
+	/**
+	 * Returns the bounds of the tank drawn, its texture rotated around its center
+	 * @return the bounds, with a pixel of margin
+	 */
+	@Override
+	public Rectangle2D getDrawBounds() {
+		double halfWidth = (double) texture.getWidth() / 2, halfHeight = (double) texture.getHeight() / 2;
+		double cos = Math.abs(Math.cos(rotation)), sin = Math.abs(Math.sin(rotation));
+		double extentX = halfWidth * cos + halfHeight * sin + 1, extentY = halfWidth * sin + halfHeight * cos + 1;
+		return new Rectangle2D.Double(position.getX() + halfWidth - extentX, position.getY() + halfHeight - extentY,
+				2 * extentX, 2 * extentY);
 	}
 
+	/**
+	 * Returns whether the tank is invincible
+	 * @return true if the invincibility has not ended yet
+	 */
 	public boolean isInvincible() {
-		return invincibleTimeEnd.isAfter(LocalTime.now());
+		return getTick() < invincibleEndTick;
+	}
+
+	/**
+	 * Returns the current tick of the match
+	 * @return the tick, 0 before the match starts
+	 */
+	private long getTick() {
+		Match match = getMatch();
+		return match != null ? match.getClock().getTick() : 0;
+	}
+
+	/**
+	 * Returns the match of the player that owns the tank
+	 * @return the match
+	 */
+	@Override
+	public Match getMatch() {
+		return player.match;
 	}
 
 	/**
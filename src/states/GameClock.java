@@ -0,0 +1,131 @@
+package states;
+
+/**
+ * GameClock class
+ * <p>
+ *     The time of a match, counted in ticks instead of read from the wall
+ *     clock, so a match simulated again gives the same result however fast
+ *     it runs. Timers are kept as the tick they end at.
+ * </p>
+ * <p>
+ *     The clock also decides how many ticks are simulated per frame: none
+ *     while paused, and more or less than one when the time scale is changed,
+ *     e.g. for fast-forwarding a replay.
+ * </p>
+ */
+public class GameClock {
+	/**
+	 * Ticks per second of game time
+	 */
+	public static final int TICK_RATE = 60;
+	/**
+	 * Ticks simulated since the start of the match
+	 */
+	private long tick;
+	/**
+	 * Whether the clock is paused
+	 */
+	private boolean paused;
+	/**
+	 * Ticks simulated per frame
+	 */
+	private double timeScale = 1;
+	/**
+	 * Fraction of a tick carried over to the next frame, for time scales that
+	 * are not whole numbers
+	 */
+	private double pendingTicks;
+
+	/**
+	 * Converts seconds of game time to ticks
+	 * @param seconds The seconds
+	 * @return The ticks
+	 */
+	public static long toTicks(double seconds) {
+		return Math.round(seconds * TICK_RATE);
+	}
+
+	/**
+	 * Converts ticks to whole seconds of game time, rounding down
+	 * @param ticks The ticks
+	 * @return The seconds
+	 */
+	public static int toSeconds(long ticks) {
+		return (int) Math.floorDiv(ticks, TICK_RATE);
+	}
+
+	/**
+	 * Returns the number of ticks to simulate in a frame, according to the
+	 * pause and the time scale
+	 * @return The ticks, 0 while paused
+	 */
+	public int frame() {
+		if (paused) {
+			return 0;
+		}
+		pendingTicks += timeScale;
+		int ticks = (int) pendingTicks;
+		pendingTicks -= ticks;
+		return ticks;
+	}
+
+	/**
+	 * Advances the clock one tick, after simulating it
+	 */
+	public void advance() {
+		tick++;
+	}
+
+	/**
+	 * Returns the current tick
+	 * @return The ticks simulated since the start of the match
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Sets the current tick (used for restoring a saved state)
+	 * @param tick The tick
+	 */
+	public void setTick(long tick) {
+		this.tick = tick;
+	}
+
+	/**
+	 * Returns whether the clock is paused
+	 * @return true if it is paused, false otherwise
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Pauses or resumes the clock
+	 * @param paused true for pausing it, false for resuming it
+	 */
+	public void setPaused(boolean paused) {
+		this.paused = paused;
+	}
+
+	/**
+	 * Returns the ticks simulated per frame
+	 * @return The time scale
+	 */
+	public double getTimeScale() {
+		return timeScale;
+	}
+
+	/**
+	 * Sets the ticks simulated per frame, e.g. 0.5 for slow motion or 100 for
+	 * fast-forwarding
+	 * @param timeScale The time scale, not negative
+	 */
+	public void setTimeScale(double timeScale) {
+		if (timeScale < 0) {
+			throw new IllegalArgumentException("Negative time scale: " + timeScale);
+		}
+		this.timeScale = timeScale;
+		pendingTicks = 0;
+	}
+}
@@ -19,4 +19,13 @@ public interface IGameState {
 	 * @param g Graphics object
 	 */
 	void draw(Graphics g);
+	/**
+	 * drawChanges method is used to draw the state over a frame it drew
+	 * before, redrawing only what changed since; it draws it whole by default
+	 * @param g Graphics object, holding the frame drawn age frames ago
+	 * @param age 1 if it holds the last frame drawn, 2 if it holds the one before
+	 */
+	default void drawChanges(Graphics g, int age) {
+		draw(g);
+	}
 }
@@ -68,7 +68,6 @@ public class MainMenu implements IGameState, KeyListener {
 	 */
 	public MainMenu(Game1 game) {
 		this.game = game;
-		game.addKeyListener(this);
 		initialize();
 	}
 
@@ -200,6 +199,10 @@ public class MainMenu implements IGameState, KeyListener {
 		} else if (!player2Ready) {
 			player2Ready = game.player2Name.length() > 0 &&
 					!game.player2Name.equals(game.player1Name);
+			if (player2Ready) {
+				// The arena is built while the tutorial is shown
+				game.prewarmArena();
+			}
 		}
 		else game.statusEnum = Game1.status.MATCH;
 	}
@@ -337,7 +340,7 @@ public class MainMenu implements IGameState, KeyListener {
 				(int) boardPos.getY(),
 				null);
 
-		String[][] playersData = game.playersManagement.getPlayersDataColumns(Game1.playersMap);
+		String[][] playersData = game.playersManagement.getPlayersDataColumns();
 		int baseY = (int) boardPos.getY() + 100;
 		int lineHeight = 30;  // Define the line height as needed.
 
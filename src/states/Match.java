@@ -1,18 +1,35 @@
 package states;
 
+import arena.Arena;
+import arena.Camera;
+import arena.ChunkedTerritory;
+import arena.CoverageIndex;
+import arena.OccupancyGrid;
+import arena.OwnerPlanes;
+import arena.SplatStencil;
+import arena.TankGrid;
 import input.KeyBoard;
 import main.Game1;
+import main.PlayersManagement;
+import math.Vector2D;
 import sprites.*;
 import graphics.Assets;
-import math.Vector2D;
+import graphics.DirtyTiles;
+import events.EventBus;
+import jfr.MatchEndEvent;
+import jfr.MatchStartEvent;
+import net.TerritoryFeed;
+import replay.MatchRecording;
+import telemetry.TelemetryRecorder;
 
 import java.awt.*;
+import java.awt.geom.Rectangle2D;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.time.Duration;
-import java.time.LocalTime;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.StringJoiner;
 
 /**
  * Match state class
@@ -20,12 +37,23 @@ import java.util.Arrays;
  *     This class is responsible for the match state of the game.
  *     It implements the IGameState interface.
  * </p>
+ * <p>
+ *     A match has two players, or up to Player.MAX_PLAYERS in free-for-all
+ *     or in teams. The cells are owned by the teams, and the points a team
+ *     loses when its cells are taken are lost by its player with the most
+ *     points. The recordings, snapshots and network games are of two
+ *     players only.
+ * </p>
  */
 public class Match implements IGameState, KeyListener {
 	/**
-	 * The game instance
+	 * The game instance, null if the match is not played in a window
 	 */
 	private final Game1 game;
+	/**
+	 * Used for recording the results, null if they are not recorded
+	 */
+	private final PlayersManagement playersManagement;
 	/**
 	 * The first player
 	 */
@@ -34,30 +62,164 @@ public class Match implements IGameState, KeyListener {
 	 * The second player
 	 */
 	private final Player player2;
+	/**
+	 * All the players, by number from 1
+	 */
+	private final Player[] players;
+	/**
+	 * The players of every team, by team from 1
+	 */
+	private final Player[][] teams;
+	/**
+	 * The number of teams that have players
+	 */
+	private final int teamCount;
+	/**
+	 * The arena the match is played in, reset when it is created
+	 */
+	private final Arena arena;
 	/**
 	 * The blocks array
 	 */
 	private final Block[] blocks;
 	/**
-	 * The end time of the match
+	 * The change-feed of the owners of the cells
+	 */
+	private final TerritoryFeed territoryFeed = new TerritoryFeed();
+	/**
+	 * The gameplay events, for the consumers that subscribe to them
+	 */
+	private final EventBus events = new EventBus();
+	/**
+	 * The recorder of the telemetry of the match, null if it is not recorded
+	 */
+	private TelemetryRecorder telemetry;
+	/**
+	 * The recording of the inputs of the match, null if it is not recorded
+	 */
+	private MatchRecording recording;
+	/**
+	 * The flight recorder event of the end of the match, begun when it starts
+	 */
+	private final MatchEndEvent endEvent = new MatchEndEvent();
+	/**
+	 * The duration of a match, in seconds
+	 */
+	public static final int MATCH_SECONDS = 90;
+	/**
+	 * The game clock of the match
+	 */
+	private final GameClock clock = new GameClock();
+	/**
+	 * The tick the match ends at
 	 */
-	private LocalTime endTime;
+	private long endTick;
+	/**
+	 * Whether the match has finished
+	 */
+	private boolean finished;
+	/**
+	 * Whether the sprites move with the deterministic fixed-point physics
+	 */
+	private boolean fixedPointPhysics;
+	/**
+	 * The stencil of the cells a bullet paints where it falls
+	 */
+	private SplatStencil splat = SplatStencil.DEFAULT;
+	/**
+	 * The owners of the cells as bit planes, for painting the splats
+	 */
+	private final OwnerPlanes ownerPlanes;
+	/**
+	 * The counts of the cells owned in any rectangle, built the first time
+	 * it is asked for, null until then
+	 */
+	private CoverageIndex coverage;
 	/**
 	 * The VS bar x position
 	 */
-	public static int VSBarX;
+	public int VSBarX;
+	/**
+	 * The counter that controls the offset of the VS Bar
+	 */
+	public int offsetCounter;
 	/**
 	 * The playing area block
 	 */
-	public static Block playingArea = new Block(new Vector2D(0, 0));
+	public final Block playingArea;
 	/**
 	 * The colliders array
 	 */
-	public static ArrayList<Sprite> colliders = new ArrayList<>();
+	public final ArrayList<Sprite> colliders = new ArrayList<>();
+	/**
+	 * The colliders that move, the tanks, which are checked with rectangles
+	 * instead of the occupancy grid
+	 */
+	private final Sprite[] movingColliders;
 	/**
-	 * The cells grid
+	 * The tanks by the buckets of the arena they are in, for checking the
+	 * bullets and the tanks against the tanks near them only
 	 */
-	public static Cell[][] cellsGrid = new Cell[57][29];
+	private final TankGrid tankGrid;
+	/**
+	 * The number of columns and rows of the cells grid
+	 */
+	public static final int COLUMNS = 57, ROWS = 29;
+	/**
+	 * Color around the cells of a large arena, which has no background image
+	 */
+	private static final Color BACKGROUND_COLOR = new Color(0x1B1B2F);
+	/**
+	 * The whole screen, the region of a frame drawn whole
+	 */
+	private static final Rectangle SCREEN = new Rectangle(0, 0, Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT);
+	/**
+	 * The cells grid, null in a large arena
+	 */
+	public final Cell[][] cellsGrid;
+	/**
+	 * The territory of a large arena, painted instead of the cells grid, null
+	 * in the classic arena
+	 */
+	private final ChunkedTerritory territory;
+	/**
+	 * The camera following the tanks in a large arena, null in the classic arena
+	 */
+	private final Camera camera;
+	/**
+	 * The blocks and the playing area baked into pixels, for checking the
+	 * sprites against them without rectangle tests
+	 */
+	private final OccupancyGrid occupancy;
+	/**
+	 * The parts of the screen changed since the last frame drawn: the cells
+	 * painted, the sprites moved, the VS bar and the texts of the HUD
+	 */
+	private final DirtyTiles changes = new DirtyTiles(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT);
+	/**
+	 * The parts of the screen changed for the last frame drawn, which a
+	 * frame drawn two frames ago also misses
+	 */
+	private final DirtyTiles lastChanges = new DirtyTiles(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT);
+	/**
+	 * The parts of the screen redrawn in the last frame
+	 */
+	private final DirtyTiles repainted = new DirtyTiles(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT);
+	/**
+	 * The bounds of the tanks and bullets drawn in the last frame, which are
+	 * redrawn in the next one wherever they are
+	 */
+	private final ArrayList<Rectangle2D> drawnSprites = new ArrayList<>();
+	/**
+	 * The x of the VS bar drawn in the last frame
+	 */
+	private int drawnVSBarX;
+	/**
+	 * The texts of the HUD drawn in the last frame, and where they were drawn
+	 */
+	private final String[] hudTexts;
+	private final int[] hudX, hudY;
+	private int hudCount;
 
 	/**
 	 * Match constructor
@@ -66,28 +228,172 @@ public class Match implements IGameState, KeyListener {
 	 * @param p2 The second player
 	 */
 	public Match(Game1 game, Player p1, Player p2) {
+		this(game, game.playersManagement, new Player[] { p1, p2 }, new Arena());
+	}
+
+	/**
+	 * Match constructor, for a large arena whose territory is bigger than
+	 * the screen and is shown by a camera following the tanks
+	 * @param game The game instance
+	 * @param p1 The first player
+	 * @param p2 The second player
+	 * @param columns The columns of cells of the arena
+	 * @param rows The rows of cells of the arena
+	 */
+	public Match(Game1 game, Player p1, Player p2, int columns, int rows) {
+		this(game, game.playersManagement, new Player[] { p1, p2 }, new Arena(columns, rows));
+	}
+
+	/**
+	 * Match constructor, in an arena reused from a previous match (e.g. from an ArenaPool)
+	 * @param game The game instance
+	 * @param p1 The first player
+	 * @param p2 The second player
+	 * @param arena The arena, which must not be used by another match
+	 */
+	public Match(Game1 game, Player p1, Player p2, Arena arena) {
+		this(game, game.playersManagement, new Player[] { p1, p2 }, arena);
+	}
+
+	/**
+	 * Match constructor, for a match of more than two players, in an arena
+	 * reused from a previous match
+	 * @param game The game instance
+	 * @param players The players, numbered from 1 in order, in free-for-all or in teams
+	 * @param arena The arena, which must not be used by another match
+	 */
+	public Match(Game1 game, Player[] players, Arena arena) {
+		this(game, game.playersManagement, players, arena);
+	}
+
+	/**
+	 * Match constructor, for matches not played in a window (e.g. on a server)
+	 * @param playersManagement Used for recording the results, null if they are not recorded
+	 * @param p1 The first player
+	 * @param p2 The second player
+	 */
+	public Match(PlayersManagement playersManagement, Player p1, Player p2) {
+		this(null, playersManagement, new Player[] { p1, p2 }, new Arena());
+	}
+
+	/**
+	 * Match constructor, not played in a window, in an arena reused from a previous match
+	 * @param playersManagement Used for recording the results, null if they are not recorded
+	 * @param p1 The first player
+	 * @param p2 The second player
+	 * @param arena The arena, which must not be used by another match
+	 */
+	public Match(PlayersManagement playersManagement, Player p1, Player p2, Arena arena) {
+		this(null, playersManagement, new Player[] { p1, p2 }, arena);
+	}
+
+	/**
+	 * Match constructor, for a match of more than two players not played in a window
+	 * @param playersManagement Used for recording the results, null if they are not recorded
+	 * @param players The players, numbered from 1 in order, in free-for-all or in teams
+	 * @param arena The arena, which must not be used by another match
+	 */
+	public Match(PlayersManagement playersManagement, Player[] players, Arena arena) {
+		this(null, playersManagement, players, arena);
+	}
+
+	/**
+	 * Match constructor, for a large arena not played in a window
+	 * @param playersManagement Used for recording the results, null if they are not recorded
+	 * @param p1 The first player
+	 * @param p2 The second player
+	 * @param columns The columns of cells of the arena
+	 * @param rows The rows of cells of the arena
+	 */
+	public Match(PlayersManagement playersManagement, Player p1, Player p2, int columns, int rows) {
+		this(null, playersManagement, new Player[] { p1, p2 }, new Arena(columns, rows));
+	}
+
+	/**
+	 * Match constructor
+	 * @param game The game instance, null if the match is not played in a window
+	 * @param playersManagement Used for recording the results, null if they are not recorded
+	 * @param players The players, numbered from 1 in order
+	 * @param arena The arena, reset for the match
+	 */
+	private Match(Game1 game, PlayersManagement playersManagement, Player[] players, Arena arena) {
+		if (players.length < 2 || players.length > Player.MAX_PLAYERS) {
+			throw new IllegalArgumentException("A match has from 2 to " + Player.MAX_PLAYERS + " players: "
+					+ players.length);
+		}
 		this.game = game;
-		this.player1 = p1;
-		this.player2 = p2;
-		this.blocks = new Block[] {
-				new Block(new Vector2D(458, 407)),
-				new Block(new Vector2D(933, 189)),
-				new Block(new Vector2D(879, 866)),
-				new Block(new Vector2D(1392, 757))
-		};
-		colliders.add(player1.tank);
-		colliders.add(player2.tank);
-		colliders.addAll(Arrays.asList(blocks));
-		playingArea.hitBox.setRect(200, 215, 1530, 746);
-		for (int i = 0; i < cellsGrid.length; i++) {
-			for (int j = 0; j < cellsGrid[i].length; j++) {
-				cellsGrid[i][j] = new Cell(
-						new Vector2D(193 + i * 27, 189 + j * 27),
-						Assets.cell0Texture
-				);
+		this.playersManagement = playersManagement;
+		this.players = players.clone();
+		this.player1 = players[0];
+		this.player2 = players[1];
+		int lastTeam = 0;
+		for (int i = 0; i < players.length; i++) {
+			if (players[i].getNumber() != i + 1) {
+				throw new IllegalArgumentException("The players must be numbered from 1 in order: " + players[i].name);
 			}
+			players[i].match = this;
+			lastTeam = Math.max(lastTeam, players[i].getTeam());
 		}
+		this.teams = new Player[lastTeam + 1][];
+		int teamCount = 0;
+		for (int team = 1; team <= lastTeam; team++) {
+			int t = team;
+			teams[team] = Arrays.stream(players).filter(p -> p.getTeam() == t).toArray(Player[]::new);
+			teamCount += teams[team].length > 0 ? 1 : 0;
+		}
+		this.teamCount = teamCount;
+		this.arena = arena;
+		arena.reset();
+		this.blocks = arena.getBlocks();
+		this.playingArea = arena.getPlayingArea();
+		this.cellsGrid = arena.getCells();
+		this.territory = arena.getTerritory();
+		// Two planes at least, as the classic players are teams 1 and 2
+		int owners = Math.max(2, lastTeam);
+		this.ownerPlanes = territory != null
+				? new OwnerPlanes(territory.getColumns(), territory.getRows(), owners)
+				: new OwnerPlanes(COLUMNS, ROWS, owners);
+		arena.setOwnerListener((index, owner) -> {
+			if (territory == null) {
+				cellChanged(index);
+			}
+			ownerPlanes.ownerChanged(index, owner);
+			territoryFeed.ownerChanged(index, owner);
+			if (coverage != null) {
+				coverage.ownerChanged(index, owner);
+			}
+		});
+		this.occupancy = arena.getOccupancy();
+		Tank[] tanks = Arrays.stream(players).map(p -> p.tank).toArray(Tank[]::new);
+		this.movingColliders = tanks;
+		this.tankGrid = new TankGrid(occupancy.getWidth(), occupancy.getHeight(), tanks);
+		colliders.addAll(Arrays.asList(movingColliders));
+		colliders.addAll(Arrays.asList(blocks));
+		if (territory != null) {
+			// The screen keeps the margins it has in the classic arena
+			camera = new Camera(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, new Rectangle(0, 0,
+					Math.max(Game1.SCREEN_WIDTH, Game1.SCREEN_WIDTH + territory.getWidth() - (COLUMNS * 27 + 1)),
+					Math.max(Game1.SCREEN_HEIGHT, Game1.SCREEN_HEIGHT + territory.getHeight() - (ROWS * 27 + 1))));
+		} else {
+			camera = null;
+		}
+		// The texts of the players, or of the scoreboard, the timer and the pause
+		hudTexts = new String[players.length + 2];
+		hudX = new int[hudTexts.length];
+		hudY = new int[hudTexts.length];
+		// The first frame is drawn whole, whatever the screen held before
+		changes.addAll();
+		lastChanges.addAll();
 		initialize();
+
+		MatchStartEvent startEvent = new MatchStartEvent();
+		if (startEvent.shouldCommit()) {
+			startEvent.players = getPlayerNames();
+			startEvent.teams = teamCount;
+			startEvent.recorded = playersManagement != null;
+			startEvent.commit();
+		}
+		endEvent.begin();
 	}
 
 	/**
@@ -96,80 +402,899 @@ public class Match implements IGameState, KeyListener {
 	@Override
 	public void initialize() {
 		VSBarX = -Assets.VSBarTexture.getWidth() / 4;
-		endTime = LocalTime.now().plusSeconds(90);
+		endTick = clock.getTick() + GameClock.toTicks(MATCH_SECONDS);
 	}
 
 	/**
-	 * Match updater
+	 * Match updater, called once per frame. It simulates as many ticks as the
+	 * game clock says: none while paused, and more than one when fast-forwarding.
 	 */
 	public void update() {
-		boolean timeOut = LocalTime.now().isAfter(endTime);
-		if (KeyBoard.isKeyDown(KeyEvent.VK_ESCAPE) || timeOut) {
-			game.playersManagement.updatePlayersData(player1, player2);
-			colliders.clear();
-			game.playersManagement.savePlayersToJson(Game1.playersMap);
+		if (KeyBoard.isKeyDown(KeyEvent.VK_ESCAPE)) {
+			finish();
+		}
+		for (int ticks = clock.frame(); ticks > 0 && !finished; ticks--) {
+			tick();
+		}
+	}
+
+	/**
+	 * Simulates a single tick of the match, finishing it when the time is over
+	 */
+	public void tick() {
+		if (finished) {
+			return;
+		}
+		if (clock.getTick() >= endTick) {
+			finish();
+		}
+
+		// The tanks may have been moved between the ticks, e.g. by a snapshot
+		tankGrid.updateAll();
+		for (Player player : players) {
+			player.update();
+		}
+		if (recording != null) {
+			recording.record(this);
+		}
+		if (telemetry != null) {
+			telemetry.sample();
+		}
+		clock.advance();
+	}
+
+	/**
+	 * Simulates ticks as fast as possible, e.g. for a replay or a batch simulation
+	 * @param ticks The ticks to simulate
+	 * @return The ticks simulated, fewer if the match finished
+	 */
+	public long fastForward(long ticks) {
+		long simulated = 0;
+		while (simulated < ticks && !finished) {
+			tick();
+			simulated++;
+		}
+		return simulated;
+	}
+
+	/**
+	 * Finishes the match, recording the results and going back to the menu
+	 */
+	public void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		int winner = getWinningTeam(), best = Integer.MIN_VALUE;
+		for (int team = 1; team < teams.length; team++) {
+			if (teams[team].length > 0) {
+				int points = getTeamPoints(team);
+				best = Math.max(best, points);
+				publishEvent(EventBus.TEAM_POINTS, team, points, teams[team].length);
+			}
+		}
+		publishEvent(EventBus.MATCH_END, winner, best, teamCount);
+		if (telemetry != null) {
+			telemetry.end();
+		}
+		endEvent.end();
+		if (endEvent.shouldCommit()) {
+			endEvent.players = getPlayerNames();
+			StringJoiner points = new StringJoiner(", ");
+			for (int team = 1; team < teams.length; team++) {
+				if (teams[team].length > 0) {
+					points.add(team + ": " + getTeamPoints(team));
+				}
+			}
+			endEvent.points = points.toString();
+			endEvent.winner = winner;
+			endEvent.ticks = clock.getTick();
+			endEvent.commit();
+		}
+
+		if (playersManagement != null) {
+			playersManagement.updatePlayersData(players);
+			playersManagement.savePlayers();
+		}
+		colliders.clear();
+		if (game != null) {
 			game.statusEnum = Game1.status.MENU;
 		}
+	}
+
+	/**
+	 * Returns the names of the players, in order, separated by commas
+	 */
+	private String getPlayerNames() {
+		StringJoiner names = new StringJoiner(", ");
+		for (Player player : players) {
+			names.add(player.name);
+		}
+		return names.toString();
+	}
+
+	/**
+	 * Returns whether the match has finished
+	 * @return true if the match has finished, false otherwise
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Sets whether the match has finished (used for restoring a saved state).
+	 * Unlike finish, it does not record the results nor publish the end of
+	 * the match, which cannot be undone.
+	 * @param finished Whether the match has finished
+	 */
+	public void setFinished(boolean finished) {
+		// A finished match clears its colliders, which it needs for going on
+		if (!finished && colliders.isEmpty()) {
+			colliders.addAll(Arrays.asList(movingColliders));
+			colliders.addAll(Arrays.asList(blocks));
+		} else if (finished) {
+			colliders.clear();
+		}
+		this.finished = finished;
+	}
+
+	/**
+	 * Returns whether the sprites move with the deterministic fixed-point physics
+	 * @return true if the match uses fixed-point physics, false otherwise
+	 */
+	public boolean isFixedPointPhysics() {
+		return fixedPointPhysics;
+	}
+
+	/**
+	 * Sets whether the sprites move with fixed-point physics, which gives the
+	 * same result on every JVM (e.g. for lockstep networking or replays).
+	 * It must be set before the first tick.
+	 * @param fixedPointPhysics true for fixed-point physics, false for the default one
+	 */
+	public void setFixedPointPhysics(boolean fixedPointPhysics) {
+		this.fixedPointPhysics = fixedPointPhysics;
+	}
+
+	/**
+	 * Returns the stencil of the cells a bullet paints where it falls
+	 * @return The stencil, the 3x3 square by default
+	 */
+	public SplatStencil getSplat() {
+		return splat;
+	}
+
+	/**
+	 * Sets the stencil of the cells a bullet paints where it falls. It must
+	 * be set before the first tick.
+	 * @param splat The stencil, precomputed
+	 */
+	public void setSplat(SplatStencil splat) {
+		this.splat = splat;
+	}
+
+	/**
+	 * Returns the owners of the cells as bit planes, which follow the cells
+	 * grid, or the territory of a large arena
+	 * @return The owner planes
+	 */
+	public OwnerPlanes getOwnerPlanes() {
+		return ownerPlanes;
+	}
+
+	/**
+	 * Returns a hash of the simulated state, which can be compared tick by tick
+	 * between two runs of the same match for finding where they diverge
+	 * @return The state hash
+	 */
+	public long getStateHash() {
+		long hash = 0xcbf29ce484222325L;
+		hash = mixHash(hash, clock.getTick());
+		hash = mixHash(hash, VSBarX);
+		hash = mixHash(hash, offsetCounter);
+		for (Player player : players) {
+			Tank tank = player.tank;
+			hash = mixHash(hash, Double.doubleToLongBits(tank.position.getX()));
+			hash = mixHash(hash, Double.doubleToLongBits(tank.position.getY()));
+			hash = mixHash(hash, Double.doubleToLongBits(tank.getRotation()));
+			hash = mixHash(hash, Double.doubleToLongBits(tank.velocity));
+			hash = mixHash(hash, tank.health);
+			hash = mixHash(hash, tank.invincibleEndTick);
+			hash = mixHash(hash, player.points);
+			hash = mixHash(hash, player.bullets.size());
+			for (Bullet bullet : player.bullets) {
+				hash = mixHash(hash, Double.doubleToLongBits(bullet.position.getX()));
+				hash = mixHash(hash, Double.doubleToLongBits(bullet.position.getY()));
+			}
+		}
+		if (territory != null) {
+			hash = mixHash(hash, territory.getChecksum());
+		}
+		return mixHash(hash, Arrays.hashCode(territoryFeed.getOwners()));
+	}
+
+	/**
+	 * Mixes a value into a FNV-1a style hash
+	 */
+	private static long mixHash(long hash, long value) {
+		return (hash ^ value) * 0x100000001b3L;
+	}
+
+	/**
+	 * Returns the counts of the cells owned in any rectangle of cells, of
+	 * the cells grid or the territory of a large arena. It is built from the
+	 * owner planes the first time, in one pass over the cells, then kept up
+	 * to date with every change of owner
+	 * @return The coverage index
+	 */
+	public CoverageIndex getCoverage() {
+		if (coverage == null) {
+			coverage = new CoverageIndex(ownerPlanes.getColumns(), ownerPlanes.getRows(), ownerPlanes.getOwners());
+			coverage.copyFrom(ownerPlanes);
+		}
+		return coverage;
+	}
+
+	/**
+	 * Returns the fraction of the cells a team owns under an area of the
+	 * arena, e.g. a quadrant or around a block
+	 * @param owner The team, 0 for the cells not painted
+	 * @param area The area, in pixels
+	 * @return The fraction of the cells it overlaps, from 0 to 1
+	 */
+	public double getCoverage(int owner, Rectangle2D area) {
+		int size = ChunkedTerritory.CELL_SIZE;
+		return getCoverage().coverage(owner,
+				(int) Math.floor((area.getMinX() - Arena.GRID_X) / size),
+				(int) Math.floor((area.getMinY() - Arena.GRID_Y) / size),
+				(int) Math.ceil((area.getMaxX() - Arena.GRID_X) / size) - 1,
+				(int) Math.ceil((area.getMaxY() - Arena.GRID_Y) / size) - 1);
+	}
+
+	/**
+	 * Notifies the owner change of a cell of the territory of a large arena,
+	 * which has no cells to notify it
+	 * @param index The cell, column * rows + row
+	 * @param owner The new owner: the team, 0 if it is not painted
+	 */
+	public void territoryChanged(int index, int owner) {
+		if (coverage != null) {
+			coverage.ownerChanged(index, owner);
+		}
+	}
+
+	/**
+	 * Reloads the owners of the cells of a large arena after its territory
+	 * was restored at once, e.g. from a snapshot
+	 */
+	public void territoryRestored() {
+		ownerPlanes.copyFrom(territory);
+		if (coverage != null) {
+			coverage.copyFrom(ownerPlanes);
+		}
+	}
+
+	/**
+	 * Returns the territory of a large arena, which is painted instead of the cells grid
+	 * @return The territory, null in the classic arena
+	 */
+	public ChunkedTerritory getTerritory() {
+		return territory;
+	}
+
+	/**
+	 * Returns the camera of a large arena
+	 * @return The camera, null in the classic arena
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+
+	/**
+	 * Returns the arena the match is played in
+	 * @return The arena
+	 */
+	public Arena getArena() {
+		return arena;
+	}
+
+	/**
+	 * Returns the static geometry of the arena, baked when the arena is created:
+	 * the blocks are solid and the playing area is open
+	 * @return The occupancy grid
+	 */
+	public OccupancyGrid getOccupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * Returns the colliders that move, which are not in the occupancy grid
+	 * @return The tanks of the players
+	 */
+	public Sprite[] getMovingColliders() {
+		return movingColliders;
+	}
+
+	/**
+	 * Returns the tanks by the buckets of the arena they are in
+	 * @return The tank grid
+	 */
+	public TankGrid getTankGrid() {
+		return tankGrid;
+	}
+
+	/**
+	 * Returns the game clock of the match
+	 * @return The game clock
+	 */
+	public GameClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Returns the tick the match ends at
+	 * @return The end tick
+	 */
+	public long getEndTick() {
+		return endTick;
+	}
+
+	/**
+	 * Sets the tick the match ends at (used for restoring a saved state)
+	 * @param endTick The end tick
+	 */
+	public void setEndTick(long endTick) {
+		this.endTick = endTick;
+	}
+
+	/**
+	 * Returns the first player
+	 * @return The first player
+	 */
+	public Player getPlayer1() {
+		return player1;
+	}
+
+	/**
+	 * Returns the second player
+	 * @return The second player
+	 */
+	public Player getPlayer2() {
+		return player2;
+	}
+
+	/**
+	 * Returns all the players
+	 * @return The players, by number from 1
+	 */
+	public Player[] getPlayers() {
+		return players.clone();
+	}
+
+	/**
+	 * Returns the number of players
+	 * @return The number of players, from 2 to Player.MAX_PLAYERS
+	 */
+	public int getPlayerCount() {
+		return players.length;
+	}
+
+	/**
+	 * Returns a player, without copying the players
+	 * @param index The index of the player, from 0 to getPlayerCount() - 1
+	 * @return The player numbered index + 1
+	 */
+	public Player getPlayer(int index) {
+		return players[index];
+	}
+
+	/**
+	 * Returns the points of a team, the sum of the points of its players
+	 * @param team The team
+	 * @return The points, 0 if the team has no players
+	 */
+	public int getTeamPoints(int team) {
+		int points = 0;
+		for (Player player : team < teams.length ? teams[team] : new Player[0]) {
+			points += player.points;
+		}
+		return points;
+	}
+
+	/**
+	 * Returns the team with the most points
+	 * @return The team, 0 if several teams have the most points
+	 */
+	public int getWinningTeam() {
+		int winner = 0, best = Integer.MIN_VALUE;
+		for (int team = 1; team < teams.length; team++) {
+			if (teams[team].length == 0) {
+				continue;
+			}
+			int points = getTeamPoints(team);
+			if (points > best) {
+				winner = team;
+				best = points;
+			} else if (points == best) {
+				winner = 0;
+			}
+		}
+		return winner;
+	}
+
+	/**
+	 * Returns the gameplay events of the match, which consumers on any
+	 * thread can subscribe to
+	 * @return The event bus
+	 */
+	public EventBus getEvents() {
+		return events;
+	}
+
+	/**
+	 * Returns the recorder of the telemetry of the match
+	 * @return The recorder, null if the telemetry is not recorded
+	 */
+	public TelemetryRecorder getTelemetry() {
+		return telemetry;
+	}
+
+	/**
+	 * Sets the recorder of the telemetry of the match, which samples every tick
+	 * from now on and is ended with the match
+	 * @param telemetry The recorder, null for not recording it
+	 * @throws IllegalStateException If the match has more than two players
+	 */
+	public void setTelemetry(TelemetryRecorder telemetry) {
+		if (telemetry != null && players.length > 2) {
+			throw new IllegalStateException("Only the telemetry of two players is recorded");
+		}
+		this.telemetry = telemetry;
+	}
+
+	/**
+	 * Returns the recording of the inputs of the match
+	 * @return The recording, null if the match is not recorded
+	 */
+	public MatchRecording getRecording() {
+		return recording;
+	}
+
+	/**
+	 * Sets the recording of the inputs of the match, which records the
+	 * buttons of both players every tick from now on. It must be set before
+	 * the first tick for the match to be replayed.
+	 * @param recording The recording, null for not recording it
+	 * @throws IllegalStateException If the match has more than two players
+	 */
+	public void setRecording(MatchRecording recording) {
+		if (recording != null && players.length > 2) {
+			throw new IllegalStateException("Only the matches of two players are recorded");
+		}
+		this.recording = recording;
+	}
+
+	/**
+	 * Scores a cell painted by a player: the player wins a point if it was
+	 * not its team's cell, and the team that owned it loses one. The VS bar
+	 * moves away from team 1 every few cells won, towards the other teams
+	 * @param player The player that painted the cell
+	 * @param oldOwner The team that owned the cell before, 0 for none
+	 */
+	public void scorePaint(Player player, int oldOwner) {
+		if (oldOwner != player.getTeam()) {
+			if (offsetCounter < 0) {
+				VSBarX += player.getTeam() == 1 ? 1 : -1;
+				offsetCounter = 4;
+			}
+			if (oldOwner != 0) {
+				losePoint(oldOwner);
+			}
+			player.points++;
+		}
+		offsetCounter--;
+	}
+
+	/**
+	 * Takes a point from a team that lost a cell, from its player with the
+	 * most points (the first one if several have them), if it has points
+	 * @param team The team
+	 */
+	private void losePoint(int team) {
+		if (team >= teams.length) {
+			return;
+		}
+		Player loser = null;
+		for (Player player : teams[team]) {
+			if (loser == null || player.points > loser.points) {
+				loser = player;
+			}
+		}
+		if (loser != null && loser.points > 0) {
+			loser.points--;
+		}
+	}
+
+	/**
+	 * Scores the splat last painted in the owner planes by a player at once,
+	 * as scorePaint would score its cells one by one in the order they are
+	 * painted: the points from the cells changed and taken from the other
+	 * teams, and the VS bar from the positions of the cells changed, as it moves at
+	 * the first cell changed while offsetCounter is negative, which sets it
+	 * back to 3 for the next cell
+	 * @param player The player that painted the splat
+	 */
+	public void scoreSplat(Player player) {
+		OwnerPlanes planes = ownerPlanes;
+		int painted = planes.getPainted();
+		int next = Math.max(0, offsetCounter + 1), lastMove = -1;
+		for (int k = 0; k < planes.getChanged(); k++) {
+			int position = planes.getChangedPosition(k);
+			if (position >= next) {
+				VSBarX += player.getTeam() == 1 ? 1 : -1;
+				lastMove = position;
+				next = position + 5;
+			}
+		}
+		offsetCounter = lastMove >= 0 ? lastMove + 4 - painted : offsetCounter - painted;
+		if (planes.getStolen() > 0) {
+			for (int k = 0; k < planes.getChanged(); k++) {
+				if (planes.getChangedOldOwner(k) != 0) {
+					losePoint(planes.getChangedOldOwner(k));
+				}
+			}
+		}
+		player.points += planes.getChanged();
+	}
+
+	/**
+	 * Publishes a gameplay event at the current tick
+	 * @param type The type, one of the constants of EventBus
+	 * @param player The player: 1 for player 1, 2 for player 2, 0 for none
+	 * @param a The first value, depending on the type
+	 * @param b The second value, depending on the type
+	 */
+	public void publishEvent(int type, int player, int a, int b) {
+		events.publish((int) clock.getTick(), type, player, a, b);
+	}
+
+	/**
+	 * Returns the change-feed of the owners of the cells
+	 * @return The territory feed
+	 */
+	public TerritoryFeed getTerritoryFeed() {
+		return territoryFeed;
+	}
+
+	/**
+	 * Returns the remaining seconds of the match
+	 * @return The remaining seconds, 0 if the time is over
+	 */
+	public int getRemainingSeconds() {
+		return Math.max(0, GameClock.toSeconds(endTick - clock.getTick()));
+	}
 
-		this.player1.update();
-		this.player2.update();
+	/**
+	 * Sets the remaining seconds of the match (used for mirroring a match
+	 * played somewhere else)
+	 * @param seconds The remaining seconds
+	 */
+	public void setRemainingSeconds(int seconds) {
+		endTick = clock.getTick() + GameClock.toTicks(seconds);
 	}
 
 	/**
 	 * Method that returns the remaining time
 	 */
 	private int[] getRemainingTime() {
-		long totalSeconds = Duration.between(LocalTime.now(), endTime).getSeconds();
+		int totalSeconds = getRemainingSeconds();
 		int[] remainingTime = new int[2];
-		remainingTime[0] = (int) totalSeconds / 60;
-		remainingTime[1] = (int) totalSeconds % 60;
+		remainingTime[0] = totalSeconds / 60;
+		remainingTime[1] = totalSeconds % 60;
 		return remainingTime;
 	}
 
 	/**
-	 * Timer drawer
+	 * Match drawer, drawing the whole frame
 	 * @param g The graphics instance
 	 */
-	private void drawTimer(Graphics g) {
+	public void draw(Graphics g) {
+		trackChanges(g);
+		changes.clear();
+		lastChanges.addAll();
+		repainted.addAll();
+		if (territory != null) {
+			drawLargeArena((Graphics2D) g);
+			return;
+		}
+		drawScene(g, SCREEN);
+	}
+
+	/**
+	 * Match drawer, redrawing only the parts of the screen that changed since
+	 * the frame the graphics holds: the cells painted, the sprites, the VS bar
+	 * and the texts of the HUD that changed. Each part is redrawn whole, the
+	 * background and every layer over it clipped to the part, so the frame
+	 * is the same as a frame drawn whole. A large arena, whose camera moves,
+	 * is drawn whole, as is a frame where most of the screen changed
+	 * @param g The graphics instance, holding the frame drawn age frames ago
+	 * @param age 1 if it holds the last frame, 2 if it holds the one before
+	 */
+	@Override
+	public void drawChanges(Graphics g, int age) {
+		if (territory != null || age < 1 || age > 2) {
+			draw(g);
+			return;
+		}
+		trackChanges(g);
+		repainted.clear();
+		repainted.add(changes);
+		if (age == 2) {
+			repainted.add(lastChanges);
+		}
+		lastChanges.clear();
+		lastChanges.add(changes);
+		changes.clear();
+		if (repainted.getArea() * 2 > Game1.SCREEN_WIDTH * Game1.SCREEN_HEIGHT) {
+			repainted.addAll();
+			drawScene(g, SCREEN);
+			return;
+		}
+		Shape clip = g.getClip();
+		for (int i = 0, regions = repainted.merge(); i < regions; i++) {
+			Rectangle region = repainted.getRegion(i);
+			g.setClip(clip);
+			g.clipRect(region.x, region.y, region.width, region.height);
+			drawScene(g, region);
+		}
+		g.setClip(clip);
+	}
+
+	/**
+	 * Returns the pixels redrawn in the last frame, the whole screen when it
+	 * was drawn whole
+	 * @return The pixels
+	 */
+	public int getRepaintedArea() {
+		return repainted.getArea();
+	}
+
+	/**
+	 * Draws the part of the classic arena in a region of the screen, in the
+	 * order of the layers: the background, the cells, the blocks, the VS bar,
+	 * the sprites and the HUD. Only the cells and blocks that may overlap the
+	 * region are drawn, the graphics being clipped to it
+	 * @param g The graphics instance
+	 * @param region The region
+	 */
+	private void drawScene(Graphics g, Rectangle region) {
+		drawImage(g, Assets.backgroundTexture, 0, 0, region);
+		int size = ChunkedTerritory.CELL_SIZE;
+		int column0 = Math.max(0, Math.floorDiv(region.x - Arena.GRID_X - Assets.cell0Texture.getWidth(), size));
+		int column1 = Math.min(COLUMNS - 1, Math.floorDiv(region.x + region.width - Arena.GRID_X, size));
+		int row0 = Math.max(0, Math.floorDiv(region.y - Arena.GRID_Y - Assets.cell0Texture.getHeight(), size));
+		int row1 = Math.min(ROWS - 1, Math.floorDiv(region.y + region.height - Arena.GRID_Y, size));
+		for (int column = column0; column <= column1; column++) {
+			Cell[] cells = cellsGrid[column];
+			for (int row = row0; row <= row1; row++) {
+				cells[row].draw(g);
+			}
+		}
+		for (Block b : blocks) {
+			if (region == SCREEN || b.getDrawBounds().intersects(region)) {
+				b.draw(g);
+			}
+		}
+		if (teamCount == 2) {
+			drawImage(g, Assets.VSBarTexture, VSBarX, 0, region);
+		}
+		// The sprites in the order of their bounds, tracked for the frame
+		int sprite = 0;
+		for (Player player : players) {
+			if (region == SCREEN || drawnSprites.get(sprite).intersects(region)) {
+				player.tank.draw(g);
+			}
+			sprite++;
+			for (Bullet bullet : player.bullets) {
+				if (region == SCREEN || drawnSprites.get(sprite).intersects(region)) {
+					bullet.draw(g);
+				}
+				sprite++;
+			}
+		}
+		drawHud(g);
+	}
+
+	/**
+	 * Draws the part of an image at a position that is in a region: the same
+	 * pixels there as drawing it whole, without going over the rest of it
+	 * @param g The graphics instance
+	 * @param image The image
+	 * @param x The x of the image
+	 * @param y The y of the image
+	 * @param region The region
+	 */
+	private static void drawImage(Graphics g, BufferedImage image, int x, int y, Rectangle region) {
+		if (region == SCREEN) {
+			g.drawImage(image, x, y, null);
+			return;
+		}
+		int x0 = Math.max(x, region.x), x1 = Math.min(x + image.getWidth(), region.x + region.width);
+		int y0 = Math.max(y, region.y), y1 = Math.min(y + image.getHeight(), region.y + region.height);
+		if (x0 < x1 && y0 < y1) {
+			g.drawImage(image, x0, y0, x1, y1, x0 - x, y0 - y, x1 - x, y1 - y, null);
+		}
+	}
+
+	/**
+	 * Marks the parts of the screen that changed since the last frame drawn,
+	 * apart from the cells marked as they change: where the sprites were and
+	 * are, where the VS bar moved over its edges and the texts of the HUD
+	 * that changed. The HUD is laid out for drawing it
+	 * @param g The graphics instance
+	 */
+	private void trackChanges(Graphics g) {
+		for (Rectangle2D bounds : drawnSprites) {
+			changes.add(bounds);
+		}
+		drawnSprites.clear();
+		for (Player player : players) {
+			drawnSprites.add(player.tank.getDrawBounds());
+			for (Bullet bullet : player.bullets) {
+				drawnSprites.add(bullet.getDrawBounds());
+			}
+		}
+		for (Rectangle2D bounds : drawnSprites) {
+			changes.add(bounds);
+		}
+
+		if (teamCount == 2 && VSBarX != drawnVSBarX) {
+			int[] edges = Assets.getVSBarEdges();
+			int left = Math.min(VSBarX, drawnVSBarX), right = Math.max(VSBarX, drawnVSBarX);
+			for (int i = 0; i < edges.length; i += 2) {
+				changes.add(left + edges[i], 0, right - left + edges[i + 1] - edges[i], Assets.VSBarTexture.getHeight());
+			}
+		}
+		drawnVSBarX = VSBarX;
+
+		FontMetrics fm = g.getFontMetrics(Assets.font2);
+		int count = 0;
+		if (players.length == 2) {
+			for (Player player : players) {
+				String info = player.getInfo();
+				count = layoutHud(fm, count, info, player.getInfoX(fm, info), fm.getHeight() + 10);
+			}
+		} else {
+			for (int i = 0; i < players.length; i++) {
+				Player player = players[i];
+				count = layoutHud(fm, count, player.name + " | Team " + player.getTeam() + " | Points: " + player.points,
+						10, (i + 1) * fm.getHeight() + 10);
+			}
+		}
 		int[] remainingTime = getRemainingTime();
 		String countdown = remainingTime[0] + ":";
 		countdown += remainingTime[1] < 10 ? "0" + remainingTime[1] : remainingTime[1];
+		int strHeight = fm.getHeight();
+		count = layoutHud(fm, count, countdown, Game1.SCREEN_WIDTH / 2 - fm.stringWidth(countdown) / 2, strHeight + 10);
+		if (clock.isPaused()) {
+			String paused = "PAUSED";
+			count = layoutHud(fm, count, paused, Game1.SCREEN_WIDTH / 2 - fm.stringWidth(paused) / 2, strHeight * 2 + 10);
+		}
+		for (int i = count; i < hudCount; i++) {
+			changes.add(textBounds(fm, hudTexts[i], hudX[i], hudY[i]));
+			hudTexts[i] = null;
+		}
+		hudCount = count;
+	}
 
-		g.setFont(Assets.font2);
-		g.setColor(Color.WHITE);
+	/**
+	 * Lays a text of the HUD out, marking it and the text it replaces if they differ
+	 * @return The texts laid out
+	 */
+	private int layoutHud(FontMetrics fm, int i, String text, int x, int y) {
+		if (i >= hudCount || !text.equals(hudTexts[i]) || x != hudX[i] || y != hudY[i]) {
+			if (i < hudCount) {
+				changes.add(textBounds(fm, hudTexts[i], hudX[i], hudY[i]));
+			}
+			changes.add(textBounds(fm, text, x, y));
+			hudTexts[i] = text;
+			hudX[i] = x;
+			hudY[i] = y;
+		}
+		return i + 1;
+	}
 
-		FontMetrics fm = g.getFontMetrics();
-		int strWidth = fm.stringWidth(countdown) / 2;
-		int strHeight = fm.getHeight();
+	/**
+	 * Returns the bounds of a text drawn at a baseline, with a margin for the
+	 * glyphs drawn over their advance
+	 */
+	private static Rectangle textBounds(FontMetrics fm, String text, int x, int y) {
+		int margin = fm.getHeight() / 2;
+		return new Rectangle(x - margin, y - fm.getAscent() - margin, fm.stringWidth(text) + 2 * margin,
+				fm.getAscent() + fm.getDescent() + 2 * margin);
+	}
+
+	/**
+	 * Marks a cell of the classic arena that changed owner
+	 * @param index The index of the cell, column * ROWS + row
+	 */
+	private void cellChanged(int index) {
+		BufferedImage texture = Assets.cell0Texture;
+		int size = ChunkedTerritory.CELL_SIZE;
+		changes.add(Arena.GRID_X + index / ROWS * size, Arena.GRID_Y + index % ROWS * size,
+				texture.getWidth(), texture.getHeight());
+	}
 
-		g.drawString(countdown, Game1.SCREEN_WIDTH / 2 - strWidth, strHeight + 10);
+	/**
+	 * VS bar drawer, only in a match of two teams
+	 * @param g The graphics instance, in the coordinates of the screen
+	 */
+	private void drawVSBar(Graphics g) {
+		if (teamCount == 2) {
+			g.drawImage(Assets.VSBarTexture, VSBarX, 0, null);
+		}
 	}
 
 	/**
-	 * Match drawer
+	 * HUD drawer: the texts laid out for the frame, the information of both
+	 * players or a scoreboard of the players of a bigger match, and the timer
+	 * @param g The graphics instance, in the coordinates of the screen
+	 */
+	private void drawHud(Graphics g) {
+		g.setFont(Assets.font2);
+		g.setColor(Color.WHITE);
+		for (int i = 0; i < hudCount; i++) {
+			g.drawString(hudTexts[i], hudX[i], hudY[i]);
+		}
+	}
+
+	/**
+	 * Large arena drawer: only the part of the arena seen by the camera,
+	 * which follows the tanks, is drawn, and the HUD over it
 	 * @param g The graphics instance
 	 */
-	public void draw(Graphics g) {
-		g.drawImage(Assets.backgroundTexture, 0, 0, null);
-		for (Cell[] cells : cellsGrid) {
-			for (Cell cell : cells) {
-				cell.draw(g);
-			}
+	private void drawLargeArena(Graphics2D g) {
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (Player player : players) {
+			Vector2D position = player.tank.position;
+			minX = Math.min(minX, position.getX());
+			minY = Math.min(minY, position.getY());
+			maxX = Math.max(maxX, position.getX());
+			maxY = Math.max(maxY, position.getY());
 		}
+		camera.follow(minX, minY, maxX, maxY);
+		Rectangle2D viewport = camera.getViewport();
+		g.setColor(BACKGROUND_COLOR);
+		g.fillRect(0, 0, Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT);
+
+		g.translate(-camera.getX(), -camera.getY());
+		territory.draw(g, viewport);
 		for (Block b : blocks) {
-			b.draw(g);
+			if (b.hitBox.intersects(viewport)) {
+				b.draw(g);
+			}
+		}
+		for (Player player : players) {
+			player.drawSprites(g);
 		}
-		g.drawImage(Assets.VSBarTexture, VSBarX, 0, null);
-		this.player1.draw(g);
-		this.player2.draw(g);
-		drawTimer(g);
+		g.translate(camera.getX(), camera.getY());
+		drawVSBar(g);
+		drawHud(g);
 	}
 
 	@Override
 	public void keyTyped(KeyEvent e) { }
 
+	/**
+	 * Pauses and resumes the match with the P key
+	 * @param e The key event
+	 */
 	@Override
-	public void keyPressed(KeyEvent e) { }
+	public void keyPressed(KeyEvent e) {
+		if (e.getKeyCode() == KeyEvent.VK_P) {
+			clock.setPaused(!clock.isPaused());
+		}
+	}
 
 	@Override
 	public void keyReleased(KeyEvent e) { }
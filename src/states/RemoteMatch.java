@@ -0,0 +1,205 @@
+package states;
+
+import graphics.Assets;
+import input.KeyBoard;
+import main.Game1;
+import main.PlayersManagement;
+import net.MatchClient;
+import net.MatchState;
+import net.Protocol;
+import sprites.Player;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * RemoteMatch state class
+ * <p>
+ *     This class is responsible for a match played on a MatchServer.
+ *     It sends the input of the local player and draws a local Match that
+ *     only mirrors the snapshots received from the server.
+ * </p>
+ */
+public class RemoteMatch implements IGameState, KeyListener {
+	/**
+	 * Ticks between JOIN packets while waiting for an opponent
+	 */
+	private final int JOIN_INTERVAL = 30;
+	/**
+	 * The game instance
+	 */
+	private final Game1 game;
+	/**
+	 * The name of the local player
+	 */
+	private final String playerName;
+	/**
+	 * The client connected to the server
+	 */
+	private MatchClient client;
+	/**
+	 * The match mirroring the server, null until the match starts
+	 */
+	private Match match;
+	/**
+	 * The keyBoard of the local player
+	 */
+	private KeyBoard keyBoard;
+	/**
+	 * Ticks until the next JOIN packet
+	 */
+	private int joinCoolDown;
+	/**
+	 * The last error, shown instead of the match
+	 */
+	private String error;
+
+	/**
+	 * RemoteMatch constructor
+	 * @param game The game instance
+	 * @param server The address of the server
+	 * @param playerName The name of the local player
+	 */
+	public RemoteMatch(Game1 game, InetSocketAddress server, String playerName) {
+		this.game = game;
+		this.playerName = playerName;
+		try {
+			client = new MatchClient(server);
+		} catch (IOException e) {
+			error = "Cannot connect to " + server;
+		}
+		initialize();
+	}
+
+	/**
+	 * RemoteMatch initializer
+	 */
+	@Override
+	public void initialize() {
+		joinCoolDown = 0;
+	}
+
+	/**
+	 * RemoteMatch updater
+	 */
+	@Override
+	public void update() {
+		if (KeyBoard.isKeyDown(KeyEvent.VK_ESCAPE) || client == null) {
+			finish();
+			return;
+		}
+
+		try {
+			client.poll();
+
+			if (!client.isStarted()) {
+				if (client.getRejectReason() != 0) {
+					error = switch (client.getRejectReason()) {
+						case Protocol.NAME_TAKEN -> "Name already playing";
+						case Protocol.INVALID_NAME -> "Invalid name";
+						default -> "The match could not start";
+					};
+					return;
+				}
+				if (--joinCoolDown < 0) {
+					client.join(playerName);
+					joinCoolDown = JOIN_INTERVAL;
+				}
+				return;
+			}
+
+			if (match == null) {
+				createMatch();
+			}
+
+			MatchState state = client.getLatestState();
+			if (state != null) {
+				state.apply(match);
+				if (state.finished) {
+					finish();
+					return;
+				}
+			}
+			keyBoard.update();
+			client.sendInput(keyBoard.getButtons());
+		} catch (IOException e) {
+			error = "Connection lost";
+		}
+	}
+
+	/**
+	 * Creates the local match, once the server has paired both players
+	 */
+	private void createMatch() {
+		String[] names = client.getNames();
+		Player p1 = new Player(names[0], true);
+		Player p2 = new Player(names[1], false);
+		p1.enemy = p2;
+		p2.enemy = p1;
+
+		// The local player uses the keys of its slot
+		keyBoard = client.getSlot() == 0 ? p1.keyBoard : p2.keyBoard;
+
+		// The results are recorded by the server
+		match = new Match((PlayersManagement) null, p1, p2);
+	}
+
+	/**
+	 * Finishes the remote match and goes back to the menu
+	 */
+	private void finish() {
+		if (match != null) {
+			match.finish();
+		}
+		if (client != null) {
+			client.close();
+		}
+		game.statusEnum = Game1.status.MENU;
+	}
+
+	/**
+	 * RemoteMatch drawer
+	 * @param g The graphics instance
+	 */
+	@Override
+	public void draw(Graphics g) {
+		if (match != null && error == null) {
+			match.draw(g);
+			return;
+		}
+
+		g.drawImage(Assets.backgroundTexture, 0, 0, null);
+		g.setFont(Assets.font1);
+		g.setColor(Color.WHITE);
+		String text = error != null ? error : "Waiting for an opponent...";
+		FontMetrics fm = g.getFontMetrics();
+		g.drawString(text, Game1.SCREEN_WIDTH / 2 - fm.stringWidth(text) / 2, Game1.SCREEN_HEIGHT / 2);
+	}
+
+	/**
+	 * RemoteMatch drawer over the last frames, redrawing only what changed in
+	 * the match once it started
+	 * @param g The graphics instance, holding the frame drawn age frames ago
+	 * @param age 1 if it holds the last frame drawn, 2 if it holds the one before
+	 */
+	@Override
+	public void drawChanges(Graphics g, int age) {
+		if (match != null && error == null) {
+			match.drawChanges(g, age);
+			return;
+		}
+		draw(g);
+	}
+
+	@Override
+	public void keyTyped(KeyEvent e) { }
+
+	@Override
+	public void keyPressed(KeyEvent e) { }
+
+	@Override
+	public void keyReleased(KeyEvent e) { }
+}
@@ -0,0 +1,182 @@
+package telemetry;
+
+import states.GameClock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Totals of the telemetry of many matches, by player: shots, hits, deaths,
+ * boost, final coverage, and the mean coverage every second of the match.
+ * <p>
+ *     Aggregates are not thread-safe, but can be combined, so many files are
+ *     read in parallel with an aggregate per thread.
+ * </p>
+ */
+public class TelemetryAggregate {
+	/**
+	 * Ticks between the samples of the coverage over time, one second.
+	 */
+	public static final int TICKS_PER_SAMPLE = GameClock.TICK_RATE;
+
+	private long matches, ticks;
+	/**
+	 * Totals indexed by player.
+	 */
+	private final long[] shots = new long[3], hits = new long[3], deaths = new long[3];
+	private final long[] boostTicks = new long[3], finalCoverage = new long[3];
+	/**
+	 * Sum of the coverage of every player at every second, and number of
+	 * matches that lasted until every second.
+	 */
+	private long[][] coverage = new long[3][0];
+	private long[] samples = new long[0];
+
+	/**
+	 * Reads and aggregates telemetry files in parallel.
+	 * @param files The files.
+	 * @return The aggregate of every file.
+	 * @throws IOException If a file cannot be read.
+	 */
+	public static TelemetryAggregate of(Collection<Path> files) throws IOException {
+		try {
+			return files.parallelStream().collect(TelemetryAggregate::new, TelemetryAggregate::add, TelemetryAggregate::combine);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Reads and aggregates a telemetry file.
+	 * @param file The file.
+	 * @throws UncheckedIOException If the file cannot be read.
+	 */
+	public void add(Path file) {
+		try {
+			new TelemetryReader(file).addTo(this);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	void addMatch(int ticks) {
+		matches++;
+		this.ticks += ticks;
+	}
+
+	void addTotals(int player, int shots, int hits, int deaths, int boostTicks, int finalCoverage) {
+		this.shots[player] += shots;
+		this.hits[player] += hits;
+		this.deaths[player] += deaths;
+		this.boostTicks[player] += boostTicks;
+		this.finalCoverage[player] += finalCoverage;
+	}
+
+	void addCoverage(int player, int second, int cells) {
+		if (second >= samples.length) {
+			grow(second + 1);
+		}
+		coverage[player][second] += cells;
+		if (player == 1) {
+			samples[second]++;
+		}
+	}
+
+	private void grow(int seconds) {
+		samples = Arrays.copyOf(samples, seconds);
+		for (int player = 1; player <= 2; player++) {
+			coverage[player] = Arrays.copyOf(coverage[player], seconds);
+		}
+	}
+
+	/**
+	 * Adds the totals of another aggregate to this one.
+	 * @param other The other aggregate.
+	 */
+	public void combine(TelemetryAggregate other) {
+		matches += other.matches;
+		ticks += other.ticks;
+		if (other.samples.length > samples.length) {
+			grow(other.samples.length);
+		}
+		for (int second = 0; second < other.samples.length; second++) {
+			samples[second] += other.samples[second];
+		}
+		for (int player = 1; player <= 2; player++) {
+			shots[player] += other.shots[player];
+			hits[player] += other.hits[player];
+			deaths[player] += other.deaths[player];
+			boostTicks[player] += other.boostTicks[player];
+			finalCoverage[player] += other.finalCoverage[player];
+			for (int second = 0; second < other.samples.length; second++) {
+				coverage[player][second] += other.coverage[player][second];
+			}
+		}
+	}
+
+	/**
+	 * @return The number of matches.
+	 */
+	public long getMatches() { return matches; }
+
+	/**
+	 * @return The number of ticks sampled in every match.
+	 */
+	public long getTicks() { return ticks; }
+
+	/**
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @return The shots fired by the player.
+	 */
+	public long getShots(int player) { return shots[player]; }
+
+	/**
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @return The bullets of the player that hit the enemy.
+	 */
+	public long getHits(int player) { return hits[player]; }
+
+	/**
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @return The deaths of the player.
+	 */
+	public long getDeaths(int player) { return deaths[player]; }
+
+	/**
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @return The ticks the player was boosting.
+	 */
+	public long getBoostTicks(int player) { return boostTicks[player]; }
+
+	/**
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @return The hits per shot of the player, 0 if it did not shoot.
+	 */
+	public double getAccuracy(int player) {
+		return shots[player] == 0 ? 0 : (double) hits[player] / shots[player];
+	}
+
+	/**
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @return The mean number of cells owned by the player at the end of the matches.
+	 */
+	public double getMeanFinalCoverage(int player) {
+		return matches == 0 ? 0 : (double) finalCoverage[player] / matches;
+	}
+
+	/**
+	 * Returns the mean coverage over time, of the matches that lasted until every second.
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @return The mean number of cells owned by the player, every second since the start.
+	 */
+	public double[] getMeanCoverage(int player) {
+		double[] mean = new double[samples.length];
+		for (int second = 0; second < samples.length; second++) {
+			mean[second] = (double) coverage[player][second] / samples[second];
+		}
+		return mean;
+	}
+}
@@ -0,0 +1,67 @@
+package telemetry;
+
+/**
+ * Layout of the telemetry files, written by the TelemetryRecorder and read
+ * by the TelemetryReader.
+ * <p>
+ *     A file has the telemetry of a match: a sample of the state of both
+ *     players every tick. It starts with a header: MAGIC (4), VERSION (2).
+ *     Then come the blocks of BLOCK_TICKS ticks (fewer for the last one):
+ *     the first tick (4), the number of ticks (2), and the values of every
+ *     column, column after column, so reading a column reads contiguous bytes.
+ * </p>
+ * <p>
+ *     The columns of player 1 come first, then the ones of player 2. Every
+ *     value is a signed big-endian integer of the WIDTHS of its column.
+ * </p>
+ */
+public final class TelemetryFormat {
+	/**
+	 * First bytes of a file, "SPTL".
+	 */
+	public static final int MAGIC = 0x5350544C;
+	public static final short VERSION = 1;
+	/**
+	 * Ticks of a block, ten seconds at the tick rate.
+	 */
+	public static final int BLOCK_TICKS = 600;
+	/**
+	 * Columns of a player: the cells it owns, the health of its tank, its
+	 * FLAGS, and the shots fired, bullets hit and deaths of the tick.
+	 */
+	public static final int COVERAGE = 0, HEALTH = 1, FLAGS = 2, SHOTS = 3, HITS = 4, DEATHS = 5;
+	public static final int PLAYER_COLUMNS = 6;
+	/**
+	 * Flags: the boost key is pressed, the tank is invincible.
+	 */
+	public static final int BOOSTING = 1, INVINCIBLE = 2;
+	/**
+	 * Bytes of the values of every column of a player.
+	 */
+	public static final int[] WIDTHS = { 2, 1, 1, 1, 1, 1 };
+	/**
+	 * Bytes of the header of the file and of a block.
+	 */
+	public static final int HEADER_SIZE = 6, BLOCK_HEADER_SIZE = 6;
+	/**
+	 * Bytes of the values of a tick.
+	 */
+	public static final int TICK_SIZE = 2 * (2 + 1 + 1 + 1 + 1 + 1);
+
+	private TelemetryFormat() { }
+
+	/**
+	 * Returns the offset of the values of a column in a block, after its header.
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @param column The column of the player.
+	 * @param ticks The ticks of the block.
+	 * @return The offset, in bytes.
+	 */
+	public static int columnOffset(int player, int column, int ticks) {
+		int offset = (player - 1) * (TICK_SIZE / 2);
+		for (int c = 0; c < column; c++) {
+			offset += WIDTHS[c];
+		}
+		return offset * ticks;
+	}
+}
@@ -0,0 +1,140 @@
+package telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static telemetry.TelemetryFormat.*;
+
+/**
+ * Reads a telemetry file written by the TelemetryRecorder.
+ * <p>
+ *     The file is mapped in memory and only its block headers are read when
+ *     it is opened, so the columns that are not needed are never read.
+ * </p>
+ */
+public class TelemetryReader {
+	private final ByteBuffer data;
+	/**
+	 * Offset, first tick and number of ticks of every block.
+	 */
+	private final int[] blockOffsets, blockFirstTicks, blockTicks;
+	private final int ticks;
+
+	/**
+	 * Opens a file.
+	 * @param file The file.
+	 * @throws IOException If the file cannot be read or is not a telemetry file.
+	 */
+	public TelemetryReader(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file)) {
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+			throw new IOException("Not a telemetry file: " + file);
+		}
+		if (data.getShort(4) != VERSION) {
+			throw new IOException("Unsupported telemetry version " + data.getShort(4) + ": " + file);
+		}
+
+		int count = 0, total = 0;
+		int[] offsets = new int[16], firstTicks = new int[16], sizes = new int[16];
+		int offset = HEADER_SIZE;
+		while (offset < data.limit()) {
+			if (offset + BLOCK_HEADER_SIZE > data.limit()) {
+				throw new IOException("Truncated telemetry file: " + file);
+			}
+			int blockSize = data.getShort(offset + 4);
+			if (blockSize <= 0 || offset + BLOCK_HEADER_SIZE + blockSize * TICK_SIZE > data.limit()) {
+				throw new IOException("Truncated telemetry file: " + file);
+			}
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+				firstTicks = Arrays.copyOf(firstTicks, count * 2);
+				sizes = Arrays.copyOf(sizes, count * 2);
+			}
+			offsets[count] = offset + BLOCK_HEADER_SIZE;
+			firstTicks[count] = data.getInt(offset);
+			sizes[count] = blockSize;
+			count++;
+			total += blockSize;
+			offset += BLOCK_HEADER_SIZE + blockSize * TICK_SIZE;
+		}
+		blockOffsets = Arrays.copyOf(offsets, count);
+		blockFirstTicks = Arrays.copyOf(firstTicks, count);
+		blockTicks = Arrays.copyOf(sizes, count);
+		ticks = total;
+	}
+
+	/**
+	 * @return The number of ticks sampled.
+	 */
+	public int getTicks() { return ticks; }
+
+	/**
+	 * @return The tick of the first sample, 0 if there is none.
+	 */
+	public int getFirstTick() { return blockFirstTicks.length > 0 ? blockFirstTicks[0] : 0; }
+
+	/**
+	 * Reads the values of a column at every tick sampled.
+	 * @param player The player: 1 for player 1, 2 for player 2.
+	 * @param column The column of the player, one of the columns of TelemetryFormat.
+	 * @return The values, one per tick.
+	 */
+	public int[] getColumn(int player, int column) {
+		int[] values = new int[ticks];
+		int i = 0;
+		for (int b = 0; b < blockOffsets.length; b++) {
+			int offset = blockOffsets[b] + columnOffset(player, column, blockTicks[b]);
+			for (int t = 0; t < blockTicks[b]; t++) {
+				values[i++] = WIDTHS[column] == 2 ? data.getShort(offset + t * 2) : data.get(offset + t);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Adds the totals of both players to an aggregate.
+	 * @param aggregate The aggregate.
+	 */
+	public void addTo(TelemetryAggregate aggregate) {
+		aggregate.addMatch(ticks);
+		for (int player = 1; player <= 2; player++) {
+			int shots = 0, hits = 0, deaths = 0, boostTicks = 0, coverage = 0;
+			for (int b = 0; b < blockOffsets.length; b++) {
+				int offset = blockOffsets[b], size = blockTicks[b];
+				shots += sum(offset + columnOffset(player, SHOTS, size), size);
+				hits += sum(offset + columnOffset(player, HITS, size), size);
+				deaths += sum(offset + columnOffset(player, DEATHS, size), size);
+				int flags = offset + columnOffset(player, FLAGS, size);
+				for (int t = 0; t < size; t++) {
+					boostTicks += data.get(flags + t) & BOOSTING;
+				}
+
+				// The coverage every second since the first sample
+				int coverageOffset = offset + columnOffset(player, COVERAGE, size);
+				int first = Math.floorMod(getFirstTick() - blockFirstTicks[b], TelemetryAggregate.TICKS_PER_SAMPLE);
+				for (int t = first; t < size; t += TelemetryAggregate.TICKS_PER_SAMPLE) {
+					int second = (blockFirstTicks[b] + t - getFirstTick()) / TelemetryAggregate.TICKS_PER_SAMPLE;
+					aggregate.addCoverage(player, second, data.getShort(coverageOffset + t * 2));
+				}
+				coverage = data.getShort(coverageOffset + (size - 1) * 2);
+			}
+			aggregate.addTotals(player, shots, hits, deaths, boostTicks, coverage);
+		}
+	}
+
+	/**
+	 * Sums the bytes of a column.
+	 */
+	private int sum(int offset, int length) {
+		int sum = 0;
+		for (int t = 0; t < length; t++) {
+			sum += data.get(offset + t);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,254 @@
+package telemetry;
+
+import events.EventBus;
+import input.KeyBoard;
+import sprites.Player;
+import states.Match;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static telemetry.TelemetryFormat.*;
+
+/**
+ * Records the telemetry of a match to a file, in the TelemetryFormat.
+ * <p>
+ *     Every tick the match samples the state of both players into a block
+ *     kept off-heap, reading the shots, hits and deaths from the events of
+ *     the match. Sampling packs the values of a player in a long and stores
+ *     it, and never allocates nor does I/O: when a block is full it is handed
+ *     to a background thread, shared by every recorder, that transposes its
+ *     rows into columns and writes them while the next block is filled.
+ * </p>
+ * <p>
+ *     A tick sampled again, because a rollback simulated it again, replaces
+ *     the previous sample if its block has not been written yet.
+ * </p>
+ */
+public class TelemetryRecorder implements EventBus.Handler {
+	/**
+	 * Writes the blocks of every recorder, in the order they are handed to it.
+	 */
+	private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "telemetry-writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Match match;
+	private final Player player1, player2;
+	private final EventBus.Subscription events;
+	private final FileChannel channel;
+	/**
+	 * The block being filled, and the one being written: a row of two longs
+	 * per tick, one per player.
+	 */
+	private ByteBuffer block, written;
+	private Future<?> pending;
+	private int firstTick, ticks;
+	/**
+	 * Shots, hits and deaths of every player since the last sample.
+	 */
+	private final int[] shots = new int[3], hits = new int[3], deaths = new int[3];
+	private boolean ended;
+	private volatile IOException error;
+
+	/**
+	 * Creates a recorder, which must be set to the match.
+	 * @param match The match.
+	 * @param file The file, replaced if it exists.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	public TelemetryRecorder(Match match, Path file) throws IOException {
+		this.match = match;
+		this.player1 = match.getPlayer1();
+		this.player2 = match.getPlayer2();
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		this.events = match.getEvents().subscribe();
+		block = ByteBuffer.allocateDirect(BLOCK_TICKS * 2 * Long.BYTES);
+		written = ByteBuffer.allocateDirect(BLOCK_TICKS * 2 * Long.BYTES);
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).flip();
+		pending = WRITER.submit(() -> write(header));
+	}
+
+	/**
+	 * Samples the state of the players at the current tick, after it has been simulated.
+	 */
+	public void sample() {
+		if (ended) {
+			return;
+		}
+		events.poll(this, Integer.MAX_VALUE);
+		int tick = (int) match.getClock().getTick();
+		if (ticks == 0) {
+			firstTick = tick;
+		}
+		int index = tick - firstTick;
+		if (index >= BLOCK_TICKS) {
+			flush();
+			firstTick = tick;
+			index = 0;
+		}
+		if (index >= 0) {
+			ticks = index + 1;
+			sample(player1, index);
+			sample(player2, index);
+		}
+		for (int player = 1; player <= 2; player++) {
+			shots[player] = hits[player] = deaths[player] = 0;
+		}
+	}
+
+	/**
+	 * Writes the values of a player at a tick of the block, packed in a long
+	 * in the order of the columns, with the coverage in the high bytes.
+	 */
+	private void sample(Player player, int index) {
+		int number = player.getNumber();
+		KeyBoard keyBoard = player.keyBoard;
+		int flags = (keyBoard.isPressed(keyBoard.boostKey) ? BOOSTING : 0)
+				| (player.tank.isInvincible() ? INVINCIBLE : 0);
+		long row = (long) (match.getTerritoryFeed().getOwnedCells(number) & 0xFFFF) << 48
+				| (long) (Math.max(Byte.MIN_VALUE, player.tank.health) & 0xFF) << 40
+				| (long) flags << 32
+				| (long) Math.min(Byte.MAX_VALUE, shots[number]) << 24
+				| Math.min(Byte.MAX_VALUE, hits[number]) << 16
+				| Math.min(Byte.MAX_VALUE, deaths[number]) << 8;
+		block.putLong((index * 2 + number - 1) * Long.BYTES, row);
+	}
+
+	/**
+	 * Counts the shots, hits and deaths of the tick.
+	 */
+	@Override
+	public void onEvent(long sequence, int tick, int type, int player, int a, int b) {
+		if (type == EventBus.SHOT) {
+			shots[player]++;
+		} else if (type == EventBus.HIT) {
+			hits[player]++;
+		} else if (type == EventBus.DEATH) {
+			deaths[player]++;
+		}
+	}
+
+	/**
+	 * Hands the block to the writer, and starts filling the other one.
+	 */
+	private void flush() {
+		awaitPending();
+		ByteBuffer full = block;
+		int blockFirstTick = firstTick, blockTicks = ticks;
+		pending = WRITER.submit(() -> writeBlock(full, blockFirstTick, blockTicks));
+		block = written;
+		written = full;
+		ticks = 0;
+	}
+
+	/**
+	 * Writes a block, transposing the rows of its ticks into columns.
+	 */
+	private void writeBlock(ByteBuffer block, int firstTick, int ticks) {
+		ByteBuffer columns = ByteBuffer.allocate(BLOCK_HEADER_SIZE + ticks * TICK_SIZE)
+				.putInt(firstTick).putShort((short) ticks);
+		for (int player = 1; player <= 2; player++) {
+			int shift = Long.SIZE;
+			for (int column = 0; column < PLAYER_COLUMNS; column++) {
+				shift -= WIDTHS[column] * 8;
+				for (int t = 0; t < ticks; t++) {
+					long row = block.getLong((t * 2 + player - 1) * Long.BYTES);
+					if (WIDTHS[column] == 2) {
+						columns.putShort((short) (row >>> shift));
+					} else {
+						columns.put((byte) (row >>> shift));
+					}
+				}
+			}
+		}
+		write(columns.flip());
+	}
+
+	/**
+	 * Writes buffers to the file, unless a previous write failed.
+	 */
+	private void write(ByteBuffer... buffers) {
+		if (error != null) {
+			return;
+		}
+		try {
+			long remaining = 0;
+			for (ByteBuffer buffer : buffers) {
+				remaining += buffer.remaining();
+			}
+			while (remaining > 0) {
+				remaining -= channel.write(buffers);
+			}
+		} catch (IOException e) {
+			error = e;
+		}
+	}
+
+	/**
+	 * Waits until the writer is done with the last block handed to it.
+	 */
+	private void awaitPending() {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				pending.get();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) {
+				error = new IOException("Telemetry write failed", e.getCause());
+				break;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops recording when the match ends, handing the last block to the
+	 * writer and closing the file, without waiting for it.
+	 */
+	public void end() {
+		if (ended) {
+			return;
+		}
+		ended = true;
+		if (ticks > 0) {
+			flush();
+		}
+		pending = WRITER.submit(() -> {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops recording, and waits until the file is written and closed.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void close() throws IOException {
+		end();
+		awaitPending();
+		if (error != null) {
+			throw error;
+		}
+	}
+}
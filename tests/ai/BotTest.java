@@ -0,0 +1,130 @@
+package ai;
+
+import arena.Arena;
+import graphics.Assets;
+import input.KeyBoard;
+import main.PlayersManagement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sprites.Cell;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotTest {
+
+	@BeforeEach
+	void setUp() {
+		Assets.init();
+	}
+
+	@Test
+	void incrementalUpdatesMatchRebuild() {
+		Match match = TestMatches.newMatch();
+		FlowField field = new FlowField(match, 1);
+		Random random = new Random(7);
+
+		// Paint random splats, some of them with the owner of the field, which removes targets
+		for (int round = 0; round < 200; round++) {
+			int column = random.nextInt(Match.COLUMNS - 2), row = random.nextInt(Match.ROWS - 2);
+			int owner = random.nextInt(3);
+			for (int i = column; i < column + 3; i++) {
+				for (int j = row; j < row + 3; j++) {
+					Cell cell = match.cellsGrid[i][j];
+					cell.setOwner(random.nextInt(4) == 0 ? random.nextInt(3) : owner);
+				}
+			}
+			assertTrue(field.update(Integer.MAX_VALUE) >= 0);
+
+			FlowField rebuilt = new FlowField(match, 1);
+			for (int c = 0; c < Match.COLUMNS * Match.ROWS; c++) {
+				assertEquals(rebuilt.getDistance(c), field.getDistance(c), "Cell " + c + " of round " + round);
+			}
+		}
+	}
+
+	@Test
+	void budgetDefersUpdates() {
+		Match match = TestMatches.newMatch();
+		FlowField field = new FlowField(match, 2);
+		for (Cell[] cells : match.cellsGrid) {
+			for (Cell cell : cells) {
+				cell.setOwner(2);
+			}
+		}
+		assertEquals(-1, field.update(100));
+		assertFalse(field.isUpToDate());
+		while (field.update(100) < 0) {
+			// The changes left are applied by the next updates
+		}
+		assertTrue(field.isUpToDate());
+		for (int c = 0; c < Match.COLUMNS * Match.ROWS; c++) {
+			assertEquals(FlowField.UNREACHABLE, field.getDistance(c));
+		}
+	}
+
+	@Test
+	void botsPaintTheArena() {
+		Match match = TestMatches.newMatch();
+		Bot bot1 = new Bot(match.getPlayer1());
+		Bot bot2 = new Bot(match.getPlayer2());
+		match.fastForward(60 * 30);
+
+		// Both bots paint a good part of the arena in 30 seconds
+		assertTrue(match.getPlayer1().points > 100, "Points " + match.getPlayer1().points);
+		assertTrue(match.getPlayer2().points > 100, "Points " + match.getPlayer2().points);
+		assertEquals(60 * 30, bot1.getDecisionStats().getCount());
+		assertTrue(bot2.getDecisionStats().getPercentiles(50)[0] < 1_000_000);
+	}
+
+	@Test
+	void botsAreDeterministic() {
+		long[] hashes = new long[2];
+		for (int run = 0; run < 2; run++) {
+			Match match = TestMatches.newMatch();
+			new Bot(match.getPlayer1());
+			new Bot(match.getPlayer2(), 50);
+			match.fastForward(60 * 20);
+			hashes[run] = match.getStateHash();
+		}
+		assertEquals(hashes[0], hashes[1]);
+	}
+
+	@Test
+	void flowFieldRejectsLargeArenas() {
+		Match match = TestMatches.newMatch(80, 40);
+		assertThrows(IllegalArgumentException.class, () -> new FlowField(match, 1));
+	}
+
+	@Test
+	void botsAimAtEveryOpponent() {
+		// Three players in free-for-all: the third one is not the enemy of the first
+		Player[] players = TestMatches.newPlayers(3, 0);
+		Match match = new Match((PlayersManagement) null, players, new Arena());
+		Bot bot = new Bot(players[0]);
+
+		// With every cell painted, the bot only shoots at tanks
+		for (Cell[] cells : match.cellsGrid) {
+			for (Cell cell : cells) {
+				cell.setOwner(1);
+			}
+		}
+		bot.getFlowField().update(Integer.MAX_VALUE);
+		bot.update();
+		assertEquals(0, bot.getButtons() & KeyBoard.SHOOT);
+
+		// The third tank is put right ahead of the first one
+		Rectangle2D tank = players[0].tank.hitBox, target = players[2].tank.hitBox;
+		double angle = players[0].tank.getRotation();
+		target.setRect(tank.getCenterX() + 100 * Math.cos(angle) - target.getWidth() / 2,
+				tank.getCenterY() + 100 * Math.sin(angle) - target.getHeight() / 2,
+				target.getWidth(), target.getHeight());
+		bot.update();
+		assertEquals(KeyBoard.SHOOT, bot.getButtons() & KeyBoard.SHOOT);
+	}
+}
@@ -0,0 +1,78 @@
+package arena;
+
+import graphics.Assets;
+import org.junit.jupiter.api.Test;
+import sprites.Cell;
+import states.Match;
+import states.TestMatches;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArenaTest {
+
+	@Test
+	void resetUnpaintsTheCellsOfThePreviousMatch() {
+		Assets.init();
+		Arena arena = new Arena();
+		Match first = TestMatches.newMatch(arena);
+		Cell[][] cells = first.cellsGrid;
+		for (int i = 0; i < cells.length; i++) {
+			for (Cell cell : cells[i]) {
+				cell.setColor(i % 2 == 0 ? first.getPlayer1() : first.getPlayer2());
+			}
+		}
+		assertEquals(2, cells[1][0].getOwner());
+		assertEquals(2, first.getTerritoryFeed().getOwners()[Match.ROWS]);
+
+		Match second = TestMatches.newMatch(arena);
+		assertSame(cells, second.cellsGrid);
+		for (Cell[] column : cells) {
+			for (Cell cell : column) {
+				assertEquals(0, cell.getOwner());
+			}
+		}
+		assertEquals(0, second.getPlayer1().points);
+
+		// The owner changes go to the feed of the second match only
+		cells[1][0].setColor(second.getPlayer1());
+		assertEquals(1, cells[1][0].getOwner());
+		assertEquals(1, second.getTerritoryFeed().getOwners()[Match.ROWS]);
+		assertEquals(2, first.getTerritoryFeed().getOwners()[Match.ROWS]);
+		assertEquals(1, second.getPlayer1().points);
+	}
+
+	@Test
+	void poolReusesTheArenas() {
+		Assets.init();
+		ArenaPool pool = new ArenaPool(0, 0);
+		pool.prewarm();
+		pool.prewarm();
+		Arena arena = pool.acquire();
+		assertEquals(1, pool.getCreated());
+
+		pool.release(arena);
+		pool.prewarm();
+		assertSame(arena, pool.acquire());
+		assertEquals(1, pool.getCreated());
+
+		// Without arenas free nor prewarmed, one is built
+		assertNotSame(arena, pool.acquire());
+		assertEquals(2, pool.getCreated());
+	}
+
+	@Test
+	void largeArenaClearsItsTerritory() {
+		Assets.init();
+		Arena arena = new Arena(100, 100);
+		Match first = TestMatches.newMatch(arena);
+		first.getTerritory().setOwner(50, 50, 1);
+		assertEquals(1, first.getTerritory().getAllocatedChunks());
+
+		Match second = TestMatches.newMatch(arena);
+		assertSame(first.getTerritory(), second.getTerritory());
+		assertEquals(0, second.getTerritory().getOwner(50, 50));
+		assertEquals(0, second.getTerritory().getAllocatedChunks());
+		assertEquals(0, second.getTerritory().getChecksum());
+		assertEquals(10_000, second.getTerritory().getOwnedCells(0));
+	}
+}
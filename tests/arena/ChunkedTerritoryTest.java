@@ -0,0 +1,144 @@
+package arena;
+
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import main.Game1;
+import math.Vector2D;
+import org.junit.jupiter.api.Test;
+import sprites.Cell;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedTerritoryTest {
+
+	@Test
+	void chunksAreAllocatedWhenPainted() {
+		ChunkedTerritory territory = new ChunkedTerritory(1000, 1000, 0, 0);
+		assertEquals(0, territory.getAllocatedChunks());
+		assertEquals(1_000_000, territory.getOwnedCells(0));
+
+		assertEquals(0, territory.setOwner(0, 0, 1));
+		assertEquals(0, territory.setOwner(999, 999, 2));
+		assertEquals(1, territory.setOwner(0, 0, 2));
+		assertEquals(0, territory.setOwner(500, 500, 0));
+		assertEquals(2, territory.getAllocatedChunks());
+		assertEquals(2, territory.getOwner(0, 0));
+		assertEquals(0, territory.getOwner(1, 0));
+		assertEquals(0, territory.getOwnedCells(1));
+		assertEquals(2, territory.getOwnedCells(2));
+		assertEquals(999_998, territory.getOwnedCells(0));
+
+		// The checksum only depends on the owners
+		ChunkedTerritory other = new ChunkedTerritory(1000, 1000, 0, 0);
+		other.setOwner(999, 999, 2);
+		other.setOwner(0, 0, 2);
+		assertEquals(territory.getChecksum(), other.getChecksum());
+		other.setOwner(0, 0, 1);
+		assertNotEquals(territory.getChecksum(), other.getChecksum());
+		other.copyFrom(territory);
+		assertEquals(territory.getChecksum(), other.getChecksum());
+		assertEquals(2, other.getOwner(0, 0));
+	}
+
+	@Test
+	void onlyVisibleChunksAreCached() {
+		Assets.init();
+		ChunkedTerritory territory = new ChunkedTerritory(1000, 1000, 0, 0);
+		for (int column = 0; column < 1000; column += 7) {
+			for (int row = 0; row < 1000; row += 7) {
+				territory.setOwner(column, row, 1 + (column + row) % 2);
+			}
+		}
+		BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		int chunkPixels = ChunkedTerritory.CHUNK_CELLS * ChunkedTerritory.CELL_SIZE;
+		int maxVisible = (800 / chunkPixels + 2) * (600 / chunkPixels + 2);
+		for (int x = 0; x < 20_000; x += 997) {
+			g.translate(-x, -x);
+			territory.draw(g, new Rectangle(x, x, 800, 600));
+			g.translate(x, x);
+			assertTrue(territory.getCachedImages() > 0);
+			assertTrue(territory.getCachedImages() <= maxVisible, "Cached " + territory.getCachedImages());
+		}
+		g.dispose();
+	}
+
+	@Test
+	void drawsLikeTheCells() {
+		Assets.init();
+		int columns = 57, rows = 29;
+		ChunkedTerritory territory = new ChunkedTerritory(columns, rows, 193, 189);
+		Cell[][] cells = new Cell[columns][rows];
+		for (int i = 0; i < columns; i++) {
+			for (int j = 0; j < rows; j++) {
+				cells[i][j] = new Cell(new Vector2D(193 + i * 27, 189 + j * 27), Assets.cell0Texture);
+				int owner = (i * 3 + j * 5) % 7 % 3;
+				cells[i][j].setOwner(owner);
+				territory.setOwner(i, j, owner);
+			}
+		}
+
+		BufferedImage expected = new BufferedImage(1934, 1087, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = expected.createGraphics();
+		for (Cell[] column : cells) {
+			for (Cell cell : column) {
+				cell.draw(g);
+			}
+		}
+		g.dispose();
+		BufferedImage actual = new BufferedImage(1934, 1087, BufferedImage.TYPE_INT_RGB);
+		g = actual.createGraphics();
+		territory.draw(g, new Rectangle(0, 0, 1934, 1087));
+		g.dispose();
+
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "Differs at " + x + "," + y);
+			}
+		}
+	}
+
+	@Test
+	void largeArenaMatchFollowsTheTanks() {
+		Assets.init();
+		Match match = TestMatches.newMatch(400, 200);
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		RemoteKeyBoard keyBoard1 = new RemoteKeyBoard(p1.keyBoard);
+		p1.keyBoard = keyBoard1;
+		p2.keyBoard = new RemoteKeyBoard(p2.keyBoard);
+		keyBoard1.setButtons(KeyBoard.UP | KeyBoard.SHOOT);
+		// Player 2 waits out of the way
+		p2.tank.position.setY(300);
+		p2.tank.hitBox = p2.tank.updateHitBox();
+		match.fastForward(1200);
+
+		// Player 1 drove and painted past the right side of the screen
+		ChunkedTerritory territory = match.getTerritory();
+		assertTrue(p1.tank.position.getX() > Game1.SCREEN_WIDTH, "Tank at " + p1.tank.position);
+		assertTrue(territory.getOwnedCells(1) > 0);
+		assertNull(match.cellsGrid);
+		int painted = 0;
+		for (int column = Match.COLUMNS; column < territory.getColumns(); column++) {
+			for (int row = 0; row < territory.getRows(); row++) {
+				painted += territory.getOwner(column, row) == 1 ? 1 : 0;
+			}
+		}
+		assertTrue(painted > 0);
+
+		BufferedImage image = new BufferedImage(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		match.draw(g);
+		g.dispose();
+		assertTrue(match.getCamera().getX() > 0);
+		assertTrue(match.getCamera().getViewport().contains(p1.tank.position.getX(), p1.tank.position.getY())
+				|| match.getCamera().getViewport().contains(p2.tank.position.getX(), p2.tank.position.getY()));
+	}
+}
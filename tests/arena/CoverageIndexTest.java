@@ -0,0 +1,108 @@
+package arena;
+
+import graphics.Assets;
+import math.Vector2D;
+import org.junit.jupiter.api.Test;
+import sprites.Block;
+import sprites.Cell;
+import states.Match;
+import states.TestMatches;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoverageIndexTest {
+
+	private static int scan(int[][] owners, int owner, int column0, int row0, int column1, int row1) {
+		int count = 0;
+		for (int c = Math.max(0, column0); c <= Math.min(owners.length - 1, column1); c++) {
+			for (int r = Math.max(0, row0); r <= Math.min(owners[c].length - 1, row1); r++) {
+				count += owners[c][r] == owner ? 1 : 0;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	void countsMatchAScanOfTheCells() {
+		Random random = new Random(48);
+		int columns = 37, rows = 70;
+		CoverageIndex index = new CoverageIndex(columns, rows);
+		int[][] owners = new int[columns][rows];
+		for (int step = 0; step < 5000; step++) {
+			int c = random.nextInt(columns), r = random.nextInt(rows), owner = random.nextInt(3);
+			index.setOwner(c, r, owner);
+			owners[c][r] = owner;
+			int column0 = random.nextInt(columns + 4) - 2, row0 = random.nextInt(rows + 4) - 2;
+			int column1 = column0 + random.nextInt(columns), row1 = row0 + random.nextInt(rows);
+			for (int o = 0; o < 3; o++) {
+				assertEquals(scan(owners, o, column0, row0, column1, row1), index.count(o, column0, row0, column1, row1));
+			}
+		}
+		assertEquals(0, index.count(1, columns, 0, columns + 5, rows));
+		assertEquals(0.0, index.coverage(1, -5, -5, -1, -1));
+		assertEquals((double) scan(owners, 2, 0, 0, columns, rows) / (columns * rows),
+				index.coverage(2, 0, 0, columns - 1, rows - 1), 1e-12);
+
+		// Building from the planes gives the same tree as the updates
+		OwnerPlanes planes = new OwnerPlanes(columns, rows);
+		for (int c = 0; c < columns; c++) {
+			for (int r = 0; r < rows; r++) {
+				planes.setOwner(c, r, owners[c][r]);
+			}
+		}
+		CoverageIndex built = new CoverageIndex(columns, rows);
+		built.copyFrom(planes);
+		for (int step = 0; step < 500; step++) {
+			int column0 = random.nextInt(columns), row0 = random.nextInt(rows);
+			int column1 = column0 + random.nextInt(columns), row1 = row0 + random.nextInt(rows);
+			for (int o = 0; o < 3; o++) {
+				assertEquals(index.count(o, column0, row0, column1, row1), built.count(o, column0, row0, column1, row1));
+			}
+		}
+		built.clear();
+		assertEquals(columns * rows, built.count(0, 0, 0, columns, rows));
+	}
+
+	@Test
+	void matchKeepsTheCoverageOfTheCells() {
+		Assets.init();
+		Match match = TestMatches.newMatch(0, 0);
+		Cell[][] cells = match.cellsGrid;
+		cells[0][0].setOwner(1);
+		CoverageIndex coverage = match.getCoverage();
+		assertEquals(1, coverage.count(1, 0, 0, Match.COLUMNS, Match.ROWS));
+
+		match.setSplat(SplatStencil.parse("square:3"));
+		Block block = match.getArena().getBlocks()[0];
+		match.getPlayer2().paintCells(new Vector2D(block.hitBox.getCenterX(), block.hitBox.getCenterY()));
+		cells[0][0].setColor(match.getPlayer2());
+		int[][] owners = new int[Match.COLUMNS][Match.ROWS];
+		for (int c = 0; c < Match.COLUMNS; c++) {
+			for (int r = 0; r < Match.ROWS; r++) {
+				owners[c][r] = cells[c][r].getOwner();
+			}
+		}
+		assertEquals(0, coverage.count(1, 0, 0, Match.COLUMNS, Match.ROWS));
+		assertEquals(50, coverage.count(2, 0, 0, Match.COLUMNS, Match.ROWS));
+		assertEquals(scan(owners, 2, 0, 0, Match.COLUMNS / 2 - 1, Match.ROWS / 2 - 1),
+				coverage.count(2, 0, 0, Match.COLUMNS / 2 - 1, Match.ROWS / 2 - 1));
+		// The block overlaps 4 cells by 5, in the middle of the 7x7 splat
+		assertEquals(1.0, match.getCoverage(2, block.hitBox));
+	}
+
+	@Test
+	void largeArenasFollowTheTerritory() {
+		Assets.init();
+		Match match = TestMatches.newMatch(300, 200);
+		ChunkedTerritory territory = match.getTerritory();
+		CoverageIndex coverage = match.getCoverage();
+		match.setSplat(SplatStencil.parse("circle:16"));
+		match.getPlayer1().paintCells(new Vector2D(territory.getX() + 150 * 27, territory.getY() + 100 * 27));
+		assertEquals(territory.getOwnedCells(1), coverage.count(1, 0, 0, 300, 200));
+		assertEquals(territory.getOwnedCells(1), coverage.count(1, 134, 84, 166, 116));
+		assertEquals(0.0, match.getCoverage(1, new Rectangle2D.Double(territory.getX(), territory.getY(), 2700, 2700)));
+	}
+}
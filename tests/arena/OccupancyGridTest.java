@@ -0,0 +1,76 @@
+package arena;
+
+import graphics.Assets;
+import org.junit.jupiter.api.Test;
+import sprites.Block;
+import sprites.Sprite;
+import states.Match;
+import states.TestMatches;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyGridTest {
+
+	@Test
+	void bitsMatchRectangleIntersections() {
+		Rectangle2D[] solids = {
+				new Rectangle2D.Double(10, 20, 80, 109),
+				new Rectangle2D.Double(63, 64, 1, 1),
+				new Rectangle2D.Double(128, 0, 64, 64)
+		};
+		Rectangle2D area = new Rectangle2D.Double(5, 7, 250, 180);
+		OccupancyGrid grid = new OccupancyGrid(300, 200);
+		grid.addOpen(area);
+		for (Rectangle2D solid : solids) {
+			grid.addSolid(solid);
+		}
+
+		// Fractional positions, and whole ones right on the edges
+		Random random = new Random(3);
+		for (int i = 0; i < 100_000; i++) {
+			double x = random.nextInt(4) == 0 ? random.nextInt(340) - 20 : random.nextDouble() * 340 - 20;
+			double y = random.nextInt(4) == 0 ? random.nextInt(240) - 20 : random.nextDouble() * 240 - 20;
+			Rectangle2D rect = new Rectangle2D.Double(x, y, 1 + random.nextInt(12), 1 + random.nextInt(12));
+			boolean solid = false;
+			for (Rectangle2D s : solids) {
+				solid |= rect.intersects(s);
+			}
+			assertEquals(solid, grid.isSolid(rect), rect.toString());
+			assertEquals(!rect.intersects(area), grid.isOutside(rect), rect.toString());
+		}
+	}
+
+	@Test
+	void fullChunksAreShared() {
+		OccupancyGrid grid = new OccupancyGrid(100_000, 100_000);
+		grid.addOpen(new Rectangle2D.Double(10, 10, 99_980, 99_980));
+		// Only the chunks along the edges have pixels of their own
+		assertTrue(grid.getAllocatedChunks() <= 4 * (100_000 / OccupancyGrid.CHUNK_SIZE + 1));
+		assertFalse(grid.isOutside(new Rectangle2D.Double(50_000, 50_000, 10, 10)));
+		assertTrue(grid.isOutside(new Rectangle2D.Double(0, 0, 10, 10)));
+		assertFalse(grid.isOutside(new Rectangle2D.Double(0.5, 0.5, 10, 10)));
+		assertTrue(grid.isOutside(new Rectangle2D.Double(99_990, 50_000, 10, 10)));
+	}
+
+	@Test
+	void matchBakesBlocksAndPlayingArea() {
+		Assets.init();
+		for (int columns : new int[] { 0, 200 }) {
+			Match match = TestMatches.newMatch(columns, columns);
+			OccupancyGrid grid = match.getOccupancy();
+			Random random = new Random(5);
+			for (int i = 0; i < 20_000; i++) {
+				Rectangle2D rect = new Rectangle2D.Double(random.nextDouble() * 2000, random.nextDouble() * 1200, 10, 10);
+				boolean block = false;
+				for (Sprite sprite : match.colliders) {
+					block |= sprite instanceof Block && rect.intersects(sprite.hitBox);
+				}
+				assertEquals(block, grid.isSolid(rect), rect.toString());
+				assertEquals(!rect.intersects(match.playingArea.hitBox), grid.isOutside(rect), rect.toString());
+			}
+		}
+	}
+}
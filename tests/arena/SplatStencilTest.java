@@ -0,0 +1,115 @@
+package arena;
+
+import graphics.Assets;
+import math.Vector2D;
+import org.junit.jupiter.api.Test;
+import sprites.Cell;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplatStencilTest {
+
+	@Test
+	void circleOfRadiusOneIsTheClassicSquare() {
+		SplatStencil circle = new SplatStencil(SplatStencil.Shape.CIRCLE, 1);
+		for (int dx = -1; dx <= 1; dx++) {
+			assertEquals(0b111, circle.getColumn(0, dx));
+			assertEquals(SplatStencil.DEFAULT.getColumn(0, dx), circle.getColumn(0, dx));
+		}
+		assertEquals(9, circle.getCells(0));
+		assertEquals("circle:8", SplatStencil.parse(" Circle:8 ").toString());
+		assertThrows(IllegalArgumentException.class, () -> SplatStencil.parse("circle:17"));
+		assertThrows(IllegalArgumentException.class, () -> SplatStencil.parse("star:4"));
+	}
+
+	@Test
+	void conesOpenTowardsTheBullet() {
+		SplatStencil cone = SplatStencil.parse("cone:8");
+		int right = cone.direction(0), down = cone.direction(Math.PI / 2), left = cone.direction(-Math.PI);
+		assertEquals(0, right);
+		assertEquals(SplatStencil.DIRECTIONS / 4, down);
+		assertEquals(SplatStencil.DIRECTIONS / 2, left);
+		// Only the epicenter behind it, and the whole axis in front of it
+		for (int dx = -8; dx < 0; dx++) {
+			assertEquals(0, cone.getColumn(right, dx));
+		}
+		assertEquals(1L << 8, cone.getColumn(right, 0));
+		assertEquals(1L << 8, cone.getColumn(right, 8) & (1L << 8));
+		assertEquals(1L << 16, cone.getColumn(down, 0) & (1L << 16));
+		assertEquals(0, cone.getColumn(down, 0) & ((1L << 8) - 1));
+		assertEquals(cone.getCells(right), cone.getCells(left));
+	}
+
+	@Test
+	void bulkPaintingScoresLikeTheCellsOneByOne() {
+		Assets.init();
+		Random random = new Random(47);
+		Match bulk = TestMatches.newMatch(80, 60);
+		Match reference = TestMatches.newMatch(80, 60);
+		ChunkedTerritory territory = bulk.getTerritory(), expected = reference.getTerritory();
+		for (int splash = 0; splash < 400; splash++) {
+			SplatStencil splat = new SplatStencil(SplatStencil.Shape.values()[random.nextInt(3)],
+					1 + random.nextInt(SplatStencil.MAX_RADIUS));
+			bulk.setSplat(splat);
+			boolean first = random.nextBoolean();
+			Player painter = first ? bulk.getPlayer1() : bulk.getPlayer2();
+			Player referencePainter = first ? reference.getPlayer1() : reference.getPlayer2();
+			int column = random.nextInt(80), row = random.nextInt(60);
+			double angle = random.nextDouble() * 4 * Math.PI - 2 * Math.PI;
+			painter.paintCells(new Vector2D(territory.getX() + column * ChunkedTerritory.CELL_SIZE + 13,
+					territory.getY() + row * ChunkedTerritory.CELL_SIZE + 13), angle);
+
+			// The cells of the stencil, column by column and row by row
+			int direction = splat.direction(angle), radius = splat.getRadius();
+			for (int dx = -radius; dx <= radius; dx++) {
+				for (int dy = -radius; dy <= radius; dy++) {
+					int c = column + dx, r = row + dy;
+					if ((splat.getColumn(direction, dx) & (1L << (dy + radius))) == 0
+							|| c < 0 || c >= 80 || r < 0 || r >= 60) {
+						continue;
+					}
+					reference.scorePaint(referencePainter, expected.getOwner(c, r));
+					expected.setOwner(c, r, referencePainter.getNumber());
+				}
+			}
+
+			assertEquals(reference.VSBarX, bulk.VSBarX, "splash " + splash);
+			assertEquals(reference.offsetCounter, bulk.offsetCounter, "splash " + splash);
+			assertEquals(reference.getPlayer1().points, bulk.getPlayer1().points, "splash " + splash);
+			assertEquals(reference.getPlayer2().points, bulk.getPlayer2().points, "splash " + splash);
+		}
+		for (int c = 0; c < 80; c++) {
+			for (int r = 0; r < 60; r++) {
+				assertEquals(expected.getOwner(c, r), territory.getOwner(c, r));
+				assertEquals(expected.getOwner(c, r), bulk.getOwnerPlanes().getOwner(c, r));
+			}
+		}
+	}
+
+	@Test
+	void ownerPlanesFollowTheCells() {
+		Assets.init();
+		Match match = TestMatches.newMatch(0, 0);
+		match.setSplat(SplatStencil.parse("circle:16"));
+		Cell[][] cells = match.cellsGrid;
+		match.getPlayer1().paintCells(cells[10][10].position);
+		match.getPlayer2().paintCells(cells[20][12].position, Math.PI);
+		// Painted around the players' backs, e.g. by a remote match
+		cells[0][0].setOwner(2);
+		OwnerPlanes planes = match.getOwnerPlanes();
+		int painted = 0;
+		for (int c = 0; c < Match.COLUMNS; c++) {
+			for (int r = 0; r < Match.ROWS; r++) {
+				assertEquals(cells[c][r].getOwner(), planes.getOwner(c, r));
+				painted += cells[c][r].getOwner() != 0 ? 1 : 0;
+			}
+		}
+		assertTrue(painted > 100);
+		assertEquals(2, planes.getOwner(0, 0));
+	}
+}
@@ -0,0 +1,67 @@
+package arena;
+
+import graphics.Assets;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+import sprites.Tank;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TankGridTest {
+
+	private static Tank bruteForceHit(Tank[] tanks, Rectangle2D box, int team) {
+		for (Tank tank : tanks) {
+			if (tank.player.getTeam() != team && box.intersects(tank.hitBox)) {
+				return tank;
+			}
+		}
+		return null;
+	}
+
+	private static boolean bruteForceIntersects(Tank[] tanks, Rectangle2D box, Object self) {
+		for (Tank tank : tanks) {
+			if (tank != self && box.intersects(tank.hitBox)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	void findsTheSameTanksAsCheckingThemAll() {
+		Assets.init();
+		Random random = new Random(49);
+		int width = 1000, height = 700;
+		Tank[] tanks = new Tank[Player.MAX_PLAYERS];
+		for (int i = 0; i < tanks.length; i++) {
+			tanks[i] = new Player("P" + (i + 1), i + 1, i % 4 + 1).tank;
+		}
+		TankGrid grid = new TankGrid(width, height, tanks);
+		assertSame(tanks[5], grid.getTanks()[5]);
+
+		for (int step = 0; step < 5000; step++) {
+			// Tanks move, some of them out of the arena
+			Tank moved = tanks[random.nextInt(tanks.length)];
+			moved.hitBox = new Rectangle2D.Double(random.nextInt(width + 200) - 100, random.nextInt(height + 200) - 100,
+					40 + random.nextInt(40), 40 + random.nextInt(40));
+			grid.update(moved);
+
+			Rectangle2D box = new Rectangle2D.Double(random.nextInt(width + 100) - 50, random.nextInt(height + 100) - 50,
+					random.nextInt(60), random.nextInt(60));
+			int team = random.nextInt(5);
+			assertSame(bruteForceHit(tanks, box, team), grid.findHit(box, team));
+			assertEquals(bruteForceIntersects(tanks, box, moved), grid.intersectsOther(box, moved));
+		}
+	}
+
+	@Test
+	void playersMustBeNumberedInOrder() {
+		Assets.init();
+		Tank first = new Player("P1", 1, 1).tank;
+		Tank third = new Player("P3", 3, 3).tank;
+		assertThrows(IllegalArgumentException.class, () -> new TankGrid(100, 100, first, third));
+	}
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import ai.Bot;
+import graphics.Assets;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures whole matches played by two bots, fast-forwarded: the ticks per
+ * second of the batch, the decision time of a bot per tick, and how much of
+ * the arena the bots paint.
+ * <p>
+ *     Run it with the main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.BotBenchmark
+ * </p>
+ */
+public class BotBenchmark {
+	private static final int[] MATCHES = { 10, 100, 200 };
+	private static final int[] WORK_BUDGETS = { 200, Bot.DEFAULT_WORK_BUDGET };
+
+	public static void main(String[] args) {
+		Assets.init();
+		// Warm up
+		simulate(20, Bot.DEFAULT_WORK_BUDGET, new ArrayList<>());
+
+		System.out.printf("%8s %8s %12s %10s %10s %10s %10s %9s%n", "matches", "budget",
+				"ticks/s", "p50 (us)", "p99 (us)", "max (us)", "deferred", "painted");
+		for (int budget : WORK_BUDGETS) {
+			for (int count : MATCHES) {
+				List<Bot> bots = new ArrayList<>();
+				long start = System.nanoTime();
+				long[] result = simulate(count, budget, bots);
+				double seconds = (System.nanoTime() - start) / 1e9;
+
+				long p50 = 0, p99 = 0, max = 0, deferred = 0;
+				for (Bot bot : bots) {
+					long[] percentiles = bot.getDecisionStats().getPercentiles(50, 99);
+					p50 = Math.max(p50, percentiles[0]);
+					p99 = Math.max(p99, percentiles[1]);
+					max = Math.max(max, bot.getDecisionStats().getMax());
+					deferred += bot.getDeferredUpdates();
+				}
+				System.out.printf("%8d %8d %12.0f %10.1f %10.1f %10.1f %10d %8.0f%%%n", count, budget,
+						result[0] / seconds, p50 / 1e3, p99 / 1e3, max / 1e3, deferred,
+						100.0 * result[1] / count / (Match.COLUMNS * Match.ROWS));
+			}
+		}
+	}
+
+	/**
+	 * Plays whole matches with two bots, returning the ticks simulated and the cells painted.
+	 */
+	private static long[] simulate(int count, int budget, List<Bot> bots) {
+		long ticks = 0, painted = 0;
+		for (int m = 0; m < count; m++) {
+			Match match = TestMatches.newMatch();
+			Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+			bots.add(new Bot(p1, budget));
+			bots.add(new Bot(p2, budget));
+			while (!match.isFinished()) {
+				match.tick();
+				ticks++;
+			}
+			for (byte owner : match.getTerritoryFeed().getOwners()) {
+				painted += owner != 0 ? 1 : 0;
+			}
+		}
+		return new long[] { ticks, painted };
+	}
+}
@@ -0,0 +1,153 @@
+package bench;
+
+import arena.OccupancyGrid;
+import graphics.Assets;
+import sprites.Sprite;
+import states.Match;
+import states.TestMatches;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+/**
+ * Measures the checks of front bounds against the world: the loop
+ * intersecting them with every collider and the playing area, as
+ * MovingSprite.isColliding did, and the occupancy grid of the match plus
+ * the rectangle tests against the tanks. Both must give the same results,
+ * which is checked first.
+ * <p>
+ *     The front bounds are spread at fractional positions over the classic
+ *     arena, and over arenas of 1000x1000 cells with more and more blocks,
+ *     where the loop grows with the blocks and the grid does not.
+ * </p>
+ * <p>
+ *     Run it with the main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.CollisionBenchmark
+ * </p>
+ */
+public class CollisionBenchmark {
+	private static final int BOUNDS = 4096;
+	private static final int WARMUP_ROUNDS = 500;
+	private static final int ROUNDS = 1000;
+	/**
+	 * Side of the large arenas, in pixels.
+	 */
+	private static final int LARGE_SIZE = 1000 * 27;
+
+	public static void main(String[] args) {
+		Assets.init();
+		System.out.printf("%-14s %12s %12s %10s%n", "scenario", "loop (ns)", "grid (ns)", "speedup");
+
+		Match match = TestMatches.newMatch();
+		Rectangle2D[] blocks = new Rectangle2D[match.colliders.size() - 2];
+		for (int i = 0; i < blocks.length; i++) {
+			blocks[i] = match.colliders.get(i + 2).hitBox;
+		}
+		run("classic", match.getOccupancy(), blocks, match.playingArea.hitBox, match,
+				randomBounds(new Random(42), 1934, 1087));
+
+		Random random = new Random(7);
+		Rectangle2D area = new Rectangle2D.Double(200, 215, LARGE_SIZE - 400, LARGE_SIZE - 430);
+		for (int count : new int[] { 4, 64, 1024 }) {
+			blocks = new Rectangle2D[count];
+			for (int i = 0; i < count; i++) {
+				blocks[i] = new Rectangle2D.Double(200 + random.nextInt(LARGE_SIZE - 480),
+						215 + random.nextInt(LARGE_SIZE - 540), 80, 109);
+			}
+			OccupancyGrid grid = new OccupancyGrid(LARGE_SIZE, LARGE_SIZE);
+			grid.addOpen(area);
+			for (Rectangle2D block : blocks) {
+				grid.addSolid(block);
+			}
+			run("blocks-" + count, grid, blocks, area, match, randomBounds(random, LARGE_SIZE, LARGE_SIZE));
+		}
+	}
+
+	/**
+	 * Checks and measures the front bounds of the first tank of a match
+	 * against blocks and a playing area, with the loop and with their grid.
+	 */
+	private static void run(String scenario, OccupancyGrid grid, Rectangle2D[] blocks, Rectangle2D area,
+							Match match, Rectangle2D[] bounds) {
+		Sprite tank = match.getPlayer1().tank;
+		for (Rectangle2D bound : bounds) {
+			if (loop(blocks, area, match, tank, bound) != grid(grid, match, tank, bound)) {
+				throw new IllegalStateException("The grid and the loop differ at " + bound);
+			}
+		}
+
+		int sink = 0;
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			sink += runLoop(blocks, area, match, tank, bounds) + runGrid(grid, match, tank, bounds);
+		}
+		long loopNanos = 0, gridNanos = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			sink += runLoop(blocks, area, match, tank, bounds);
+			loopNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			sink += runGrid(grid, match, tank, bounds);
+			gridNanos += System.nanoTime() - start;
+		}
+		double checks = (double) BOUNDS * ROUNDS;
+		System.out.printf("%-14s %12.1f %12.1f %9.1fx%s%n", scenario, loopNanos / checks, gridNanos / checks,
+				(double) loopNanos / gridNanos, sink < 0 ? " " : "");
+	}
+
+	/**
+	 * Front bounds of 10x10 pixels, at random over an area.
+	 */
+	private static Rectangle2D[] randomBounds(Random random, int width, int height) {
+		Rectangle2D[] bounds = new Rectangle2D[BOUNDS];
+		for (int i = 0; i < BOUNDS; i++) {
+			bounds[i] = new Rectangle2D.Double(random.nextDouble() * width, random.nextDouble() * height, 10, 10);
+		}
+		return bounds;
+	}
+
+	private static int runLoop(Rectangle2D[] blocks, Rectangle2D area, Match match, Sprite tank, Rectangle2D[] bounds) {
+		int collisions = 0;
+		for (Rectangle2D bound : bounds) {
+			collisions += loop(blocks, area, match, tank, bound) ? 1 : 0;
+		}
+		return collisions;
+	}
+
+	private static int runGrid(OccupancyGrid grid, Match match, Sprite tank, Rectangle2D[] bounds) {
+		int collisions = 0;
+		for (Rectangle2D bound : bounds) {
+			collisions += grid(grid, match, tank, bound) ? 1 : 0;
+		}
+		return collisions;
+	}
+
+	/**
+	 * The check before the occupancy grid: the tanks, then every block,
+	 * checking the playing area along with every collider.
+	 */
+	private static boolean loop(Rectangle2D[] blocks, Rectangle2D area, Match match, Sprite tank,
+								Rectangle2D frontBound) {
+		for (Sprite g : match.getMovingColliders()) {
+			if (frontBound.intersects(g.hitBox) && tank != g || !frontBound.intersects(area)) {
+				return true;
+			}
+		}
+		for (Rectangle2D block : blocks) {
+			if (frontBound.intersects(block) || !frontBound.intersects(area)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The check of MovingSprite.isColliding.
+	 */
+	private static boolean grid(OccupancyGrid grid, Match match, Sprite tank, Rectangle2D frontBound) {
+		boolean colliding = grid.isBlocked(frontBound);
+		for (Sprite g : match.getMovingColliders()) {
+			colliding |= tank != g && frontBound.intersects(g.hitBox);
+		}
+		return colliding;
+	}
+}
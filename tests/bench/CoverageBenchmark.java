@@ -0,0 +1,125 @@
+package bench;
+
+import arena.CoverageIndex;
+
+import java.util.Random;
+
+/**
+ * Measures the coverage queries of rectangles of cells: scanning the owners
+ * of the cells in the rectangle, and the coverage index, along with the
+ * cost of keeping the index up to date when a cell changes owner. Both
+ * queries must give the same counts, which is checked first.
+ * <p>
+ *     The grids go from 256x256 to 4096x4096 cells, painted at random, and
+ *     the rectangles from a splat of 16x16 cells to a quarter of the grid.
+ *     The scan grows with the area of the rectangle, the index with the
+ *     logarithms of the size of the grid.
+ * </p>
+ * <p>
+ *     Run it with the main classpath and enough heap for the largest grid,
+ *     e.g. java -Xmx1g -cp out bench.CoverageBenchmark
+ * </p>
+ */
+public class CoverageBenchmark {
+	private static final int QUERIES = 2048;
+	private static final int UPDATES = 1 << 16;
+	private static final int ROUNDS = 20;
+
+	public static void main(String[] args) {
+		System.out.printf("%-6s %-9s %14s %12s %14s%n", "grid", "rectangle", "scan (ns)", "index (ns)", "update (ns)");
+		for (int size : new int[] { 256, 1024, 4096 }) {
+			Random random = new Random(size);
+			byte[] owners = new byte[size * size];
+			for (int i = 0; i < owners.length; i++) {
+				owners[i] = (byte) random.nextInt(3);
+			}
+			CoverageIndex index = new CoverageIndex(size, size);
+			for (int column = 0; column < size; column++) {
+				for (int row = 0; row < size; row++) {
+					index.setOwner(column, row, owners[column * size + row]);
+				}
+			}
+			double update = measureUpdates(index, owners, size, random);
+			for (int side : new int[] { 16, size / 8, size / 2 }) {
+				int[] rectangles = new int[QUERIES * 2];
+				for (int i = 0; i < rectangles.length; i++) {
+					rectangles[i] = random.nextInt(size - side + 1);
+				}
+				for (int q = 0; q < QUERIES; q++) {
+					int column = rectangles[2 * q], row = rectangles[2 * q + 1];
+					if (scan(owners, size, column, row, side) != index.count(1, column, row, column + side - 1, row + side - 1)) {
+						throw new IllegalStateException("The scan and the index differ at " + column + "," + row);
+					}
+				}
+				measure(size, side, owners, index, rectangles, update);
+			}
+		}
+	}
+
+	/**
+	 * Measures the queries of rectangles of a side, by the scan and by the index.
+	 */
+	private static void measure(int size, int side, byte[] owners, CoverageIndex index, int[] rectangles,
+								double update) {
+		// The largest scans are slow enough to be measured over fewer queries
+		int queries = (int) Math.max(16, Math.min(QUERIES, (1L << 26) / ((long) side * side)));
+		long sink = 0, scanNanos = 0, indexNanos = 0;
+		for (int round = 0; round < ROUNDS + 5; round++) {
+			long start = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				sink += scan(owners, size, rectangles[2 * q], rectangles[2 * q + 1], side);
+			}
+			long scanned = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int q = 0; q < QUERIES; q++) {
+				int column = rectangles[2 * q], row = rectangles[2 * q + 1];
+				sink += index.count(1, column, row, column + side - 1, row + side - 1);
+			}
+			if (round >= 5) {
+				scanNanos += scanned;
+				indexNanos += System.nanoTime() - start;
+			}
+		}
+		System.out.printf("%-6d %-9s %14.1f %12.1f %14.1f%s%n", size, side + "x" + side,
+				(double) scanNanos / queries / ROUNDS, (double) indexNanos / QUERIES / ROUNDS, update,
+				sink == 42 ? " " : "");
+	}
+
+	/**
+	 * Measures changing the owner of cells at random in the index.
+	 * @return The time of a change, in nanoseconds.
+	 */
+	private static double measureUpdates(CoverageIndex index, byte[] owners, int size, Random random) {
+		int[] cells = new int[UPDATES];
+		for (int i = 0; i < UPDATES; i++) {
+			cells[i] = random.nextInt(owners.length);
+		}
+		long nanos = 0;
+		for (int round = 0; round < ROUNDS + 5; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < UPDATES; i++) {
+				int cell = cells[i];
+				int owner = owners[cell] % 2 + 1;
+				owners[cell] = (byte) owner;
+				index.setOwner(cell / size, cell % size, owner);
+			}
+			if (round >= 5) {
+				nanos += System.nanoTime() - start;
+			}
+		}
+		return (double) nanos / UPDATES / ROUNDS;
+	}
+
+	/**
+	 * Counts the cells of player 1 in a square of cells, one by one.
+	 */
+	private static int scan(byte[] owners, int size, int column0, int row0, int side) {
+		int count = 0;
+		for (int column = column0; column < column0 + side; column++) {
+			for (int i = column * size + row0, end = i + side; i < end; i++) {
+				count += owners[i] == 1 ? 1 : 0;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,86 @@
+package bench;
+
+import arena.Arena;
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import main.Game1;
+import main.PlayersManagement;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures drawing the frames of a match played by random players: whole,
+ * as Match.draw does, and only the parts that changed over the last frame,
+ * as Match.drawChanges does when the back buffer keeps it. Along with the
+ * time of a frame, it reports the fill rate: the fraction of the screen
+ * drawn again in a frame.
+ * <p>
+ *     Run it headless with the main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.DirtyRenderBenchmark
+ * </p>
+ */
+public class DirtyRenderBenchmark {
+	private static final int WARMUP_FRAMES = 300;
+	private static final int FRAMES = 1200;
+
+	public static void main(String[] args) {
+		Assets.init();
+		System.out.printf("%-8s %-8s %10s %10s %10s%n", "players", "frame", "p50 (ms)", "p90 (ms)", "fill");
+		for (int count : new int[] { 2, 16 }) {
+			run(count, false);
+			run(count, true);
+		}
+	}
+
+	/**
+	 * Plays a match of some players, drawing its frames whole or only their changes.
+	 */
+	private static void run(int count, boolean changes) {
+		Match match = createMatch(count);
+		Player[] players = match.getPlayers();
+		BufferedImage image = new BufferedImage(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		Random random = new Random(50);
+		long[] nanos = new long[FRAMES];
+		long repainted = 0;
+		for (int frame = -WARMUP_FRAMES; frame < FRAMES; frame++) {
+			// The players change their input about every half a second
+			for (Player player : players) {
+				if (random.nextInt(30) == 0) {
+					((RemoteKeyBoard) player.keyBoard).setButtons(random.nextInt(KeyBoard.BOOST) | KeyBoard.SHOOT);
+				}
+			}
+			match.tick();
+			long start = System.nanoTime();
+			if (changes) {
+				match.drawChanges(g, 1);
+			} else {
+				match.draw(g);
+			}
+			if (frame >= 0) {
+				nanos[frame] = System.nanoTime() - start;
+				repainted += match.getRepaintedArea();
+			}
+		}
+		g.dispose();
+		Arrays.sort(nanos);
+		System.out.printf("%-8d %-8s %10.3f %10.3f %9.1f%%%n", count, changes ? "changes" : "whole",
+				nanos[FRAMES / 2] / 1e6, nanos[FRAMES * 9 / 10] / 1e6,
+				100.0 * repainted / FRAMES / (Game1.SCREEN_WIDTH * Game1.SCREEN_HEIGHT));
+	}
+
+	private static Match createMatch(int count) {
+		Player[] players = TestMatches.newPlayers(count, 0);
+		for (Player player : players) {
+			player.keyBoard = new RemoteKeyBoard(player.keyBoard);
+		}
+		return new Match((PlayersManagement) null, players, new Arena());
+	}
+}
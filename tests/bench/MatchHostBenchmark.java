@@ -0,0 +1,86 @@
+package bench;
+
+import graphics.Assets;
+import input.KeyBoard;
+import main.JsonPlayersStore;
+import main.PlayersManagement;
+import net.MatchHost;
+import net.Protocol;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how many matches a MatchHost sustains: for an increasing number
+ * of concurrent matches played by random players, the worst percentiles of
+ * the tick durations over all the matches, and the ticks per second each
+ * match actually runs, compared with the TICK_RATE.
+ * <p>
+ *     Run it with the main classpath, the resources and Gson, e.g.
+ *     java -Djava.awt.headless=true -cp out:res:gson.jar bench.MatchHostBenchmark
+ * </p>
+ */
+public class MatchHostBenchmark {
+	private static final int[] MATCHES = { 10, 100, 500, 1_000, 2_000 };
+	private static final int SECONDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		Assets.init();
+		Path directory = Files.createTempDirectory("splatank");
+		Random random = new Random(42);
+
+		System.out.printf("%8s %10s %10s %10s %10s %10s %9s%n",
+				"matches", "p50 (us)", "p99 (us)", "p999 (us)", "max (us)", "ticks/s", "aborted");
+		for (int count : MATCHES) {
+			PlayersManagement playersManagement = new PlayersManagement(
+					new JsonPlayersStore(directory.resolve("players" + count + ".json")));
+			MatchHost host = new MatchHost(playersManagement);
+			List<MatchHost.Seat> seats = new ArrayList<>();
+			for (int i = 0; i < count * 2; i++) {
+				seats.add(host.join("P" + i));
+			}
+
+			// The players change their input about every half a second
+			long end = System.currentTimeMillis() + SECONDS * 1000;
+			while (System.currentTimeMillis() < end) {
+				for (MatchHost.Seat seat : seats) {
+					if (random.nextInt(30) == 0) {
+						seat.setButtons(random.nextInt(KeyBoard.BOOST) | KeyBoard.SHOOT);
+					}
+				}
+				Thread.sleep(1000 / Protocol.TICK_RATE);
+			}
+
+			long ticks = 0;
+			long max = 0;
+			List<Long> durations = new ArrayList<>();
+			for (MatchHost.HostedMatch hostedMatch : host.getMatches()) {
+				ticks += hostedMatch.getStats().getCount();
+				max = Math.max(max, hostedMatch.getStats().getMax());
+				for (long duration : hostedMatch.getStats().getPercentiles(50, 99, 99.9)) {
+					durations.add(duration);
+				}
+			}
+			long[] p = percentilesOfMatches(durations);
+			System.out.printf("%8d %10.1f %10.1f %10.1f %10.1f %10.0f %9d%n", count,
+					p[0] / 1e3, p[1] / 1e3, p[2] / 1e3, max / 1e3,
+					ticks / (double) SECONDS / Math.max(1, host.getMatchCount()), host.getAbortedMatches());
+			host.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the worst p50, p99 and p99.9 of every match.
+	 */
+	private static long[] percentilesOfMatches(List<Long> durations) {
+		long[] worst = new long[3];
+		for (int i = 0; i < durations.size(); i++) {
+			worst[i % 3] = Math.max(worst[i % 3], durations.get(i));
+		}
+		return Arrays.copyOf(worst, 3);
+	}
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import arena.Arena;
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import main.PlayersManagement;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.util.Random;
+
+/**
+ * Measures the ticks of free-for-all matches of 2 to 16 tanks driven by
+ * random players, and how many times the tick of 2 tanks they take. The
+ * bullets are checked against the tanks in the tank grid, so a tick should
+ * grow with the tanks moving and shooting, not with the pairs of tanks.
+ * <p>
+ *     Run it with the main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.MultiTankBenchmark
+ * </p>
+ */
+public class MultiTankBenchmark {
+	private static final int MATCHES = 10;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		Assets.init();
+		System.out.printf("%6s %14s %14s %12s%n", "tanks", "tick (us)", "tank (us)", "x 2 tanks");
+		double twoTanks = 0;
+		for (int tanks : new int[] { 2, 4, 8, 16 }) {
+			for (int round = 0; round < WARMUP_ROUNDS; round++) {
+				simulate(tanks);
+			}
+			long ticks = 0;
+			long start = System.nanoTime();
+			for (int round = 0; round < ROUNDS; round++) {
+				ticks += simulate(tanks);
+			}
+			double tick = (System.nanoTime() - start) / 1e3 / ticks;
+			if (tanks == 2) {
+				twoTanks = tick;
+			}
+			System.out.printf("%6d %14.2f %14.2f %12.2f%n", tanks, tick, tick / tanks, tick / twoTanks);
+		}
+	}
+
+	/**
+	 * Simulates MATCHES whole matches of some tanks, returning the ticks simulated.
+	 */
+	private static long simulate(int tanks) {
+		Random random = new Random(49);
+		Arena arena = new Arena();
+		long ticks = 0;
+		for (int m = 0; m < MATCHES; m++) {
+			Player[] players = TestMatches.newPlayers(tanks, 0);
+			RemoteKeyBoard[] keyBoards = new RemoteKeyBoard[tanks];
+			for (int i = 0; i < tanks; i++) {
+				keyBoards[i] = new RemoteKeyBoard(players[i].keyBoard);
+				players[i].keyBoard = keyBoards[i];
+			}
+			Match match = new Match((PlayersManagement) null, players, arena);
+
+			// The players change their input about every half a second
+			while (!match.isFinished()) {
+				for (RemoteKeyBoard keyBoard : keyBoards) {
+					if (random.nextInt(30) == 0) {
+						keyBoard.setButtons(random.nextInt(KeyBoard.BOOST) | KeyBoard.SHOOT);
+					}
+				}
+				match.tick();
+				ticks++;
+			}
+			arena.reset();
+		}
+		return ticks;
+	}
+}
@@ -0,0 +1,72 @@
+package bench;
+
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.util.Random;
+
+/**
+ * Measures batch simulation of whole matches, fast-forwarded by random
+ * players, with the default physics and with the fixed-point physics: the
+ * ticks per second and how many times real time that is.
+ * <p>
+ *     Run it with the main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.PhysicsBenchmark
+ * </p>
+ */
+public class PhysicsBenchmark {
+	private static final int MATCHES = 50;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		Assets.init();
+		System.out.printf("%12s %14s %14s%n", "physics", "ticks/s", "x real time");
+		for (boolean fixedPoint : new boolean[] { false, true, false, true }) {
+			for (int round = 0; round < WARMUP_ROUNDS; round++) {
+				simulate(fixedPoint);
+			}
+			long ticks = 0;
+			long start = System.nanoTime();
+			for (int round = 0; round < ROUNDS; round++) {
+				ticks += simulate(fixedPoint);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%12s %14.0f %14.0f%n", fixedPoint ? "fixed-point" : "double",
+					ticks / seconds, ticks / seconds / 60);
+		}
+	}
+
+	/**
+	 * Simulates MATCHES whole matches, returning the ticks simulated.
+	 */
+	private static long simulate(boolean fixedPoint) {
+		Random random = new Random(42);
+		long ticks = 0;
+		for (int m = 0; m < MATCHES; m++) {
+			Match match = TestMatches.newMatch();
+			Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+			match.setFixedPointPhysics(fixedPoint);
+			RemoteKeyBoard keyBoard1 = new RemoteKeyBoard(p1.keyBoard), keyBoard2 = new RemoteKeyBoard(p2.keyBoard);
+			p1.keyBoard = keyBoard1;
+			p2.keyBoard = keyBoard2;
+
+			// The players change their input about every half a second
+			while (!match.isFinished()) {
+				if (random.nextInt(30) == 0) {
+					keyBoard1.setButtons(random.nextInt(KeyBoard.BOOST) | KeyBoard.SHOOT);
+				}
+				if (random.nextInt(30) == 0) {
+					keyBoard2.setButtons(random.nextInt(KeyBoard.BOOST) | KeyBoard.SHOOT);
+				}
+				match.tick();
+				ticks++;
+			}
+		}
+		return ticks;
+	}
+}
@@ -0,0 +1,131 @@
+package bench;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import main.JsonPlayersStore;
+import main.PlayerStatsCodec;
+import sprites.Player;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares the reflective Gson path with PlayerStatsCodec, reading and
+ * writing players.json contents of 10k, 100k and 1M players in memory.
+ * <p>
+ *     Run it with the main classpath and Gson, e.g.
+ *     java -cp out:gson.jar bench.PlayersCodecBenchmark
+ * </p>
+ */
+public class PlayersCodecBenchmark {
+	private static final int[] SIZES = { 10_000, 100_000, 1_000_000 };
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+		System.out.printf("%10s %-6s %14s %14s %8s%n", "players", "op", "gson (p/s)", "codec (p/s)", "speedup");
+
+		for (int size : SIZES) {
+			Map<String, Player> playersMap = createPlayers(size);
+			String json = writeWithGson(playersMap);
+
+			// We write the map to a temporary file so the codec can write it from a store
+			Path file = Files.createTempFile("players", ".json");
+			Files.writeString(file, json);
+			JsonPlayersStore store = new JsonPlayersStore(file);
+
+			double gsonRead = measure(size, () -> readWithGson(json));
+			double codecRead = measure(size, () -> readWithCodec(json));
+			double gsonWrite = measure(size, () -> writeWithGson(playersMap));
+			double codecWrite = measure(size, () -> writeWithCodec(store));
+
+			print(size, "read", gsonRead, codecRead);
+			print(size, "write", gsonWrite, codecWrite);
+			Files.delete(file);
+		}
+	}
+
+	private static Map<String, Player> createPlayers(int size) {
+		Map<String, Player> playersMap = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			Player player = new Player("PLAYER" + i);
+			player.record = i % 5000;
+			player.matchesWon = i % 37;
+			player.matchesLost = i % 41;
+			playersMap.put(player.name, player);
+		}
+		return playersMap;
+	}
+
+	private static Object readWithGson(String json) {
+		// Same as the previous PlayersManagement.readJsonToMap
+		Gson gson = new GsonBuilder()
+				.excludeFieldsWithoutExposeAnnotation()
+				.create();
+		Type type = new TypeToken<Map<String, Player>>() {}.getType();
+		return gson.fromJson(new JsonReader(new StringReader(json)), type);
+	}
+
+	private static Object readWithCodec(String json) {
+		Map<String, Player> playersMap = new HashMap<>();
+		try {
+			PlayerStatsCodec.INSTANCE.readAll(new StringReader(json), p -> playersMap.put(p.name, p));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return playersMap;
+	}
+
+	private static String writeWithGson(Map<String, Player> playersMap) {
+		// Same as the previous PlayersManagement.savePlayersToJson
+		Gson gson = new GsonBuilder()
+				.excludeFieldsWithoutExposeAnnotation()
+				.setPrettyPrinting()
+				.create();
+		StringWriter writer = new StringWriter();
+		gson.toJson(playersMap, writer);
+		return writer.toString();
+	}
+
+	private static String writeWithCodec(JsonPlayersStore store) {
+		StringWriter writer = new StringWriter();
+		try {
+			PlayerStatsCodec.INSTANCE.writeAll(writer, store);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Runs the operation several times and returns the best throughput.
+	 */
+	private static double measure(int size, Operation operation) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			operation.run();
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			operation.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return size / (best / 1e9);
+	}
+
+	private static void print(int size, String op, double gson, double codec) {
+		System.out.printf("%10d %-6s %14.0f %14.0f %7.2fx%n", size, op, gson, codec, codec / gson);
+	}
+
+	private interface Operation {
+		Object run();
+	}
+}
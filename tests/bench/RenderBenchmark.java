@@ -0,0 +1,249 @@
+package bench;
+
+import arena.ChunkedTerritory;
+import graphics.Assets;
+import main.Game1;
+import main.JsonPlayersStore;
+import main.PlayersManagement;
+import math.Vector2D;
+import sprites.Bullet;
+import sprites.Cell;
+import sprites.Player;
+import states.IGameState;
+import states.Match;
+import states.TestMatches;
+
+import javax.imageio.ImageIO;
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Measures the time and the allocation of drawing the states of the game
+ * into an offscreen image: the main menu, the leaderboard, the arena empty,
+ * fully painted and with 500 live bullets, large arenas of 100x100 and
+ * 1000x1000 cells, and the players alone.
+ * <p>
+ *     The first frame of every scenario is saved as a reference PNG in a
+ *     directory. When a reference is already there, the frame is compared
+ *     with it instead, pixel by pixel, so an optimization of the rendering
+ *     can be checked to draw exactly the same. It exits with 1 if a frame
+ *     differs from its reference.
+ * </p>
+ * <p>
+ *     Run it headless with the main classpath, the resources and Gson, e.g.
+ *     java -Djava.awt.headless=true -cp out:res:gson.jar bench.RenderBenchmark render-reference 500
+ *     The arguments are the directory of the references and the frames
+ *     measured per scenario.
+ * </p>
+ */
+public class RenderBenchmark {
+	private static final int WARMUP_FRAMES = 200;
+	private static final int BULLETS = 500;
+	/**
+	 * Frames the menu needs to process a key, over its cool down.
+	 */
+	private static final int KEY_FRAMES = 8;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) throws IOException {
+		Path references = Paths.get(args.length > 0 ? args[0] : "render-reference");
+		int frames = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		Assets.init();
+		Files.createDirectories(references);
+		BufferedImage image = new BufferedImage(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+
+		Path directory = Files.createTempDirectory("render");
+		Path players = directory.resolve("players.json");
+		boolean identical = true;
+		try {
+			Game1 game = new Game1(new PlayersManagement(new JsonPlayersStore(players)));
+			System.out.printf("%-12s %10s %10s %10s %10s %14s  %s%n",
+					"scenario", "p50 (ms)", "p90 (ms)", "p99 (ms)", "max (ms)", "alloc (B/f)", "reference");
+
+			IGameState menu = game.getCurrentState();
+			identical &= run("menu", menu::draw, g, image, frames, references);
+
+			fillLeaderboard(game.playersManagement);
+			type(game, KeyEvent.VK_DOWN);
+			type(game, KeyEvent.VK_ENTER);
+			identical &= run("leaderboard", menu::draw, g, image, frames, references);
+
+			Match match = TestMatches.newMatch();
+			identical &= run("arena-empty", match::draw, g, image, frames, references);
+
+			paintArena(match);
+			identical &= run("arena-painted", match::draw, g, image, frames, references);
+
+			match = TestMatches.newMatch();
+			addBullets(match);
+			identical &= run("arena-bullets", match::draw, g, image, frames, references);
+
+			// The frame time of a large arena depends on the area seen, not on its size
+			for (int size : new int[] { 100, 1000 }) {
+				Match large = newLargeMatch(size);
+				identical &= run("large-" + size, large::draw, g, image, frames, references);
+			}
+
+			Match bullets = match;
+			identical &= run("players", graphics -> {
+				bullets.getPlayer1().draw(graphics);
+				bullets.getPlayer2().draw(graphics);
+			}, g, image, frames, references);
+		} finally {
+			g.dispose();
+			Files.deleteIfExists(players);
+			Files.delete(directory);
+		}
+		System.exit(identical ? 0 : 1);
+	}
+
+	/**
+	 * Draws a scenario, measuring every frame, and checks its first frame
+	 * against the reference.
+	 * @return Whether the frame is identical to the reference, or there was none.
+	 */
+	private static boolean run(String scenario, Consumer<Graphics2D> draw, Graphics2D g, BufferedImage image,
+							   int frames, Path references) throws IOException {
+		g.clearRect(0, 0, image.getWidth(), image.getHeight());
+		draw.accept(g);
+		String reference = checkReference(image, references.resolve(scenario + ".png"));
+
+		for (int i = 0; i < WARMUP_FRAMES; i++) {
+			draw.accept(g);
+		}
+		long[] nanos = new long[frames];
+		long allocated = THREADS.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < frames; i++) {
+			long start = System.nanoTime();
+			draw.accept(g);
+			nanos[i] = System.nanoTime() - start;
+		}
+		allocated = THREADS.getCurrentThreadAllocatedBytes() - allocated;
+
+		Arrays.sort(nanos);
+		System.out.printf("%-12s %10.3f %10.3f %10.3f %10.3f %14d  %s%n", scenario,
+				percentile(nanos, 0.5), percentile(nanos, 0.9), percentile(nanos, 0.99), nanos[frames - 1] / 1e6,
+				allocated / frames, reference);
+		return !reference.endsWith("differ");
+	}
+
+	/**
+	 * Returns a percentile of the sorted frame times, in milliseconds.
+	 */
+	private static double percentile(long[] sorted, double fraction) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))] / 1e6;
+	}
+
+	/**
+	 * Saves the image as the reference if there is none, or compares it with the reference.
+	 * @return What was done: saved, identical, or how many pixels differ.
+	 */
+	private static String checkReference(BufferedImage image, Path file) throws IOException {
+		if (!Files.exists(file)) {
+			ImageIO.write(image, "png", file.toFile());
+			return "saved";
+		}
+		BufferedImage reference = ImageIO.read(file.toFile());
+		if (reference.getWidth() != image.getWidth() || reference.getHeight() != image.getHeight()) {
+			return "size differ";
+		}
+		int differences = 0;
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				if ((reference.getRGB(x, y) & 0xFFFFFF) != (image.getRGB(x, y) & 0xFFFFFF)) {
+					differences++;
+				}
+			}
+		}
+		return differences == 0 ? "identical" : differences + " pixels differ";
+	}
+
+	/**
+	 * Stores some players with different records, for the leaderboard.
+	 */
+	private static void fillLeaderboard(PlayersManagement playersManagement) {
+		for (int i = 0; i < 5; i++) {
+			Player[] players = playersManagement.initializePlayers("PLAYER" + (2 * i), "PLAYER" + (2 * i + 1));
+			players[0].points = 100 * (i + 1);
+			players[1].points = 10 * i;
+			playersManagement.updatePlayersData(players[0], players[1]);
+		}
+		playersManagement.savePlayers();
+	}
+
+	/**
+	 * Presses a key in the menu, running the frames it needs to process it.
+	 */
+	private static void type(Game1 game, int keyCode) {
+		Canvas canvas = game.getCanvas();
+		KeyEvent pressed = new KeyEvent(canvas, KeyEvent.KEY_PRESSED, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+		KeyEvent released = new KeyEvent(canvas, KeyEvent.KEY_RELEASED, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+		for (KeyListener listener : canvas.getKeyListeners()) {
+			listener.keyPressed(pressed);
+		}
+		for (int i = 0; i < KEY_FRAMES; i++) {
+			game.runFrame(null);
+		}
+		for (KeyListener listener : canvas.getKeyListeners()) {
+			listener.keyReleased(released);
+		}
+	}
+
+	/**
+	 * Creates a match in a large arena of size x size cells, painted in
+	 * stripes around the tanks, which are moved to the middle of it.
+	 */
+	private static Match newLargeMatch(int size) {
+		Match match = TestMatches.newMatch(size, size);
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		ChunkedTerritory territory = match.getTerritory();
+		int middle = size / 2;
+		for (int column = Math.max(0, middle - 60); column < Math.min(size, middle + 60); column++) {
+			for (int row = Math.max(0, middle - 40); row < Math.min(size, middle + 40); row++) {
+				territory.setOwner(column, row, column / 4 % 2 + 1);
+			}
+		}
+		double x = territory.getX() + middle * ChunkedTerritory.CELL_SIZE;
+		double y = territory.getY() + middle * ChunkedTerritory.CELL_SIZE;
+		p1.tank.position = new Vector2D(x - 300, y);
+		p2.tank.position = new Vector2D(x + 300, y);
+		return match;
+	}
+
+	/**
+	 * Paints every cell of the arena, in stripes of both players.
+	 */
+	private static void paintArena(Match match) {
+		for (int i = 0; i < match.cellsGrid.length; i++) {
+			for (Cell cell : match.cellsGrid[i]) {
+				cell.setOwner(i / 4 % 2 + 1);
+			}
+		}
+	}
+
+	/**
+	 * Adds BULLETS bullets to the players, spread over the arena at every angle.
+	 */
+	private static void addBullets(Match match) {
+		for (int i = 0; i < BULLETS; i++) {
+			Player player = i % 2 == 0 ? match.getPlayer1() : match.getPlayer2();
+			Bullet bullet = new Bullet(player);
+			bullet.position = new Vector2D(220 + i * 37 % 1490, 230 + i * 53 % 720);
+			bullet.setRotation(Math.toRadians(i * 7 % 360));
+			player.bullets.add(bullet);
+		}
+	}
+}
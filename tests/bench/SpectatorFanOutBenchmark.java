@@ -0,0 +1,142 @@
+package bench;
+
+import net.MatchState;
+import net.Protocol;
+import net.SnapshotCodec;
+import net.SpectatorBroadcaster;
+import net.TerritoryFeed;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cost of broadcasting a match to 10, 100 and 1,000 loopback
+ * spectators, on the thread running the match.
+ * <p>
+ *     The spectators are drained by another thread. The cost of encoding
+ *     the state once per spectator, which the broadcaster avoids, is shown
+ *     for comparison.
+ * </p>
+ * <p>
+ *     Run it with the main classpath, e.g. java -cp out bench.SpectatorFanOutBenchmark
+ * </p>
+ */
+public class SpectatorFanOutBenchmark {
+	private static final int[] SPECTATORS = { 10, 100, 1_000 };
+	private static final int WARMUP_TICKS = 600;
+	private static final int TICKS = 3_600;
+
+	public static void main(String[] args) throws Exception {
+		System.out.printf("%10s %14s %16s %18s %8s%n",
+				"spectators", "tick (us)", "per spect. (ns)", "encode each (us)", "skips");
+		for (int count : SPECTATORS) {
+			run(count);
+		}
+	}
+
+	private static void run(int count) throws Exception {
+		SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(new InetSocketAddress("127.0.0.1", 0));
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", broadcaster.getLocalAddress().getPort());
+
+		// The spectators are drained by another thread, as fast as possible. The
+		// broadcaster accepts them while broadcasting, so it ticks while they connect
+		MatchState state = new MatchState();
+		TerritoryFeed territory = new TerritoryFeed();
+		int warmupTick = 0;
+		Selector selector = Selector.open();
+		List<SocketChannel> channels = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			SocketChannel channel = SocketChannel.open(address);
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_READ);
+			channels.add(channel);
+			if (i % 16 == 15) {
+				step(state, territory, warmupTick++);
+				broadcaster.broadcast(state, territory);
+			}
+		}
+		Thread drainer = new Thread(() -> drain(selector));
+		drainer.start();
+
+		for (int tick = warmupTick; tick < WARMUP_TICKS; tick++) {
+			step(state, territory, tick);
+			broadcaster.broadcast(state, territory);
+		}
+
+		long broadcastNanos = 0;
+		for (int tick = WARMUP_TICKS; tick < WARMUP_TICKS + TICKS; tick++) {
+			step(state, territory, tick);
+			long start = System.nanoTime();
+			broadcaster.broadcast(state, territory);
+			broadcastNanos += System.nanoTime() - start;
+		}
+		long encodeNanos = measureEncodeEach(state, count);
+
+		System.out.printf("%10d %14.1f %16.0f %18.1f %8d%n", broadcaster.getSpectatorCount(),
+				broadcastNanos / 1e3 / TICKS, broadcastNanos / (double) TICKS / count,
+				encodeNanos / 1e3, broadcaster.getSkips());
+
+		broadcaster.close();
+		selector.close();
+		drainer.join();
+		for (SocketChannel channel : channels) {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Changes the state as a match would, painting a splat and moving a tank.
+	 */
+	private static void step(MatchState state, TerritoryFeed territory, int tick) {
+		state.sequence = tick;
+		state.tick = tick;
+		state.tankX[0] = (short) (tick % 4000);
+		for (int k = 0; k < 9; k++) {
+			int cell = (tick * 31 + k) % MatchState.CELLS;
+			state.cells[cell] = (byte) (1 + tick % 2);
+			territory.ownerChanged(cell, state.cells[cell]);
+		}
+	}
+
+	/**
+	 * Measures encoding a state once per spectator, in nanoseconds.
+	 */
+	private static long measureEncodeEach(MatchState state, int count) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Protocol.MAX_PACKET);
+		MatchState base = new MatchState();
+		base.copyFrom(state);
+		base.sequence--;
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < 20; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				SnapshotCodec.encode(state, base, buffer.clear());
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static void drain(Selector selector) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+		try {
+			while (selector.isOpen()) {
+				selector.select(100);
+				for (SelectionKey key : selector.selectedKeys()) {
+					while (((SocketChannel) key.channel()).read(buffer.clear()) > 0) {
+						// Discarded
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException | RuntimeException e) {
+			// The selector was closed
+		}
+	}
+}
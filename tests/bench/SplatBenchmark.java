@@ -0,0 +1,129 @@
+package bench;
+
+import arena.ChunkedTerritory;
+import arena.SplatStencil;
+import events.EventBus;
+import graphics.Assets;
+import math.Vector2D;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.util.Random;
+
+/**
+ * Measures painting splats: the loop over the cells of the stencil,
+ * scoring and painting them one by one as Player.paintCells did, and the
+ * owner planes painting the stencil with masks and scoring it in bulk, as
+ * Player.paintCells does now.
+ * <p>
+ *     Every stencil is measured on the player's own ground, where a splat
+ *     changes no cell (the common case late in a match), and on the enemy's
+ *     ground, where the players take turns over the same spots and every
+ *     cell changes. The cells changed are still painted one by one, so only
+ *     the first case can cost the same whatever the radius.
+ * </p>
+ * <p>
+ *     Run it with the main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.SplatBenchmark
+ * </p>
+ */
+public class SplatBenchmark {
+	private static final int SIZE = 200;
+	private static final int SPOTS = 256;
+	private static final int WARMUP_ROUNDS = 200;
+	private static final int ROUNDS = 400;
+
+	public static void main(String[] args) {
+		Assets.init();
+		System.out.printf("%-12s %-8s %12s %12s %10s%n", "stencil", "ground", "loop (ns)", "masks (ns)", "speedup");
+		for (String stencil : new String[] { "square:1", "circle:4", "circle:8", "circle:16", "cone:16" }) {
+			SplatStencil splat = SplatStencil.parse(stencil);
+			run(splat, false);
+			run(splat, true);
+		}
+	}
+
+	/**
+	 * Measures the splats of a stencil at random spots, by the loop and by
+	 * the masks, in two matches painted the same.
+	 * @param contested Whether the players take turns, or player 1 paints alone.
+	 */
+	private static void run(SplatStencil splat, boolean contested) {
+		Match loopMatch = TestMatches.newMatch(SIZE, SIZE), maskMatch = TestMatches.newMatch(SIZE, SIZE);
+		maskMatch.setSplat(splat);
+		Random random = new Random(11);
+		Vector2D[] spots = new Vector2D[SPOTS];
+		double[] angles = new double[SPOTS];
+		ChunkedTerritory territory = maskMatch.getTerritory();
+		for (int i = 0; i < SPOTS; i++) {
+			spots[i] = new Vector2D(territory.getX() + random.nextInt(SIZE * ChunkedTerritory.CELL_SIZE),
+					territory.getY() + random.nextInt(SIZE * ChunkedTerritory.CELL_SIZE));
+			angles[i] = random.nextDouble() * 2 * Math.PI;
+		}
+
+		long sink = 0;
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			sink += runLoop(loopMatch, splat, spots, angles, contested, round)
+					+ runMasks(maskMatch, spots, angles, contested, round);
+		}
+		if (loopMatch.VSBarX != maskMatch.VSBarX || loopMatch.getPlayer1().points != maskMatch.getPlayer1().points) {
+			throw new IllegalStateException("The loop and the masks score differently with " + splat);
+		}
+		long loopNanos = 0, maskNanos = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			sink += runLoop(loopMatch, splat, spots, angles, contested, round);
+			loopNanos += System.nanoTime() - start;
+			start = System.nanoTime();
+			sink += runMasks(maskMatch, spots, angles, contested, round);
+			maskNanos += System.nanoTime() - start;
+		}
+		double splats = (double) SPOTS * ROUNDS;
+		System.out.printf("%-12s %-8s %12.1f %12.1f %9.1fx%s%n", splat, contested ? "enemy" : "own",
+				loopNanos / splats, maskNanos / splats, (double) loopNanos / maskNanos, sink == 42 ? " " : "");
+	}
+
+	private static Player painter(Match match, boolean contested, int round) {
+		return contested && round % 2 == 1 ? match.getPlayer2() : match.getPlayer1();
+	}
+
+	private static long runMasks(Match match, Vector2D[] spots, double[] angles, boolean contested, int round) {
+		Player player = painter(match, contested, round);
+		for (int i = 0; i < spots.length; i++) {
+			player.paintCells(spots[i], angles[i]);
+		}
+		return match.VSBarX;
+	}
+
+	/**
+	 * The splats before the owner planes: every cell of the stencil scored
+	 * and painted in turn.
+	 */
+	private static long runLoop(Match match, SplatStencil splat, Vector2D[] spots, double[] angles,
+								boolean contested, int round) {
+		Player player = painter(match, contested, round);
+		ChunkedTerritory territory = match.getTerritory();
+		int radius = splat.getRadius();
+		for (int i = 0; i < spots.length; i++) {
+			int column = territory.columnAt(spots[i].getX()), row = territory.rowAt(spots[i].getY());
+			int direction = splat.direction(angles[i]);
+			for (int dx = -radius; dx <= radius; dx++) {
+				long mask = splat.getColumn(direction, dx);
+				for (int dy = -radius; dy <= radius; dy++) {
+					int c = column + dx, r = row + dy;
+					if ((mask & (1L << (dy + radius))) == 0 || c < 0 || c >= SIZE || r < 0 || r >= SIZE) {
+						continue;
+					}
+					int oldOwner = territory.getOwner(c, r);
+					match.scorePaint(player, oldOwner);
+					if (oldOwner != player.getNumber()) {
+						territory.setOwner(c, r, player.getNumber());
+						match.publishEvent(EventBus.CELL_PAINTED, player.getNumber(), c * SIZE + r, oldOwner);
+					}
+				}
+			}
+		}
+		return match.VSBarX;
+	}
+}
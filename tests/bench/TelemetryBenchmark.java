@@ -0,0 +1,147 @@
+package bench;
+
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+import telemetry.TelemetryAggregate;
+import telemetry.TelemetryRecorder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the cost of recording the telemetry of matches, fast-forwarded
+ * by random players: the tick time without and with a recorder, the time
+ * of a sample, and how many recorded matches are aggregated per second.
+ * <p>
+ *     Run it with the main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.TelemetryBenchmark
+ * </p>
+ */
+public class TelemetryBenchmark {
+	private static final int MATCHES = 50;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+	private static final int SAMPLES = 5_000_000;
+
+	public static void main(String[] args) throws IOException {
+		Assets.init();
+		Path directory = Files.createTempDirectory("telemetry");
+		List<Path> files = new ArrayList<>();
+		try {
+			System.out.printf("%12s %14s%n", "telemetry", "ns/tick");
+			double[] nanos = new double[2];
+			for (int i = 0; i < 4; i++) {
+				boolean recorded = i % 2 == 1;
+				for (int round = 0; round < WARMUP_ROUNDS; round++) {
+					simulate(recorded ? directory : null, files);
+				}
+				long ticks = 0;
+				long start = System.nanoTime();
+				for (int round = 0; round < ROUNDS; round++) {
+					ticks += simulate(recorded ? directory : null, files);
+				}
+				nanos[i % 2] = (double) (System.nanoTime() - start) / ticks;
+				System.out.printf("%12s %14.1f%n", recorded ? "recorded" : "off", nanos[i % 2]);
+			}
+			// The difference of the whole ticks is mostly noise when the writer
+			// shares the core, so the sampling is also measured alone
+			double sampleNanos = measureSample(directory.resolve("sample.bin"));
+			System.out.printf("Sample: %.1f ns, %.2f%% of a tick; whole ticks: %+.2f%%%n", sampleNanos,
+					sampleNanos / nanos[0] * 100, (nanos[1] / nanos[0] - 1) * 100);
+
+			List<Path> many = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				many.addAll(files);
+			}
+			for (int round = 0; round < WARMUP_ROUNDS; round++) {
+				TelemetryAggregate.of(many);
+			}
+			long start = System.nanoTime();
+			TelemetryAggregate aggregate = TelemetryAggregate.of(many);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("Aggregated %d matches: %.0f matches/s, accuracy %.2f / %.2f%n", aggregate.getMatches(),
+					aggregate.getMatches() / seconds, aggregate.getAccuracy(1), aggregate.getAccuracy(2));
+		} finally {
+			for (Path file : files) {
+				Files.deleteIfExists(file);
+			}
+			Files.delete(directory);
+		}
+	}
+
+	/**
+	 * Returns the time of sampling a match in the middle, in nanoseconds.
+	 */
+	private static double measureSample(Path file) throws IOException {
+		Match match = TestMatches.newMatch();
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		p1.keyBoard = new RemoteKeyBoard(p1.keyBoard);
+		p2.keyBoard = new RemoteKeyBoard(p2.keyBoard);
+		match.fastForward(Match.MATCH_SECONDS * 30);
+		TelemetryRecorder recorder = new TelemetryRecorder(match, file);
+		double best = Double.MAX_VALUE;
+		try {
+			// The same tick is sampled again and again, replacing its values
+			for (int round = 0; round < 20; round++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < SAMPLES; i++) {
+					recorder.sample();
+				}
+				best = Math.min(best, (double) (System.nanoTime() - start) / SAMPLES);
+			}
+		} finally {
+			recorder.close();
+			Files.delete(file);
+		}
+		return best;
+	}
+
+	/**
+	 * Simulates MATCHES whole matches, recording them in a directory if it is
+	 * not null, returning the ticks simulated.
+	 */
+	private static long simulate(Path directory, List<Path> files) throws IOException {
+		Random random = new Random(42);
+		long ticks = 0;
+		for (int m = 0; m < MATCHES; m++) {
+			Match match = TestMatches.newMatch();
+			Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+			RemoteKeyBoard keyBoard1 = new RemoteKeyBoard(p1.keyBoard), keyBoard2 = new RemoteKeyBoard(p2.keyBoard);
+			p1.keyBoard = keyBoard1;
+			p2.keyBoard = keyBoard2;
+			TelemetryRecorder recorder = null;
+			if (directory != null) {
+				Path file = directory.resolve("match" + m + ".bin");
+				if (!files.contains(file)) {
+					files.add(file);
+				}
+				recorder = new TelemetryRecorder(match, file);
+				match.setTelemetry(recorder);
+			}
+
+			// The players change their input about every half a second
+			while (!match.isFinished()) {
+				if (random.nextInt(30) == 0) {
+					keyBoard1.setButtons(random.nextInt(KeyBoard.BOOST << 1) | KeyBoard.SHOOT);
+				}
+				if (random.nextInt(30) == 0) {
+					keyBoard2.setButtons(random.nextInt(KeyBoard.BOOST << 1) | KeyBoard.SHOOT);
+				}
+				match.tick();
+				ticks++;
+			}
+			if (recorder != null) {
+				recorder.close();
+			}
+		}
+		return ticks;
+	}
+}
@@ -0,0 +1,139 @@
+package bench;
+
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import net.MatchState;
+import net.TerritoryFeed;
+import net.TerritoryView;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the TerritoryFeed on recorded matches: bytes per tick, compared
+ * with sending the whole grid packed at 2 bits per cell every tick, and the
+ * encoding and decoding time per frame.
+ * <p>
+ *     The matches are played headless by two random players. Run it with the
+ *     main classpath and the resources, e.g.
+ *     java -Djava.awt.headless=true -cp out:res bench.TerritoryFeedBenchmark
+ * </p>
+ */
+public class TerritoryFeedBenchmark {
+	private static final int MATCHES = 5;
+	private static final int TICKS = 90 * 60;
+	private static final int[] KEYFRAME_INTERVALS = { 1, 30, 60, 300 };
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		Assets.init();
+		List<byte[][]> matches = new ArrayList<>();
+		for (int m = 0; m < MATCHES; m++) {
+			matches.add(recordMatch(new Random(m)));
+		}
+
+		System.out.printf("Whole grid packed every tick: %d bytes/tick%n", (MatchState.CELLS + 3) / 4);
+		System.out.printf("%9s %12s %14s %14s%n", "keyframes", "bytes/tick", "encode (ns)", "decode (ns)");
+		for (int interval : KEYFRAME_INTERVALS) {
+			long bytes = 0;
+			for (byte[][] ticks : matches) {
+				bytes += encode(ticks, interval, new ArrayList<>());
+			}
+
+			List<ByteBuffer> frames = new ArrayList<>();
+			encode(matches.get(0), interval, frames);
+			double encodeNanos = measure(() -> encode(matches.get(0), interval, new ArrayList<>()));
+			double decodeNanos = measure(() -> decode(frames));
+
+			System.out.printf("%9d %12.1f %14.0f %14.0f%n", interval,
+					bytes / (double) (MATCHES * TICKS), encodeNanos / TICKS, decodeNanos / TICKS);
+		}
+	}
+
+	/**
+	 * Plays a match with random input and records the owners of the cells every tick.
+	 */
+	private static byte[][] recordMatch(Random random) {
+		Match match = TestMatches.newMatch();
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		RemoteKeyBoard[] keyBoards = { new RemoteKeyBoard(p1.keyBoard), new RemoteKeyBoard(p2.keyBoard) };
+		p1.keyBoard = keyBoards[0];
+		p2.keyBoard = keyBoards[1];
+
+		byte[][] ticks = new byte[TICKS][];
+		for (int tick = 0; tick < TICKS; tick++) {
+			// Players change their input about every half a second, and shoot most of the time
+			for (RemoteKeyBoard keyBoard : keyBoards) {
+				if (random.nextInt(30) == 0) {
+					int buttons = random.nextInt(KeyBoard.BOOST);
+					keyBoard.setButtons(random.nextInt(4) == 0 ? buttons : buttons | KeyBoard.SHOOT);
+				}
+			}
+			match.update();
+			ticks[tick] = match.getTerritoryFeed().getOwners().clone();
+		}
+		match.finish();
+		return ticks;
+	}
+
+	/**
+	 * Replays the owners of a recorded match into a feed.
+	 * @return The bytes written.
+	 */
+	private static long encode(byte[][] ticks, int interval, List<ByteBuffer> frames) {
+		TerritoryFeed feed = new TerritoryFeed(interval);
+		ByteBuffer out = ByteBuffer.allocate(TerritoryFeed.MAX_FRAME_SIZE);
+		byte[] previous = new byte[MatchState.CELLS];
+		long bytes = 0;
+		for (int tick = 0; tick < ticks.length; tick++) {
+			byte[] owners = ticks[tick];
+			for (int c = 0; c < owners.length; c++) {
+				if (owners[c] != previous[c]) {
+					feed.ownerChanged(c, owners[c]);
+				}
+			}
+			previous = owners;
+
+			feed.writeFrame(tick, out.clear());
+			bytes += out.position();
+			frames.add(ByteBuffer.wrap(Arrays.copyOf(out.array(), out.position())));
+		}
+		return bytes;
+	}
+
+	private static TerritoryView decode(List<ByteBuffer> frames) {
+		TerritoryView view = new TerritoryView();
+		for (ByteBuffer frame : frames) {
+			view.read(frame.rewind());
+		}
+		return view;
+	}
+
+	/**
+	 * Runs the operation several times and returns the best time, in nanoseconds.
+	 */
+	private static double measure(Operation operation) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			operation.run();
+		}
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long start = System.nanoTime();
+			operation.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private interface Operation {
+		Object run();
+	}
+}
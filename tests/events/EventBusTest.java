@@ -0,0 +1,136 @@
+package events;
+
+import ai.Bot;
+import graphics.Assets;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+
+	@Test
+	void publishAndPoll() {
+		EventBus bus = new EventBus(8);
+		bus.publish(0, EventBus.SHOT, 1, 10, 20);
+		EventBus.Subscription subscription = bus.subscribe();
+
+		// Only the events published after subscribing are read
+		bus.publish(1, EventBus.SHOT, 2, 30, 40);
+		bus.publish(2, EventBus.HIT, 2, 15, 85);
+		List<int[]> events = new ArrayList<>();
+		EventBus.Handler handler = (sequence, tick, type, player, a, b) -> events.add(new int[] { tick, type, player, a, b });
+		assertEquals(1, subscription.poll(handler, 1));
+		assertEquals(1, subscription.poll(handler, 10));
+		assertEquals(0, subscription.poll(handler, 10));
+		assertArrayEquals(new int[] { 1, EventBus.SHOT, 2, 30, 40 }, events.get(0));
+		assertArrayEquals(new int[] { 2, EventBus.HIT, 2, 15, 85 }, events.get(1));
+		assertThrows(IllegalArgumentException.class, () -> new EventBus(12));
+	}
+
+	@Test
+	void slowConsumerDropsOldEvents() {
+		EventBus bus = new EventBus(8);
+		EventBus.Subscription subscription = bus.subscribe();
+		for (int i = 0; i < 20; i++) {
+			bus.publish(i, EventBus.CELL_PAINTED, 1, i, 0);
+		}
+		List<Integer> cells = new ArrayList<>();
+		subscription.poll((sequence, tick, type, player, a, b) -> cells.add(a), 100);
+		assertEquals(12, subscription.getDropped());
+		assertEquals(List.of(12, 13, 14, 15, 16, 17, 18, 19), cells);
+	}
+
+	@Test
+	void concurrentConsumersNeverSeeTornEvents() throws Exception {
+		EventBus bus = new EventBus(64);
+		int events = 2_000_000;
+		List<Thread> consumers = new ArrayList<>();
+		List<AtomicLong> counts = new ArrayList<>();
+		List<String> errors = new ArrayList<>();
+		List<EventBus.Subscription> subscriptions = new ArrayList<>();
+		for (int c = 0; c < 2; c++) {
+			EventBus.Subscription subscription = bus.subscribe();
+			subscriptions.add(subscription);
+			AtomicLong count = new AtomicLong();
+			counts.add(count);
+			consumers.add(new Thread(() -> {
+				long[] last = { -1 };
+				while (subscription.getSequence() < events) {
+					subscription.poll((sequence, tick, type, player, a, b) -> {
+						// Every field of an event is derived from its sequence
+						if (tick != (int) sequence || a != ~tick || b != tick * 31 || sequence <= last[0]) {
+							synchronized (errors) {
+								errors.add("Event " + sequence + ": " + tick + " " + a + " " + b);
+							}
+						}
+						last[0] = sequence;
+						count.incrementAndGet();
+					}, 100);
+				}
+			}));
+		}
+		consumers.forEach(Thread::start);
+		for (int i = 0; i < events; i++) {
+			bus.publish(i, EventBus.SHOT, 1, ~i, i * 31);
+		}
+		for (Thread consumer : consumers) {
+			consumer.join(30_000);
+		}
+		assertTrue(errors.isEmpty(), errors.isEmpty() ? "" : errors.get(0));
+		for (int c = 0; c < 2; c++) {
+			assertEquals(events, counts.get(c).get() + subscriptions.get(c).getDropped());
+		}
+	}
+
+	@Test
+	void matchPublishesGameplayEvents() {
+		Assets.init();
+		Match match = TestMatches.newMatch();
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		new Bot(p1);
+		new Bot(p2);
+		EventBus.Subscription subscription = match.getEvents().subscribe();
+
+		// The events tell the points of each player: painted cells minus the cells painted over
+		int[] points = new int[3];
+		int[] counts = new int[EventBus.TEAM_POINTS + 1];
+		int[] teamPoints = new int[3];
+		int[] winner = { -1 };
+		EventBus.Handler handler = (sequence, tick, type, player, a, b) -> {
+			counts[type]++;
+			if (type == EventBus.CELL_PAINTED) {
+				points[player]++;
+				if (b != 0 && points[b] > 0) {
+					points[b]--;
+				}
+			} else if (type == EventBus.DEATH) {
+				points[player] -= a;
+				points[3 - player] = b;
+			} else if (type == EventBus.TEAM_POINTS) {
+				teamPoints[player] = a;
+			} else if (type == EventBus.MATCH_END) {
+				winner[0] = player;
+			}
+		};
+		while (!match.isFinished()) {
+			match.tick();
+			subscription.poll(handler, Integer.MAX_VALUE);
+		}
+		assertEquals(0, subscription.getDropped());
+		assertTrue(counts[EventBus.SHOT] > 0 && counts[EventBus.CELL_PAINTED] > 0);
+		assertEquals(1, counts[EventBus.MATCH_END]);
+		assertEquals(2, counts[EventBus.TEAM_POINTS]);
+		assertEquals(p1.points, points[1]);
+		assertEquals(p2.points, points[2]);
+		assertEquals(p1.points, teamPoints[1]);
+		assertEquals(p2.points, teamPoints[2]);
+		assertEquals(p1.points > p2.points ? 1 : p2.points > p1.points ? 2 : 0, winner[0]);
+	}
+}
@@ -0,0 +1,84 @@
+package graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirtyTilesTest {
+
+	@Test
+	void regionsCoverTheTilesOfTheChanges() {
+		Random random = new Random(50);
+		int width = 333, height = 170;
+		DirtyTiles tiles = new DirtyTiles(width, height);
+		assertTrue(tiles.isEmpty());
+		assertEquals(0, tiles.merge());
+
+		for (int round = 0; round < 200; round++) {
+			tiles.clear();
+			boolean[][] changed = new boolean[width][height];
+			for (int i = random.nextInt(6); i >= 0; i--) {
+				double x = random.nextInt(width + 80) - 40 + random.nextDouble(), y = random.nextInt(height + 80) - 40;
+				double w = random.nextInt(60) + random.nextDouble(), h = random.nextInt(60);
+				tiles.add(x, y, w, h);
+				for (int px = Math.max(0, (int) Math.floor(x)); px < Math.min(width, Math.ceil(x + w)); px++) {
+					for (int py = Math.max(0, (int) Math.floor(y)); py < Math.min(height, Math.ceil(y + h)); py++) {
+						changed[px][py] = true;
+					}
+				}
+			}
+
+			// The regions do not overlap, and cover whole tiles around every pixel changed
+			int[][] covered = new int[width][height];
+			int area = 0;
+			for (int i = 0, regions = tiles.merge(); i < regions; i++) {
+				Rectangle region = tiles.getRegion(i);
+				assertTrue(new Rectangle(width, height).contains(region), region.toString());
+				area += region.width * region.height;
+				for (int px = region.x; px < region.x + region.width; px++) {
+					for (int py = region.y; py < region.y + region.height; py++) {
+						covered[px][py]++;
+					}
+				}
+			}
+			assertEquals(tiles.getArea(), area);
+			for (int px = 0; px < width; px++) {
+				for (int py = 0; py < height; py++) {
+					assertTrue(covered[px][py] <= 1);
+					int tileX = px - px % DirtyTiles.TILE_SIZE, tileY = py - py % DirtyTiles.TILE_SIZE;
+					boolean tileChanged = false;
+					for (int tx = tileX; tx < Math.min(width, tileX + DirtyTiles.TILE_SIZE); tx++) {
+						for (int ty = tileY; ty < Math.min(height, tileY + DirtyTiles.TILE_SIZE); ty++) {
+							tileChanged |= changed[tx][ty];
+						}
+					}
+					assertEquals(tileChanged ? 1 : 0, covered[px][py], px + "," + py);
+				}
+			}
+		}
+	}
+
+	@Test
+	void tilesAreMergedAndAdded() {
+		DirtyTiles tiles = new DirtyTiles(100, 70), other = new DirtyTiles(100, 70);
+		// Two tiles of the same columns in consecutive rows are one region
+		tiles.add(1, 1, 40, 40);
+		assertEquals(1, tiles.merge());
+		assertEquals(new Rectangle(0, 0, 64, 64), tiles.getRegion(0));
+
+		other.add(99, 69, 5, 5);
+		tiles.add(other);
+		assertEquals(2, tiles.merge());
+		assertEquals(new Rectangle(96, 64, 4, 6), tiles.getRegion(1));
+		assertEquals(64 * 64 + 4 * 6, tiles.getArea());
+
+		tiles.addAll();
+		assertEquals(1, tiles.merge());
+		assertEquals(new Rectangle(0, 0, 100, 70), tiles.getRegion(0));
+		assertEquals(100 * 70, tiles.getArea());
+		assertThrows(IllegalArgumentException.class, () -> tiles.add(new DirtyTiles(1000, 70)));
+	}
+}
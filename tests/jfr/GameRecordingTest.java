@@ -0,0 +1,92 @@
+package jfr;
+
+import ai.Bot;
+import graphics.Assets;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import main.JsonPlayersStore;
+import main.PlayersManagement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sprites.Player;
+import states.Match;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRecordingTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void bundledSettings() throws Exception {
+		Configuration configuration = GameRecording.getConfiguration();
+		assertEquals("SplaTank", configuration.getLabel());
+		assertEquals("20 ms", configuration.getSettings().get("splatank.Frame#threshold"));
+		assertEquals("true", configuration.getSettings().get("splatank.Paint#enabled"));
+		assertEquals("true", configuration.getSettings().get("jdk.GarbageCollection#enabled"));
+	}
+
+	@Test
+	void recordsTheEventsOfAMatch() throws Exception {
+		Path file = tempDir.resolve("match.jfr");
+		PlayersManagement playersManagement = new PlayersManagement(new JsonPlayersStore(tempDir.resolve("players.json")));
+		Match match;
+		try (Recording recording = new Recording(GameRecording.getConfiguration())) {
+			recording.start();
+			Assets.init();
+			Player[] players = playersManagement.initializePlayers("P1", "P2");
+			match = new Match(playersManagement, players[0], players[1]);
+			new Bot(players[0]);
+			new Bot(players[1]);
+			match.fastForward(Long.MAX_VALUE);
+			recording.stop();
+			recording.dump(file);
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+				.filter(e -> e.getEventType().getName().startsWith("splatank."))
+				.collect(Collectors.toList());
+		assertEquals(1, count(events, "splatank.AssetsLoad"));
+		RecordedEvent assets = first(events, "splatank.AssetsLoad");
+		assertEquals(18, assets.getInt("images"));
+		assertTrue(assets.getLong("bytes") > 0);
+
+		assertEquals(1, count(events, "splatank.MatchStart"));
+		assertEquals("P1, P2", first(events, "splatank.MatchStart").getString("players"));
+		RecordedEvent end = first(events, "splatank.MatchEnd");
+		assertEquals("1: " + match.getPlayer1().points + ", 2: " + match.getPlayer2().points, end.getString("points"));
+		assertEquals(match.getWinningTeam(), end.getInt("winner"));
+		assertEquals(match.getEndTick(), end.getLong("ticks"));
+
+		// Every splat paints the 3x3 cells around where the bullet fell, fewer on the edges
+		assertTrue(count(events, "splatank.Paint") > 0);
+		for (RecordedEvent paint : events) {
+			if (paint.getEventType().getName().equals("splatank.Paint")) {
+				assertTrue(paint.getInt("cellsPainted") <= 9 && paint.getInt("cellsChanged") <= paint.getInt("cellsPainted"));
+			}
+		}
+		assertTrue(count(events, "splatank.BulletCollision") > 0);
+
+		RecordedEvent save = events.stream()
+				.filter(e -> e.getEventType().getName().equals("splatank.Persistence"))
+				.filter(e -> e.getString("operation").equals(PersistenceEvent.SAVE))
+				.findFirst().orElseThrow();
+		assertEquals("JsonPlayersStore", save.getString("store"));
+		assertTrue(save.getLong("bytes") > 0);
+	}
+
+	private static long count(List<RecordedEvent> events, String name) {
+		return events.stream().filter(e -> e.getEventType().getName().equals(name)).count();
+	}
+
+	private static RecordedEvent first(List<RecordedEvent> events, String name) {
+		return events.stream().filter(e -> e.getEventType().getName().equals(name)).findFirst().orElseThrow();
+	}
+}
@@ -0,0 +1,89 @@
+package main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sprites.Player;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryPlayersStoreTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path storePath;
+
+	@BeforeEach
+	void setUp() {
+		storePath = tempDir.resolve("players.bin");
+	}
+
+	@Test
+	void saveAndFind() {
+		BinaryPlayersStore store = new BinaryPlayersStore(storePath);
+
+		// We save a player and overwrite its stats
+		Player player = new Player("DANIEH");
+		player.record = 144;
+		player.matchesWon = 1;
+		store.save(player);
+		player.matchesLost = 2;
+		store.save(player);
+
+		// We check that it is stored only once, with the last stats
+		Player stored = store.find("DANIEH");
+		assertEquals(1, store.size());
+		assertEquals(144, stored.record);
+		assertEquals(1, stored.matchesWon);
+		assertEquals(2, stored.matchesLost);
+		assertNull(store.find("ANACLET"));
+		store.close();
+	}
+
+	@Test
+	void growAndReopen() {
+		BinaryPlayersStore store = new BinaryPlayersStore(storePath, 16);
+
+		// We save enough players to grow the table several times
+		for (int i = 0; i < 1000; i++) {
+			Player player = new Player("P" + i);
+			player.record = i;
+			store.save(player);
+		}
+		store.close();
+
+		// We check that every player is still there after reopening the file
+		store = new BinaryPlayersStore(storePath);
+		assertEquals(1000, store.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, store.find("P" + i).record);
+		}
+		assertEquals(999, store.getTopPlayers(10).get(0).record);
+		store.close();
+	}
+
+	@Test
+	void exportAndImportJson() {
+		BinaryPlayersStore store = new BinaryPlayersStore(storePath);
+		Player player = new Player("D");
+		player.record = 108;
+		player.matchesWon = 1;
+		store.save(player);
+
+		// We export the store and import it into a new one
+		Path jsonPath = tempDir.resolve("players.json");
+		store.exportJson(jsonPath);
+		store.close();
+
+		BinaryPlayersStore imported = new BinaryPlayersStore(tempDir.resolve("imported.bin"));
+		imported.importJson(jsonPath);
+
+		assertEquals(1, imported.size());
+		assertEquals(108, imported.find("D").record);
+		assertEquals(1, imported.find("D").matchesWon);
+		imported.close();
+	}
+}
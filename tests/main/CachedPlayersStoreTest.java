@@ -0,0 +1,62 @@
+package main;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sprites.Player;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedPlayersStoreTest {
+
+	@TempDir
+	Path tempDir;
+
+	private BinaryPlayersStore backing;
+	private CachedPlayersStore cache;
+
+	@BeforeEach
+	void setUp() {
+		backing = new BinaryPlayersStore(tempDir.resolve("players.bin"));
+		cache = new CachedPlayersStore(backing, 2);
+	}
+
+	@Test
+	void evictsAndWritesBack() {
+		// We save three players in a cache of two
+		for (int i = 0; i < 3; i++) {
+			Player player = new Player("P" + i);
+			player.record = i;
+			cache.save(player);
+		}
+
+		// We check that the least recently used one has been written back
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.getWriteBacks());
+		assertEquals(2, cache.getCachedCount());
+		assertEquals(0, backing.find("P0").record);
+		assertNull(backing.find("P2"));
+
+		// And that the others reach the backing store when flushing
+		cache.flush();
+		assertEquals(2, backing.find("P2").record);
+		assertEquals(3, backing.size());
+	}
+
+	@Test
+	void countsHitsAndMisses() {
+		Player player = new Player("D");
+		player.matchesWon = 1;
+		backing.save(player);
+
+		// The first find goes to the backing store, the second one does not
+		assertEquals(1, cache.find("D").matchesWon);
+		assertEquals(1, cache.find("D").matchesWon);
+		assertNull(cache.find("A"));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+}
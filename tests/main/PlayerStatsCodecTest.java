@@ -0,0 +1,50 @@
+package main;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerStatsCodecTest {
+
+	@Test
+	void writesSameJsonAsGson() throws IOException {
+		Player player = new Player("DANIEH");
+		player.points = 144;
+		player.record = 144;
+		player.matchesWon = 1;
+		player.matchesLost = 3;
+
+		// We write the player with the reflective Gson path and with the codec
+		Gson gson = new GsonBuilder()
+				.excludeFieldsWithoutExposeAnnotation()
+				.create();
+		StringWriter writer = new StringWriter();
+		PlayerStatsCodec.INSTANCE.write(new JsonWriter(writer), player);
+
+		assertEquals(gson.toJson(player), writer.toString());
+	}
+
+	@Test
+	void readsPlayersJson() throws IOException {
+		String json = "{ \"D\": { \"name\": \"D\", \"points\": 108, \"record\": 108,"
+				+ " \"matchesWon\": 1, \"matchesLost\": 0, \"unknown\": [1, 2] },"
+				+ " \"A\": { \"record\": 5 } }";
+
+		// We read the players, using the key when the name is missing
+		StringBuilder names = new StringBuilder();
+		PlayerStatsCodec.INSTANCE.readAll(new StringReader(json), p -> names.append(p.name).append(p.record));
+		assertEquals("D108A5", names.toString());
+
+		Player player = PlayerStatsCodec.INSTANCE.read(new JsonReader(new StringReader("{\"matchesWon\": 7}")));
+		assertEquals(7, player.matchesWon);
+	}
+}
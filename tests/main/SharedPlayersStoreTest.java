@@ -0,0 +1,138 @@
+package main;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sprites.Player;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedPlayersStoreTest {
+
+	private static final int NODES = 4;
+	private static final int MATCHES_PER_NODE = 2000;
+	private static final int PLAYERS = 8;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void mergesNodes() {
+		SharedPlayersStore node1 = new SharedPlayersStore(tempDir, "node1");
+
+		// We record a match and check it is merged with the stored data
+		Player player = new Player("D");
+		player.record = 108;
+		player.matchesWon = 1;
+		node1.save(player);
+		node1.recordMatch("D", true, false, 50);
+		node1.compact();
+		node1.recordMatch("D", false, true, 120);
+
+		Player stored = node1.find("D");
+		assertEquals(2, stored.matchesWon);
+		assertEquals(1, stored.matchesLost);
+		assertEquals(120, stored.record);
+		node1.close();
+
+		// We check that a node opened later sees the same data
+		SharedPlayersStore node2 = new SharedPlayersStore(tempDir, "node2");
+		assertEquals(2, node2.find("D").matchesWon);
+		assertEquals(120, node2.find("D").record);
+		node2.close();
+	}
+
+	@Test
+	void leaderboardShowsOtherNodes() {
+		SharedPlayersStore node1 = new SharedPlayersStore(tempDir, "node1");
+		PlayersManagement playersManagement = new PlayersManagement(node1);
+		node1.recordMatch("A", true, false, 40);
+		assertEquals("A", playersManagement.getPlayersDataColumns()[1][0]);
+
+		// Another node records a better match, which is merged on the next refresh
+		SharedPlayersStore node2 = new SharedPlayersStore(tempDir, "node2");
+		node2.recordMatch("B", true, false, 90);
+		node2.close();
+		node1.find("B");
+		assertEquals("B", playersManagement.getPlayersDataColumns()[1][0]);
+		assertEquals("90", playersManagement.getPlayersDataColumns()[2][0]);
+		node1.close();
+	}
+
+	@Test
+	void concurrentProcesses() throws Exception {
+		// We start several processes recording matches in the same directory
+		List<Process> processes = new ArrayList<>();
+		for (int node = 0; node < NODES; node++) {
+			processes.add(new ProcessBuilder(
+					System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+					"-cp", System.getProperty("java.class.path"),
+					Worker.class.getName(),
+					tempDir.toString(), String.valueOf(node)
+			).inheritIO().start());
+		}
+		for (Process process : processes) {
+			assertTrue(process.waitFor(5, TimeUnit.MINUTES));
+			assertEquals(0, process.exitValue());
+		}
+
+		// We check that no result has been lost and every record is the maximum
+		SharedPlayersStore store = new SharedPlayersStore(tempDir, "checker");
+		store.compact();
+		int totalWon = 0, totalLost = 0;
+		for (int i = 0; i < PLAYERS; i++) {
+			Player player = store.find("P" + i);
+			totalWon += player.matchesWon;
+			totalLost += player.matchesLost;
+			assertEquals(NODES * MATCHES_PER_NODE / PLAYERS, player.matchesWon);
+			assertEquals(maxPoints(i), player.record);
+		}
+		assertEquals(NODES * MATCHES_PER_NODE, totalWon);
+		assertEquals(NODES * MATCHES_PER_NODE, totalLost);
+		store.close();
+	}
+
+	private static int points(int node, int match) {
+		return (match * 31 + node * 17) % 1000;
+	}
+
+	private static int maxPoints(int playerIndex) {
+		int max = 0;
+		for (int node = 0; node < NODES; node++) {
+			for (int match = playerIndex; match < MATCHES_PER_NODE; match += PLAYERS) {
+				max = Math.max(max, points(node, match));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Process recording the matches of a node as fast as possible.
+	 */
+	static class Worker {
+		public static void main(String[] args) {
+			Path directory = Path.of(args[0]);
+			int node = Integer.parseInt(args[1]);
+			SharedPlayersStore store = new SharedPlayersStore(directory, "node" + node);
+
+			for (int match = 0; match < MATCHES_PER_NODE; match++) {
+				String winner = "P" + (match % PLAYERS);
+				String loser = "P" + ((match + 1) % PLAYERS);
+				store.recordMatch(winner, true, false, points(node, match));
+				store.recordMatch(loser, false, true, 0);
+				if (match % 10 == 0) {
+					store.flush();
+				}
+				if (match % 250 == 0) {
+					store.compact();
+				}
+			}
+			store.close();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package math;
+
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+
+	@Test
+	void trigonometryTable() {
+		for (int angle = 0; angle < FixedPoint.FULL_TURN; angle++) {
+			double radians = FixedPoint.toRadians(angle);
+			assertEquals(angle, FixedPoint.toAngle(radians));
+			assertEquals(Math.sin(radians), FixedPoint.toDouble(FixedPoint.sin(angle)), 1e-4);
+			assertEquals(Math.cos(radians), FixedPoint.toDouble(FixedPoint.cos(angle)), 1e-4);
+		}
+		assertEquals(FixedPoint.FULL_TURN / 2, FixedPoint.toAngle(Math.toRadians(180)));
+		assertEquals(FixedPoint.FULL_TURN - 1, FixedPoint.toAngle(-FixedPoint.toRadians(1)));
+	}
+
+	@Test
+	void arithmetic() {
+		assertEquals(2.5, FixedPoint.toDouble(FixedPoint.toFixed(2.5)));
+		assertEquals(FixedPoint.toFixed(-3.75), FixedPoint.mul(FixedPoint.toFixed(1.5), FixedPoint.toFixed(-2.5)));
+		long distance = FixedPoint.distanceSquared(0, 0, FixedPoint.toFixed(3), FixedPoint.toFixed(4));
+		assertEquals((long) FixedPoint.toFixed(5) * FixedPoint.toFixed(5), distance);
+	}
+
+	/**
+	 * Plays a match with fixed-point physics and scripted input, returning the
+	 * state hash of every tick.
+	 */
+	private static long[] play(int ticks) {
+		Assets.init();
+		Match match = TestMatches.newMatch();
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		match.setFixedPointPhysics(true);
+		RemoteKeyBoard keyBoard1 = new RemoteKeyBoard(p1.keyBoard), keyBoard2 = new RemoteKeyBoard(p2.keyBoard);
+		p1.keyBoard = keyBoard1;
+		p2.keyBoard = keyBoard2;
+
+		long[] hashes = new long[ticks];
+		for (int tick = 0; tick < ticks; tick++) {
+			keyBoard1.setButtons((tick / 20) % 2 == 0 ? KeyBoard.UP | KeyBoard.SHOOT : KeyBoard.UP | KeyBoard.LEFT);
+			keyBoard2.setButtons((tick / 35) % 3 == 0 ? KeyBoard.DOWN | KeyBoard.RIGHT : KeyBoard.UP | KeyBoard.SHOOT);
+			match.tick();
+			hashes[tick] = match.getStateHash();
+
+			// The sprites only take fixed-point values
+			for (Player player : new Player[] { p1, p2 }) {
+				double x = player.tank.position.getX();
+				assertEquals(x, FixedPoint.toDouble(FixedPoint.toFixed(x)));
+				double velocity = player.tank.velocity;
+				assertEquals(velocity, FixedPoint.toDouble(FixedPoint.toFixed(velocity)));
+			}
+		}
+		return hashes;
+	}
+
+	@Test
+	void fixedPointMatchIsReproducible() {
+		long[] first = play(600);
+		long[] second = play(600);
+		assertArrayEquals(first, second);
+	}
+}
@@ -0,0 +1,89 @@
+package net;
+
+import graphics.Assets;
+import input.KeyBoard;
+import main.JsonPlayersStore;
+import main.PlayersManagement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import states.Match;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchHostTest {
+
+	@TempDir
+	Path tempDir;
+
+	private PlayersManagement playersManagement;
+	private MatchHost host;
+
+	@BeforeEach
+	void setUp() {
+		Assets.init();
+		playersManagement = new PlayersManagement(new JsonPlayersStore(tempDir.resolve("players.json")));
+		host = new MatchHost(playersManagement, 2, MatchHost.DEFAULT_TICK_BUDGET * 10);
+	}
+
+	@AfterEach
+	void tearDown() {
+		host.shutdown();
+	}
+
+	@Test
+	void playsMatchesConcurrently() throws Exception {
+		// Four players join, so two matches start
+		MatchHost.Seat a1 = host.join("A1");
+		MatchHost.Seat a2 = host.join("A2");
+		MatchHost.Seat b1 = host.join("B1");
+		MatchHost.Seat b2 = host.join("B2");
+		assertEquals(2, host.getMatchCount());
+		assertNotSame(a1.getHostedMatch(), b1.getHostedMatch());
+		assertSame(a1.getHostedMatch(), a2.getHostedMatch());
+		assertEquals(1, b2.getSlot());
+
+		// Only the first player of the first match moves
+		Match matchA = a1.getHostedMatch().getMatch();
+		Match matchB = b1.getHostedMatch().getMatch();
+		double startA = matchA.getPlayer1().tank.position.getX();
+		double startB = matchB.getPlayer1().tank.position.getX();
+		a1.setButtons(KeyBoard.UP | KeyBoard.SHOOT);
+		Thread.sleep(1500);
+
+		// The matches are finished by running out of time
+		matchA.setRemainingSeconds(-1);
+		matchB.setRemainingSeconds(-1);
+		for (int i = 0; i < 100 && host.getFinishedMatches() < 2; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(2, host.getFinishedMatches());
+		assertEquals(0, host.getMatchCount());
+		assertTrue(a1.getHostedMatch().getStats().getCount() > 10);
+
+		// The moves and paint of one match did not leak into the other
+		assertTrue(matchA.getPlayer1().tank.position.getX() > startA);
+		assertEquals(startB, matchB.getPlayer1().tank.position.getX());
+		assertTrue(matchA.getPlayer1().points > 0);
+		assertEquals(0, matchB.getPlayer1().points);
+		assertNotSame(matchA.cellsGrid, matchB.cellsGrid);
+
+		// The results are recorded
+		assertEquals(1, playersManagement.getStore().find("A1").matchesWon);
+		assertEquals(1, playersManagement.getStore().find("A2").matchesLost);
+	}
+
+	@Test
+	void reportsTickPercentiles() throws Exception {
+		host.join("P1");
+		host.join("P2");
+		Thread.sleep(300);
+
+		long[] percentiles = host.getTickPercentiles(50, 99).get(0);
+		assertTrue(percentiles[0] > 0);
+		assertTrue(percentiles[0] <= percentiles[1]);
+	}
+}
@@ -0,0 +1,165 @@
+package net;
+
+import graphics.Assets;
+import input.KeyBoard;
+import main.JsonPlayersStore;
+import main.PlayersManagement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sprites.Player;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchServerTest {
+
+	@TempDir
+	Path tempDir;
+
+	private MatchServer server;
+	private MatchClient client1, client2;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		// We start a server on loopback, with two clients
+		Assets.init();
+		PlayersManagement playersManagement = new PlayersManagement(new JsonPlayersStore(tempDir.resolve("players.json")));
+		server = new MatchServer(new InetSocketAddress("127.0.0.1", 0), playersManagement);
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getLocalAddress().getPort());
+		client1 = new MatchClient(address);
+		client2 = new MatchClient(address);
+	}
+
+	@AfterEach
+	void tearDown() {
+		client1.close();
+		client2.close();
+		server.close();
+	}
+
+	private void step(int buttons1, int buttons2) throws Exception {
+		client1.sendInput(buttons1);
+		client2.sendInput(buttons2);
+		Thread.sleep(1);
+		server.poll();
+		server.tick();
+		Thread.sleep(1);
+		client1.poll();
+		client2.poll();
+	}
+
+	/**
+	 * Polls the server and both clients until the condition holds, or gives up.
+	 */
+	private void pollUntil(BooleanSupplier condition) throws Exception {
+		for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+			Thread.sleep(1);
+			server.poll();
+			client1.poll();
+			client2.poll();
+		}
+	}
+
+	@Test
+	void playsMatchOverLoopback() throws Exception {
+		// Both clients join and are paired
+		client1.join("D");
+		client2.join("A");
+		pollUntil(() -> client1.isStarted() && client2.isStarted());
+		assertTrue(client1.isStarted() && client2.isStarted());
+		assertEquals(0, client1.getSlot());
+		assertEquals(1, client2.getSlot());
+		assertArrayEquals(new String[] { "D", "A" }, client2.getNames());
+
+		// Player 1 moves forward while player 2 stays still
+		for (int i = 0; i < 60; i++) {
+			step(KeyBoard.UP, 0);
+		}
+		MatchState start = new MatchState();
+		start.copyFrom(client2.getLatestState());
+		for (int i = 0; i < 30; i++) {
+			step(KeyBoard.UP, 0);
+		}
+		MatchState state = client2.getLatestState();
+
+		assertNotNull(state);
+		assertTrue(state.tankX[0] > start.tankX[0]);
+		assertEquals(start.tankX[1], state.tankX[1]);
+
+		// Once acknowledged, snapshots are sent as small deltas
+		assertTrue(server.getBytesSent() / server.getSnapshotsSent() < 200);
+	}
+
+	@Test
+	void rejectsInvalidAndTakenNames() throws Exception {
+		// A name over the byte limit is rejected, even if it has few characters
+		client1.join("\u00f1".repeat(Protocol.MAX_NAME_BYTES / 2 + 1));
+		pollUntil(() -> client1.getRejectReason() != 0);
+		assertEquals(Protocol.INVALID_NAME, client1.getRejectReason());
+
+		// A name already waiting is rejected instead of renamed
+		MatchClient client3 = new MatchClient(new InetSocketAddress("127.0.0.1", server.getLocalAddress().getPort()));
+		try {
+			client2.join("D");
+			client3.join("D");
+			for (int i = 0; i < 100 && client3.getRejectReason() == 0; i++) {
+				Thread.sleep(1);
+				server.poll();
+				client3.poll();
+			}
+			assertEquals(Protocol.NAME_TAKEN, client3.getRejectReason());
+			assertEquals(1, server.getWaitingCount());
+			assertEquals(0, server.getSessionCount());
+		} finally {
+			client3.close();
+		}
+	}
+
+	@Test
+	void dropsClientsThatStopJoining() throws Exception {
+		client1.join("D");
+		pollUntil(() -> server.getWaitingCount() == 1);
+		for (int i = 0; i <= Protocol.JOIN_TIMEOUT_TICKS; i++) {
+			server.tick();
+		}
+		assertEquals(0, server.getWaitingCount());
+
+		// The next clients are paired with each other
+		client1.join("D");
+		client2.join("A");
+		pollUntil(() -> client1.isStarted() && client2.isStarted());
+		assertTrue(client1.isStarted() && client2.isStarted());
+	}
+
+	@Test
+	void rejectsPairThatCannotStart() throws Exception {
+		// A store that fails, so the players of the match cannot be created
+		server.close();
+		PlayersManagement failing = new PlayersManagement(new JsonPlayersStore(tempDir.resolve("players.json")) {
+			@Override
+			public Player find(String name) {
+				throw new IllegalStateException("Store unavailable");
+			}
+		});
+		server = new MatchServer(new InetSocketAddress("127.0.0.1", 0), failing);
+		InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getLocalAddress().getPort());
+		client1.close();
+		client2.close();
+		client1 = new MatchClient(address);
+		client2 = new MatchClient(address);
+
+		// Both clients are told, and are not left waiting
+		client1.join("D");
+		client2.join("A");
+		pollUntil(() -> client1.getRejectReason() != 0 && client2.getRejectReason() != 0);
+		assertEquals(Protocol.START_FAILED, client1.getRejectReason());
+		assertEquals(Protocol.START_FAILED, client2.getRejectReason());
+		assertEquals(0, server.getWaitingCount());
+	}
+}
@@ -0,0 +1,290 @@
+package net;
+
+import graphics.Assets;
+import input.KeyBoard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollbackSessionTest {
+
+	private static final int TICKS = 240;
+	private static final int DELAY_MILLIS = 40;
+	/**
+	 * Tick a short match ends at, when the scripted input changes.
+	 */
+	private static final int END_TICK = 150;
+
+	@BeforeEach
+	void setUp() {
+		Assets.init();
+	}
+
+	/**
+	 * Scripted input of a player, changing every 15 ticks.
+	 */
+	private static int buttons(int tick, int slot) {
+		int buttons = ((tick / 15) * 31 + slot * 17) % KeyBoard.BOOST;
+		return (tick / 15) % 3 == 0 ? buttons : buttons | KeyBoard.SHOOT;
+	}
+
+	private static void update(Match match, int tick) {
+		((input.RemoteKeyBoard) match.getPlayer1().keyBoard).setButtons(buttons(tick, 0));
+		((input.RemoteKeyBoard) match.getPlayer2().keyBoard).setButtons(buttons(tick, 1));
+		match.update();
+	}
+
+	@Test
+	void restoreAndSimulateAgain() {
+		Match match = TestMatches.newMatch();
+		for (Player player : new Player[] { match.getPlayer1(), match.getPlayer2() }) {
+			player.keyBoard = new input.RemoteKeyBoard(player.keyBoard);
+		}
+
+		// We save the match at tick 50 and simulate up to 80
+		MatchSnapshot saved = new MatchSnapshot();
+		MatchSnapshot expected = new MatchSnapshot();
+		for (int tick = 0; tick < 80; tick++) {
+			if (tick == 50) {
+				saved.save(match, tick);
+			}
+			update(match, tick);
+		}
+		expected.save(match, 80);
+
+		// Restoring and simulating again gives exactly the same state
+		saved.restore(match);
+		for (int tick = 50; tick < 80; tick++) {
+			update(match, tick);
+		}
+		MatchSnapshot actual = new MatchSnapshot();
+		actual.save(match, 80);
+		assertEquals(expected.checksum(), actual.checksum());
+
+		// Saving and restoring takes well under 50 us
+		int rounds = 10_000;
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			saved.save(match, 80);
+			saved.restore(match);
+		}
+		long nanos = (System.nanoTime() - start) / rounds;
+		assertTrue(nanos < 50_000, nanos + " ns");
+	}
+
+	@Test
+	void twoPeersWithDelay() throws Exception {
+		InetSocketAddress address1 = freeAddress(), address2 = freeAddress();
+		RollbackSession peer1 = new RollbackSession(TestMatches.newMatch(), 0, address1, address2);
+		RollbackSession peer2 = new RollbackSession(TestMatches.newMatch(), 1, address2, address1);
+		peer1.setSendDelay(DELAY_MILLIS);
+		peer2.setSendDelay(DELAY_MILLIS);
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (peer1.getTick() < TICKS || peer2.getTick() < TICKS) {
+			assertTrue(System.nanoTime() < deadline, "Ticks " + peer1.getTick() + " and " + peer2.getTick());
+			// A peer that has finished keeps polling, which sends its delayed packets
+			if (peer1.getTick() < TICKS) {
+				peer1.advance(buttons(peer1.getTick(), 0));
+			} else {
+				peer1.poll();
+			}
+			if (peer2.getTick() < TICKS) {
+				peer2.advance(buttons(peer2.getTick(), 1));
+			} else {
+				peer2.poll();
+			}
+			Thread.sleep(4);
+		}
+		waitForPeers(peer1, peer2);
+
+		// Both peers predicted wrong and rolled back, and ended up in the same state
+		assertTrue(peer1.getRollbacks() > 0 && peer2.getRollbacks() > 0);
+		assertTrue(peer1.getMaxRollbackNanos() < 16_600_000);
+		assertEquals(checksum(peer1.getMatch()), checksum(peer2.getMatch()));
+		peer1.close();
+		peer2.close();
+	}
+
+	@Test
+	void matchEndsInsideTheRollbackWindow() throws Exception {
+		// The match played without rollback, on the same input
+		Match expected = TestMatches.newMatch();
+		expected.setFixedPointPhysics(true);
+		expected.setEndTick(END_TICK);
+		for (Player player : new Player[] { expected.getPlayer1(), expected.getPlayer2() }) {
+			player.keyBoard = new input.RemoteKeyBoard(player.keyBoard);
+		}
+		for (int tick = 0; !expected.isFinished(); tick++) {
+			((input.RemoteKeyBoard) expected.getPlayer1().keyBoard).setButtons(buttons(tick, 0));
+			((input.RemoteKeyBoard) expected.getPlayer2().keyBoard).setButtons(buttons(tick, 1));
+			expected.tick();
+		}
+
+		InetSocketAddress address1 = freeAddress(), address2 = freeAddress();
+		RollbackSession[] peers = {
+				new RollbackSession(TestMatches.newMatch(), 0, address1, address2),
+				new RollbackSession(TestMatches.newMatch(), 1, address2, address1)
+		};
+		for (RollbackSession peer : peers) {
+			peer.getMatch().setEndTick(END_TICK);
+			peer.setSendDelay(DELAY_MILLIS);
+		}
+
+		// The remote input of the last tick is predicted wrong, but the match does not end on it
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (!peers[0].getMatch().isFinished() || !peers[1].getMatch().isFinished()) {
+			assertTrue(System.nanoTime() < deadline, "Ticks " + peers[0].getTick() + " and " + peers[1].getTick());
+			for (int slot = 0; slot < 2; slot++) {
+				RollbackSession peer = peers[slot];
+				if (peer.getMatch().isFinished()) {
+					peer.send();
+					peer.poll();
+				} else {
+					peer.advance(buttons(peer.getTick(), slot));
+				}
+			}
+			Thread.sleep(4);
+		}
+
+		for (RollbackSession peer : peers) {
+			assertEquals(END_TICK + 1, peer.getTick());
+			assertTrue(peer.getLastRemoteTick() >= END_TICK);
+			assertTrue(peer.getStalls() > 0);
+			assertEquals(expected.getPlayer1().points, peer.getMatch().getPlayer1().points);
+			assertEquals(expected.getPlayer2().points, peer.getMatch().getPlayer2().points);
+			assertEquals(checksum(expected), checksum(peer.getMatch()));
+			peer.close();
+		}
+	}
+
+	@Test
+	void snapshotRestoresTheEndOfTheMatch() {
+		Match match = TestMatches.newMatch();
+		MatchSnapshot beforeEnd = new MatchSnapshot();
+		beforeEnd.save(match, 0);
+		match.finish();
+		assertTrue(match.isFinished());
+
+		// The restored match goes on, colliding again
+		beforeEnd.restore(match);
+		assertFalse(match.isFinished());
+		assertFalse(match.colliders.isEmpty());
+		assertEquals(1, match.fastForward(1));
+	}
+
+	@Test
+	void twoProcessesWithDelay() throws Exception {
+		InetSocketAddress address1 = freeAddress(), address2 = freeAddress();
+		List<Process> processes = new ArrayList<>();
+		for (int slot = 0; slot < 2; slot++) {
+			processes.add(new ProcessBuilder(
+					System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+					"-Djava.awt.headless=true",
+					"-cp", System.getProperty("java.class.path"),
+					Peer.class.getName(),
+					String.valueOf(slot),
+					String.valueOf((slot == 0 ? address1 : address2).getPort()),
+					String.valueOf((slot == 0 ? address2 : address1).getPort())
+			).redirectErrorStream(true).start());
+		}
+
+		List<String> checksums = new ArrayList<>();
+		for (Process process : processes) {
+			StringBuilder output = new StringBuilder();
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					output.append(line).append('\n');
+					if (line.startsWith("CHECKSUM ")) {
+						checksums.add(line.substring(9));
+					}
+				}
+			}
+			assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+			assertEquals(0, process.exitValue(), output.toString());
+		}
+		assertEquals(2, checksums.size());
+		assertEquals(checksums.get(0), checksums.get(1));
+	}
+
+	/**
+	 * Waits until the sessions have received every input of their peers.
+	 */
+	private static void waitForPeers(RollbackSession... sessions) throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			boolean done = true;
+			for (RollbackSession session : sessions) {
+				session.send();
+				session.poll();
+				done &= session.getLastRemoteTick() == TICKS - 1;
+			}
+			if (done) {
+				return;
+			}
+			Thread.sleep(2);
+		}
+		fail("The peers did not receive every input");
+	}
+
+	private static long checksum(Match match) {
+		MatchSnapshot snapshot = new MatchSnapshot();
+		snapshot.save(match, 0);
+		return snapshot.checksum();
+	}
+
+	private static InetSocketAddress freeAddress() throws Exception {
+		try (DatagramChannel channel = DatagramChannel.open()) {
+			channel.bind(new InetSocketAddress("127.0.0.1", 0));
+			return new InetSocketAddress("127.0.0.1", ((InetSocketAddress) channel.getLocalAddress()).getPort());
+		}
+	}
+
+	/**
+	 * Process playing one side of a match, at the tick rate.
+	 */
+	static class Peer {
+		public static void main(String[] args) throws Exception {
+			Assets.init();
+			int slot = Integer.parseInt(args[0]);
+			RollbackSession session = new RollbackSession(TestMatches.newMatch(), slot,
+					new InetSocketAddress("127.0.0.1", Integer.parseInt(args[1])),
+					new InetSocketAddress("127.0.0.1", Integer.parseInt(args[2])));
+			session.setSendDelay(DELAY_MILLIS);
+
+			long nextTick = System.nanoTime();
+			while (session.getTick() < TICKS) {
+				session.advance(buttons(session.getTick(), slot));
+				nextTick += 1_000_000_000L / Protocol.TICK_RATE;
+				long wait = (nextTick - System.nanoTime()) / 1_000_000;
+				if (wait > 0) {
+					Thread.sleep(wait);
+				}
+			}
+			waitForPeers(session);
+
+			// The other peer may still be waiting for the last inputs
+			for (int i = 0; i < 100; i++) {
+				session.send();
+				session.poll();
+				Thread.sleep(2);
+			}
+			System.out.println("CHECKSUM " + Long.toHexString(checksum(session.getMatch())));
+			System.out.println("ROLLBACKS " + session.getRollbacks() + " STALLS " + session.getStalls());
+			session.close();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package net;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCodecTest {
+
+	private MatchState createState(int sequence) {
+		MatchState state = new MatchState();
+		state.sequence = sequence;
+		state.tick = sequence;
+		state.remainingSeconds = 90;
+		state.vsBarX = -100;
+		state.tankX[0] = 1000;
+		state.tankY[0] = 2000;
+		state.tankRotation[1] = 32768;
+		state.health[0] = 100;
+		state.health[1] = 85;
+		state.points[1] = 12;
+		state.invincible[0] = true;
+		state.bulletCount = 1;
+		state.bulletOwner[0] = 1;
+		state.bulletX[0] = 300;
+		state.bulletY[0] = 400;
+		state.cells[0] = 1;
+		state.cells[MatchState.CELLS - 1] = 2;
+		return state;
+	}
+
+	private void assertSameState(MatchState expected, MatchState actual) {
+		assertEquals(expected.sequence, actual.sequence);
+		assertEquals(expected.vsBarX, actual.vsBarX);
+		assertArrayEquals(new int[] { expected.tankX[0], expected.tankY[0], expected.tankRotation[1] },
+				new int[] { actual.tankX[0], actual.tankY[0], actual.tankRotation[1] });
+		assertArrayEquals(expected.health, actual.health);
+		assertArrayEquals(expected.points, actual.points);
+		assertEquals(expected.invincible[0], actual.invincible[0]);
+		assertEquals(expected.bulletCount, actual.bulletCount);
+		assertEquals(expected.bulletX[0], actual.bulletX[0]);
+		assertArrayEquals(expected.cells, actual.cells);
+	}
+
+	@Test
+	void fullSnapshot() {
+		MatchState state = createState(0);
+		ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_PACKET);
+
+		// We encode the state without a base and decode it
+		SnapshotCodec.encode(state, null, buffer);
+		MatchState decoded = new MatchState();
+		assertTrue(SnapshotCodec.decode(buffer.flip(), sequence -> null, decoded));
+
+		assertSameState(state, decoded);
+	}
+
+	@Test
+	void noisyGridSnapshot() {
+		// Alternating owners are packed at 2 bits per cell instead of run-length encoded
+		MatchState state = createState(0);
+		for (int c = 0; c < MatchState.CELLS; c++) {
+			state.cells[c] = (byte) (c % 3);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAX_PACKET);
+		SnapshotCodec.encode(state, null, buffer);
+		MatchState decoded = new MatchState();
+		assertTrue(SnapshotCodec.decode(buffer.flip(), sequence -> null, decoded));
+
+		assertSameState(state, decoded);
+	}
+
+	@Test
+	void deltaSnapshot() {
+		MatchState base = createState(0);
+		MatchState current = createState(1);
+		current.tankX[0] += 4;
+		current.points[1] = 15;
+		current.cells[100] = 2;
+
+		// We check that the delta is smaller than a full snapshot, whose mostly empty grid is run-length encoded
+		ByteBuffer full = ByteBuffer.allocate(Protocol.MAX_PACKET);
+		SnapshotCodec.encode(current, null, full);
+		ByteBuffer delta = ByteBuffer.allocate(Protocol.MAX_PACKET);
+		SnapshotCodec.encode(current, base, delta);
+		assertTrue(delta.position() < full.position());
+		assertTrue(full.position() < MatchState.CELLS / 4);
+
+		// And that it decodes to the same state from the base
+		MatchState decoded = new MatchState();
+		assertTrue(SnapshotCodec.decode(delta.flip(), sequence -> sequence == 0 ? base : null, decoded));
+		assertSameState(current, decoded);
+
+		// Without the base it cannot be decoded
+		delta.rewind();
+		assertFalse(SnapshotCodec.decode(delta, sequence -> null, new MatchState()));
+	}
+}
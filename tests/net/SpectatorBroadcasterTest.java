@@ -0,0 +1,130 @@
+package net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectatorBroadcasterTest {
+
+	private SpectatorBroadcaster broadcaster;
+	private InetSocketAddress address;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		broadcaster = new SpectatorBroadcaster(new InetSocketAddress("127.0.0.1", 0));
+		address = new InetSocketAddress("127.0.0.1", broadcaster.getLocalAddress().getPort());
+	}
+
+	@AfterEach
+	void tearDown() {
+		broadcaster.close();
+	}
+
+	/**
+	 * Changes the state as a match would, painting cells and moving a tank.
+	 */
+	private void step(MatchState state, TerritoryFeed territory, int sequence, int paintedCells) {
+		state.sequence = sequence;
+		state.tick = sequence;
+		state.tankX[0] = (short) (sequence % 1000);
+		for (int k = 0; k < paintedCells; k++) {
+			int cell = (sequence * 31 + k * 7) % MatchState.CELLS;
+			state.cells[cell] = (byte) (1 + (sequence + k) % 2);
+			territory.ownerChanged(cell, state.cells[cell]);
+		}
+	}
+
+	@Test
+	void spectatorsFollowTheMatch() throws Exception {
+		List<SpectatorClient> clients = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			clients.add(new SpectatorClient(address));
+		}
+
+		MatchState state = new MatchState();
+		TerritoryFeed territory = new TerritoryFeed();
+		for (int sequence = 0; sequence < 200; sequence++) {
+			// A spectator joining late gets the cells from the last keyframe of the feed
+			if (sequence == 130) {
+				clients.add(new SpectatorClient(address));
+			}
+			step(state, territory, sequence, 9);
+			broadcaster.broadcast(state, territory);
+			for (SpectatorClient client : clients) {
+				assertTrue(client.poll());
+			}
+
+			// It is synchronized before the next keyframe of the feed, at 180
+			if (sequence == 170) {
+				Thread.sleep(50);
+				SpectatorClient late = clients.get(3);
+				assertTrue(late.poll());
+				assertTrue(late.getTerritory().isSynced());
+				assertArrayEquals(state.cells, late.getLatestState().cells);
+			}
+		}
+		Thread.sleep(50);
+		step(state, territory, 200, 9);
+		broadcaster.broadcast(state, territory);
+		Thread.sleep(50);
+
+		// Every spectator has the same state as the broadcaster
+		assertEquals(4, broadcaster.getSpectatorCount());
+		for (SpectatorClient client : clients) {
+			assertTrue(client.poll());
+			MatchState latest = client.getLatestState();
+			assertNotNull(latest);
+			assertEquals(200, latest.sequence);
+			assertEquals(state.tankX[0], latest.tankX[0]);
+			assertArrayEquals(state.cells, latest.cells);
+			assertTrue(client.getTerritory().isSynced());
+			client.close();
+		}
+
+		// Each tick is encoded once whatever the number of spectators
+		assertTrue(broadcaster.getBytesWritten() > 2 * broadcaster.getBytesEncoded());
+	}
+
+	@Test
+	void slowSpectatorDoesNotStallTheMatch() throws Exception {
+		// A spectator that never reads, with a small receive buffer
+		SocketChannel slow = SocketChannel.open();
+		slow.setOption(StandardSocketOptions.SO_RCVBUF, 1024);
+		slow.connect(address);
+		SpectatorClient fast = new SpectatorClient(address);
+
+		MatchState state = new MatchState();
+		TerritoryFeed territory = new TerritoryFeed();
+		long start = System.nanoTime();
+		int sequence = 0;
+		while (broadcaster.getDisconnections() == 0 && sequence < 500_000) {
+			step(state, territory, sequence++, 400);
+			broadcaster.broadcast(state, territory);
+			fast.poll();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		// The slow spectator skipped to keyframes and was finally disconnected, while the fast one kept up
+		assertTrue(broadcaster.getSkips() > 0);
+		assertEquals(1, broadcaster.getDisconnections());
+		assertEquals(1, broadcaster.getSpectatorCount());
+		assertTrue(elapsed / sequence < 1_000_000);
+		assertTrue(fast.getFramesDecoded() > 0);
+
+		// Frames are reused: the pool never holds more than the ones pending at once
+		fast.close();
+		slow.close();
+		broadcaster.close();
+		int pooled = broadcaster.getPooledFrames();
+		assertTrue(pooled > 0 && pooled <= 2 * 32 + 1);
+	}
+}
@@ -0,0 +1,89 @@
+package net;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerritoryFeedTest {
+
+	private static final int KEYFRAME_INTERVAL = 10;
+	private static final int TICKS = 35;
+
+	/**
+	 * Paints a 3x3 splat like a bullet does.
+	 */
+	private void splat(TerritoryFeed feed, Random random) {
+		int column = random.nextInt(55);
+		int row = random.nextInt(27);
+		int owner = 1 + random.nextInt(2);
+		for (int i = column; i < column + 3; i++) {
+			for (int j = row; j < row + 3; j++) {
+				feed.ownerChanged(i * 29 + j, owner);
+			}
+		}
+	}
+
+	@Test
+	void viewersFollowTheFeed() {
+		TerritoryFeed feed = new TerritoryFeed(KEYFRAME_INTERVAL);
+		TerritoryView viewer = new TerritoryView();
+		TerritoryView lateViewer = null;
+		Random random = new Random(42);
+		ByteBuffer frame = ByteBuffer.allocate(TerritoryFeed.MAX_FRAME_SIZE);
+
+		for (int tick = 0; tick < TICKS; tick++) {
+			splat(feed, random);
+			splat(feed, random);
+
+			// We check that keyframes are written at the interval and deltas are small
+			boolean keyframe = feed.writeFrame(tick, frame.clear());
+			assertEquals(tick % KEYFRAME_INTERVAL == 0, keyframe);
+			if (!keyframe) {
+				assertTrue(frame.position() < 40);
+			}
+
+			// The viewer applies every frame
+			assertTrue(viewer.read(frame.flip()));
+			assertArrayEquals(feed.getOwners(), viewer.getOwners());
+
+			// A viewer joining late synchronizes with the last keyframe and deltas
+			if (tick == 23) {
+				lateViewer = new TerritoryView();
+				ByteBuffer sync = ByteBuffer.allocate(feed.getSyncSize());
+				feed.writeSync(sync);
+				lateViewer.readAll(sync.flip());
+			} else if (lateViewer != null) {
+				assertTrue(lateViewer.read(frame.rewind()));
+			}
+			if (lateViewer != null) {
+				assertArrayEquals(feed.getOwners(), lateViewer.getOwners());
+			}
+		}
+	}
+
+	@Test
+	void missedFrameWaitsForKeyframe() {
+		TerritoryFeed feed = new TerritoryFeed(KEYFRAME_INTERVAL);
+		TerritoryView viewer = new TerritoryView();
+		Random random = new Random(7);
+		ByteBuffer frame = ByteBuffer.allocate(TerritoryFeed.MAX_FRAME_SIZE);
+
+		for (int tick = 0; tick < 2 * KEYFRAME_INTERVAL; tick++) {
+			splat(feed, random);
+			feed.writeFrame(tick, frame.clear());
+			frame.flip();
+
+			// The viewer misses the frame of tick 3, so it ignores the deltas until the next keyframe
+			if (tick == 3) {
+				continue;
+			}
+			boolean expected = tick < 3 || tick >= KEYFRAME_INTERVAL;
+			assertEquals(expected, viewer.read(frame));
+			assertEquals(expected, viewer.isSynced());
+		}
+		assertArrayEquals(feed.getOwners(), viewer.getOwners());
+	}
+}
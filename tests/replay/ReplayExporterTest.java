@@ -0,0 +1,170 @@
+package replay;
+
+import ai.Bot;
+import graphics.Assets;
+import input.KeyBoard;
+import main.Game1;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import javax.imageio.ImageIO;
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayExporterTest {
+	private static final int TICKS = 240;
+
+	@TempDir
+	Path tempDir;
+
+	/**
+	 * Records a match between bots, returning the state hash of every tick.
+	 */
+	private static long[] record(Path file) throws IOException {
+		Assets.init();
+		Match match = TestMatches.newMatch();
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		new Bot(p1);
+		new Bot(p2);
+		match.setRecording(new MatchRecording(match));
+		long[] hashes = new long[TICKS];
+		for (int tick = 0; tick < TICKS; tick++) {
+			match.tick();
+			hashes[tick] = match.getStateHash();
+		}
+		match.getRecording().save(file);
+		return hashes;
+	}
+
+	@Test
+	void replayIsIdenticalToTheMatch() throws IOException {
+		Path file = tempDir.resolve("match.rec");
+		long[] hashes = record(file);
+
+		MatchRecording recording = MatchRecording.load(file);
+		assertEquals(TICKS, recording.getTicks());
+		Match replay = recording.newMatch();
+		for (int tick = 0; tick < TICKS; tick++) {
+			recording.apply(replay);
+			replay.tick();
+			assertEquals(hashes[tick], replay.getStateHash(), "Diverged at tick " + tick);
+		}
+	}
+
+	@Test
+	void replayOfRealKeyBoardsIsIdentical() throws IOException {
+		Assets.init();
+		Match match = TestMatches.newMatch();
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+
+		// The keys of player 1 change in the middle of every tick, as if the
+		// event thread changed them, once player 2 has read its own keys
+		KeyBoard keys1 = p1.keyBoard, keys2 = p2.keyBoard;
+		int[] changingKeys = { keys1.upKey, keys1.leftKey, keys1.shootKey, keys1.downKey };
+		Canvas source = new Canvas();
+		int[] presses = { 0 };
+		p2.keyBoard = new KeyBoard(keys2.upKey, keys2.downKey, keys2.leftKey, keys2.rightKey,
+				keys2.shootKey, keys2.boostKey) {
+			@Override
+			public void update() {
+				super.update();
+				for (int key : changingKeys) {
+					keyReleased(new KeyEvent(source, KeyEvent.KEY_RELEASED, 0, 0, key, KeyEvent.CHAR_UNDEFINED));
+				}
+				int key = changingKeys[presses[0]++ / 7 % changingKeys.length];
+				keyPressed(new KeyEvent(source, KeyEvent.KEY_PRESSED, 0, 0, key, KeyEvent.CHAR_UNDEFINED));
+			}
+		};
+
+		Path file = tempDir.resolve("keys.rec");
+		match.setRecording(new MatchRecording(match));
+		long[] hashes = new long[TICKS];
+		try {
+			for (int tick = 0; tick < TICKS; tick++) {
+				match.tick();
+				hashes[tick] = match.getStateHash();
+			}
+		} finally {
+			for (int key : changingKeys) {
+				keys1.keyReleased(new KeyEvent(source, KeyEvent.KEY_RELEASED, 0, 0, key, KeyEvent.CHAR_UNDEFINED));
+			}
+		}
+		match.getRecording().save(file);
+
+		// The recording has the keys the tick read, not the ones pressed after
+		MatchRecording recording = MatchRecording.load(file);
+		Match replay = recording.newMatch();
+		for (int tick = 0; tick < TICKS; tick++) {
+			recording.apply(replay);
+			replay.tick();
+			assertEquals(hashes[tick], replay.getStateHash(), "Diverged at tick " + tick);
+		}
+	}
+
+	@Test
+	void parallelExportDrawsTheSameFrames() throws IOException {
+		Path file = tempDir.resolve("match.rec");
+		record(file);
+		MatchRecording recording = MatchRecording.load(file);
+		Path frames = tempDir.resolve("frames");
+		int step = 3;
+		int count = new ReplayExporter(recording, frames, ReplayExporter.Format.RGB, step, 3).export();
+		assertEquals(TICKS / step, count);
+
+		// Drawn from the start, without snapshots
+		Match match = recording.newMatch();
+		BufferedImage image = new BufferedImage(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		for (int frame = 0; frame < count; frame++) {
+			while (match.getClock().getTick() < (long) frame * step) {
+				recording.apply(match);
+				match.tick();
+			}
+			match.draw(g);
+			byte[] rgb = Files.readAllBytes(frames.resolve(String.format("frame_%05d.rgb", frame)));
+			assertEquals(image.getWidth() * image.getHeight() * 3, rgb.length);
+			for (int y = 0; y < image.getHeight(); y += 7) {
+				for (int x = 0; x < image.getWidth(); x += 5) {
+					int i = (y * image.getWidth() + x) * 3;
+					int pixel = (rgb[i] & 0xFF) << 16 | (rgb[i + 1] & 0xFF) << 8 | rgb[i + 2] & 0xFF;
+					assertEquals(image.getRGB(x, y) & 0xFFFFFF, pixel, "Frame " + frame + " differs at " + x + "," + y);
+				}
+			}
+		}
+		g.dispose();
+	}
+
+	@Test
+	void pngFramesHaveTheSamePixels() throws IOException {
+		Path file = tempDir.resolve("match.rec");
+		record(file);
+		MatchRecording recording = MatchRecording.load(file);
+		int step = 80;
+		new ReplayExporter(recording, tempDir.resolve("rgb"), ReplayExporter.Format.RGB, step, 2).export();
+		int count = new ReplayExporter(recording, tempDir.resolve("png"), ReplayExporter.Format.PNG, step, 2).export();
+		assertEquals(TICKS / step, count);
+
+		for (int frame = 0; frame < count; frame++) {
+			BufferedImage png = ImageIO.read(tempDir.resolve("png").resolve(String.format("frame_%05d.png", frame)).toFile());
+			byte[] rgb = Files.readAllBytes(tempDir.resolve("rgb").resolve(String.format("frame_%05d.rgb", frame)));
+			assertEquals(Game1.SCREEN_WIDTH, png.getWidth());
+			assertEquals(Game1.SCREEN_HEIGHT, png.getHeight());
+			for (int y = 0, i = 0; y < png.getHeight(); y++) {
+				for (int x = 0; x < png.getWidth(); x++, i += 3) {
+					int pixel = (rgb[i] & 0xFF) << 16 | (rgb[i + 1] & 0xFF) << 8 | rgb[i + 2] & 0xFF;
+					assertEquals(pixel, png.getRGB(x, y) & 0xFFFFFF, "Frame " + frame + " differs at " + x + "," + y);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,263 @@
+package soak;
+
+import graphics.Assets;
+import main.Game1;
+import main.JsonPlayersStore;
+import main.PlayersManagement;
+import states.Match;
+
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Soak test of the game without window: it cycles MENU -> MATCH -> MENU
+ * many times with scripted key presses, and fails if something accumulates
+ * across the cycles: the heap after a GC, the key listeners of the canvas,
+ * the threads, the time of a match frame, or the arenas built.
+ * <p>
+ *     Every cycle types the names of both players in the menu, plays a short
+ *     match with both tanks moving and shooting, and leaves it with ESC. The
+ *     measures are taken every CHECKPOINTS part of the cycles, and compared
+ *     with the first checkpoint, taken after the warm-up.
+ * </p>
+ * <p>
+ *     Run it headless with the main classpath, the resources and Gson, e.g.
+ *     java -Djava.awt.headless=true -cp out:res:gson.jar soak.SoakHarness 20000
+ *     The arguments are the cycles, the ticks of every match and how often
+ *     the frames are drawn (every n frames, 0 for never). It exits with 1
+ *     if something grew.
+ * </p>
+ */
+public class SoakHarness {
+	/**
+	 * Number of checkpoints, the first one being the baseline.
+	 */
+	private static final int CHECKPOINTS = 10;
+	/**
+	 * Frames the menu needs to process a key, over its cool down.
+	 */
+	private static final int KEY_FRAMES = 8;
+	/**
+	 * Heap growth tolerated over the baseline: a fraction of it and a minimum, in bytes.
+	 */
+	private static final double HEAP_TOLERANCE = 0.2;
+	private static final long MIN_HEAP_TOLERANCE = 4L << 20;
+	/**
+	 * Growth of the median time of a match frame tolerated over the baseline.
+	 */
+	private static final double TIME_TOLERANCE = 0.5;
+	private static final long MIN_TIME_TOLERANCE = 50_000;
+
+	private final Game1 game;
+	private final Canvas canvas;
+	private final Graphics2D graphics;
+	private final int drawEvery;
+	private long frames;
+	/**
+	 * Durations of the match frames since the last checkpoint, in nanoseconds.
+	 */
+	private long[] frameTimes = new long[1024];
+	private int frameCount;
+
+	/**
+	 * Measures taken at a checkpoint.
+	 */
+	private static class Checkpoint {
+		int cycle;
+		long heap;
+		int listeners;
+		int threads;
+		long frameTime;
+	}
+
+	private SoakHarness(PlayersManagement playersManagement, int drawEvery) {
+		this.game = new Game1(playersManagement);
+		this.canvas = game.getCanvas();
+		this.drawEvery = drawEvery;
+		BufferedImage image = new BufferedImage(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		this.graphics = image.createGraphics();
+	}
+
+	public static void main(String[] args) throws IOException {
+		int cycles = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		int matchTicks = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+		int drawEvery = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		List<String> failures = run(cycles, matchTicks, drawEvery, System.out);
+		failures.forEach(System.out::println);
+		System.exit(failures.isEmpty() ? 0 : 1);
+	}
+
+	/**
+	 * Runs the soak test with the players data in a temporary directory.
+	 * @param cycles The MENU -> MATCH -> MENU cycles, at least CHECKPOINTS.
+	 * @param matchTicks The ticks of every match.
+	 * @param drawEvery How often the frames are drawn: every n frames, 0 for never.
+	 * @param out Where the measures of every checkpoint are printed.
+	 * @return The measures that grew, empty if none did.
+	 * @throws IOException If the temporary directory cannot be created.
+	 */
+	public static List<String> run(int cycles, int matchTicks, int drawEvery, PrintStream out) throws IOException {
+		Assets.init();
+		Path directory = Files.createTempDirectory("soak");
+		Path players = directory.resolve("players.json");
+		try {
+			SoakHarness harness = new SoakHarness(new PlayersManagement(new JsonPlayersStore(players)), drawEvery);
+			return harness.run(cycles, matchTicks, out);
+		} finally {
+			Files.deleteIfExists(players);
+			Files.delete(directory);
+		}
+	}
+
+	private List<String> run(int cycles, int matchTicks, PrintStream out) {
+		out.printf("%8s %10s %10s %8s %14s%n", "cycle", "heap (KB)", "listeners", "threads", "frame p50 (us)");
+		List<Checkpoint> checkpoints = new ArrayList<>();
+		int interval = Math.max(1, cycles / CHECKPOINTS);
+		for (int cycle = 1; cycle <= cycles; cycle++) {
+			playCycle(cycle, matchTicks);
+			if (cycle % interval == 0) {
+				Checkpoint checkpoint = measure(cycle);
+				checkpoints.add(checkpoint);
+				out.printf("%8d %10d %10d %8d %14.1f%n", checkpoint.cycle, checkpoint.heap >> 10,
+						checkpoint.listeners, checkpoint.threads, checkpoint.frameTime / 1000.0);
+			}
+		}
+		graphics.dispose();
+		List<String> failures = compare(checkpoints);
+		// Every match reuses the arena of the first one
+		if (game.getArenaPool().getCreated() > 1) {
+			failures.add("arenas built: " + game.getArenaPool().getCreated());
+		}
+		return failures;
+	}
+
+	/**
+	 * Plays a cycle: types the names in the menu, starts the match, plays it
+	 * and leaves it with ESC.
+	 */
+	private void playCycle(int cycle, int matchTicks) {
+		if (!(game.getCurrentState() instanceof states.MainMenu)) {
+			throw new IllegalStateException("Cycle " + cycle + " did not start in the menu");
+		}
+		int digit = KeyEvent.VK_0 + cycle % 10;
+
+		// New game, both names, and the match
+		for (int key : new int[] { KeyEvent.VK_ENTER, KeyEvent.VK_A, digit, KeyEvent.VK_ENTER,
+				KeyEvent.VK_B, digit, KeyEvent.VK_ENTER, KeyEvent.VK_ENTER }) {
+			type(key, KEY_FRAMES);
+		}
+		runFrames(1);
+		if (!(game.getCurrentState() instanceof Match)) {
+			throw new IllegalStateException("Cycle " + cycle + " did not start a match");
+		}
+
+		// Both tanks move, turning one way or the other, and shoot
+		int[] keys = cycle % 2 == 0
+				? new int[] { KeyEvent.VK_W, KeyEvent.VK_A, KeyEvent.VK_SPACE, KeyEvent.VK_UP, KeyEvent.VK_RIGHT, KeyEvent.VK_ENTER }
+				: new int[] { KeyEvent.VK_W, KeyEvent.VK_D, KeyEvent.VK_SPACE, KeyEvent.VK_UP, KeyEvent.VK_LEFT, KeyEvent.VK_CONTROL };
+		for (int key : keys) {
+			dispatch(KeyEvent.KEY_PRESSED, key);
+		}
+		for (int tick = 0; tick < matchTicks; tick++) {
+			long start = System.nanoTime();
+			runFrames(1);
+			recordFrameTime(System.nanoTime() - start);
+		}
+		for (int key : keys) {
+			dispatch(KeyEvent.KEY_RELEASED, key);
+		}
+		type(KeyEvent.VK_ESCAPE, 2);
+	}
+
+	/**
+	 * Presses and releases a key, running frames while it is pressed.
+	 */
+	private void type(int keyCode, int frames) {
+		dispatch(KeyEvent.KEY_PRESSED, keyCode);
+		runFrames(frames);
+		dispatch(KeyEvent.KEY_RELEASED, keyCode);
+	}
+
+	/**
+	 * Delivers a key event to the listeners of the canvas, like AWT does for
+	 * the focused component.
+	 */
+	private void dispatch(int id, int keyCode) {
+		KeyEvent event = new KeyEvent(canvas, id, System.currentTimeMillis(), 0, keyCode, KeyEvent.CHAR_UNDEFINED);
+		for (KeyListener listener : canvas.getKeyListeners()) {
+			if (id == KeyEvent.KEY_PRESSED) {
+				listener.keyPressed(event);
+			} else {
+				listener.keyReleased(event);
+			}
+		}
+	}
+
+	private void runFrames(int count) {
+		for (int i = 0; i < count; i++) {
+			frames++;
+			game.runFrame(drawEvery > 0 && frames % drawEvery == 0 ? graphics : null);
+		}
+	}
+
+	private void recordFrameTime(long nanos) {
+		if (frameCount == frameTimes.length) {
+			frameTimes = Arrays.copyOf(frameTimes, frameCount * 2);
+		}
+		frameTimes[frameCount++] = nanos;
+	}
+
+	/**
+	 * Takes the measures, after collecting the garbage.
+	 */
+	private Checkpoint measure(int cycle) {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		Checkpoint checkpoint = new Checkpoint();
+		checkpoint.cycle = cycle;
+		checkpoint.heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		checkpoint.listeners = canvas.getKeyListeners().length;
+		checkpoint.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+		Arrays.sort(frameTimes, 0, frameCount);
+		checkpoint.frameTime = frameCount > 0 ? frameTimes[frameCount / 2] : 0;
+		frameCount = 0;
+		return checkpoint;
+	}
+
+	/**
+	 * Compares the last checkpoint with the first one.
+	 */
+	private static List<String> compare(List<Checkpoint> checkpoints) {
+		List<String> failures = new ArrayList<>();
+		if (checkpoints.size() < 2) {
+			failures.add("Not enough cycles for comparing checkpoints");
+			return failures;
+		}
+		Checkpoint first = checkpoints.get(0), last = checkpoints.get(checkpoints.size() - 1);
+		if (last.heap > first.heap + Math.max(MIN_HEAP_TOLERANCE, (long) (first.heap * HEAP_TOLERANCE))) {
+			failures.add("The heap grew from " + (first.heap >> 10) + " KB to " + (last.heap >> 10) + " KB");
+		}
+		if (last.listeners > first.listeners) {
+			failures.add("The key listeners grew from " + first.listeners + " to " + last.listeners);
+		}
+		if (last.threads > first.threads) {
+			failures.add("The threads grew from " + first.threads + " to " + last.threads);
+		}
+		if (last.frameTime > first.frameTime + Math.max(MIN_TIME_TOLERANCE, (long) (first.frameTime * TIME_TOLERANCE))) {
+			failures.add("The frame time grew from " + first.frameTime / 1000 + " us to " + last.frameTime / 1000 + " us");
+		}
+		return failures;
+	}
+}
@@ -0,0 +1,20 @@
+package soak;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoakHarnessTest {
+
+	@Test
+	void shortSoakDoesNotAccumulate() throws IOException {
+		ByteArrayOutputStream table = new ByteArrayOutputStream();
+		List<String> failures = SoakHarness.run(60, 30, 5, new PrintStream(table));
+		assertTrue(failures.isEmpty(), failures + "\n" + table);
+	}
+}
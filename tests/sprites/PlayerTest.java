@@ -0,0 +1,69 @@
+package sprites;
+
+import arena.Arena;
+import arena.ChunkedTerritory;
+import graphics.Assets;
+import math.Vector2D;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import states.Match;
+import states.TestMatches;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerTest {
+
+	private Match match;
+
+	@BeforeEach
+	void setUp() {
+		Assets.init();
+		match = TestMatches.newMatch();
+	}
+
+	/**
+	 * Returns the first cell of the grid containing a position, as found by
+	 * going through the hit boxes of the cells.
+	 */
+	private Vector2D findCell(int x, int y) {
+		Cell[][] cells = match.cellsGrid;
+		for (int i = 0; i < cells.length; i++) {
+			for (int j = 0; j < cells[i].length; j++) {
+				if (cells[i][j].hitBox.contains(x, y)) {
+					return new Vector2D(i, j);
+				}
+			}
+		}
+		return null;
+	}
+
+	@Test
+	void epicenterIsTheFirstCellContainingTheBullet() {
+		Player player = match.getPlayer1();
+		int width = Match.COLUMNS * ChunkedTerritory.CELL_SIZE, height = Match.ROWS * ChunkedTerritory.CELL_SIZE;
+
+		// Every column, the pixels shared by two cells included
+		int y = Arena.GRID_Y + 100;
+		for (int x = Arena.GRID_X; x <= Arena.GRID_X + width; x++) {
+			Vector2D epicenter = player.getEpicenter(new Vector2D(x + 0.5, y));
+			Vector2D cell = findCell(x, y);
+			assertEquals(cell.getX(), epicenter.getX(), "Column at " + x);
+			assertEquals(cell.getY(), epicenter.getY(), "Row at " + x);
+		}
+
+		// Every row, and the columns outside the grid, which are clamped
+		for (int row = Arena.GRID_Y; row <= Arena.GRID_Y + height; row++) {
+			Vector2D epicenter = player.getEpicenter(new Vector2D(Arena.GRID_X - 40, row));
+			assertEquals(findCell(Arena.GRID_X, row).getY(), epicenter.getY(), "Row at " + row);
+			assertEquals(0, epicenter.getX());
+		}
+		assertEquals(Match.COLUMNS - 1, player.getEpicenter(new Vector2D(Arena.GRID_X + width + 40, y)).getX());
+
+		// Above and below the grid, no cell is found
+		for (int row : new int[] { Arena.GRID_Y - 1, Arena.GRID_Y + height + 1 }) {
+			assertNull(findCell(Arena.GRID_X + 100, row));
+			Vector2D epicenter = player.getEpicenter(new Vector2D(Arena.GRID_X + 100, row));
+			assertTrue(epicenter.getY() >= Match.ROWS, "Row at " + row);
+		}
+	}
+}
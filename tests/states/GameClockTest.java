@@ -0,0 +1,95 @@
+package states;
+
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import net.MatchSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameClockTest {
+
+	@BeforeEach
+	void setUp() {
+		Assets.init();
+	}
+
+	private static Match createMatch() {
+		Match match = TestMatches.newMatch();
+		for (Player player : match.getPlayers()) {
+			RemoteKeyBoard keyBoard = new RemoteKeyBoard(player.keyBoard);
+			keyBoard.setButtons(KeyBoard.UP | KeyBoard.LEFT | KeyBoard.SHOOT);
+			player.keyBoard = keyBoard;
+		}
+		return match;
+	}
+
+	private static long checksum(Match match) {
+		MatchSnapshot snapshot = new MatchSnapshot();
+		snapshot.save(match, 0);
+		return snapshot.checksum();
+	}
+
+	@Test
+	void pauseAndTimeScale() {
+		GameClock clock = new GameClock();
+		assertEquals(1, clock.frame());
+
+		clock.setPaused(true);
+		assertEquals(0, clock.frame());
+		clock.setPaused(false);
+
+		// Half speed simulates a tick every other frame
+		clock.setTimeScale(0.5);
+		int ticks = 0;
+		for (int frame = 0; frame < 10; frame++) {
+			ticks += clock.frame();
+		}
+		assertEquals(5, ticks);
+
+		clock.setTimeScale(100);
+		assertEquals(100, clock.frame());
+		assertThrows(IllegalArgumentException.class, () -> clock.setTimeScale(-1));
+	}
+
+	@Test
+	void matchEndsAfterItsTicks() {
+		Match match = createMatch();
+		assertEquals(Match.MATCH_SECONDS, match.getRemainingSeconds());
+		assertTrue(match.getPlayer1().tank.isInvincible());
+
+		// A paused match does not advance
+		match.getClock().setPaused(true);
+		match.update();
+		assertEquals(0, match.getClock().getTick());
+		match.getClock().setPaused(false);
+
+		match.fastForward(GameClock.toTicks(5));
+		assertFalse(match.getPlayer1().tank.isInvincible());
+		assertEquals(Match.MATCH_SECONDS - 5, match.getRemainingSeconds());
+
+		long ticks = match.fastForward(Long.MAX_VALUE);
+		assertTrue(match.isFinished());
+		assertEquals(GameClock.toTicks(Match.MATCH_SECONDS) + 1, match.getClock().getTick());
+		assertEquals(GameClock.toTicks(Match.MATCH_SECONDS - 5) + 1, ticks);
+		assertEquals(0, match.getRemainingSeconds());
+	}
+
+	@Test
+	void fastForwardIsReproducible() {
+		Match fastForwarded = createMatch();
+		fastForwarded.getClock().setTimeScale(1000);
+		while (!fastForwarded.isFinished()) {
+			fastForwarded.update();
+		}
+
+		Match ticked = createMatch();
+		while (!ticked.isFinished()) {
+			ticked.tick();
+		}
+		assertEquals(checksum(ticked), checksum(fastForwarded));
+	}
+}
@@ -0,0 +1,119 @@
+package states;
+
+import arena.Arena;
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import main.Game1;
+import main.PlayersManagement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchDrawChangesTest {
+
+	@BeforeEach
+	void setUp() {
+		Assets.init();
+	}
+
+	private static Match createMatch(int count) {
+		Player[] players = TestMatches.newPlayers(count, 0);
+		for (Player player : players) {
+			player.keyBoard = new RemoteKeyBoard(player.keyBoard);
+		}
+		return new Match((PlayersManagement) null, players, new Arena());
+	}
+
+	private static BufferedImage newFrame() {
+		return new BufferedImage(Game1.SCREEN_WIDTH, Game1.SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+	}
+
+	private static int[] pixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Plays the same match three times with the same random players, drawing
+	 * every frame whole in the first one, and only the changes in the others
+	 * over the last frame and over the frame before it, which must give the
+	 * same frames.
+	 * @return The fraction of the screen redrawn in a frame, on average.
+	 */
+	private static double drawChangesLikeWholeFrames(int count, int frames) {
+		Match whole = createMatch(count), last = createMatch(count), beforeLast = createMatch(count);
+		Match[] matches = { whole, last, beforeLast };
+		BufferedImage wholeFrame = newFrame(), lastFrame = newFrame();
+		BufferedImage[] flipped = { newFrame(), newFrame() };
+		Graphics2D wholeGraphics = wholeFrame.createGraphics(), lastGraphics = lastFrame.createGraphics();
+		Graphics2D[] flippedGraphics = { flipped[0].createGraphics(), flipped[1].createGraphics() };
+
+		Random random = new Random(50);
+		long repainted = 0;
+		for (int frame = 0; frame < frames; frame++) {
+			if (frame % 10 == 0) {
+				int[] buttons = new int[count];
+				for (int i = 0; i < count; i++) {
+					buttons[i] = random.nextInt(KeyBoard.BOOST) | KeyBoard.SHOOT;
+				}
+				for (Match match : matches) {
+					Player[] players = match.getPlayers();
+					for (int i = 0; i < count; i++) {
+						((RemoteKeyBoard) players[i].keyBoard).setButtons(buttons[i]);
+					}
+				}
+			}
+			for (Match match : matches) {
+				// Sometimes several ticks, and a pause, between two frames
+				match.fastForward(1 + frame % 3);
+				match.getClock().setPaused(frame % 50 >= 45);
+			}
+
+			whole.draw(wholeGraphics);
+			last.drawChanges(lastGraphics, 1);
+			if (frame > 0) {
+				repainted += last.getRepaintedArea();
+			}
+			beforeLast.drawChanges(flippedGraphics[frame % 2], 2);
+			assertArrayEquals(pixels(wholeFrame), pixels(lastFrame), "Frame " + frame + " over the last one");
+			assertArrayEquals(pixels(wholeFrame), pixels(flipped[frame % 2]),
+					"Frame " + frame + " over the one before the last");
+		}
+		wholeGraphics.dispose();
+		lastGraphics.dispose();
+		flippedGraphics[0].dispose();
+		flippedGraphics[1].dispose();
+		return (double) repainted / (frames - 1) / (Game1.SCREEN_WIDTH * Game1.SCREEN_HEIGHT);
+	}
+
+	@Test
+	void drawsTheSameFramesAsDrawingThemWhole() {
+		double repainted = drawChangesLikeWholeFrames(2, 150);
+		assertTrue(repainted < 0.2, "The frames redraw " + repainted + " of the screen");
+	}
+
+	@Test
+	void drawsTheScoreboardOfBiggerMatches() {
+		drawChangesLikeWholeFrames(6, 60);
+	}
+
+	@Test
+	void firstFrameIsDrawnWhole() {
+		Match match = createMatch(2);
+		BufferedImage frame = newFrame();
+		Graphics2D g = frame.createGraphics();
+		match.drawChanges(g, 1);
+		assertEquals(Game1.SCREEN_WIDTH * Game1.SCREEN_HEIGHT, match.getRepaintedArea());
+		// Nothing changed but the tanks, fading while invincible, and their bullets
+		match.drawChanges(g, 1);
+		assertTrue(match.getRepaintedArea() < Game1.SCREEN_WIDTH * Game1.SCREEN_HEIGHT / 20);
+		g.dispose();
+	}
+}
@@ -0,0 +1,129 @@
+package states;
+
+import arena.Arena;
+import arena.CoverageIndex;
+import graphics.Assets;
+import input.KeyBoard;
+import input.RemoteKeyBoard;
+import main.PlayersManagement;
+import net.MatchSnapshot;
+import net.MatchState;
+import net.RollbackSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import replay.MatchRecording;
+import sprites.Bullet;
+import sprites.Cell;
+import sprites.Player;
+import sprites.Tank;
+
+import java.awt.geom.Rectangle2D;
+import java.net.InetSocketAddress;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiPlayerMatchTest {
+
+	@BeforeEach
+	void setUp() {
+		Assets.init();
+	}
+
+	@Test
+	void sixteenPlayersSpawnApart() {
+		Match match = new Match((PlayersManagement) null, TestMatches.newPlayers(Player.MAX_PLAYERS, 0), new Arena());
+		Player[] players = match.getPlayers();
+		for (int i = 0; i < players.length; i++) {
+			Rectangle2D box = players[i].tank.hitBox;
+			assertFalse(match.getOccupancy().isBlocked(box), "Player " + (i + 1) + " spawns in a block");
+			for (int j = i + 1; j < players.length; j++) {
+				assertFalse(box.intersects(players[j].tank.hitBox), "Players " + (i + 1) + " and " + (j + 1) + " overlap");
+			}
+		}
+	}
+
+	@Test
+	void freeForAllKeepsTheTerritoryOfEveryPlayer() {
+		Player[] players = TestMatches.newPlayers(Player.MAX_PLAYERS, 0);
+		Match match = new Match((PlayersManagement) null, players, new Arena());
+		Random random = new Random(49);
+		RemoteKeyBoard[] keyBoards = new RemoteKeyBoard[players.length];
+		for (int i = 0; i < players.length; i++) {
+			keyBoards[i] = new RemoteKeyBoard(players[i].keyBoard);
+			players[i].keyBoard = keyBoards[i];
+		}
+		CoverageIndex coverage = match.getCoverage();
+		for (int tick = 0; tick < 600; tick++) {
+			if (tick % 20 == 0) {
+				for (RemoteKeyBoard keyBoard : keyBoards) {
+					keyBoard.setButtons(random.nextInt(64));
+				}
+			}
+			match.tick();
+		}
+
+		int[] owned = new int[Player.MAX_PLAYERS + 1];
+		for (Cell[] column : match.cellsGrid) {
+			for (Cell cell : column) {
+				owned[cell.getOwner()]++;
+			}
+		}
+		int painters = 0;
+		for (int owner = 0; owner <= Player.MAX_PLAYERS; owner++) {
+			assertEquals(owned[owner], coverage.count(owner, 0, 0, Match.COLUMNS, Match.ROWS));
+			painters += owner > 0 && owned[owner] > 0 ? 1 : 0;
+		}
+		assertTrue(painters > 2, "Only " + painters + " players painted");
+	}
+
+	@Test
+	void teamsShareCellsAndDoNotShootEachOther() {
+		Player[] players = TestMatches.newPlayers(4, 2);
+		Match match = new Match((PlayersManagement) null, players, new Arena());
+		Player p1 = players[0], p2 = players[1], p3 = players[2];
+		assertEquals(1, p3.getTeam());
+		assertEquals(p2, p1.enemy);
+
+		// A teammate's cell is not won, the other team's is taken from its best player
+		Cell cell = match.cellsGrid[3][3];
+		cell.setColor(p1);
+		cell.setColor(p3);
+		assertEquals(1, p1.points);
+		assertEquals(0, p3.points);
+		p3.points = 5;
+		cell.setColor(p2);
+		assertEquals(2, cell.getOwner());
+		assertEquals(1, p1.points);
+		assertEquals(4, p3.points);
+		assertEquals(1, match.getTeamPoints(2));
+		assertEquals(1, match.getWinningTeam());
+
+		// A bullet goes through a teammate and hits an enemy
+		Bullet bullet = new Bullet(p1);
+		Tank teammate = p3.tank, enemy = p2.tank;
+		teammate.hitBox = (Rectangle2D) bullet.hitBox.clone();
+		match.getTankGrid().update(teammate);
+		assertFalse(bullet.isColliding());
+		enemy.hitBox = (Rectangle2D) bullet.hitBox.clone();
+		match.getTankGrid().update(enemy);
+		assertTrue(bullet.isColliding());
+		assertEquals(p1, enemy.lastHitBy);
+	}
+
+	@Test
+	void matchesOfMorePlayersAreNotRecorded() {
+		Match match = new Match((PlayersManagement) null, TestMatches.newPlayers(3, 0), new Arena());
+		assertThrows(IllegalStateException.class, () -> match.setRecording(new MatchRecording(match)));
+		// Nor kept in the states and snapshots of two players
+		assertThrows(IllegalArgumentException.class, () -> new MatchState().capture(match, 0));
+		assertThrows(IllegalArgumentException.class, () -> new MatchSnapshot().save(match, 0));
+		assertThrows(IllegalArgumentException.class, () -> new RollbackSession(match, 0,
+				new InetSocketAddress("127.0.0.1", 0), new InetSocketAddress("127.0.0.1", 0)));
+		Player[] unordered = TestMatches.newPlayers(3, 0);
+		Player first = unordered[0];
+		unordered[0] = unordered[1];
+		unordered[1] = first;
+		assertThrows(IllegalArgumentException.class, () -> new Match((PlayersManagement) null, unordered, new Arena()));
+	}
+}
@@ -0,0 +1,68 @@
+package states;
+
+import arena.Arena;
+import main.PlayersManagement;
+import sprites.Player;
+
+/**
+ * Matches and players for the tests and benchmarks. The matches are not
+ * played in a window, and their results are not recorded.
+ */
+public final class TestMatches {
+
+	private TestMatches() { }
+
+	/**
+	 * Creates a match of two players, P1 and P2, in the classic arena.
+	 * @return The match.
+	 */
+	public static Match newMatch() {
+		return newMatch(new Arena());
+	}
+
+	/**
+	 * Creates a match of two players, P1 and P2, in a large arena.
+	 * @param columns The columns of cells of the arena, 0 for the classic arena.
+	 * @param rows The rows of cells of the arena, 0 for the classic arena.
+	 * @return The match.
+	 */
+	public static Match newMatch(int columns, int rows) {
+		return newMatch(new Arena(columns, rows));
+	}
+
+	/**
+	 * Creates a match of two players, P1 and P2, in an arena.
+	 * @param arena The arena, which must not be used by another match.
+	 * @return The match.
+	 */
+	public static Match newMatch(Arena arena) {
+		Player p1 = new Player("P1", true);
+		Player p2 = new Player("P2", false);
+		p1.enemy = p2;
+		p2.enemy = p1;
+		return new Match((PlayersManagement) null, p1, p2, arena);
+	}
+
+	/**
+	 * Creates the players of a match as PlayersManagement deals them, without storing them.
+	 * @param count The number of players, named from P1.
+	 * @param teams The number of teams the players are dealt into in turn, 0 for free-for-all.
+	 * @return The players.
+	 */
+	public static Player[] newPlayers(int count, int teams) {
+		Player[] players = new Player[count];
+		for (int i = 0; i < count; i++) {
+			players[i] = new Player("P" + (i + 1), i + 1, teams == 0 ? i + 1 : i % teams + 1);
+		}
+		for (int i = 0; i < count; i++) {
+			for (int j = 1; j < count; j++) {
+				Player other = players[(i + j) % count];
+				if (other.getTeam() != players[i].getTeam()) {
+					players[i].enemy = other;
+					break;
+				}
+			}
+		}
+		return players;
+	}
+}
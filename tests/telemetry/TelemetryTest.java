@@ -0,0 +1,115 @@
+package telemetry;
+
+import ai.Bot;
+import events.EventBus;
+import graphics.Assets;
+import org.junit.jupiter.api.Test;
+import sprites.Player;
+import states.Match;
+import states.TestMatches;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryTest {
+
+	/**
+	 * Plays a match between bots, recording its telemetry to a file.
+	 * @return The counts of the events of the ticks sampled, indexed by type * 3
+	 * + player, and the ticks boosting at index player.
+	 */
+	private static int[] play(Path file, int[] finalCoverage) throws IOException {
+		Assets.init();
+		Match match = TestMatches.newMatch();
+		Player p1 = match.getPlayer1(), p2 = match.getPlayer2();
+		new Bot(p1);
+		new Bot(p2);
+		TelemetryRecorder recorder = new TelemetryRecorder(match, file);
+		match.setTelemetry(recorder);
+		EventBus.Subscription subscription = match.getEvents().subscribe();
+
+		int[] counts = new int[(EventBus.TEAM_POINTS + 1) * 3];
+		EventBus.Handler handler = (sequence, tick, type, player, a, b) -> {
+			// The tick the match ends at is not sampled
+			if (tick < match.getEndTick()) {
+				counts[type * 3 + player]++;
+			}
+		};
+		while (!match.isFinished()) {
+			match.tick();
+			subscription.poll(handler, Integer.MAX_VALUE);
+			if (!match.isFinished()) {
+				counts[1] += p1.keyBoard.isPressed(p1.keyBoard.boostKey) ? 1 : 0;
+				counts[2] += p2.keyBoard.isPressed(p2.keyBoard.boostKey) ? 1 : 0;
+				finalCoverage[1] = match.getTerritoryFeed().getOwnedCells(1);
+				finalCoverage[2] = match.getTerritoryFeed().getOwnedCells(2);
+			}
+		}
+		recorder.close();
+		return counts;
+	}
+
+	@Test
+	void recordedMatchIsReadBack() throws IOException {
+		Path file = Files.createTempFile("telemetry", ".bin");
+		try {
+			int[] coverage = new int[3];
+			int[] counts = play(file, coverage);
+			TelemetryReader reader = new TelemetryReader(file);
+			assertEquals(Match.MATCH_SECONDS * 60, reader.getTicks());
+			assertEquals(0, reader.getFirstTick());
+			assertEquals(TelemetryFormat.HEADER_SIZE + reader.getTicks() * TelemetryFormat.TICK_SIZE
+					+ (reader.getTicks() / TelemetryFormat.BLOCK_TICKS) * TelemetryFormat.BLOCK_HEADER_SIZE, Files.size(file));
+
+			int[] coverage1 = reader.getColumn(1, TelemetryFormat.COVERAGE);
+			assertEquals(coverage[1], coverage1[coverage1.length - 1]);
+			assertTrue(coverage1[0] < coverage1[coverage1.length - 1], "The match starts unpainted");
+
+			TelemetryAggregate aggregate = new TelemetryAggregate();
+			aggregate.add(file);
+			assertEquals(1, aggregate.getMatches());
+			for (int player = 1; player <= 2; player++) {
+				assertEquals(counts[EventBus.SHOT * 3 + player], aggregate.getShots(player));
+				assertEquals(counts[EventBus.HIT * 3 + player], aggregate.getHits(player));
+				assertEquals(counts[EventBus.DEATH * 3 + player], aggregate.getDeaths(player));
+				assertEquals(coverage[player], aggregate.getMeanFinalCoverage(player));
+				assertEquals(Match.MATCH_SECONDS, aggregate.getMeanCoverage(player).length);
+			}
+			assertTrue(aggregate.getShots(1) > 0);
+			assertEquals(counts[1], aggregate.getBoostTicks(1));
+			assertEquals(counts[2], aggregate.getBoostTicks(2));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	void aggregatesFilesInParallel() throws IOException {
+		Path directory = Files.createTempDirectory("telemetry");
+		Path first = directory.resolve("1.bin"), second = directory.resolve("2.bin");
+		try {
+			play(first, new int[3]);
+			play(second, new int[3]);
+			TelemetryAggregate one = new TelemetryAggregate();
+			one.add(first);
+			TelemetryAggregate both = TelemetryAggregate.of(List.of(first, second, first));
+			assertEquals(3, both.getMatches());
+			assertEquals(3L * Match.MATCH_SECONDS * 60, both.getTicks());
+
+			// The bots are deterministic, so every match is the same
+			assertEquals(3 * one.getShots(2), both.getShots(2));
+			assertEquals(one.getMeanCoverage(1)[45], both.getMeanCoverage(1)[45], 1e-9);
+
+			Files.write(second, new byte[] { 1, 2, 3 });
+			assertThrows(IOException.class, () -> TelemetryAggregate.of(List.of(first, second)));
+		} finally {
+			Files.deleteIfExists(first);
+			Files.deleteIfExists(second);
+			Files.delete(directory);
+		}
+	}
+}